@@ -0,0 +1,151 @@
+/*
+ * Copyright 2014-2019 Groupon, Inc
+ * Copyright 2014-2019 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.plugin.qualpay.benchmarks;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+// Runs the benchmarks and compares them with the stored baseline: exits with 1 when the throughput dropped,
+// or the allocations per operation grew, by more than the allowed ratio, and when there is no baseline to compare
+// with (it is only recorded when explicitly asked for, on the reference hardware)
+public class QualpayBenchmarks {
+
+    private static final String THROUGHPUT_SUFFIX = ".ops_per_ms";
+    private static final String ALLOCATION_SUFFIX = ".bytes_per_op";
+    // Allocation noise (e.g. TLAB sampling) shows up as a few bytes per operation
+    private static final double ALLOCATION_SLACK_BYTES = 16;
+
+    public static void main(final String[] args) throws IOException, RunnerException {
+        final File baselineFile = new File(System.getProperty("benchmarks.baseline", "src/jmh/baseline.properties"));
+        final boolean updateBaseline = Boolean.parseBoolean(System.getProperty("benchmarks.updateBaseline", "false"));
+        final double maxThroughputDrop = Double.parseDouble(System.getProperty("benchmarks.maxThroughputDrop", "0.10"));
+        final double maxAllocationIncrease = Double.parseDouble(System.getProperty("benchmarks.maxAllocationIncrease", "0.05"));
+
+        // Fail before running anything: a baseline recorded by the run itself would never flag a regression
+        if (!updateBaseline && !baselineFile.exists()) {
+            System.err.println("No baseline " + baselineFile + ": record one on the reference hardware with -Dbenchmarks.updateBaseline=true");
+            System.exit(1);
+        }
+
+        final Collection<RunResult> runResults = new Runner(new OptionsBuilder().include(System.getProperty("benchmarks.include", "Qualpay.*Benchmark"))
+                                                                                .addProfiler(GCProfiler.class)
+                                                                                .build()).run();
+        final Map<String, Double> results = toResults(runResults);
+
+        if (updateBaseline) {
+            storeBaseline(baselineFile, results);
+            System.out.println("Stored baseline " + baselineFile);
+            return;
+        }
+
+        final List<String> regressions = compare(loadBaseline(baselineFile), results, maxThroughputDrop, maxAllocationIncrease);
+        for (final String regression : regressions) {
+            System.err.println("REGRESSION " + regression);
+        }
+        if (!regressions.isEmpty()) {
+            System.exit(1);
+        }
+        System.out.println("No regression against " + baselineFile);
+    }
+
+    static Map<String, Double> toResults(final Iterable<RunResult> runResults) {
+        final Map<String, Double> results = new TreeMap<String, Double>();
+        for (final RunResult runResult : runResults) {
+            final String benchmark = runResult.getParams().getBenchmark();
+            final String name = benchmark.substring(benchmark.lastIndexOf('.', benchmark.lastIndexOf('.') - 1) + 1);
+            results.put(name + THROUGHPUT_SUFFIX, runResult.getPrimaryResult().getScore());
+            for (final Map.Entry<String, Result> entry : runResult.getSecondaryResults().entrySet()) {
+                // Prefixed with a middle dot in older JMH versions
+                if (entry.getKey().endsWith("gc.alloc.rate.norm")) {
+                    results.put(name + ALLOCATION_SUFFIX, entry.getValue().getScore());
+                }
+            }
+        }
+        return results;
+    }
+
+    static List<String> compare(final Map<String, Double> baseline,
+                                final Map<String, Double> results,
+                                final double maxThroughputDrop,
+                                final double maxAllocationIncrease) {
+        final List<String> regressions = new ArrayList<String>();
+        for (final Map.Entry<String, Double> entry : results.entrySet()) {
+            final Double expected = baseline.get(entry.getKey());
+            if (expected == null) {
+                // New benchmark
+                continue;
+            }
+
+            final double actual = entry.getValue();
+            if (entry.getKey().endsWith(THROUGHPUT_SUFFIX) && actual < expected * (1 - maxThroughputDrop)) {
+                regressions.add(String.format(Locale.ROOT, "%s: %.2f < %.2f", entry.getKey(), actual, expected));
+            } else if (entry.getKey().endsWith(ALLOCATION_SUFFIX) && actual > expected * (1 + maxAllocationIncrease) + ALLOCATION_SLACK_BYTES) {
+                regressions.add(String.format(Locale.ROOT, "%s: %.1f > %.1f", entry.getKey(), actual, expected));
+            }
+        }
+        return regressions;
+    }
+
+    private static Map<String, Double> loadBaseline(final File baselineFile) throws IOException {
+        final Properties properties = new Properties();
+        final InputStream inputStream = new FileInputStream(baselineFile);
+        try {
+            properties.load(inputStream);
+        } finally {
+            inputStream.close();
+        }
+
+        final Map<String, Double> baseline = new TreeMap<String, Double>();
+        for (final String key : properties.stringPropertyNames()) {
+            baseline.put(key, Double.valueOf(properties.getProperty(key)));
+        }
+        return baseline;
+    }
+
+    private static void storeBaseline(final File baselineFile, final Map<String, Double> results) throws IOException {
+        final Properties properties = new Properties();
+        for (final Map.Entry<String, Double> entry : results.entrySet()) {
+            properties.setProperty(entry.getKey(), String.format(Locale.ROOT, "%.2f", entry.getValue()));
+        }
+
+        final OutputStream outputStream = new FileOutputStream(baselineFile);
+        try {
+            properties.store(outputStream, "JMH baseline: throughput (ops/ms) and allocations (bytes/op), see README");
+        } finally {
+            outputStream.close();
+        }
+    }
+}
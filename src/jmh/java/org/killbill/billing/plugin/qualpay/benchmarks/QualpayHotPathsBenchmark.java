@@ -0,0 +1,184 @@
+/*
+ * Copyright 2014-2019 Groupon, Inc
+ * Copyright 2014-2019 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.plugin.qualpay.benchmarks;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.killbill.billing.payment.api.TransactionType;
+import org.killbill.billing.plugin.qualpay.QualpayPaymentMethodPlugin;
+import org.killbill.billing.plugin.qualpay.QualpayPaymentTransactionInfoPlugin;
+import org.killbill.billing.plugin.qualpay.QualpayPluginProperties;
+import org.killbill.billing.plugin.qualpay.client.PGApiLineItem;
+import org.killbill.billing.plugin.qualpay.client.PGApiTransactionRequest;
+import org.killbill.billing.plugin.qualpay.dao.QualpayDao;
+import org.killbill.billing.plugin.qualpay.dao.gen.tables.records.QualpayPaymentMethodsRecord;
+import org.killbill.billing.plugin.qualpay.dao.gen.tables.records.QualpayResponsesRecord;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.common.io.ByteStreams;
+import com.google.gson.reflect.TypeToken;
+import io.swagger.client.model.GatewayResponse;
+import qpPlatform.ApiClient;
+import qpPlatform.JSON;
+
+// CPU hot paths of a payment call, fed with payloads captured from the Qualpay sandbox (see fixtures)
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QualpayHotPathsBenchmark {
+
+    private final JSON json = new ApiClient().getJSON();
+
+    private String responseAdditionalData;
+    private Map responseAdditionalDataMap;
+    private QualpayResponsesRecord responsesRecord;
+    private QualpayPaymentMethodsRecord paymentMethodsRecord;
+    private GatewayResponse gatewayResponse;
+    private Map<String, Object> reportedTransaction;
+    private PGApiTransactionRequest transactionRequest;
+    private UUID kbTransactionId;
+
+    @Setup
+    public void setUp() throws IOException {
+        final UUID kbTenantId = UUID.randomUUID();
+        final UUID kbAccountId = UUID.randomUUID();
+        kbTransactionId = UUID.randomUUID();
+
+        responseAdditionalData = loadFixture("response-additional-data.json");
+        responseAdditionalDataMap = QualpayDao.fromAdditionalData(responseAdditionalData);
+
+        responsesRecord = new QualpayResponsesRecord();
+        responsesRecord.setKbAccountId(kbAccountId.toString());
+        responsesRecord.setKbPaymentId(UUID.randomUUID().toString());
+        responsesRecord.setKbPaymentTransactionId(kbTransactionId.toString());
+        responsesRecord.setTransactionType(TransactionType.PURCHASE.toString());
+        responsesRecord.setAmount(new BigDecimal("129.99"));
+        responsesRecord.setCurrency("USD");
+        responsesRecord.setQualpayId("5d1d0b5ac1c011e9a9b20a6ef2e3fa7a");
+        responsesRecord.setAdditionalData(responseAdditionalData);
+        responsesRecord.setPluginStatus("PROCESSED");
+        responsesRecord.setCreatedDate(new Timestamp(System.currentTimeMillis()));
+        responsesRecord.setKbTenantId(kbTenantId.toString());
+
+        paymentMethodsRecord = new QualpayPaymentMethodsRecord();
+        paymentMethodsRecord.setKbAccountId(kbAccountId.toString());
+        paymentMethodsRecord.setKbPaymentMethodId(UUID.randomUUID().toString());
+        paymentMethodsRecord.setQualpayId("a3b9b0c0c1c011e9a9b20a6ef2e3fa7a");
+        paymentMethodsRecord.setIsDeleted((short) 0);
+        paymentMethodsRecord.setAdditionalData(loadFixture("payment-method-additional-data.json"));
+        paymentMethodsRecord.setCreatedDate(new Timestamp(System.currentTimeMillis()));
+        paymentMethodsRecord.setUpdatedDate(new Timestamp(System.currentTimeMillis()));
+        paymentMethodsRecord.setKbTenantId(kbTenantId.toString());
+
+        gatewayResponse = json.deserialize(loadFixture("gateway-response.json"), GatewayResponse.class);
+        reportedTransaction = json.deserialize(loadFixture("reported-transaction.json"), new TypeToken<Map<String, Object>>() {}.getType());
+        transactionRequest = buildTransactionRequest();
+    }
+
+    @Benchmark
+    public QualpayPaymentTransactionInfoPlugin buildTransactionInfoPlugin() {
+        return QualpayPaymentTransactionInfoPlugin.build(responsesRecord);
+    }
+
+    @Benchmark
+    public QualpayPaymentMethodPlugin buildPaymentMethodPlugin() {
+        return QualpayPaymentMethodPlugin.build(paymentMethodsRecord);
+    }
+
+    @Benchmark
+    public Map fromAdditionalData() {
+        return QualpayDao.fromAdditionalData(responseAdditionalData);
+    }
+
+    @Benchmark
+    public String asString() throws SQLException {
+        return QualpayDao.asString(responseAdditionalDataMap);
+    }
+
+    @Benchmark
+    public Map<String, Object> gatewayResponseToAdditionalDataMap() {
+        return QualpayPluginProperties.toAdditionalDataMap(gatewayResponse);
+    }
+
+    @Benchmark
+    public Map<String, Object> reportedTransactionToAdditionalDataMap() {
+        return QualpayPluginProperties.toAdditionalDataMap(reportedTransaction);
+    }
+
+    @Benchmark
+    public PGApiTransactionRequest buildTransactionRequest() {
+        final PGApiTransactionRequest pgApiTransactionRequest = new PGApiTransactionRequest();
+        pgApiTransactionRequest.setMerchantId(212000000001L);
+        pgApiTransactionRequest.setAmtTran(129.99);
+        pgApiTransactionRequest.setTranCurrency("840");
+        pgApiTransactionRequest.setMerchantRefNum(kbTransactionId.toString());
+        pgApiTransactionRequest.setCardId("a3b9b0c0c1c011e9a9b20a6ef2e3fa7a");
+
+        final List<PGApiLineItem> lineItems = new ArrayList<PGApiLineItem>(1);
+        final PGApiLineItem lineItem = new PGApiLineItem();
+        lineItem.setQuantity(1);
+        lineItem.setDescription("Kill Bill charge");
+        lineItem.setUnitOfMeasure("each");
+        lineItem.setProductCode(kbTransactionId.toString());
+        lineItem.setDebitCardInt("D");
+        lineItem.setUnitCost(pgApiTransactionRequest.getAmtTran());
+        lineItems.add(lineItem);
+        pgApiTransactionRequest.setLineItems(lineItems);
+
+        return pgApiTransactionRequest;
+    }
+
+    @Benchmark
+    public String serializeTransactionRequest() {
+        return json.serialize(transactionRequest);
+    }
+
+    private static String loadFixture(final String name) throws IOException {
+        final InputStream inputStream = QualpayHotPathsBenchmark.class.getResourceAsStream("/fixtures/" + name);
+        if (inputStream == null) {
+            throw new IOException("Missing fixture " + name);
+        }
+        try {
+            return new String(ByteStreams.toByteArray(inputStream), StandardCharsets.UTF_8);
+        } finally {
+            inputStream.close();
+        }
+    }
+}
@@ -18,27 +18,41 @@
 package org.killbill.billing.plugin.qualpay;
 
 import java.util.Hashtable;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.Servlet;
+import javax.servlet.http.HttpServlet;
 
 import org.killbill.billing.osgi.api.OSGIPluginProperties;
 import org.killbill.billing.osgi.libs.killbill.KillbillActivatorBase;
 import org.killbill.billing.payment.plugin.api.PaymentPluginApi;
 import org.killbill.billing.plugin.api.notification.PluginConfigurationEventHandler;
 import org.killbill.billing.plugin.core.config.PluginEnvironmentConfig;
+import org.killbill.billing.plugin.qualpay.client.QualpayGatewayCaptures;
 import org.killbill.billing.plugin.qualpay.dao.QualpayDao;
 import org.osgi.framework.BundleContext;
 
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+
 public class QualpayActivator extends KillbillActivatorBase {
 
     public static final String PLUGIN_NAME = "killbill-qualpay";
 
     private QualpayConfigPropertiesConfigurationHandler qualpayConfigPropertiesConfigurationHandler;
+    private QualpayDao qualpayDao;
+    private HikariDataSource readReplicaDataSource;
+    private QualpayPaymentMethodsSyncJob paymentMethodsSyncJob;
+    private QualpayPaymentMethodsRefreshScheduler paymentMethodsRefreshScheduler;
+    private QualpayNotificationProcessor notificationProcessor;
+    private QualpayUndefinedTransactionsReconciler undefinedTransactionsReconciler;
+    private QualpayHealthChecker healthChecker;
+    private QualpayAuditLog auditLog;
 
     @Override
     public void start(final BundleContext context) throws Exception {
         super.start(context);
 
-        final QualpayDao qualpayDao = new QualpayDao(dataSource.getDataSource());
-
         final String region = PluginEnvironmentConfig.getRegion(configProperties.getProperties());
         qualpayConfigPropertiesConfigurationHandler = new QualpayConfigPropertiesConfigurationHandler(PLUGIN_NAME,
                                                                                                       killbillAPI,
@@ -48,23 +62,140 @@ public class QualpayActivator extends KillbillActivatorBase {
         final QualpayConfigProperties qualpayConfigProperties = qualpayConfigPropertiesConfigurationHandler.createConfigurable(configProperties.getProperties());
         qualpayConfigPropertiesConfigurationHandler.setDefaultConfigurable(qualpayConfigProperties);
 
-        // Register the payment plugin
-        final PaymentPluginApi pluginApi = new QualpayPaymentPluginApi(qualpayConfigPropertiesConfigurationHandler,
-                                                                       killbillAPI,
-                                                                       configProperties,
-                                                                       logService,
-                                                                       clock.getClock(),
-                                                                       qualpayDao);
+        if (qualpayConfigProperties.getReadReplicaUrl() != null) {
+            readReplicaDataSource = createReadReplicaDataSource(qualpayConfigProperties);
+        }
+        qualpayDao = new QualpayDao(dataSource.getDataSource(),
+                                    readReplicaDataSource,
+                                    TimeUnit.SECONDS.toMillis(Long.parseLong(qualpayConfigProperties.getReadReplicaLagGuardSeconds())));
+
+        if (Boolean.parseBoolean(qualpayConfigProperties.getGroupCommitEnabled())) {
+            qualpayDao.enableGroupCommit(Integer.parseInt(qualpayConfigProperties.getGroupCommitMaxBatchSize()),
+                                         Long.parseLong(qualpayConfigProperties.getGroupCommitLingerMillis()));
+        }
+
+        final QualpayPaymentPluginApi pluginApi = new QualpayPaymentPluginApi(qualpayConfigPropertiesConfigurationHandler,
+                                                                              killbillAPI,
+                                                                              configProperties,
+                                                                              logService,
+                                                                              clock.getClock(),
+                                                                              qualpayDao);
+        auditLog = new QualpayAuditLog(Integer.parseInt(qualpayConfigProperties.getAuditQueueSize()),
+                                       QualpayAuditLog.OverflowPolicy.valueOf(qualpayConfigProperties.getAuditOverflowPolicy().toUpperCase()));
+        pluginApi.setAuditLog(auditLog);
+        pluginApi.getGatewayMetrics().setCaptures(new QualpayGatewayCaptures(Integer.parseInt(qualpayConfigProperties.getCapturesSize()),
+                                                                             Double.parseDouble(qualpayConfigProperties.getCapturesSampleRate()),
+                                                                             Long.parseLong(qualpayConfigProperties.getCapturesSlowThresholdMillis())));
+
+        final long refreshSchedulerIntervalSeconds = Long.parseLong(qualpayConfigProperties.getPaymentMethodsRefreshSchedulerIntervalSeconds());
+        if (refreshSchedulerIntervalSeconds > 0) {
+            paymentMethodsRefreshScheduler = new QualpayPaymentMethodsRefreshScheduler(pluginApi,
+                                                                                       qualpayDao,
+                                                                                       clock.getClock(),
+                                                                                       Long.parseLong(qualpayConfigProperties.getPaymentMethodsRefreshTtlSeconds()),
+                                                                                       refreshSchedulerIntervalSeconds,
+                                                                                       Integer.parseInt(qualpayConfigProperties.getPaymentMethodsRefreshSchedulerBatchSize()));
+            paymentMethodsRefreshScheduler.start();
+        }
+
+        final long undefinedReconcilerIntervalSeconds = Long.parseLong(qualpayConfigProperties.getUndefinedReconcilerIntervalSeconds());
+        if (undefinedReconcilerIntervalSeconds > 0) {
+            undefinedTransactionsReconciler = new QualpayUndefinedTransactionsReconciler(pluginApi,
+                                                                                         qualpayDao,
+                                                                                         clock.getClock(),
+                                                                                         undefinedReconcilerIntervalSeconds,
+                                                                                         Long.parseLong(qualpayConfigProperties.getUndefinedReconcilerMinAgeMinutes()),
+                                                                                         Long.parseLong(qualpayConfigProperties.getUndefinedReconcilerMaxAgeHours()),
+                                                                                         Integer.parseInt(qualpayConfigProperties.getUndefinedReconcilerBatchSize()));
+            undefinedTransactionsReconciler.start();
+        }
+
+        final long notificationsPollIntervalMillis = Long.parseLong(qualpayConfigProperties.getNotificationsPollIntervalMillis());
+        if (notificationsPollIntervalMillis > 0) {
+            notificationProcessor = new QualpayNotificationProcessor(pluginApi,
+                                                                     qualpayDao,
+                                                                     qualpayConfigPropertiesConfigurationHandler,
+                                                                     clock.getClock(),
+                                                                     Integer.parseInt(qualpayConfigProperties.getNotificationsWorkers()),
+                                                                     Integer.parseInt(qualpayConfigProperties.getNotificationsBatchSize()),
+                                                                     notificationsPollIntervalMillis,
+                                                                     Integer.parseInt(qualpayConfigProperties.getNotificationsMaxAttempts()));
+            notificationProcessor.start();
+            pluginApi.setNotificationProcessor(notificationProcessor);
+        }
+
+        paymentMethodsSyncJob = new QualpayPaymentMethodsSyncJob(pluginApi, qualpayDao, qualpayConfigPropertiesConfigurationHandler, clock.getClock());
+        final QualpaySettlementReconciler settlementReconciler = new QualpaySettlementReconciler(qualpayDao, qualpayConfigPropertiesConfigurationHandler, clock.getClock());
+        healthChecker = new QualpayHealthChecker(pluginApi,
+                                                 qualpayDao,
+                                                 qualpayConfigPropertiesConfigurationHandler,
+                                                 clock.getClock(),
+                                                 Long.parseLong(qualpayConfigProperties.getHealthcheckProbeIntervalSeconds()),
+                                                 Long.parseLong(qualpayConfigProperties.getHealthcheckSlowProbeMillis()));
+        healthChecker.start();
+
+        // Register the payment plugin, once fully wired: Kill Bill may call it right away
         registerPaymentPluginApi(context, pluginApi);
 
+        // Register the servlet
+        final QualpayServlet qualpayServlet = new QualpayServlet(qualpayDao, paymentMethodsSyncJob, notificationProcessor, settlementReconciler, pluginApi.getGatewayMetrics(), healthChecker, clock.getClock());
+        registerServlet(context, qualpayServlet);
+
         registerHandlers();
     }
 
+    @Override
+    public void stop(final BundleContext context) throws Exception {
+        if (paymentMethodsRefreshScheduler != null) {
+            paymentMethodsRefreshScheduler.close();
+        }
+        if (undefinedTransactionsReconciler != null) {
+            undefinedTransactionsReconciler.close();
+        }
+        if (paymentMethodsSyncJob != null) {
+            paymentMethodsSyncJob.close();
+        }
+        if (healthChecker != null) {
+            healthChecker.close();
+        }
+        if (notificationProcessor != null) {
+            notificationProcessor.close();
+        }
+        if (qualpayDao != null) {
+            // Flush pending responses before the data source goes away
+            qualpayDao.disableGroupCommit();
+        }
+        if (readReplicaDataSource != null) {
+            readReplicaDataSource.close();
+        }
+        if (auditLog != null) {
+            auditLog.close();
+        }
+        super.stop(context);
+    }
+
+    private HikariDataSource createReadReplicaDataSource(final QualpayConfigProperties qualpayConfigProperties) {
+        final HikariConfig config = new HikariConfig();
+        config.setPoolName(PLUGIN_NAME + "-read-replica");
+        config.setJdbcUrl(qualpayConfigProperties.getReadReplicaUrl());
+        config.setUsername(qualpayConfigProperties.getReadReplicaUser());
+        config.setPassword(qualpayConfigProperties.getReadReplicaPassword());
+        config.setMaximumPoolSize(Integer.parseInt(qualpayConfigProperties.getReadReplicaMaxPoolSize()));
+        config.setReadOnly(true);
+        return new HikariDataSource(config);
+    }
+
     private void registerHandlers() {
         final PluginConfigurationEventHandler handler = new PluginConfigurationEventHandler(qualpayConfigPropertiesConfigurationHandler);
         dispatcher.registerEventHandlers(handler);
     }
 
+    private void registerServlet(final BundleContext context, final HttpServlet servlet) {
+        final Hashtable<String, String> props = new Hashtable<String, String>();
+        props.put(OSGIPluginProperties.PLUGIN_NAME_PROP, PLUGIN_NAME);
+        registrar.registerService(context, Servlet.class, servlet, props);
+    }
+
     private void registerPaymentPluginApi(final BundleContext context, final PaymentPluginApi api) {
         final Hashtable<String, String> props = new Hashtable<String, String>();
         props.put(OSGIPluginProperties.PLUGIN_NAME_PROP, PLUGIN_NAME);
@@ -0,0 +1,293 @@
+/*
+ * Copyright 2014-2019 Groupon, Inc
+ * Copyright 2014-2019 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.plugin.qualpay;
+
+import java.io.Closeable;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.Nullable;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.killbill.billing.catalog.api.Currency;
+import org.killbill.billing.payment.api.TransactionType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+// Audit trail of the payment and Vault operations, one JSON line per event with a fixed set of fields, written
+// to the org.killbill.billing.plugin.qualpay.audit logger. Callers only enqueue the raw values: formatting and
+// logging I/O happen on a single background thread. When the queue is full, events are dropped (and counted)
+// or the caller waits, depending on the overflow policy.
+public class QualpayAuditLog implements Closeable {
+
+    public enum OverflowPolicy {
+        DROP,
+        BLOCK
+    }
+
+    public static final String AUDIT_LOGGER_NAME = "org.killbill.billing.plugin.qualpay.audit";
+
+    private static final Logger logger = LoggerFactory.getLogger(QualpayAuditLog.class);
+    private static final Logger auditLogger = LoggerFactory.getLogger(AUDIT_LOGGER_NAME);
+
+    private static final int MAX_BATCH_SIZE = 256;
+    // Enough for the largest event, so that the line buffer never grows
+    private static final int LINE_CAPACITY = 512;
+    private static final long POLL_TIMEOUT_MILLIS = 100;
+    private static final long SHUTDOWN_TIMEOUT_SECONDS = 5;
+
+    private final BlockingQueue<AuditEvent> events;
+    private final OverflowPolicy overflowPolicy;
+    private final AtomicLong nbDropped = new AtomicLong();
+    private final ExecutorService executor;
+
+    private volatile boolean isStopped = false;
+
+    public QualpayAuditLog(final int queueSize, final OverflowPolicy overflowPolicy) {
+        this.events = new ArrayBlockingQueue<AuditEvent>(Math.max(1, queueSize));
+        this.overflowPolicy = overflowPolicy;
+        this.executor = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder().setNameFormat("qualpay-audit-log-%d")
+                                                                                    .setDaemon(true)
+                                                                                    .build());
+        this.executor.submit(new Runnable() {
+            @Override
+            public void run() {
+                writeLoop();
+            }
+        });
+    }
+
+    public void paymentMethodCreated(final UUID kbTenantId, final UUID kbAccountId, final String qualpayId) {
+        enqueue("payment_method_created", kbTenantId, kbAccountId, null, null, null, null, null, qualpayId, null, -1);
+    }
+
+    public void paymentMethodUpdated(final UUID kbTenantId, final UUID kbAccountId, final String qualpayId) {
+        enqueue("payment_method_updated", kbTenantId, kbAccountId, null, null, null, null, null, qualpayId, null, -1);
+    }
+
+    // Not found in the Vault anymore
+    public void paymentMethodsDeactivated(final UUID kbTenantId, final UUID kbAccountId, final int count) {
+        enqueue("payment_methods_deactivated", kbTenantId, kbAccountId, null, null, null, null, null, null, null, count);
+    }
+
+    public void transactionSent(final UUID kbTenantId,
+                                final UUID kbAccountId,
+                                final UUID kbPaymentId,
+                                final UUID kbTransactionId,
+                                final TransactionType transactionType,
+                                @Nullable final BigDecimal amount,
+                                @Nullable final Currency currency) {
+        enqueue("transaction_sent", kbTenantId, kbAccountId, kbPaymentId, kbTransactionId, transactionType, amount, currency, null, null, -1);
+    }
+
+    public void transactionCompleted(final UUID kbTenantId,
+                                     final UUID kbAccountId,
+                                     final UUID kbPaymentId,
+                                     final UUID kbTransactionId,
+                                     final TransactionType transactionType,
+                                     @Nullable final BigDecimal amount,
+                                     @Nullable final Currency currency,
+                                     @Nullable final String qualpayId,
+                                     final String status) {
+        enqueue("transaction_completed", kbTenantId, kbAccountId, kbPaymentId, kbTransactionId, transactionType, amount, currency, qualpayId, status, -1);
+    }
+
+    // Kill Bill retry of a transaction Qualpay already answered
+    public void transactionReplayed(final UUID kbTenantId, final UUID kbTransactionId, final TransactionType transactionType, final String qualpayId) {
+        enqueue("transaction_replayed", kbTenantId, null, null, kbTransactionId, transactionType, null, null, qualpayId, null, -1);
+    }
+
+    public long getNbDropped() {
+        return nbDropped.get();
+    }
+
+    // Writes the pending events before returning
+    @Override
+    public void close() {
+        isStopped = true;
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            executor.shutdownNow();
+        }
+    }
+
+    private void enqueue(final String type,
+                         final UUID kbTenantId,
+                         @Nullable final UUID kbAccountId,
+                         @Nullable final UUID kbPaymentId,
+                         @Nullable final UUID kbTransactionId,
+                         @Nullable final TransactionType transactionType,
+                         @Nullable final BigDecimal amount,
+                         @Nullable final Currency currency,
+                         @Nullable final String qualpayId,
+                         @Nullable final String status,
+                         final int count) {
+        if (isStopped || !auditLogger.isInfoEnabled()) {
+            return;
+        }
+
+        final AuditEvent event = new AuditEvent(System.currentTimeMillis(), type, kbTenantId, kbAccountId, kbPaymentId, kbTransactionId, transactionType, amount, currency, qualpayId, status, count);
+        if (overflowPolicy == OverflowPolicy.DROP) {
+            if (!events.offer(event)) {
+                nbDropped.incrementAndGet();
+            }
+            return;
+        }
+
+        try {
+            events.put(event);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            nbDropped.incrementAndGet();
+        }
+    }
+
+    private void writeLoop() {
+        final List<AuditEvent> batch = new ArrayList<AuditEvent>(MAX_BATCH_SIZE);
+        final StringBuilder line = new StringBuilder(LINE_CAPACITY);
+        long nbDroppedReported = 0;
+        while (!isStopped || !events.isEmpty()) {
+            try {
+                final AuditEvent first = events.poll(POLL_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                events.drainTo(batch, MAX_BATCH_SIZE - 1);
+
+                for (final AuditEvent event : batch) {
+                    line.setLength(0);
+                    format(event, line);
+                    auditLogger.info(line.toString());
+                }
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (final RuntimeException e) {
+                logger.warn("Unable to write Qualpay audit events", e);
+            } finally {
+                batch.clear();
+            }
+
+            final long nbDroppedSoFar = nbDropped.get();
+            if (nbDroppedSoFar > nbDroppedReported) {
+                logger.warn("Dropped {} Qualpay audit event(s), the audit queue is full", nbDroppedSoFar - nbDroppedReported);
+                nbDroppedReported = nbDroppedSoFar;
+            }
+        }
+    }
+
+    @VisibleForTesting
+    static void format(final AuditEvent event, final StringBuilder line) {
+        line.append("{\"event\":\"").append(event.type).append('"');
+        appendField(line, "date", new DateTime(event.timestampMillis, DateTimeZone.UTC));
+        appendField(line, "kbTenantId", event.kbTenantId);
+        appendField(line, "kbAccountId", event.kbAccountId);
+        appendField(line, "kbPaymentId", event.kbPaymentId);
+        appendField(line, "kbTransactionId", event.kbTransactionId);
+        appendField(line, "transactionType", event.transactionType);
+        if (event.amount != null) {
+            line.append(",\"amount\":").append(event.amount.toPlainString());
+        }
+        appendField(line, "currency", event.currency);
+        appendField(line, "qualpayId", event.qualpayId);
+        appendField(line, "status", event.status);
+        if (event.count >= 0) {
+            line.append(",\"count\":").append(event.count);
+        }
+        line.append('}');
+    }
+
+    private static void appendField(final StringBuilder line, final String name, @Nullable final Object value) {
+        if (value == null) {
+            return;
+        }
+
+        line.append(",\"").append(name).append("\":\"");
+        final String string = value.toString();
+        for (int i = 0; i < string.length(); i++) {
+            final char c = string.charAt(i);
+            if (c == '"' || c == '\\') {
+                line.append('\\').append(c);
+            } else if (c >= ' ') {
+                line.append(c);
+            }
+        }
+        line.append('"');
+    }
+
+    @VisibleForTesting
+    static final class AuditEvent {
+
+        private final long timestampMillis;
+        private final String type;
+        private final UUID kbTenantId;
+        private final UUID kbAccountId;
+        private final UUID kbPaymentId;
+        private final UUID kbTransactionId;
+        private final TransactionType transactionType;
+        private final BigDecimal amount;
+        private final Currency currency;
+        private final String qualpayId;
+        private final String status;
+        private final int count;
+
+        AuditEvent(final long timestampMillis,
+                   final String type,
+                   final UUID kbTenantId,
+                   @Nullable final UUID kbAccountId,
+                   @Nullable final UUID kbPaymentId,
+                   @Nullable final UUID kbTransactionId,
+                   @Nullable final TransactionType transactionType,
+                   @Nullable final BigDecimal amount,
+                   @Nullable final Currency currency,
+                   @Nullable final String qualpayId,
+                   @Nullable final String status,
+                   final int count) {
+            this.timestampMillis = timestampMillis;
+            this.type = type;
+            this.kbTenantId = kbTenantId;
+            this.kbAccountId = kbAccountId;
+            this.kbPaymentId = kbPaymentId;
+            this.kbTransactionId = kbTransactionId;
+            this.transactionType = transactionType;
+            this.amount = amount;
+            this.currency = currency;
+            this.qualpayId = qualpayId;
+            this.status = status;
+            this.count = count;
+        }
+    }
+}
@@ -28,6 +28,37 @@ public class QualpayConfigProperties {
 
     private static final String DEFAULT_CONNECTION_TIMEOUT = "30000";
     private static final String DEFAULT_READ_TIMEOUT = "60000";
+    private static final String DEFAULT_GROUP_COMMIT_ENABLED = "false";
+    private static final String DEFAULT_GROUP_COMMIT_MAX_BATCH_SIZE = "100";
+    private static final String DEFAULT_GROUP_COMMIT_LINGER_MILLIS = "5";
+    private static final String DEFAULT_READ_REPLICA_MAX_POOL_SIZE = "10";
+    private static final String DEFAULT_READ_REPLICA_LAG_GUARD_SECONDS = "5";
+    private static final String DEFAULT_PAYMENT_METHODS_SYNC_PARALLELISM = "4";
+    private static final String DEFAULT_PAYMENT_METHODS_SYNC_RATE_PER_SECOND = "10";
+    private static final String DEFAULT_PAYMENT_METHODS_REFRESH_TTL_SECONDS = "0";
+    private static final String DEFAULT_PAYMENT_METHODS_REFRESH_SCHEDULER_INTERVAL_SECONDS = "0";
+    private static final String DEFAULT_PAYMENT_METHODS_REFRESH_SCHEDULER_BATCH_SIZE = "100";
+    private static final String DEFAULT_NOTIFICATIONS_WORKERS = "4";
+    private static final String DEFAULT_NOTIFICATIONS_BATCH_SIZE = "100";
+    private static final String DEFAULT_NOTIFICATIONS_POLL_INTERVAL_MILLIS = "1000";
+    private static final String DEFAULT_NOTIFICATIONS_MAX_ATTEMPTS = "5";
+    private static final String DEFAULT_UNDEFINED_RECONCILER_INTERVAL_SECONDS = "0";
+    private static final String DEFAULT_UNDEFINED_RECONCILER_MIN_AGE_MINUTES = "10";
+    private static final String DEFAULT_UNDEFINED_RECONCILER_MAX_AGE_HOURS = "72";
+    private static final String DEFAULT_UNDEFINED_RECONCILER_BATCH_SIZE = "100";
+    private static final String DEFAULT_PAYMENT_INFO_REFRESH_TIMEOUT_MILLIS = "2000";
+    private static final String DEFAULT_SKIP_GW_ENABLED = "false";
+    private static final String DEFAULT_SKIP_GW_RESPONSE_CODES = "000";
+    private static final String DEFAULT_SKIP_GW_LATENCY_MEDIAN_MILLIS = "0";
+    private static final String DEFAULT_SKIP_GW_LATENCY_P99_MILLIS = "0";
+    private static final String DEFAULT_SLOW_OPERATION_THRESHOLD_MILLIS = "2000";
+    private static final String DEFAULT_HEALTHCHECK_PROBE_INTERVAL_SECONDS = "30";
+    private static final String DEFAULT_HEALTHCHECK_SLOW_PROBE_MILLIS = "2000";
+    private static final String DEFAULT_CAPTURES_SIZE = "256";
+    private static final String DEFAULT_CAPTURES_SAMPLE_RATE = "0.01";
+    private static final String DEFAULT_CAPTURES_SLOW_THRESHOLD_MILLIS = "2000";
+    private static final String DEFAULT_AUDIT_QUEUE_SIZE = "10000";
+    private static final String DEFAULT_AUDIT_OVERFLOW_POLICY = "DROP";
 
     private final String region;
     private final String apiKey;
@@ -38,6 +69,42 @@ public class QualpayConfigProperties {
     private final String chargeDescription;
     private final String kbUsername;
     private final String kbPassword;
+    private final String groupCommitEnabled;
+    private final String groupCommitMaxBatchSize;
+    private final String groupCommitLingerMillis;
+    private final String readReplicaUrl;
+    private final String readReplicaUser;
+    private final String readReplicaPassword;
+    private final String readReplicaMaxPoolSize;
+    private final String readReplicaLagGuardSeconds;
+    private final String paymentMethodsSyncParallelism;
+    private final String paymentMethodsSyncRatePerSecond;
+    private final String paymentMethodsRefreshTtlSeconds;
+    private final String paymentMethodsRefreshSchedulerIntervalSeconds;
+    private final String paymentMethodsRefreshSchedulerBatchSize;
+    private final String webhookSecret;
+    private final String notificationsWorkers;
+    private final String notificationsBatchSize;
+    private final String notificationsPollIntervalMillis;
+    private final String notificationsMaxAttempts;
+    private final String undefinedReconcilerIntervalSeconds;
+    private final String undefinedReconcilerMinAgeMinutes;
+    private final String undefinedReconcilerMaxAgeHours;
+    private final String undefinedReconcilerBatchSize;
+    private final String paymentInfoRefreshTimeoutMillis;
+    private final String settlementReportsDirectory;
+    private final String skipGwEnabled;
+    private final String skipGwResponseCodes;
+    private final String skipGwLatencyMedianMillis;
+    private final String skipGwLatencyP99Millis;
+    private final String slowOperationThresholdMillis;
+    private final String healthcheckProbeIntervalSeconds;
+    private final String healthcheckSlowProbeMillis;
+    private final String capturesSize;
+    private final String capturesSampleRate;
+    private final String capturesSlowThresholdMillis;
+    private final String auditQueueSize;
+    private final String auditOverflowPolicy;
 
     public QualpayConfigProperties(final Properties properties, final String region) {
         this.region = region;
@@ -49,6 +116,42 @@ public class QualpayConfigProperties {
         this.chargeDescription = Ascii.truncate(MoreObjects.firstNonNull(properties.getProperty(PROPERTY_PREFIX + "chargeDescription"), "Kill Bill charge"), 22, "...");
         this.kbUsername = properties.getProperty(MoreObjects.firstNonNull(properties.getProperty(PROPERTY_PREFIX + "kbUsername"), "admin"));
         this.kbPassword = properties.getProperty(MoreObjects.firstNonNull(properties.getProperty(PROPERTY_PREFIX + "kbPassword"), "password"));
+        this.groupCommitEnabled = properties.getProperty(PROPERTY_PREFIX + "groupCommit.enabled", DEFAULT_GROUP_COMMIT_ENABLED);
+        this.groupCommitMaxBatchSize = properties.getProperty(PROPERTY_PREFIX + "groupCommit.maxBatchSize", DEFAULT_GROUP_COMMIT_MAX_BATCH_SIZE);
+        this.groupCommitLingerMillis = properties.getProperty(PROPERTY_PREFIX + "groupCommit.lingerMillis", DEFAULT_GROUP_COMMIT_LINGER_MILLIS);
+        this.readReplicaUrl = properties.getProperty(PROPERTY_PREFIX + "readReplica.url");
+        this.readReplicaUser = properties.getProperty(PROPERTY_PREFIX + "readReplica.user");
+        this.readReplicaPassword = properties.getProperty(PROPERTY_PREFIX + "readReplica.password");
+        this.readReplicaMaxPoolSize = properties.getProperty(PROPERTY_PREFIX + "readReplica.maxPoolSize", DEFAULT_READ_REPLICA_MAX_POOL_SIZE);
+        this.readReplicaLagGuardSeconds = properties.getProperty(PROPERTY_PREFIX + "readReplica.lagGuardSeconds", DEFAULT_READ_REPLICA_LAG_GUARD_SECONDS);
+        this.paymentMethodsSyncParallelism = properties.getProperty(PROPERTY_PREFIX + "paymentMethodsSync.parallelism", DEFAULT_PAYMENT_METHODS_SYNC_PARALLELISM);
+        this.paymentMethodsSyncRatePerSecond = properties.getProperty(PROPERTY_PREFIX + "paymentMethodsSync.ratePerSecond", DEFAULT_PAYMENT_METHODS_SYNC_RATE_PER_SECOND);
+        this.paymentMethodsRefreshTtlSeconds = properties.getProperty(PROPERTY_PREFIX + "paymentMethodsRefresh.ttlSeconds", DEFAULT_PAYMENT_METHODS_REFRESH_TTL_SECONDS);
+        this.paymentMethodsRefreshSchedulerIntervalSeconds = properties.getProperty(PROPERTY_PREFIX + "paymentMethodsRefresh.schedulerIntervalSeconds", DEFAULT_PAYMENT_METHODS_REFRESH_SCHEDULER_INTERVAL_SECONDS);
+        this.paymentMethodsRefreshSchedulerBatchSize = properties.getProperty(PROPERTY_PREFIX + "paymentMethodsRefresh.schedulerBatchSize", DEFAULT_PAYMENT_METHODS_REFRESH_SCHEDULER_BATCH_SIZE);
+        this.webhookSecret = properties.getProperty(PROPERTY_PREFIX + "webhookSecret");
+        this.notificationsWorkers = properties.getProperty(PROPERTY_PREFIX + "notifications.workers", DEFAULT_NOTIFICATIONS_WORKERS);
+        this.notificationsBatchSize = properties.getProperty(PROPERTY_PREFIX + "notifications.batchSize", DEFAULT_NOTIFICATIONS_BATCH_SIZE);
+        this.notificationsPollIntervalMillis = properties.getProperty(PROPERTY_PREFIX + "notifications.pollIntervalMillis", DEFAULT_NOTIFICATIONS_POLL_INTERVAL_MILLIS);
+        this.notificationsMaxAttempts = properties.getProperty(PROPERTY_PREFIX + "notifications.maxAttempts", DEFAULT_NOTIFICATIONS_MAX_ATTEMPTS);
+        this.undefinedReconcilerIntervalSeconds = properties.getProperty(PROPERTY_PREFIX + "undefinedReconciler.intervalSeconds", DEFAULT_UNDEFINED_RECONCILER_INTERVAL_SECONDS);
+        this.undefinedReconcilerMinAgeMinutes = properties.getProperty(PROPERTY_PREFIX + "undefinedReconciler.minAgeMinutes", DEFAULT_UNDEFINED_RECONCILER_MIN_AGE_MINUTES);
+        this.undefinedReconcilerMaxAgeHours = properties.getProperty(PROPERTY_PREFIX + "undefinedReconciler.maxAgeHours", DEFAULT_UNDEFINED_RECONCILER_MAX_AGE_HOURS);
+        this.undefinedReconcilerBatchSize = properties.getProperty(PROPERTY_PREFIX + "undefinedReconciler.batchSize", DEFAULT_UNDEFINED_RECONCILER_BATCH_SIZE);
+        this.paymentInfoRefreshTimeoutMillis = properties.getProperty(PROPERTY_PREFIX + "paymentInfoRefresh.timeoutMillis", DEFAULT_PAYMENT_INFO_REFRESH_TIMEOUT_MILLIS);
+        this.settlementReportsDirectory = properties.getProperty(PROPERTY_PREFIX + "settlementReports.directory");
+        this.skipGwEnabled = properties.getProperty(PROPERTY_PREFIX + "skipGw.enabled", DEFAULT_SKIP_GW_ENABLED);
+        this.skipGwResponseCodes = properties.getProperty(PROPERTY_PREFIX + "skipGw.responseCodes", DEFAULT_SKIP_GW_RESPONSE_CODES);
+        this.skipGwLatencyMedianMillis = properties.getProperty(PROPERTY_PREFIX + "skipGw.latencyMedianMillis", DEFAULT_SKIP_GW_LATENCY_MEDIAN_MILLIS);
+        this.skipGwLatencyP99Millis = properties.getProperty(PROPERTY_PREFIX + "skipGw.latencyP99Millis", DEFAULT_SKIP_GW_LATENCY_P99_MILLIS);
+        this.slowOperationThresholdMillis = properties.getProperty(PROPERTY_PREFIX + "slowOperationThresholdMillis", DEFAULT_SLOW_OPERATION_THRESHOLD_MILLIS);
+        this.healthcheckProbeIntervalSeconds = properties.getProperty(PROPERTY_PREFIX + "healthcheck.probeIntervalSeconds", DEFAULT_HEALTHCHECK_PROBE_INTERVAL_SECONDS);
+        this.healthcheckSlowProbeMillis = properties.getProperty(PROPERTY_PREFIX + "healthcheck.slowProbeMillis", DEFAULT_HEALTHCHECK_SLOW_PROBE_MILLIS);
+        this.capturesSize = properties.getProperty(PROPERTY_PREFIX + "captures.size", DEFAULT_CAPTURES_SIZE);
+        this.capturesSampleRate = properties.getProperty(PROPERTY_PREFIX + "captures.sampleRate", DEFAULT_CAPTURES_SAMPLE_RATE);
+        this.capturesSlowThresholdMillis = properties.getProperty(PROPERTY_PREFIX + "captures.slowThresholdMillis", DEFAULT_CAPTURES_SLOW_THRESHOLD_MILLIS);
+        this.auditQueueSize = properties.getProperty(PROPERTY_PREFIX + "audit.queueSize", DEFAULT_AUDIT_QUEUE_SIZE);
+        this.auditOverflowPolicy = properties.getProperty(PROPERTY_PREFIX + "audit.overflowPolicy", DEFAULT_AUDIT_OVERFLOW_POLICY);
     }
 
     public String getApiKey() {
@@ -82,4 +185,148 @@ public class QualpayConfigProperties {
     public String getKbPassword() {
         return kbPassword;
     }
+
+    public String getGroupCommitEnabled() {
+        return groupCommitEnabled;
+    }
+
+    public String getGroupCommitMaxBatchSize() {
+        return groupCommitMaxBatchSize;
+    }
+
+    public String getGroupCommitLingerMillis() {
+        return groupCommitLingerMillis;
+    }
+
+    public String getReadReplicaUrl() {
+        return readReplicaUrl;
+    }
+
+    public String getReadReplicaUser() {
+        return readReplicaUser;
+    }
+
+    public String getReadReplicaPassword() {
+        return readReplicaPassword;
+    }
+
+    public String getReadReplicaMaxPoolSize() {
+        return readReplicaMaxPoolSize;
+    }
+
+    public String getReadReplicaLagGuardSeconds() {
+        return readReplicaLagGuardSeconds;
+    }
+
+    public String getPaymentMethodsSyncParallelism() {
+        return paymentMethodsSyncParallelism;
+    }
+
+    public String getPaymentMethodsSyncRatePerSecond() {
+        return paymentMethodsSyncRatePerSecond;
+    }
+
+    public String getPaymentMethodsRefreshTtlSeconds() {
+        return paymentMethodsRefreshTtlSeconds;
+    }
+
+    public String getPaymentMethodsRefreshSchedulerIntervalSeconds() {
+        return paymentMethodsRefreshSchedulerIntervalSeconds;
+    }
+
+    public String getPaymentMethodsRefreshSchedulerBatchSize() {
+        return paymentMethodsRefreshSchedulerBatchSize;
+    }
+
+    public String getWebhookSecret() {
+        return webhookSecret;
+    }
+
+    public String getNotificationsWorkers() {
+        return notificationsWorkers;
+    }
+
+    public String getNotificationsBatchSize() {
+        return notificationsBatchSize;
+    }
+
+    public String getNotificationsPollIntervalMillis() {
+        return notificationsPollIntervalMillis;
+    }
+
+    public String getNotificationsMaxAttempts() {
+        return notificationsMaxAttempts;
+    }
+
+    public String getUndefinedReconcilerIntervalSeconds() {
+        return undefinedReconcilerIntervalSeconds;
+    }
+
+    public String getUndefinedReconcilerMinAgeMinutes() {
+        return undefinedReconcilerMinAgeMinutes;
+    }
+
+    public String getUndefinedReconcilerMaxAgeHours() {
+        return undefinedReconcilerMaxAgeHours;
+    }
+
+    public String getUndefinedReconcilerBatchSize() {
+        return undefinedReconcilerBatchSize;
+    }
+
+    public String getPaymentInfoRefreshTimeoutMillis() {
+        return paymentInfoRefreshTimeoutMillis;
+    }
+
+    public String getSettlementReportsDirectory() {
+        return settlementReportsDirectory;
+    }
+
+    public String getSkipGwEnabled() {
+        return skipGwEnabled;
+    }
+
+    public String getSkipGwResponseCodes() {
+        return skipGwResponseCodes;
+    }
+
+    public String getSkipGwLatencyMedianMillis() {
+        return skipGwLatencyMedianMillis;
+    }
+
+    public String getSkipGwLatencyP99Millis() {
+        return skipGwLatencyP99Millis;
+    }
+
+    public String getSlowOperationThresholdMillis() {
+        return slowOperationThresholdMillis;
+    }
+
+    public String getHealthcheckProbeIntervalSeconds() {
+        return healthcheckProbeIntervalSeconds;
+    }
+
+    public String getHealthcheckSlowProbeMillis() {
+        return healthcheckSlowProbeMillis;
+    }
+
+    public String getCapturesSize() {
+        return capturesSize;
+    }
+
+    public String getCapturesSampleRate() {
+        return capturesSampleRate;
+    }
+
+    public String getCapturesSlowThresholdMillis() {
+        return capturesSlowThresholdMillis;
+    }
+
+    public String getAuditQueueSize() {
+        return auditQueueSize;
+    }
+
+    public String getAuditOverflowPolicy() {
+        return auditOverflowPolicy;
+    }
 }
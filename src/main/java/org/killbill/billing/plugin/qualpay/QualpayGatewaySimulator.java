@@ -0,0 +1,129 @@
+/*
+ * Copyright 2014-2019 Groupon, Inc
+ * Copyright 2014-2019 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.plugin.qualpay;
+
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.killbill.billing.payment.api.TransactionType;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Splitter;
+import com.google.common.base.Strings;
+import com.google.common.collect.Iterables;
+import io.swagger.client.model.GatewayResponse;
+
+// Local stand-in for the Qualpay Payment Gateway (skip_gw=true), for load tests: responses are generated
+// with the configured response code mix and latency distribution, then go through the normal persistence path
+public class QualpayGatewaySimulator {
+
+    public static final String SIMULATED_RMSG_PREFIX = "skip_gw: ";
+
+    // z-score of the 99th percentile of the standard normal distribution
+    private static final double P99_Z_SCORE = 2.326;
+
+    private volatile ResponseCodeMix responseCodeMix = new ResponseCodeMix("000");
+
+    public GatewayResponse execute(final TransactionType transactionType, final QualpayConfigProperties qualpayConfigProperties) throws InterruptedException {
+        final Random random = ThreadLocalRandom.current();
+
+        final long latencyMillis = nextLatencyMillis(random,
+                                                     Long.parseLong(qualpayConfigProperties.getSkipGwLatencyMedianMillis()),
+                                                     Long.parseLong(qualpayConfigProperties.getSkipGwLatencyP99Millis()));
+        if (latencyMillis > 0) {
+            TimeUnit.MILLISECONDS.sleep(latencyMillis);
+        }
+
+        final String rcode = getResponseCodeMix(qualpayConfigProperties.getSkipGwResponseCodes()).next(random);
+        final GatewayResponse response = new GatewayResponse();
+        response.setPgId(UUID.randomUUID().toString().replace("-", ""));
+        response.setRcode(rcode);
+        response.setRmsg(SIMULATED_RMSG_PREFIX + ("000".equals(rcode) ? "Approved" : "Declined"));
+        if ("000".equals(rcode) && (transactionType == TransactionType.AUTHORIZE || transactionType == TransactionType.PURCHASE)) {
+            response.setAuthCode(String.format("%06d", random.nextInt(1000000)));
+        }
+        return response;
+    }
+
+    // Log-normal, the usual shape of gateway latencies
+    @VisibleForTesting
+    static long nextLatencyMillis(final Random random, final long medianMillis, final long p99Millis) {
+        if (medianMillis <= 0) {
+            return 0;
+        } else if (p99Millis <= medianMillis) {
+            return medianMillis;
+        }
+
+        final double sigma = Math.log((double) p99Millis / medianMillis) / P99_Z_SCORE;
+        return Math.round(medianMillis * Math.exp(sigma * random.nextGaussian()));
+    }
+
+    private ResponseCodeMix getResponseCodeMix(final String responseCodes) {
+        // Only re-parsed when the tenant configuration changes
+        ResponseCodeMix current = responseCodeMix;
+        if (!current.source.equals(responseCodes)) {
+            current = new ResponseCodeMix(responseCodes);
+            responseCodeMix = current;
+        }
+        return current;
+    }
+
+    // Weighted response codes, e.g. 000:95,005:4,998:1
+    @VisibleForTesting
+    static final class ResponseCodeMix {
+
+        private final String source;
+        private final String[] rcodes;
+        private final double[] cumulativeWeights;
+
+        ResponseCodeMix(final String source) {
+            this.source = source;
+
+            final Iterable<String> entries = Splitter.on(',').trimResults().omitEmptyStrings().split(Strings.nullToEmpty(source));
+            this.rcodes = new String[Math.max(1, Iterables.size(entries))];
+            this.cumulativeWeights = new double[rcodes.length];
+            rcodes[0] = "000";
+            cumulativeWeights[0] = 1;
+
+            double totalWeight = 0;
+            int i = 0;
+            for (final String entry : entries) {
+                final int separator = entry.indexOf(':');
+                rcodes[i] = separator < 0 ? entry : entry.substring(0, separator).trim();
+                totalWeight += separator < 0 ? 1 : Double.parseDouble(entry.substring(separator + 1).trim());
+                cumulativeWeights[i] = totalWeight;
+                i++;
+            }
+            for (int j = 0; j < i; j++) {
+                cumulativeWeights[j] /= totalWeight;
+            }
+        }
+
+        String next(final Random random) {
+            final double value = random.nextDouble();
+            for (int i = 0; i < rcodes.length - 1; i++) {
+                if (value < cumulativeWeights[i]) {
+                    return rcodes[i];
+                }
+            }
+            return rcodes[rcodes.length - 1];
+        }
+    }
+}
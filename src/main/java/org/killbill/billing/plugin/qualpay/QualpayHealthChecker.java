@@ -0,0 +1,289 @@
+/*
+ * Copyright 2014-2019 Groupon, Inc
+ * Copyright 2014-2019 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.plugin.qualpay;
+
+import java.io.Closeable;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nullable;
+
+import org.joda.time.DateTime;
+import org.killbill.billing.plugin.api.PluginCallContext;
+import org.killbill.billing.plugin.qualpay.client.PGApi;
+import org.killbill.billing.plugin.qualpay.dao.QualpayDao;
+import org.killbill.clock.Clock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import qpPlatform.ApiException;
+
+// Probes the database and Qualpay (default configuration and each tenant which called Qualpay since startup) in the
+// background, so that health checks only read the latest results and never wait on the database or the gateway
+public class QualpayHealthChecker implements Closeable {
+
+    public static final String STATUS_UP = "UP";
+    public static final String STATUS_DEGRADED = "DEGRADED";
+    public static final String STATUS_DOWN = "DOWN";
+    // Nothing probed yet: not ready
+    public static final String STATUS_STARTING = "STARTING";
+
+    private static final Logger logger = LoggerFactory.getLogger(QualpayHealthChecker.class);
+
+    private static final String DEFAULT_TENANT = "default";
+    // Unknown to Qualpay: the lookup is cheap and has no side effect
+    private static final String PROBE_PG_ID = "killbill-health-probe";
+    // Results older than this many intervals are reported as DOWN (probes stuck)
+    private static final int MAX_MISSED_PROBES = 3;
+    private static final double POOL_SATURATION_RATIO = 0.9;
+
+    private final QualpayPaymentPluginApi paymentPluginApi;
+    private final QualpayDao dao;
+    private final QualpayConfigPropertiesConfigurationHandler qualpayConfigPropertiesConfigurationHandler;
+    private final Clock clock;
+    private final long intervalSeconds;
+    private final long slowProbeNanos;
+    private final ConcurrentMap<String, ProbeResult> gatewayProbes = new ConcurrentHashMap<String, ProbeResult>();
+    private final ScheduledExecutorService executor;
+
+    private volatile ProbeResult databaseProbe;
+    private volatile ProbeResult readReplicaProbe;
+
+    public QualpayHealthChecker(final QualpayPaymentPluginApi paymentPluginApi,
+                                final QualpayDao dao,
+                                final QualpayConfigPropertiesConfigurationHandler qualpayConfigPropertiesConfigurationHandler,
+                                final Clock clock,
+                                final long intervalSeconds,
+                                final long slowProbeMillis) {
+        this.paymentPluginApi = paymentPluginApi;
+        this.dao = dao;
+        this.qualpayConfigPropertiesConfigurationHandler = qualpayConfigPropertiesConfigurationHandler;
+        this.clock = clock;
+        this.intervalSeconds = Math.max(1, intervalSeconds);
+        this.slowProbeNanos = TimeUnit.MILLISECONDS.toNanos(slowProbeMillis);
+        this.executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder().setNameFormat("qualpay-health-checker-%d")
+                                                                                            .setDaemon(true)
+                                                                                            .build());
+    }
+
+    public void start() {
+        executor.scheduleWithFixedDelay(new Runnable() {
+                                            @Override
+                                            public void run() {
+                                                probe();
+                                            }
+                                        },
+                                        0,
+                                        intervalSeconds,
+                                        TimeUnit.SECONDS);
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    @VisibleForTesting
+    void probe() {
+        try {
+            databaseProbe = probeDatabase(false, databaseProbe);
+            if (dao.hasReadReplica()) {
+                readReplicaProbe = probeDatabase(true, readReplicaProbe);
+            }
+
+            probeGateway(null);
+            for (final UUID kbTenantId : paymentPluginApi.getGatewayMetrics().getTenants()) {
+                probeGateway(kbTenantId);
+            }
+        } catch (final RuntimeException e) {
+            // Don't kill the scheduler
+            logger.warn("Qualpay health probe failed", e);
+        }
+    }
+
+    // Only reads the latest probe results and in-memory pool counters. The status is DOWN (or STARTING) when the
+    // database is unreachable (or wasn't probed yet), DEGRADED when anything else is unreachable, slow or saturated.
+    // The gateway probes of the tenants are only counted, the details are limited to the one of the caller (if any).
+    public Map<String, Object> getHealth(@Nullable final UUID kbTenantId) {
+        final DateTime staleBefore = clock.getUTCNow().minusSeconds((int) (intervalSeconds * MAX_MISSED_PROBES));
+        boolean degraded = false;
+
+        final Map<String, Object> database = toMap(databaseProbe, staleBefore);
+        degraded |= !STATUS_UP.equals(database.get("status"));
+
+        final Map<String, Object> readReplica = dao.hasReadReplica() ? toMap(readReplicaProbe, staleBefore) : null;
+        degraded |= readReplica != null && !STATUS_UP.equals(readReplica.get("status"));
+
+        final Map<String, Object> gateway = new LinkedHashMap<String, Object>();
+        int nbTenants = 0;
+        int nbTenantsDegraded = 0;
+        for (final Map.Entry<String, ProbeResult> entry : gatewayProbes.entrySet()) {
+            final Map<String, Object> tenantGateway = toMap(entry.getValue(), staleBefore);
+            final boolean tenantDegraded = !STATUS_UP.equals(tenantGateway.get("status"));
+            degraded |= tenantDegraded;
+            if (DEFAULT_TENANT.equals(entry.getKey())) {
+                gateway.put(DEFAULT_TENANT, tenantGateway);
+                continue;
+            }
+
+            nbTenants++;
+            nbTenantsDegraded += tenantDegraded ? 1 : 0;
+            if (kbTenantId != null && kbTenantId.toString().equals(entry.getKey())) {
+                gateway.put(entry.getKey(), tenantGateway);
+            }
+        }
+        final Map<String, Object> tenants = new LinkedHashMap<String, Object>();
+        tenants.put("nbProbed", nbTenants);
+        tenants.put("nbDegraded", nbTenantsDegraded);
+        gateway.put("tenants", tenants);
+
+        final Map<String, Map<String, Object>> pools = new LinkedHashMap<String, Map<String, Object>>();
+        for (final Map.Entry<String, Map<String, Integer>> entry : dao.getPoolsUsage().entrySet()) {
+            pools.put(entry.getKey(), toPoolMap(entry.getValue().get("active"), entry.getValue().get("max"), entry.getValue().get("waiting")));
+        }
+        pools.put("http", toPoolMap(paymentPluginApi.getActiveHttpConnections(), null, null));
+        pools.put("stateRefreshes", toPoolMap(paymentPluginApi.getInFlightStateRefreshes(), QualpayPaymentPluginApi.MAX_CONCURRENT_STATE_REFRESHES, null));
+        for (final Map<String, Object> pool : pools.values()) {
+            degraded |= (Boolean) pool.get("saturated");
+        }
+
+        final String status;
+        if (databaseProbe == null) {
+            status = STATUS_STARTING;
+        } else if (STATUS_DOWN.equals(database.get("status"))) {
+            status = STATUS_DOWN;
+        } else {
+            status = degraded ? STATUS_DEGRADED : STATUS_UP;
+        }
+
+        final Map<String, Object> health = new LinkedHashMap<String, Object>();
+        health.put("status", status);
+        health.put("database", database);
+        if (readReplica != null) {
+            health.put("readReplica", readReplica);
+        }
+        health.put("gateway", gateway);
+        health.put("pools", pools);
+        return health;
+    }
+
+    private ProbeResult probeDatabase(final boolean readReplica, @Nullable final ProbeResult previous) {
+        final long startNanos = System.nanoTime();
+        try {
+            if (readReplica) {
+                dao.pingReadReplica();
+            } else {
+                dao.ping();
+            }
+            return new ProbeResult(System.nanoTime() - startNanos, null, 0, clock.getUTCNow());
+        } catch (final Exception e) {
+            logger.warn("Qualpay health probe: database{} unreachable", readReplica ? " read replica" : "", e);
+            return new ProbeResult(System.nanoTime() - startNanos, e.toString(), previous == null ? 1 : previous.consecutiveFailures + 1, clock.getUTCNow());
+        }
+    }
+
+    private void probeGateway(@Nullable final UUID kbTenantId) {
+        if (qualpayConfigPropertiesConfigurationHandler.getConfigurable(kbTenantId).getApiKey() == null) {
+            // e.g. no default configuration, only per-tenant ones
+            return;
+        }
+
+        final String key = kbTenantId == null ? DEFAULT_TENANT : kbTenantId.toString();
+        final ProbeResult previous = gatewayProbes.get(key);
+        final PluginCallContext context = new PluginCallContext(QualpayActivator.PLUGIN_NAME, clock.getUTCNow(), null, kbTenantId);
+
+        final long startNanos = System.nanoTime();
+        String error = null;
+        try {
+            // Not recorded in the gateway metrics
+            new PGApi(paymentPluginApi.buildApiClient(context, false)).getTransaction(PROBE_PG_ID);
+        } catch (final ApiException e) {
+            // Any answer but an authentication or server error means Qualpay is reachable with these credentials
+            if (e.getCode() == 0 || e.getCode() == 401 || e.getCode() == 403 || e.getCode() >= 500) {
+                error = "http_" + e.getCode() + (e.getMessage() == null ? "" : ": " + e.getMessage());
+            }
+        } catch (final RuntimeException e) {
+            error = e.toString();
+        }
+
+        final int consecutiveFailures = error == null ? 0 : (previous == null ? 1 : previous.consecutiveFailures + 1);
+        if (error != null && consecutiveFailures == 1) {
+            logger.warn("Qualpay health probe: gateway unreachable for tenant {}: {}", key, error);
+        }
+        gatewayProbes.put(key, new ProbeResult(System.nanoTime() - startNanos, error, consecutiveFailures, clock.getUTCNow()));
+    }
+
+    private Map<String, Object> toMap(@Nullable final ProbeResult probe, final DateTime staleBefore) {
+        final Map<String, Object> map = new LinkedHashMap<String, Object>();
+        if (probe == null) {
+            map.put("status", STATUS_STARTING);
+            return map;
+        }
+
+        if (probe.error != null || probe.probedDate.isBefore(staleBefore)) {
+            map.put("status", STATUS_DOWN);
+        } else if (probe.latencyNanos > slowProbeNanos) {
+            map.put("status", STATUS_DEGRADED);
+        } else {
+            map.put("status", STATUS_UP);
+        }
+        map.put("latencyMillis", probe.latencyNanos / 1000000.0);
+        map.put("consecutiveFailures", probe.consecutiveFailures);
+        map.put("probedDate", probe.probedDate.toString());
+        if (probe.error != null) {
+            map.put("error", probe.error);
+        }
+        return map;
+    }
+
+    private static Map<String, Object> toPoolMap(final int active, @Nullable final Integer max, @Nullable final Integer waiting) {
+        final Map<String, Object> map = new LinkedHashMap<String, Object>();
+        map.put("active", active);
+        if (max != null) {
+            map.put("max", max);
+        }
+        if (waiting != null) {
+            map.put("waiting", waiting);
+        }
+        map.put("saturated", (max != null && max > 0 && active >= max * POOL_SATURATION_RATIO) || (waiting != null && waiting > 0));
+        return map;
+    }
+
+    private static final class ProbeResult {
+
+        private final long latencyNanos;
+        private final String error;
+        private final int consecutiveFailures;
+        private final DateTime probedDate;
+
+        private ProbeResult(final long latencyNanos, @Nullable final String error, final int consecutiveFailures, final DateTime probedDate) {
+            this.latencyNanos = latencyNanos;
+            this.error = error;
+            this.consecutiveFailures = consecutiveFailures;
+            this.probedDate = probedDate;
+        }
+    }
+}
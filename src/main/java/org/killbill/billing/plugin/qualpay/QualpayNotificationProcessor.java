@@ -0,0 +1,539 @@
+/*
+ * Copyright 2014-2019 Groupon, Inc
+ * Copyright 2014-2019 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.plugin.qualpay;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.Nullable;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.joda.time.DateTime;
+import org.jooq.types.ULong;
+import org.killbill.billing.payment.api.PluginProperty;
+import org.killbill.billing.payment.plugin.api.PaymentPluginStatus;
+import org.killbill.billing.payment.plugin.api.PaymentPluginApiException;
+import org.killbill.billing.plugin.api.PluginCallContext;
+import org.killbill.billing.plugin.qualpay.dao.QualpayDao;
+import org.killbill.billing.plugin.qualpay.dao.gen.tables.records.QualpayNotificationsRecord;
+import org.killbill.billing.plugin.qualpay.dao.gen.tables.records.QualpayPaymentMethodsRecord;
+import org.killbill.billing.plugin.qualpay.dao.gen.tables.records.QualpayResponsesRecord;
+import org.killbill.billing.plugin.qualpay.jfr.QualpayEvents;
+import org.killbill.clock.Clock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Strings;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.hash.Hashing;
+import com.google.common.io.BaseEncoding;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+// Webhook ingestion: events are verified and stored in the qualpay_notifications inbox (the sender is acknowledged
+// as soon as the row is committed), then claimed in batches and applied asynchronously by partitioned workers
+public class QualpayNotificationProcessor implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(QualpayNotificationProcessor.class);
+
+    public static final String SIGNATURE_HEADER = "x-qualpay-webhook-signature";
+    public static final String PROPERTY_SIGNATURE = "signature";
+
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+    private static final int EVENT_ID_MAX_LENGTH = 64;
+    private static final long MACS_MAX_SIZE = 1000;
+    private static final long SHUTDOWN_TIMEOUT_SECONDS = 30;
+    private static final long CLAIM_TIMEOUT_MILLIS = TimeUnit.MINUTES.toMillis(5);
+    private static final long MAX_BACKOFF_MILLIS = TimeUnit.MINUTES.toMillis(10);
+
+    public enum IngestionResult {
+        ACCEPTED,
+        DUPLICATE,
+        INVALID_SIGNATURE,
+        INVALID_PAYLOAD,
+        // No webhook secret configured for the tenant: nothing can be trusted
+        NOT_CONFIGURED
+    }
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    // Keyed by secret, so that rotated secrets are picked up without invalidation
+    private final LoadingCache<String, Mac> macsBySecret = CacheBuilder.newBuilder()
+                                                                       .maximumSize(MACS_MAX_SIZE)
+                                                                       .build(new CacheLoader<String, Mac>() {
+                                                                           @Override
+                                                                           public Mac load(final String secret) throws GeneralSecurityException {
+                                                                               return newMac(secret);
+                                                                           }
+                                                                       });
+    // Signals the poller that new events are waiting
+    private final Semaphore wakeUp = new Semaphore(0);
+
+    private final QualpayPaymentPluginApi paymentPluginApi;
+    private final QualpayDao dao;
+    private final QualpayConfigPropertiesConfigurationHandler qualpayConfigPropertiesConfigurationHandler;
+    private final Clock clock;
+    private final int batchSize;
+    private final long pollIntervalMillis;
+    private final int maxAttempts;
+    private final ExecutorService poller;
+    // One single-threaded executor per partition: events of a transaction always go to the same one
+    private final List<ExecutorService> partitions;
+
+    private final AtomicLong nbProcessed = new AtomicLong();
+    private final AtomicLong nbRetried = new AtomicLong();
+    private final AtomicLong nbParked = new AtomicLong();
+    // Time between the reception of the last applied event and its completion
+    private volatile long lastLagMillis = 0;
+    private volatile long lastClaimsReleaseMillis = 0;
+    private volatile boolean isStopped = false;
+
+    public QualpayNotificationProcessor(final QualpayPaymentPluginApi paymentPluginApi,
+                                        final QualpayDao dao,
+                                        final QualpayConfigPropertiesConfigurationHandler qualpayConfigPropertiesConfigurationHandler,
+                                        final Clock clock,
+                                        final int nbWorkers,
+                                        final int batchSize,
+                                        final long pollIntervalMillis,
+                                        final int maxAttempts) {
+        this.paymentPluginApi = paymentPluginApi;
+        this.dao = dao;
+        this.qualpayConfigPropertiesConfigurationHandler = qualpayConfigPropertiesConfigurationHandler;
+        this.clock = clock;
+        this.batchSize = Math.max(1, batchSize);
+        this.pollIntervalMillis = Math.max(1, pollIntervalMillis);
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.poller = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder().setNameFormat("qualpay-notifications-poller-%d")
+                                                                                  .setDaemon(true)
+                                                                                  .build());
+        final ThreadFactory partitionThreadFactory = new ThreadFactoryBuilder().setNameFormat("qualpay-notifications-%d")
+                                                                               .setDaemon(true)
+                                                                               .build();
+        this.partitions = new ArrayList<ExecutorService>();
+        for (int i = 0; i < Math.max(1, nbWorkers); i++) {
+            partitions.add(Executors.newSingleThreadExecutor(partitionThreadFactory));
+        }
+    }
+
+    public void start() {
+        poller.submit(new Runnable() {
+            @Override
+            public void run() {
+                pollLoop();
+            }
+        });
+    }
+
+    @Override
+    public void close() {
+        isStopped = true;
+        wakeUp.release();
+        // The current batch is completed, pending events stay in the inbox and are picked up after the restart
+        poller.shutdown();
+        try {
+            if (!poller.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                poller.shutdownNow();
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            poller.shutdownNow();
+        }
+        for (final ExecutorService partition : partitions) {
+            partition.shutdownNow();
+        }
+    }
+
+    public Map<String, Object> getMetrics() throws SQLException {
+        final Map<String, Object> metrics = new LinkedHashMap<String, Object>();
+        final Map<String, Integer> countByStatus = dao.countUnprocessedNotifications();
+        metrics.put("pending", countByStatus.get(QualpayDao.NOTIFICATION_STATUS_PENDING));
+        metrics.put("processing", countByStatus.get(QualpayDao.NOTIFICATION_STATUS_PROCESSING));
+        metrics.put("parked", countByStatus.get(QualpayDao.NOTIFICATION_STATUS_PARKED));
+        // Consumer lag: age of the oldest event not applied yet
+        final DateTime oldestPendingCreatedDate = dao.getOldestPendingNotificationCreatedDate();
+        metrics.put("oldest_pending_age_ms", oldestPendingCreatedDate == null ? 0 : Math.max(0, clock.getUTCNow().getMillis() - oldestPendingCreatedDate.getMillis()));
+        metrics.put("last_lag_ms", lastLagMillis);
+        // Since startup, on this node
+        metrics.put("nb_processed", nbProcessed.get());
+        metrics.put("nb_retried", nbRetried.get());
+        metrics.put("nb_parked", nbParked.get());
+        return metrics;
+    }
+
+    // Ingestion
+
+    public IngestionResult ingest(final String payload, @Nullable final String signature, final UUID kbTenantId) throws SQLException {
+        final String webhookSecret = qualpayConfigPropertiesConfigurationHandler.getConfigurable(kbTenantId).getWebhookSecret();
+        if (Strings.isNullOrEmpty(webhookSecret)) {
+            return IngestionResult.NOT_CONFIGURED;
+        }
+        if (!isSignatureValid(payload, signature, webhookSecret)) {
+            return IngestionResult.INVALID_SIGNATURE;
+        }
+
+        final Map event;
+        try {
+            event = objectMapper.readValue(payload, Map.class);
+        } catch (final IOException e) {
+            return IngestionResult.INVALID_PAYLOAD;
+        }
+
+        final Map data = getData(event);
+        final boolean inserted = dao.addNotification(getEventId(event, payload),
+                                                     toString(event.get("event")),
+                                                     toString(data.get("pg_id")),
+                                                     payload,
+                                                     clock.getUTCNow(),
+                                                     kbTenantId);
+        if (!inserted) {
+            // Qualpay redelivers until acknowledged
+            return IngestionResult.DUPLICATE;
+        }
+
+        wakeUp.release();
+        return IngestionResult.ACCEPTED;
+    }
+
+    // The header may contain several comma-separated signatures while the secret is being rotated
+    private boolean isSignatureValid(final String payload, @Nullable final String signature, final String webhookSecret) {
+        if (Strings.isNullOrEmpty(signature)) {
+            return false;
+        }
+
+        final byte[] expected;
+        try {
+            expected = getMac(webhookSecret).doFinal(payload.getBytes(StandardCharsets.UTF_8));
+        } catch (final GeneralSecurityException e) {
+            logger.warn("Unable to compute webhook signature", e);
+            return false;
+        }
+
+        for (final String candidate : signature.split(",")) {
+            final byte[] actual;
+            try {
+                actual = BaseEncoding.base64().decode(candidate.trim());
+            } catch (final IllegalArgumentException e) {
+                continue;
+            }
+            if (MessageDigest.isEqual(expected, actual)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Mac instances aren't thread-safe: hand out clones of the cached, already initialized, instance
+    private Mac getMac(final String webhookSecret) throws GeneralSecurityException {
+        try {
+            Mac mac = macsBySecret.getIfPresent(webhookSecret);
+            QualpayEvents.cacheLookup(QualpayEvents.CACHE_WEBHOOK_MACS, mac != null);
+            if (mac == null) {
+                mac = macsBySecret.getUnchecked(webhookSecret);
+            }
+            return (Mac) mac.clone();
+        } catch (final CloneNotSupportedException e) {
+            return newMac(webhookSecret);
+        }
+    }
+
+    private static Mac newMac(final String secret) throws GeneralSecurityException {
+        final Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+        mac.init(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), HMAC_ALGORITHM));
+        return mac;
+    }
+
+    // Redeliveries have the same body: fall back to its hash when the event doesn't carry an id
+    private static String getEventId(final Map event, final String payload) {
+        final String eventId = toString(event.get("event_id"));
+        if (eventId != null && eventId.length() <= EVENT_ID_MAX_LENGTH) {
+            return eventId;
+        }
+        return Hashing.sha256().hashString(payload, StandardCharsets.UTF_8).toString();
+    }
+
+    // Processing
+
+    private void pollLoop() {
+        while (!isStopped) {
+            try {
+                if (processNotifications() == 0) {
+                    wakeUp.tryAcquire(pollIntervalMillis, TimeUnit.MILLISECONDS);
+                    wakeUp.drainPermits();
+                }
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (final SQLException e) {
+                logger.warn("Unable to process Qualpay notifications", e);
+                sleepQuietly();
+            } catch (final RuntimeException e) {
+                logger.warn("Unable to process Qualpay notifications", e);
+                sleepQuietly();
+            }
+        }
+    }
+
+    // Returns the number of notifications claimed
+    @VisibleForTesting
+    int processNotifications() throws InterruptedException, SQLException {
+        releaseExpiredClaims();
+
+        final List<QualpayNotificationsRecord> notifications = dao.claimNotifications(batchSize, clock.getUTCNow());
+        if (!notifications.isEmpty()) {
+            processBatch(notifications);
+        }
+        return notifications.size();
+    }
+
+    private void releaseExpiredClaims() throws SQLException {
+        final DateTime utcNow = clock.getUTCNow();
+        if (utcNow.getMillis() - lastClaimsReleaseMillis < CLAIM_TIMEOUT_MILLIS / 2) {
+            return;
+        }
+        lastClaimsReleaseMillis = utcNow.getMillis();
+
+        final int nbReleased = dao.releaseExpiredNotificationClaims(utcNow.minusMillis((int) CLAIM_TIMEOUT_MILLIS), utcNow);
+        if (nbReleased > 0) {
+            logger.warn("Released {} expired Qualpay notification claim(s)", nbReleased);
+        }
+    }
+
+    private void processBatch(final Iterable<QualpayNotificationsRecord> notifications) throws InterruptedException, SQLException {
+        final Map<Integer, List<QualpayNotificationsRecord>> notificationsByPartition = new LinkedHashMap<Integer, List<QualpayNotificationsRecord>>();
+        for (final QualpayNotificationsRecord notification : notifications) {
+            final String key = notification.getKbTenantId() + ":" + (notification.getPgId() == null ? notification.getEventId() : notification.getPgId());
+            final int partition = Math.abs(key.hashCode() % partitions.size());
+            if (notificationsByPartition.get(partition) == null) {
+                notificationsByPartition.put(partition, new ArrayList<QualpayNotificationsRecord>());
+            }
+            notificationsByPartition.get(partition).add(notification);
+        }
+
+        final Collection<QualpayNotificationsRecord> processed = new ConcurrentLinkedQueue<QualpayNotificationsRecord>();
+        final List<Future<?>> futures = new ArrayList<Future<?>>(notificationsByPartition.size());
+        for (final Map.Entry<Integer, List<QualpayNotificationsRecord>> entry : notificationsByPartition.entrySet()) {
+            futures.add(partitions.get(entry.getKey()).submit(new Runnable() {
+                @Override
+                public void run() {
+                    processed.addAll(applyPartition(entry.getValue()));
+                }
+            }));
+        }
+        for (final Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (final ExecutionException e) {
+                // Claims are released after the timeout
+                logger.warn("Unexpected error while applying Qualpay notifications", e.getCause());
+            }
+        }
+
+        final DateTime utcNow = clock.getUTCNow();
+        final Collection<ULong> recordIds = new ArrayList<ULong>(processed.size());
+        for (final QualpayNotificationsRecord notification : processed) {
+            recordIds.add(notification.getRecordId());
+            lastLagMillis = Math.max(0, utcNow.getMillis() - notification.getCreatedDate().getTime());
+        }
+        dao.setNotificationsStatus(recordIds, QualpayDao.NOTIFICATION_STATUS_PROCESSED, utcNow);
+        nbProcessed.addAndGet(recordIds.size());
+    }
+
+    // Returns the notifications successfully applied, failed ones are rescheduled or parked
+    private List<QualpayNotificationsRecord> applyPartition(final List<QualpayNotificationsRecord> notifications) {
+        final Map<String, List<QualpayNotificationsRecord>> notificationsByTenant = new LinkedHashMap<String, List<QualpayNotificationsRecord>>();
+        for (final QualpayNotificationsRecord notification : notifications) {
+            if (notificationsByTenant.get(notification.getKbTenantId()) == null) {
+                notificationsByTenant.put(notification.getKbTenantId(), new ArrayList<QualpayNotificationsRecord>());
+            }
+            notificationsByTenant.get(notification.getKbTenantId()).add(notification);
+        }
+
+        final List<QualpayNotificationsRecord> applied = new ArrayList<QualpayNotificationsRecord>(notifications.size());
+        for (final Map.Entry<String, List<QualpayNotificationsRecord>> entry : notificationsByTenant.entrySet()) {
+            final UUID kbTenantId = UUID.fromString(entry.getKey());
+
+            final List<QualpayNotificationsRecord> merged = new ArrayList<QualpayNotificationsRecord>(entry.getValue().size());
+            try {
+                final Collection<QualpayNotificationsRecord> unmatched = mergeTransactionEvents(entry.getValue(), kbTenantId);
+                for (final QualpayNotificationsRecord notification : entry.getValue()) {
+                    if (unmatched.contains(notification)) {
+                        failUnmatched(notification);
+                    } else {
+                        merged.add(notification);
+                    }
+                }
+            } catch (final Exception e) {
+                // Retry one by one to isolate the poison message(s)
+                merged.clear();
+                for (final QualpayNotificationsRecord notification : entry.getValue()) {
+                    try {
+                        if (mergeTransactionEvents(ImmutableList.<QualpayNotificationsRecord>of(notification), kbTenantId).isEmpty()) {
+                            merged.add(notification);
+                        } else {
+                            failUnmatched(notification);
+                        }
+                    } catch (final Exception notificationException) {
+                        fail(notification, notificationException);
+                    }
+                }
+            }
+
+            for (final QualpayNotificationsRecord notification : merged) {
+                try {
+                    refreshPaymentMethods(notification, kbTenantId);
+                    applied.add(notification);
+                } catch (final Exception e) {
+                    fail(notification, e);
+                }
+            }
+        }
+        return applied;
+    }
+
+    // Transaction events: merge the new state into the latest response, in a single database transaction.
+    // Returns the events whose response doesn't exist (yet).
+    private Collection<QualpayNotificationsRecord> mergeTransactionEvents(final Iterable<QualpayNotificationsRecord> notifications, final UUID kbTenantId) throws SQLException {
+        final Collection<String> pgIds = new ArrayList<String>();
+        for (final QualpayNotificationsRecord notification : notifications) {
+            if (notification.getPgId() != null) {
+                pgIds.add(notification.getPgId());
+            }
+        }
+        final Map<String, QualpayResponsesRecord> responseByPgId = dao.getResponsesByQualpayIds(pgIds, kbTenantId);
+
+        final Collection<QualpayNotificationsRecord> unmatched = new ArrayList<QualpayNotificationsRecord>();
+        final Map<UUID, Map<String, Object>> additionalDataByKbPaymentTransactionId = new HashMap<UUID, Map<String, Object>>();
+        for (final QualpayNotificationsRecord notification : notifications) {
+            if (notification.getPgId() == null) {
+                continue;
+            }
+
+            final QualpayResponsesRecord response = responseByPgId.get(notification.getPgId());
+            if (response == null) {
+                unmatched.add(notification);
+                continue;
+            }
+
+            final Map data = getData(QualpayDao.fromAdditionalData(notification.getPayload()));
+            additionalDataByKbPaymentTransactionId.put(UUID.fromString(response.getKbPaymentTransactionId()), toAdditionalData(data, response, notification.getEventType()));
+        }
+        dao.updateResponses(additionalDataByKbPaymentTransactionId, kbTenantId);
+        return unmatched;
+    }
+
+    // Only the transaction status is taken from the event (never e.g. its rcode), and the payment status is only
+    // derived from it for transactions still UNDEFINED: an event can't overturn an outcome returned by Qualpay
+    @VisibleForTesting
+    static Map<String, Object> toAdditionalData(final Map data, final QualpayResponsesRecord response, @Nullable final String eventType) {
+        final Map<String, Object> additionalData = new HashMap<String, Object>();
+        final String tranStatus = toString(data.get("tran_status"));
+        if (tranStatus != null) {
+            if (PaymentPluginStatus.UNDEFINED.toString().equals(response.getPluginStatus())) {
+                additionalData.putAll(QualpayPluginProperties.toAdditionalDataMap(ImmutableMap.<String, Object>of("tran_status", tranStatus)));
+            } else {
+                additionalData.put("tran_status", tranStatus);
+            }
+        }
+        additionalData.put("last_webhook_event", eventType);
+        return additionalData;
+    }
+
+    // Card events: re-sync the account payment methods from the vault
+    private void refreshPaymentMethods(final QualpayNotificationsRecord notification, final UUID kbTenantId) throws SQLException, PaymentPluginApiException {
+        final String cardId = toString(getData(QualpayDao.fromAdditionalData(notification.getPayload())).get("card_id"));
+        if (cardId == null) {
+            return;
+        }
+
+        final QualpayPaymentMethodsRecord paymentMethod = dao.getPaymentMethodByQualpayId(cardId, kbTenantId);
+        if (paymentMethod != null) {
+            final UUID kbAccountId = UUID.fromString(paymentMethod.getKbAccountId());
+            paymentPluginApi.refreshPaymentMethods(kbAccountId,
+                                                   ImmutableList.<PluginProperty>of(),
+                                                   new PluginCallContext(QualpayActivator.PLUGIN_NAME, clock.getUTCNow(), kbAccountId, kbTenantId));
+        }
+    }
+
+    // The response may not be committed yet (e.g. group commit linger): retried until maxAttempts, then parked
+    private void failUnmatched(final QualpayNotificationsRecord notification) {
+        fail(notification, new IllegalStateException("No response found for pg_id " + notification.getPgId()));
+    }
+
+    private void fail(final QualpayNotificationsRecord notification, final Exception e) {
+        final int attempts = notification.getAttempts() + 1;
+        final boolean park = attempts >= maxAttempts;
+        if (park) {
+            logger.error("Parking Qualpay notification {} after {} attempt(s)", notification.getEventId(), attempts, e);
+            nbParked.incrementAndGet();
+        } else {
+            logger.warn("Unable to apply Qualpay notification {}, will retry", notification.getEventId(), e);
+            nbRetried.incrementAndGet();
+        }
+
+        // Exponential backoff
+        final DateTime utcNow = clock.getUTCNow();
+        final long backoffMillis = Math.min(MAX_BACKOFF_MILLIS, TimeUnit.SECONDS.toMillis(1L << Math.min(attempts, 20)));
+        try {
+            dao.failNotification(notification.getRecordId(), attempts, String.valueOf(e), park, utcNow.plusMillis((int) backoffMillis), utcNow);
+        } catch (final SQLException sqlException) {
+            // The claim will be released after the timeout
+            logger.warn("Unable to reschedule Qualpay notification {}", notification.getEventId(), sqlException);
+        }
+    }
+
+    private void sleepQuietly() {
+        try {
+            Thread.sleep(pollIntervalMillis);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static Map getData(final Map event) {
+        return event.get("data") instanceof Map ? (Map) event.get("data") : new HashMap();
+    }
+
+    private static String toString(@Nullable final Object value) {
+        return value == null ? null : value.toString();
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2014-2019 Groupon, Inc
+ * Copyright 2014-2019 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.plugin.qualpay;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nullable;
+
+// Wall-clock breakdown of a payment operation: each enter() closes the current phase and opens the next one.
+// One instance per call, not thread-safe.
+public class QualpayOperationTimer {
+
+    public enum Phase {
+        KB_API,
+        DAO_READ,
+        GATEWAY,
+        DAO_WRITE
+    }
+
+    private final String operation;
+    private final long startNanos;
+    private final long[] phaseNanos = new long[Phase.values().length];
+
+    private Phase currentPhase = null;
+    private long currentPhaseStartNanos;
+    private long totalNanos = -1;
+
+    public QualpayOperationTimer(final String operation) {
+        this.operation = operation;
+        this.startNanos = System.nanoTime();
+        this.currentPhaseStartNanos = startNanos;
+    }
+
+    public void enter(final Phase phase) {
+        closeCurrentPhase(phase);
+    }
+
+    // Idempotent
+    public void stop() {
+        if (totalNanos >= 0) {
+            return;
+        }
+        closeCurrentPhase(null);
+        totalNanos = System.nanoTime() - startNanos;
+    }
+
+    public String getOperation() {
+        return operation;
+    }
+
+    public long getPhaseNanos(final Phase phase) {
+        return phaseNanos[phase.ordinal()];
+    }
+
+    public long getTotalNanos() {
+        return totalNanos >= 0 ? totalNanos : System.nanoTime() - startNanos;
+    }
+
+    // e.g. operation=PURCHASE total_ms=812.4 kb_api_ms=3.1 dao_read_ms=1.9 gateway_ms=801.0 dao_write_ms=6.2
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder("operation=").append(operation)
+                                                                .append(" total_ms=").append(toMillis(getTotalNanos()));
+        for (final Phase phase : Phase.values()) {
+            sb.append(' ').append(phase.toString().toLowerCase()).append("_ms=").append(toMillis(getPhaseNanos(phase)));
+        }
+        return sb.toString();
+    }
+
+    private void closeCurrentPhase(@Nullable final Phase nextPhase) {
+        final long nowNanos = System.nanoTime();
+        if (currentPhase != null) {
+            phaseNanos[currentPhase.ordinal()] += nowNanos - currentPhaseStartNanos;
+        }
+        currentPhase = nextPhase;
+        currentPhaseStartNanos = nowNanos;
+    }
+
+    private static String toMillis(final long nanos) {
+        return String.format(Locale.ROOT, "%.1f", (double) nanos / TimeUnit.MILLISECONDS.toNanos(1));
+    }
+}
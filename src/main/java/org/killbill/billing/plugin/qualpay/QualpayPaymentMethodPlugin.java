@@ -27,15 +27,23 @@ import org.killbill.billing.plugin.api.payment.PluginPaymentMethodPlugin;
 import org.killbill.billing.plugin.qualpay.dao.QualpayDao;
 import org.killbill.billing.plugin.qualpay.dao.gen.tables.records.QualpayPaymentMethodsRecord;
 
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterables;
+
 public class QualpayPaymentMethodPlugin extends PluginPaymentMethodPlugin {
 
     public static QualpayPaymentMethodPlugin build(final QualpayPaymentMethodsRecord QualpayPaymentMethodsRecord) {
+        return build(QualpayPaymentMethodsRecord, ImmutableList.<PluginProperty>of());
+    }
+
+    // Extra properties aren't persisted, they are only returned to the caller
+    public static QualpayPaymentMethodPlugin build(final QualpayPaymentMethodsRecord QualpayPaymentMethodsRecord, final List<PluginProperty> extraProperties) {
         final Map additionalData = QualpayDao.fromAdditionalData(QualpayPaymentMethodsRecord.getAdditionalData());
         final String externalPaymentMethodId = (String) additionalData.get("id");
 
         return new QualpayPaymentMethodPlugin(UUID.fromString(QualpayPaymentMethodsRecord.getKbPaymentMethodId()),
                                               externalPaymentMethodId,
-                                              PluginProperties.buildPluginProperties(additionalData));
+                                              ImmutableList.<PluginProperty>copyOf(Iterables.concat(PluginProperties.buildPluginProperties(additionalData), extraProperties)));
     }
 
     public QualpayPaymentMethodPlugin(final UUID kbPaymentMethodId,
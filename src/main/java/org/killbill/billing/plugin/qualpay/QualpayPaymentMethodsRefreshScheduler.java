@@ -0,0 +1,126 @@
+/*
+ * Copyright 2014-2019 Groupon, Inc
+ * Copyright 2014-2019 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.plugin.qualpay;
+
+import java.io.Closeable;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.joda.time.DateTime;
+import org.killbill.billing.payment.api.PluginProperty;
+import org.killbill.billing.payment.plugin.api.PaymentPluginApiException;
+import org.killbill.billing.plugin.api.PluginCallContext;
+import org.killbill.billing.plugin.qualpay.dao.QualpayDao;
+import org.killbill.billing.plugin.qualpay.dao.gen.tables.records.QualpayAccountsRecord;
+import org.killbill.billing.util.callcontext.CallContext;
+import org.killbill.clock.Clock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+// Refreshes the payment methods of accounts whose last sync will be older than the TTL before the next run,
+// so that interactive refreshes keep being served from our tables
+public class QualpayPaymentMethodsRefreshScheduler implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(QualpayPaymentMethodsRefreshScheduler.class);
+
+    private final QualpayPaymentPluginApi paymentPluginApi;
+    private final QualpayDao dao;
+    private final Clock clock;
+    private final long ttlSeconds;
+    private final long intervalSeconds;
+    private final int batchSize;
+    private final ScheduledExecutorService executor;
+
+    public QualpayPaymentMethodsRefreshScheduler(final QualpayPaymentPluginApi paymentPluginApi,
+                                                 final QualpayDao dao,
+                                                 final Clock clock,
+                                                 final long ttlSeconds,
+                                                 final long intervalSeconds,
+                                                 final int batchSize) {
+        this.paymentPluginApi = paymentPluginApi;
+        this.dao = dao;
+        this.clock = clock;
+        this.ttlSeconds = ttlSeconds;
+        this.intervalSeconds = intervalSeconds;
+        this.batchSize = batchSize;
+        this.executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder().setNameFormat("qualpay-pm-refresh-%d")
+                                                                                            .setDaemon(true)
+                                                                                            .build());
+    }
+
+    public void start() {
+        executor.scheduleWithFixedDelay(new Runnable() {
+                                            @Override
+                                            public void run() {
+                                                refreshStaleAccounts();
+                                            }
+                                        },
+                                        intervalSeconds,
+                                        intervalSeconds,
+                                        TimeUnit.SECONDS);
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    @VisibleForTesting
+    int refreshStaleAccounts() {
+        final DateTime syncedBefore = clock.getUTCNow().minusSeconds((int) ttlSeconds).plusSeconds((int) intervalSeconds);
+
+        final List<QualpayAccountsRecord> accounts;
+        try {
+            accounts = dao.getAccountsSyncedBefore(syncedBefore, batchSize);
+        } catch (final SQLException e) {
+            logger.warn("Unable to retrieve accounts to refresh", e);
+            return 0;
+        }
+
+        int nbRefreshed = 0;
+        for (final QualpayAccountsRecord account : accounts) {
+            if (Thread.currentThread().isInterrupted()) {
+                break;
+            }
+
+            final UUID kbAccountId = UUID.fromString(account.getKbAccountId());
+            final CallContext context = new PluginCallContext(QualpayActivator.PLUGIN_NAME, clock.getUTCNow(), kbAccountId, UUID.fromString(account.getKbTenantId()));
+            try {
+                paymentPluginApi.refreshPaymentMethods(kbAccountId, ImmutableList.<PluginProperty>of(), context);
+                nbRefreshed++;
+            } catch (final PaymentPluginApiException e) {
+                logger.warn("Unable to refresh payment methods for account {}", kbAccountId, e);
+            } catch (final RuntimeException e) {
+                logger.warn("Unable to refresh payment methods for account {}", kbAccountId, e);
+            }
+        }
+
+        if (!accounts.isEmpty()) {
+            logger.info("Refreshed payment methods of {}/{} account(s) about to go stale", nbRefreshed, accounts.size());
+        }
+        return nbRefreshed;
+    }
+}
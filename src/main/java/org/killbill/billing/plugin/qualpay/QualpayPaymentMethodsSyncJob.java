@@ -0,0 +1,270 @@
+/*
+ * Copyright 2014-2019 Groupon, Inc
+ * Copyright 2014-2019 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.plugin.qualpay;
+
+import java.io.Closeable;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.Nullable;
+
+import org.joda.time.DateTime;
+import org.killbill.billing.payment.api.PluginProperty;
+import org.killbill.billing.payment.plugin.api.PaymentPluginApiException;
+import org.killbill.billing.plugin.api.PluginCallContext;
+import org.killbill.billing.plugin.qualpay.dao.QualpayDao;
+import org.killbill.billing.plugin.qualpay.dao.gen.tables.records.QualpaySyncCheckpointsRecord;
+import org.killbill.billing.util.callcontext.CallContext;
+import org.killbill.clock.Clock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.RateLimiter;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+// Refreshes the payment methods of all accounts of a tenant from the Qualpay Vault (e.g. after a card updater run)
+public class QualpayPaymentMethodsSyncJob implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(QualpayPaymentMethodsSyncJob.class);
+
+    public static final String JOB_NAME = "payment-methods-sync";
+
+    public static final String STATUS_RUNNING = "RUNNING";
+    public static final String STATUS_COMPLETED = "COMPLETED";
+    public static final String STATUS_FAILED = "FAILED";
+
+    private static final int PAGE_SIZE = 100;
+    private static final long SHUTDOWN_TIMEOUT_SECONDS = 30;
+
+    private final QualpayPaymentPluginApi paymentPluginApi;
+    private final QualpayDao dao;
+    private final QualpayConfigPropertiesConfigurationHandler qualpayConfigPropertiesConfigurationHandler;
+    private final Clock clock;
+    private final ExecutorService executor;
+    private final ConcurrentMap<UUID, SyncRun> runs = new ConcurrentHashMap<UUID, SyncRun>();
+
+    private volatile boolean isStopped = false;
+
+    public QualpayPaymentMethodsSyncJob(final QualpayPaymentPluginApi paymentPluginApi,
+                                        final QualpayDao dao,
+                                        final QualpayConfigPropertiesConfigurationHandler qualpayConfigPropertiesConfigurationHandler,
+                                        final Clock clock) {
+        this.paymentPluginApi = paymentPluginApi;
+        this.dao = dao;
+        this.qualpayConfigPropertiesConfigurationHandler = qualpayConfigPropertiesConfigurationHandler;
+        this.clock = clock;
+        this.executor = Executors.newCachedThreadPool(new ThreadFactoryBuilder().setNameFormat("qualpay-pm-sync-%d")
+                                                                                .setDaemon(true)
+                                                                                .build());
+    }
+
+    // Returns false if a sync is already running for that tenant
+    public synchronized boolean start(final UUID kbTenantId) {
+        final SyncRun previousRun = runs.get(kbTenantId);
+        if (isStopped || (previousRun != null && STATUS_RUNNING.equals(previousRun.status))) {
+            return false;
+        }
+
+        final SyncRun run = new SyncRun(kbTenantId, clock.getUTCNow());
+        runs.put(kbTenantId, run);
+        executor.submit(new Runnable() {
+            @Override
+            public void run() {
+                sync(run);
+            }
+        });
+        return true;
+    }
+
+    @Nullable
+    public SyncRun getRun(final UUID kbTenantId) {
+        return runs.get(kbTenantId);
+    }
+
+    @Override
+    public void close() {
+        isStopped = true;
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            executor.shutdownNow();
+        }
+    }
+
+    private void sync(final SyncRun run) {
+        final QualpayConfigProperties qualpayConfigProperties = qualpayConfigPropertiesConfigurationHandler.getConfigurable(run.kbTenantId);
+        final int parallelism = Integer.parseInt(qualpayConfigProperties.getPaymentMethodsSyncParallelism());
+        final RateLimiter rateLimiter = RateLimiter.create(Double.parseDouble(qualpayConfigProperties.getPaymentMethodsSyncRatePerSecond()));
+        final ExecutorService workers = Executors.newFixedThreadPool(parallelism, new ThreadFactoryBuilder().setNameFormat("qualpay-pm-sync-worker-%d")
+                                                                                                         .setDaemon(true)
+                                                                                                         .build());
+        UUID lastKbAccountId = null;
+        try {
+            // Resume an interrupted or failed run
+            final QualpaySyncCheckpointsRecord checkpoint = dao.getSyncCheckpoint(JOB_NAME, run.kbTenantId);
+            if (checkpoint != null && !STATUS_COMPLETED.equals(checkpoint.getStatus()) && checkpoint.getLastKbAccountId() != null) {
+                lastKbAccountId = UUID.fromString(checkpoint.getLastKbAccountId());
+                run.nbProcessed.set(checkpoint.getNbProcessed());
+                run.nbSkipped.set(checkpoint.getNbSkipped());
+                run.nbErrors.set(checkpoint.getNbErrors());
+                run.nbResumed = checkpoint.getNbProcessed() + checkpoint.getNbSkipped() + checkpoint.getNbErrors();
+                logger.info("Resuming payment methods sync for tenant {} after account {}", run.kbTenantId, lastKbAccountId);
+            }
+            saveCheckpoint(run, lastKbAccountId, STATUS_RUNNING);
+
+            while (!isStopped) {
+                final List<UUID> kbAccountIds = dao.getKbAccountIdsWithPaymentMethods(lastKbAccountId, PAGE_SIZE, run.kbTenantId);
+                if (kbAccountIds.isEmpty()) {
+                    break;
+                }
+
+                final List<Future<?>> futures = new ArrayList<Future<?>>(kbAccountIds.size());
+                for (final UUID kbAccountId : kbAccountIds) {
+                    futures.add(workers.submit(new Runnable() {
+                        @Override
+                        public void run() {
+                            syncAccount(run, kbAccountId, rateLimiter);
+                        }
+                    }));
+                }
+                // The checkpoint never moves past an account which hasn't been synced yet
+                for (final Future<?> future : futures) {
+                    future.get();
+                }
+
+                lastKbAccountId = kbAccountIds.get(kbAccountIds.size() - 1);
+                saveCheckpoint(run, lastKbAccountId, STATUS_RUNNING);
+            }
+
+            // If we're shutting down, the checkpoint stays RUNNING and the next run resumes from it
+            if (!isStopped) {
+                saveCheckpoint(run, null, STATUS_COMPLETED);
+                run.status = STATUS_COMPLETED;
+            }
+        } catch (final SQLException e) {
+            fail(run, lastKbAccountId, e);
+        } catch (final ExecutionException e) {
+            fail(run, lastKbAccountId, e);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            fail(run, lastKbAccountId, e);
+        } catch (final RuntimeException e) {
+            fail(run, lastKbAccountId, e);
+        } finally {
+            workers.shutdownNow();
+            if (STATUS_RUNNING.equals(run.status)) {
+                run.status = STATUS_FAILED;
+            }
+            logger.info("Payment methods sync for tenant {} {}: nbProcessed={}, nbSkipped={}, nbErrors={}, nbDeactivatedPaymentMethods={}, accountsPerSecond={}",
+                        run.kbTenantId, run.status, run.nbProcessed.get(), run.nbSkipped.get(), run.nbErrors.get(), run.nbDeactivated.get(), run.getAccountsPerSecond());
+        }
+    }
+
+    private void syncAccount(final SyncRun run, final UUID kbAccountId, final RateLimiter rateLimiter) {
+        final CallContext context = new PluginCallContext(QualpayActivator.PLUGIN_NAME, clock.getUTCNow(), kbAccountId, run.kbTenantId);
+        try {
+            if (!paymentPluginApi.hasQualpayCustomer(kbAccountId, context)) {
+                // Cards tokenized via the Payment Gateway API, not in the Vault
+                run.nbSkipped.incrementAndGet();
+                return;
+            }
+
+            rateLimiter.acquire();
+            run.nbDeactivated.addAndGet(paymentPluginApi.refreshPaymentMethods(kbAccountId, ImmutableList.<PluginProperty>of(), context));
+            run.nbProcessed.incrementAndGet();
+        } catch (final PaymentPluginApiException e) {
+            logger.warn("Unable to sync payment methods for account {}", kbAccountId, e);
+            run.nbErrors.incrementAndGet();
+        } catch (final RuntimeException e) {
+            logger.warn("Unable to sync payment methods for account {}", kbAccountId, e);
+            run.nbErrors.incrementAndGet();
+        }
+    }
+
+    private void fail(final SyncRun run, @Nullable final UUID lastKbAccountId, final Exception e) {
+        logger.warn("Payment methods sync failed for tenant {}", run.kbTenantId, e);
+        run.status = STATUS_FAILED;
+        try {
+            saveCheckpoint(run, lastKbAccountId, STATUS_FAILED);
+        } catch (final SQLException e2) {
+            logger.warn("Unable to save payment methods sync checkpoint for tenant {}", run.kbTenantId, e2);
+        }
+    }
+
+    private void saveCheckpoint(final SyncRun run, @Nullable final UUID lastKbAccountId, final String status) throws SQLException {
+        dao.saveSyncCheckpoint(JOB_NAME, lastKbAccountId, status, run.nbProcessed.get(), run.nbSkipped.get(), run.nbErrors.get(), clock.getUTCNow(), run.kbTenantId);
+    }
+
+    public final class SyncRun {
+
+        private final UUID kbTenantId;
+        private final DateTime startedDate;
+        private final AtomicLong nbProcessed = new AtomicLong();
+        private final AtomicLong nbSkipped = new AtomicLong();
+        private final AtomicLong nbErrors = new AtomicLong();
+        private final AtomicLong nbDeactivated = new AtomicLong();
+
+        private volatile String status = STATUS_RUNNING;
+        // Accounts synced by a previous run, excluded from the throughput
+        private volatile long nbResumed = 0;
+
+        private SyncRun(final UUID kbTenantId, final DateTime startedDate) {
+            this.kbTenantId = kbTenantId;
+            this.startedDate = startedDate;
+        }
+
+        public String getStatus() {
+            return status;
+        }
+
+        public double getAccountsPerSecond() {
+            final long elapsedMillis = Math.max(1, clock.getUTCNow().getMillis() - startedDate.getMillis());
+            return (nbProcessed.get() + nbSkipped.get() + nbErrors.get() - nbResumed) * 1000.0 / elapsedMillis;
+        }
+
+        public Map<String, Object> toMap() {
+            final Map<String, Object> map = new LinkedHashMap<String, Object>();
+            map.put("kbTenantId", kbTenantId.toString());
+            map.put("status", status);
+            map.put("startedDate", startedDate.toString());
+            map.put("nbProcessed", nbProcessed.get());
+            map.put("nbSkipped", nbSkipped.get());
+            map.put("nbErrors", nbErrors.get());
+            map.put("nbDeactivatedPaymentMethods", nbDeactivated.get());
+            map.put("accountsPerSecond", getAccountsPerSecond());
+            return map;
+        }
+    }
+}
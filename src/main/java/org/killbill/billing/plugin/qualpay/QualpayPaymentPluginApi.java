@@ -24,6 +24,9 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.annotation.Nullable;
 
@@ -43,33 +46,45 @@ import org.killbill.billing.payment.plugin.api.GatewayNotification;
 import org.killbill.billing.payment.plugin.api.HostedPaymentPageFormDescriptor;
 import org.killbill.billing.payment.plugin.api.PaymentMethodInfoPlugin;
 import org.killbill.billing.payment.plugin.api.PaymentPluginApiException;
+import org.killbill.billing.payment.plugin.api.PaymentPluginStatus;
 import org.killbill.billing.payment.plugin.api.PaymentTransactionInfoPlugin;
 import org.killbill.billing.plugin.api.PluginProperties;
 import org.killbill.billing.plugin.api.core.PluginCustomField;
+import org.killbill.billing.plugin.api.payment.PluginGatewayNotification;
 import org.killbill.billing.plugin.api.payment.PluginPaymentMethodInfoPlugin;
 import org.killbill.billing.plugin.api.payment.PluginPaymentPluginApi;
+import org.killbill.billing.plugin.qualpay.QualpayOperationTimer.Phase;
 import org.killbill.billing.plugin.qualpay.client.PGApi;
 import org.killbill.billing.plugin.qualpay.client.PGApiCaptureRequest;
 import org.killbill.billing.plugin.qualpay.client.PGApiLineItem;
 import org.killbill.billing.plugin.qualpay.client.PGApiRefundRequest;
 import org.killbill.billing.plugin.qualpay.client.PGApiTransactionRequest;
 import org.killbill.billing.plugin.qualpay.client.PGApiVoidRequest;
+import org.killbill.billing.plugin.qualpay.client.QualpayGatewayMetrics;
+import org.killbill.billing.plugin.qualpay.client.QualpayGatewayMetrics.GatewayCall;
 import org.killbill.billing.plugin.qualpay.dao.QualpayDao;
 import org.killbill.billing.plugin.qualpay.dao.gen.tables.QualpayPaymentMethods;
 import org.killbill.billing.plugin.qualpay.dao.gen.tables.QualpayResponses;
 import org.killbill.billing.plugin.qualpay.dao.gen.tables.records.QualpayPaymentMethodsRecord;
 import org.killbill.billing.plugin.qualpay.dao.gen.tables.records.QualpayResponsesRecord;
+import org.killbill.billing.plugin.qualpay.jfr.QualpayEvents;
 import org.killbill.billing.util.api.CustomFieldApiException;
 import org.killbill.billing.util.callcontext.CallContext;
 import org.killbill.billing.util.callcontext.TenantContext;
 import org.killbill.billing.util.customfield.CustomField;
+import org.killbill.billing.util.entity.Pagination;
 import org.killbill.clock.Clock;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.MoreObjects;
+import com.google.common.base.Strings;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.squareup.okhttp.ConnectionPool;
 import io.swagger.client.api.CustomerVaultApi;
 import io.swagger.client.model.AddBillingCardRequest;
 import io.swagger.client.model.AddCustomerRequest;
@@ -82,17 +97,56 @@ import io.swagger.client.model.GetBillingCardsResponse;
 import io.swagger.client.model.GetBillingResponse;
 import qpPlatform.ApiClient;
 import qpPlatform.ApiException;
-import qpPlatform.Configuration;
 
 public class QualpayPaymentPluginApi extends PluginPaymentPluginApi<QualpayResponsesRecord, QualpayResponses, QualpayPaymentMethodsRecord, QualpayPaymentMethods> {
 
     private static final Logger logger = LoggerFactory.getLogger(QualpayPaymentPluginApi.class);
 
     public static final String PROPERTY_OVERRIDDEN_TRANSACTION_STATUS = "overriddenTransactionStatus";
+    // Pass debug_timing=true to get the phase breakdown of the call back in the timing property
+    public static final String PROPERTY_DEBUG_TIMING = "debug_timing";
+    public static final String PROPERTY_TIMING = "timing";
+    public static final String PROPERTY_FORCE_REFRESH = "forceRefresh";
+    // Search cursor: returned on the last result of a full page, pass it back with the next offset to seek to the next page
+    public static final String PROPERTY_AFTER_RECORD_ID = "afterRecordId";
+
+    // Search counts stop at MAX_SEARCH_COUNT, so that they stay cheap on large tenants. The unfiltered ones (maxNbRecords)
+    // are cached per tenant, instead of being recounted for every page
+    private static final long DEFAULT_SEARCH_LIMIT = 100;
+    private static final long MAX_SEARCH_LIMIT = 1000;
+    private static final int MAX_SEARCH_COUNT = 10000;
+    private static final long MAX_NB_RECORDS_TTL_MINUTES = 5;
+    private static final long MAX_NB_RECORDS_CACHE_SIZE = 10000;
+    static final int MAX_CONCURRENT_STATE_REFRESHES = 10;
+    private static final int HTTP_MAX_IDLE_CONNECTIONS = 5;
+    private static final long HTTP_KEEP_ALIVE_MILLIS = TimeUnit.MINUTES.toMillis(5);
+    // At most one slow operation warning per interval: when the gateway degrades, every call is slow
+    private static final long SLOW_OPERATION_LOG_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(10);
 
     private final QualpayConfigPropertiesConfigurationHandler qualpayConfigPropertiesConfigurationHandler;
     private final QualpayDao dao;
 
+    // Bounds the gateway calls made by getPaymentInfo to refresh UNDEFINED transactions
+    private final Semaphore stateRefreshPermits = new Semaphore(MAX_CONCURRENT_STATE_REFRESHES);
+
+    private final QualpayGatewaySimulator gatewaySimulator = new QualpayGatewaySimulator();
+    private final QualpayGatewayMetrics gatewayMetrics = new QualpayGatewayMetrics();
+    private final ConnectionPool httpConnectionPool = new ConnectionPool(HTTP_MAX_IDLE_CONNECTIONS, HTTP_KEEP_ALIVE_MILLIS);
+    private final Cache<UUID, Long> maxNbPaymentMethods = CacheBuilder.newBuilder()
+                                                                      .expireAfterWrite(MAX_NB_RECORDS_TTL_MINUTES, TimeUnit.MINUTES)
+                                                                      .maximumSize(MAX_NB_RECORDS_CACHE_SIZE)
+                                                                      .<UUID, Long>build();
+    private final Cache<UUID, Long> maxNbResponses = CacheBuilder.newBuilder()
+                                                                 .expireAfterWrite(MAX_NB_RECORDS_TTL_MINUTES, TimeUnit.MINUTES)
+                                                                 .maximumSize(MAX_NB_RECORDS_CACHE_SIZE)
+                                                                 .<UUID, Long>build();
+    private final AtomicLong lastSlowOperationLogNanos = new AtomicLong(System.nanoTime() - SLOW_OPERATION_LOG_INTERVAL_NANOS);
+    private final AtomicLong nbSlowOperationsNotLogged = new AtomicLong();
+    private volatile SlowOperationThreshold slowOperationThreshold = new SlowOperationThreshold("2000");
+
+    private volatile QualpayNotificationProcessor notificationProcessor;
+    private volatile QualpayAuditLog auditLog;
+
     public QualpayPaymentPluginApi(final QualpayConfigPropertiesConfigurationHandler qualpayConfigPropertiesConfigurationHandler,
                                    final OSGIKillbillAPI killbillAPI,
                                    final OSGIConfigPropertiesService configProperties,
@@ -133,15 +187,19 @@ public class QualpayPaymentPluginApi extends PluginPaymentPluginApi<QualpayRespo
         final String cardIdMaybeNull = PluginProperties.findPluginPropertyValue("card_id", properties);
 
         final String qualpayId;
+        // Cards from the Vault are stored as normalized by the sync, so that their content hash matches on the next sync
+        final Map<String, Object> additionalDataMap;
         if (qualpayCustomerIdMaybeNull != null && paymentMethodProps.getExternalPaymentMethodId() != null) {
             // The customer and payment method already exist (sync code path), we just need to update our tables
             qualpayId = paymentMethodProps.getExternalPaymentMethodId();
+            additionalDataMap = PluginProperties.toMap(paymentMethodProps.getProperties());
         } else if (qualpayCustomerIdMaybeNull == null && paymentMethodProps.getExternalPaymentMethodId() != null) {
             // Invalid sync path
             throw new PaymentPluginApiException("USER", "Specified Qualpay card id but missing QUALPAY_CUSTOMER_ID custom field");
         } else if (cardIdMaybeNull != null) {
             // Card was tokenized via the Payment Gateway API - we will simply store the card locally
             qualpayId = cardIdMaybeNull;
+            additionalDataMap = PluginProperties.toMap(properties);
         } else {
             // We need to create a new payment method, either on a new customer or on an existing one (for testing or for companies with a tokenization proxy)
             final ApiClient apiClient = buildApiClient(context, true);
@@ -168,10 +226,18 @@ public class QualpayPaymentPluginApi extends PluginPaymentPluginApi<QualpayRespo
                     addCustomerRequest.setCustomerLastName(customerLastName != null ? customerLastName : billingCardsItem.getBillingLastName());
                     final String customerFirmName = PluginProperties.findPluginPropertyValue("customer_firm_name", properties);
                     addCustomerRequest.setCustomerFirmName(customerFirmName != null ? customerFirmName : billingCardsItem.getBillingFirmName());
-                    final CustomerVault customerVault = customerVaultApi.addCustomer(addCustomerRequest).getData();
+                    final CustomerVault customerVault = gatewayMetrics.record("vault_add_customer",
+                                                                              context.getTenantId(),
+                                                                              new GatewayCall<CustomerResponse>() {
+                                                                                  @Override
+                                                                                  public CustomerResponse call() throws ApiException {
+                                                                                      return customerVaultApi.addCustomer(addCustomerRequest);
+                                                                                  }
+                                                                              }).getData();
                     // TODO Guaranteed it's the last one?
                     final BillingCard createdBillingCard = customerVault.getBillingCards().get(customerVault.getBillingCards().size() - 1);
                     qualpayId = createdBillingCard.getCardId();
+                    additionalDataMap = QualpayPluginProperties.toAdditionalDataMap(createdBillingCard);
 
                     // Add the magic Custom Field
                     final PluginCustomField customField = new PluginCustomField(kbAccountId,
@@ -188,9 +254,18 @@ public class QualpayPaymentPluginApi extends PluginPaymentPluginApi<QualpayRespo
                     }
                 } else {
                     // Add payment method to existing customer
-                    final CustomerResponse customerResponse = customerVaultApi.addBillingCard(qualpayCustomerIdMaybeNull, billingCardsItem);
+                    final CustomerResponse customerResponse = gatewayMetrics.record("vault_add_billing_card",
+                                                                                    context.getTenantId(),
+                                                                                    new GatewayCall<CustomerResponse>() {
+                                                                                        @Override
+                                                                                        public CustomerResponse call() throws ApiException {
+                                                                                            return customerVaultApi.addBillingCard(qualpayCustomerIdMaybeNull, billingCardsItem);
+                                                                                        }
+                                                                                    });
                     // TODO Guaranteed it's the last one?
-                    qualpayId = customerResponse.getData().getBillingCards().get(customerResponse.getData().getBillingCards().size() - 1).getCardId();
+                    final BillingCard addedBillingCard = customerResponse.getData().getBillingCards().get(customerResponse.getData().getBillingCards().size() - 1);
+                    qualpayId = addedBillingCard.getCardId();
+                    additionalDataMap = QualpayPluginProperties.toAdditionalDataMap(addedBillingCard);
                 }
             } catch (final ApiException e) {
                 throw new PaymentPluginApiException("Error connecting to Qualpay: " + e.getResponseBody(), e);
@@ -199,7 +274,6 @@ public class QualpayPaymentPluginApi extends PluginPaymentPluginApi<QualpayRespo
             }
         }
 
-        final Map<String, Object> additionalDataMap = PluginProperties.toMap(properties);
         final DateTime utcNow = clock.getUTCNow();
         try {
             dao.addPaymentMethod(kbAccountId, kbPaymentMethodId, additionalDataMap, qualpayId, utcNow, context.getTenantId());
@@ -217,7 +291,7 @@ public class QualpayPaymentPluginApi extends PluginPaymentPluginApi<QualpayRespo
     public void deletePaymentMethod(final UUID kbAccountId, final UUID kbPaymentMethodId, final Iterable<PluginProperty> properties, final CallContext context) throws PaymentPluginApiException {
         final QualpayPaymentMethodsRecord qualPayPaymentMethodsRecord;
         try {
-            qualPayPaymentMethodsRecord = dao.getPaymentMethod(kbPaymentMethodId, context.getTenantId());
+            qualPayPaymentMethodsRecord = dao.getPaymentMethodFromPrimary(kbPaymentMethodId, context.getTenantId());
         } catch (final SQLException e) {
             throw new PaymentPluginApiException("Unable to retrieve payment method", e);
         }
@@ -232,13 +306,21 @@ public class QualpayPaymentPluginApi extends PluginPaymentPluginApi<QualpayRespo
         final CustomerVaultApi customerVaultApi = new CustomerVaultApi(apiClient);
         try {
             // Delete the card in the Vault
-            customerVaultApi.deleteBillingCard(qualpayCustomerId, deleteBillingCardRequest);
+            gatewayMetrics.record("vault_delete_billing_card",
+                                  context.getTenantId(),
+                                  new GatewayCall<Object>() {
+                                      @Override
+                                      public Object call() throws ApiException {
+                                          return customerVaultApi.deleteBillingCard(qualpayCustomerId, deleteBillingCardRequest);
+                                      }
+                                  });
         } catch (final ApiException e) {
             throw new PaymentPluginApiException("Error connecting to Qualpay", e);
         }
 
         // Delete our local copy
         super.deletePaymentMethod(kbAccountId, kbPaymentMethodId, properties, context);
+        dao.markWritten(kbAccountId, kbPaymentMethodId);
     }
 
     @Override
@@ -248,10 +330,21 @@ public class QualpayPaymentPluginApi extends PluginPaymentPluginApi<QualpayRespo
             return super.getPaymentMethods(kbAccountId, refreshFromGateway, properties, context);
         }
 
+        // Skip the Vault round trip if the account was synced recently enough
+        if (isPaymentMethodsSyncStale(kbAccountId, properties, context)) {
+            refreshPaymentMethods(kbAccountId, properties, context);
+        }
+
+        // Refresh the state
+        return super.getPaymentMethods(kbAccountId, false, properties, context);
+    }
+
+    // Sync the local payment methods with the Qualpay Vault (source of truth), returns the number of deactivated payment methods
+    public int refreshPaymentMethods(final UUID kbAccountId, final Iterable<PluginProperty> properties, final CallContext context) throws PaymentPluginApiException {
         // Retrieve our currently known payment methods
         final Map<String, QualpayPaymentMethodsRecord> existingPaymentMethodByQualpayId = new HashMap<String, QualpayPaymentMethodsRecord>();
         try {
-            final List<QualpayPaymentMethodsRecord> existingQualpayPaymentMethodRecords = dao.getPaymentMethods(kbAccountId, context.getTenantId());
+            final List<QualpayPaymentMethodsRecord> existingQualpayPaymentMethodRecords = dao.getPaymentMethodsFromPrimary(kbAccountId, context.getTenantId());
             for (final QualpayPaymentMethodsRecord existingQualpayPaymentMethodRecord : existingQualpayPaymentMethodRecords) {
                 existingPaymentMethodByQualpayId.put(existingQualpayPaymentMethodRecord.getQualpayId(), existingQualpayPaymentMethodRecord);
             }
@@ -266,7 +359,14 @@ public class QualpayPaymentPluginApi extends PluginPaymentPluginApi<QualpayRespo
         final ApiClient apiClient = buildApiClient(context, true);
         final CustomerVaultApi customerVaultApi = new CustomerVaultApi(apiClient);
         try {
-            final GetBillingResponse billingResponse = customerVaultApi.getBillingCards(qualpayCustomerId, getMerchantId(context));
+            final GetBillingResponse billingResponse = gatewayMetrics.record("vault_get_billing_cards",
+                                                                             context.getTenantId(),
+                                                                             new GatewayCall<GetBillingResponse>() {
+                                                                                 @Override
+                                                                                 public GetBillingResponse call() throws ApiException {
+                                                                                     return customerVaultApi.getBillingCards(qualpayCustomerId, getMerchantId(context));
+                                                                                 }
+                                                                             });
             final GetBillingCardsResponse billingCardsResponse = billingResponse.getData();
             syncPaymentMethods(kbAccountId, billingCardsResponse.getBillingCards(), existingPaymentMethodByQualpayId, context);
         } catch (final ApiException e) {
@@ -277,26 +377,71 @@ public class QualpayPaymentPluginApi extends PluginPaymentPluginApi<QualpayRespo
             throw new PaymentPluginApiException("Error creating payment method", e);
         }
 
+        // Deactivate, in one statement, the local payment methods not found in Qualpay
+        final List<UUID> missingKbPaymentMethodIds = new ArrayList<UUID>(existingPaymentMethodByQualpayId.size());
         for (final QualpayPaymentMethodsRecord qualpayPaymentMethodsRecord : existingPaymentMethodByQualpayId.values()) {
-            logger.info("Deactivating local Qualpay payment method {} - not found in Qualpay", qualpayPaymentMethodsRecord.getQualpayId());
-            super.deletePaymentMethod(kbAccountId, UUID.fromString(qualpayPaymentMethodsRecord.getKbPaymentMethodId()), properties, context);
+            missingKbPaymentMethodIds.add(UUID.fromString(qualpayPaymentMethodsRecord.getKbPaymentMethodId()));
+        }
+        final int nbDeactivated;
+        try {
+            nbDeactivated = dao.deletePaymentMethods(missingKbPaymentMethodIds, clock.getUTCNow(), context.getTenantId());
+        } catch (final SQLException e) {
+            throw new PaymentPluginApiException("Unable to deactivate payment methods", e);
+        }
+        final QualpayAuditLog audit = auditLog;
+        if (nbDeactivated > 0 && audit != null) {
+            audit.paymentMethodsDeactivated(context.getTenantId(), kbAccountId, nbDeactivated);
         }
 
-        // Refresh the state
-        return super.getPaymentMethods(kbAccountId, false, properties, context);
+        try {
+            dao.setLastSyncedDate(kbAccountId, clock.getUTCNow(), context.getTenantId());
+        } catch (final SQLException e) {
+            throw new PaymentPluginApiException("Unable to update last synced date", e);
+        }
+
+        // Subsequent reads must not be served by a lagging replica
+        dao.markWritten(kbAccountId);
+        return nbDeactivated;
+    }
+
+    private boolean isPaymentMethodsSyncStale(final UUID kbAccountId, final Iterable<PluginProperty> properties, final CallContext context) throws PaymentPluginApiException {
+        final long ttlSeconds = Long.parseLong(qualpayConfigPropertiesConfigurationHandler.getConfigurable(context.getTenantId()).getPaymentMethodsRefreshTtlSeconds());
+        if (ttlSeconds <= 0 || Boolean.parseBoolean(PluginProperties.findPluginPropertyValue(PROPERTY_FORCE_REFRESH, properties))) {
+            return true;
+        }
+
+        final DateTime lastSyncedDate;
+        try {
+            lastSyncedDate = dao.getLastSyncedDate(kbAccountId, context.getTenantId());
+        } catch (final SQLException e) {
+            throw new PaymentPluginApiException("Unable to retrieve last synced date", e);
+        }
+        final boolean isStale = lastSyncedDate == null || lastSyncedDate.plusSeconds((int) ttlSeconds).isBefore(clock.getUTCNow());
+        // The local payment methods act as a cache of the Vault
+        QualpayEvents.cacheLookup(QualpayEvents.CACHE_PAYMENT_METHODS, !isStale);
+        return isStale;
+    }
+
+    // Used by the tenant-wide sync: accounts tokenized via the Payment Gateway API have nothing to sync
+    public boolean hasQualpayCustomer(final UUID kbAccountId, final CallContext context) {
+        return getCustomerIdNoException(kbAccountId, context) != null;
     }
 
     private void syncPaymentMethods(final UUID kbAccountId,
                                     final Iterable<BillingCard> billingCards,
                                     final Map<String, QualpayPaymentMethodsRecord> existingPaymentMethodByQualpayId,
                                     final CallContext context) throws PaymentApiException, SQLException {
+        final QualpayAuditLog audit = auditLog;
+        final Map<UUID, Map<String, Object>> changedPaymentMethods = new HashMap<UUID, Map<String, Object>>();
         for (final BillingCard billingCard : billingCards) {
             final Map<String, Object> additionalDataMap = QualpayPluginProperties.toAdditionalDataMap(billingCard);
 
             final QualpayPaymentMethodsRecord existingPaymentMethodRecord = existingPaymentMethodByQualpayId.remove(billingCard.getCardId());
             if (existingPaymentMethodRecord == null) {
                 // We don't know about it yet, create it
-                logger.info("Creating new local Qualpay payment method {}", billingCard.getCardId());
+                if (audit != null) {
+                    audit.paymentMethodCreated(context.getTenantId(), kbAccountId, billingCard.getCardId());
+                }
                 final List<PluginProperty> properties = PluginProperties.buildPluginProperties(additionalDataMap);
                 final PaymentMethodPlugin paymentMethodInfo = new QualpayPaymentMethodPlugin(null,
                                                                                              billingCard.getCardId(),
@@ -308,15 +453,115 @@ public class QualpayPaymentPluginApi extends PluginPaymentPluginApi<QualpayRespo
                                                              paymentMethodInfo,
                                                              ImmutableList.<PluginProperty>of(),
                                                              context);
-            } else {
-                logger.info("Updating existing local Qualpay payment method {}", billingCard);
-                dao.updatePaymentMethod(UUID.fromString(existingPaymentMethodRecord.getKbPaymentMethodId()),
-                                        additionalDataMap,
-                                        billingCard.getCardId(),
-                                        clock.getUTCNow(),
-                                        context.getTenantId());
+            } else if (!QualpayDao.contentHash(additionalDataMap).equals(existingPaymentMethodRecord.getContentHash())) {
+                if (audit != null) {
+                    audit.paymentMethodUpdated(context.getTenantId(), kbAccountId, billingCard.getCardId());
+                }
+                changedPaymentMethods.put(UUID.fromString(existingPaymentMethodRecord.getKbPaymentMethodId()), additionalDataMap);
             }
         }
+
+        // Unchanged cards aren't written
+        dao.updatePaymentMethods(changedPaymentMethods, clock.getUTCNow(), context.getTenantId());
+    }
+
+    @Override
+    public Pagination<PaymentMethodPlugin> searchPaymentMethods(final String searchKey, final Long offset, final Long limit, final Iterable<PluginProperty> properties, final TenantContext context) throws PaymentPluginApiException {
+        final long currentOffset = MoreObjects.firstNonNull(offset, 0L);
+        final int pageSize = (int) Math.min(MoreObjects.firstNonNull(limit, DEFAULT_SEARCH_LIMIT), MAX_SEARCH_LIMIT);
+        final Long afterRecordId = getAfterRecordId(properties);
+
+        final List<QualpayPaymentMethodsRecord> records;
+        final long totalNbRecords;
+        final long maxNbRecords;
+        try {
+            records = dao.searchPaymentMethods(searchKey, currentOffset, afterRecordId, pageSize, context.getTenantId());
+            // Last page: no need to count the matches
+            totalNbRecords = isLastPage(records, pageSize) ? currentOffset + records.size() : dao.countPaymentMethods(searchKey, MAX_SEARCH_COUNT, context.getTenantId());
+            maxNbRecords = getMaxNbPaymentMethods(context.getTenantId());
+        } catch (final SQLException e) {
+            throw new PaymentPluginApiException("Unable to search payment methods", e);
+        }
+
+        final List<PaymentMethodPlugin> results = new ArrayList<PaymentMethodPlugin>(records.size());
+        for (final QualpayPaymentMethodsRecord record : records) {
+            results.add(buildPaymentMethodPlugin(record));
+        }
+        if (isLastPage(records, pageSize)) {
+            return new QualpaySearchPagination<PaymentMethodPlugin>(currentOffset, null, totalNbRecords, maxNbRecords, results, null);
+        }
+
+        final QualpayPaymentMethodsRecord lastRecord = records.get(records.size() - 1);
+        final String nextAfterRecordId = lastRecord.getRecordId().toString();
+        results.set(results.size() - 1, QualpayPaymentMethodPlugin.build(lastRecord, ImmutableList.<PluginProperty>of(new PluginProperty(PROPERTY_AFTER_RECORD_ID, nextAfterRecordId, false))));
+        return new QualpaySearchPagination<PaymentMethodPlugin>(currentOffset, currentOffset + records.size(), totalNbRecords, maxNbRecords, results, nextAfterRecordId);
+    }
+
+    @Override
+    public Pagination<PaymentTransactionInfoPlugin> searchPayments(final String searchKey, final Long offset, final Long limit, final Iterable<PluginProperty> properties, final TenantContext context) throws PaymentPluginApiException {
+        final long currentOffset = MoreObjects.firstNonNull(offset, 0L);
+        final int pageSize = (int) Math.min(MoreObjects.firstNonNull(limit, DEFAULT_SEARCH_LIMIT), MAX_SEARCH_LIMIT);
+        final Long afterRecordId = getAfterRecordId(properties);
+
+        final List<QualpayResponsesRecord> records;
+        final long totalNbRecords;
+        final long maxNbRecords;
+        try {
+            records = dao.searchResponses(searchKey, currentOffset, afterRecordId, pageSize, context.getTenantId());
+            // Last page: no need to count the matches
+            totalNbRecords = isLastPage(records, pageSize) ? currentOffset + records.size() : dao.countResponses(searchKey, MAX_SEARCH_COUNT, context.getTenantId());
+            maxNbRecords = getMaxNbResponses(context.getTenantId());
+        } catch (final SQLException e) {
+            throw new PaymentPluginApiException("Unable to search payments", e);
+        }
+
+        final List<PaymentTransactionInfoPlugin> results = new ArrayList<PaymentTransactionInfoPlugin>(records.size());
+        for (final QualpayResponsesRecord record : records) {
+            results.add(buildPaymentTransactionInfoPlugin(record));
+        }
+        if (isLastPage(records, pageSize)) {
+            return new QualpaySearchPagination<PaymentTransactionInfoPlugin>(currentOffset, null, totalNbRecords, maxNbRecords, results, null);
+        }
+
+        final QualpayResponsesRecord lastRecord = records.get(records.size() - 1);
+        final String nextAfterRecordId = lastRecord.getRecordId().toString();
+        results.set(results.size() - 1, QualpayPaymentTransactionInfoPlugin.build(lastRecord, ImmutableList.<PluginProperty>of(new PluginProperty(PROPERTY_AFTER_RECORD_ID, nextAfterRecordId, false))));
+        return new QualpaySearchPagination<PaymentTransactionInfoPlugin>(currentOffset, currentOffset + records.size(), totalNbRecords, maxNbRecords, results, nextAfterRecordId);
+    }
+
+    @Nullable
+    private static Long getAfterRecordId(final Iterable<PluginProperty> properties) throws PaymentPluginApiException {
+        final String afterRecordId = PluginProperties.findPluginPropertyValue(PROPERTY_AFTER_RECORD_ID, properties);
+        if (Strings.isNullOrEmpty(afterRecordId)) {
+            return null;
+        }
+        try {
+            return Long.valueOf(afterRecordId);
+        } catch (final NumberFormatException e) {
+            throw new PaymentPluginApiException("INTERNAL", "Invalid search cursor " + PROPERTY_AFTER_RECORD_ID + "=" + afterRecordId);
+        }
+    }
+
+    private static boolean isLastPage(final List<?> records, final int pageSize) {
+        return records.isEmpty() || records.size() < pageSize;
+    }
+
+    private long getMaxNbPaymentMethods(final UUID kbTenantId) throws SQLException {
+        Long maxNbRecords = maxNbPaymentMethods.getIfPresent(kbTenantId);
+        if (maxNbRecords == null) {
+            maxNbRecords = dao.countPaymentMethods(null, MAX_SEARCH_COUNT, kbTenantId);
+            maxNbPaymentMethods.put(kbTenantId, maxNbRecords);
+        }
+        return maxNbRecords;
+    }
+
+    private long getMaxNbResponses(final UUID kbTenantId) throws SQLException {
+        Long maxNbRecords = maxNbResponses.getIfPresent(kbTenantId);
+        if (maxNbRecords == null) {
+            maxNbRecords = dao.countResponses(null, MAX_SEARCH_COUNT, kbTenantId);
+            maxNbResponses.put(kbTenantId, maxNbRecords);
+        }
+        return maxNbRecords;
     }
 
     @Override
@@ -331,7 +576,7 @@ public class QualpayPaymentPluginApi extends PluginPaymentPluginApi<QualpayRespo
                                               @Override
                                               public GatewayResponse execute(final Account account, final QualpayPaymentMethodsRecord paymentMethodsRecord, final QualpayResponsesRecord previousResponse) throws ApiException {
                                                   final ApiClient apiClient = buildApiClient(context, false);
-                                                  final PGApi pgApi = new PGApi(apiClient);
+                                                  final PGApi pgApi = new PGApi(apiClient, gatewayMetrics, context.getTenantId());
 
                                                   final Map additionalData = QualpayDao.fromAdditionalData(previousResponse.getAdditionalData());
                                                   final String pgId = (String) additionalData.get("id");
@@ -365,7 +610,7 @@ public class QualpayPaymentPluginApi extends PluginPaymentPluginApi<QualpayRespo
                                               @Override
                                               public GatewayResponse execute(final Account account, final QualpayPaymentMethodsRecord paymentMethodsRecord, final QualpayResponsesRecord previousResponse) throws ApiException {
                                                   final ApiClient apiClient = buildApiClient(context, false);
-                                                  final PGApi pgApi = new PGApi(apiClient);
+                                                  final PGApi pgApi = new PGApi(apiClient, gatewayMetrics, context.getTenantId());
 
                                                   final Map additionalData = QualpayDao.fromAdditionalData(previousResponse.getAdditionalData());
                                                   final String pgId = (String) additionalData.get("id");
@@ -398,7 +643,7 @@ public class QualpayPaymentPluginApi extends PluginPaymentPluginApi<QualpayRespo
                                               @Override
                                               public GatewayResponse execute(final Account account, final QualpayPaymentMethodsRecord paymentMethodsRecord, final QualpayResponsesRecord previousResponse) throws ApiException {
                                                   final ApiClient apiClient = buildApiClient(context, false);
-                                                  final PGApi pgApi = new PGApi(apiClient);
+                                                  final PGApi pgApi = new PGApi(apiClient, gatewayMetrics, context.getTenantId());
 
                                                   final Map additionalData = QualpayDao.fromAdditionalData(previousResponse.getAdditionalData());
                                                   final String pgId = (String) additionalData.get("id");
@@ -424,7 +669,10 @@ public class QualpayPaymentPluginApi extends PluginPaymentPluginApi<QualpayRespo
     ApiClient buildApiClient(final TenantContext context, final boolean platform) {
         final QualpayConfigProperties qualpayConfigProperties = qualpayConfigPropertiesConfigurationHandler.getConfigurable(context.getTenantId());
 
-        final ApiClient apiClient = Configuration.getDefaultApiClient();
+        // Never the shared Configuration.getDefaultApiClient(): credentials and base path are per tenant, and the
+        // background jobs call Qualpay concurrently. Only the connection pool is shared.
+        final ApiClient apiClient = new ApiClient();
+        apiClient.getHttpClient().setConnectionPool(httpConnectionPool);
         apiClient.setUsername(qualpayConfigProperties.getApiKey());
         apiClient.setBasePath(qualpayConfigProperties.getBaseUrl() + (platform ? "/platform" : ""));
         apiClient.setConnectTimeout(Integer.parseInt(qualpayConfigProperties.getConnectionTimeout()));
@@ -441,7 +689,120 @@ public class QualpayPaymentPluginApi extends PluginPaymentPluginApi<QualpayRespo
 
     @Override
     public GatewayNotification processNotification(final String notification, final Iterable<PluginProperty> properties, final CallContext context) throws PaymentPluginApiException {
-        throw new PaymentPluginApiException("INTERNAL", "#processNotification not yet implemented, please contact support@killbill.io");
+        final QualpayNotificationProcessor processor = notificationProcessor;
+        if (processor == null) {
+            // Disabled (or not started yet): not acknowledged, Qualpay will retry
+            return new PluginGatewayNotification(null, 503, "DISABLED", ImmutableMap.<String, List<String>>of(), ImmutableList.<PluginProperty>of());
+        }
+
+        // Kill Bill doesn't forward the request headers: the signature is passed as a plugin property instead
+        final String signature = PluginProperties.findPluginPropertyValue(QualpayNotificationProcessor.PROPERTY_SIGNATURE, properties);
+        final QualpayNotificationProcessor.IngestionResult result;
+        try {
+            result = processor.ingest(notification, signature, context.getTenantId());
+        } catch (final SQLException e) {
+            throw new PaymentPluginApiException("Unable to store notification", e);
+        }
+
+        switch (result) {
+            case INVALID_SIGNATURE:
+                return new PluginGatewayNotification(null, 401, result.name(), ImmutableMap.<String, List<String>>of(), ImmutableList.<PluginProperty>of());
+            case INVALID_PAYLOAD:
+                return new PluginGatewayNotification(null, 400, result.name(), ImmutableMap.<String, List<String>>of(), ImmutableList.<PluginProperty>of());
+            case NOT_CONFIGURED:
+                return new PluginGatewayNotification(null, 503, result.name(), ImmutableMap.<String, List<String>>of(), ImmutableList.<PluginProperty>of());
+            default:
+                // Stored: acknowledge right away, the event is applied asynchronously
+                return new PluginGatewayNotification(result.name());
+        }
+    }
+
+    public QualpayGatewayMetrics getGatewayMetrics() {
+        return gatewayMetrics;
+    }
+
+    public int getActiveHttpConnections() {
+        return httpConnectionPool.getConnectionCount() - httpConnectionPool.getIdleConnectionCount();
+    }
+
+    public int getInFlightStateRefreshes() {
+        return MAX_CONCURRENT_STATE_REFRESHES - stateRefreshPermits.availablePermits();
+    }
+
+    public void setNotificationProcessor(@Nullable final QualpayNotificationProcessor notificationProcessor) {
+        this.notificationProcessor = notificationProcessor;
+    }
+
+    public void setAuditLog(@Nullable final QualpayAuditLog auditLog) {
+        this.auditLog = auditLog;
+    }
+
+    @Override
+    public List<PaymentTransactionInfoPlugin> getPaymentInfo(final UUID kbAccountId, final UUID kbPaymentId, final Iterable<PluginProperty> properties, final TenantContext context) throws PaymentPluginApiException {
+        final List<PaymentTransactionInfoPlugin> transactions = super.getPaymentInfo(kbAccountId, kbPaymentId, properties, context);
+
+        // Ask Qualpay about the transactions we don't know the outcome of (e.g. unexpected response codes). Reads never
+        // wait on a permit: when MAX_CONCURRENT_STATE_REFRESHES calls are in flight, or if the short lookup fails, the
+        // stored state is returned and the UNDEFINED transactions reconciler or the next read will try again.
+        final Map<UUID, Map<String, Object>> transactionStates = new HashMap<UUID, Map<String, Object>>();
+        for (final PaymentTransactionInfoPlugin transaction : transactions) {
+            if (transaction.getStatus() != PaymentPluginStatus.UNDEFINED || !(transaction instanceof QualpayPaymentTransactionInfoPlugin)) {
+                continue;
+            }
+
+            final int timeoutMillis = Integer.parseInt(qualpayConfigPropertiesConfigurationHandler.getConfigurable(context.getTenantId()).getPaymentInfoRefreshTimeoutMillis());
+            if (timeoutMillis <= 0 || !stateRefreshPermits.tryAcquire()) {
+                break;
+            }
+            try {
+                final QualpayResponsesRecord response = ((QualpayPaymentTransactionInfoPlugin) transaction).getQualpayResponseRecord();
+                final Map<String, Object> transactionState = fetchTransactionState(response, timeoutMillis, context);
+                if (transactionState != null) {
+                    transactionStates.put(UUID.fromString(response.getKbPaymentTransactionId()), transactionState);
+                }
+            } finally {
+                stateRefreshPermits.release();
+            }
+        }
+        if (transactionStates.isEmpty()) {
+            return transactions;
+        }
+
+        try {
+            dao.updateResponses(transactionStates, context.getTenantId());
+        } catch (final SQLException e) {
+            logger.warn("Unable to store the refreshed state of payment {}", kbPaymentId, e);
+            return transactions;
+        }
+        return super.getPaymentInfo(kbAccountId, kbPaymentId, properties, context);
+    }
+
+    // Current state of the transaction in Qualpay, as additional data to merge into the response (null if unavailable)
+    @Nullable
+    public Map<String, Object> fetchTransactionState(final QualpayResponsesRecord response, final TenantContext context) {
+        return fetchTransactionState(response, null, context);
+    }
+
+    // With a timeout overriding the configured ones, e.g. for the lookups made on the read path
+    @Nullable
+    private Map<String, Object> fetchTransactionState(final QualpayResponsesRecord response, @Nullable final Integer timeoutMillis, final TenantContext context) {
+        if (Strings.isNullOrEmpty(response.getQualpayId())) {
+            // e.g. timeout: the transaction can't be looked up
+            return null;
+        }
+
+        final ApiClient apiClient = buildApiClient(context, false);
+        if (timeoutMillis != null) {
+            apiClient.setConnectTimeout(timeoutMillis);
+            apiClient.setReadTimeout(timeoutMillis);
+        }
+        try {
+            final Map<String, Object> reportedTransaction = new PGApi(apiClient, gatewayMetrics, context.getTenantId()).getTransaction(response.getQualpayId());
+            return reportedTransaction == null ? null : QualpayPluginProperties.toAdditionalDataMap(reportedTransaction);
+        } catch (final ApiException e) {
+            logger.warn("Unable to retrieve the state of Qualpay transaction {}", response.getQualpayId(), e);
+            return null;
+        }
     }
 
     private abstract static class TransactionExecutor<T> {
@@ -470,15 +831,16 @@ public class QualpayPaymentPluginApi extends PluginPaymentPluginApi<QualpayRespo
                                              @Override
                                              public GatewayResponse execute(final Account account, final QualpayPaymentMethodsRecord paymentMethodsRecord) throws ApiException, SQLException {
                                                  final ApiClient apiClient = buildApiClient(context, false);
-                                                 final PGApi pgApi = new PGApi(apiClient);
+                                                 final PGApi pgApi = new PGApi(apiClient, gatewayMetrics, context.getTenantId());
 
                                                  final PGApiTransactionRequest pgApiTransactionRequest = new PGApiTransactionRequest();
                                                  pgApiTransactionRequest.setMerchantId(getMerchantId(context));
                                                  pgApiTransactionRequest.setAmtTran(amount.doubleValue());
                                                  pgApiTransactionRequest.setTranCurrency(CurrencyUnit.of(currency.toString()).getNumeric3Code());
+                                                 // Lets the transaction be looked up in Qualpay by kbTransactionId
+                                                 pgApiTransactionRequest.setMerchantRefNum(kbTransactionId.toString());
 
-                                                 final QualpayPaymentMethodsRecord paymentMethod = dao.getPaymentMethod(kbPaymentMethodId, context.getTenantId());
-                                                 pgApiTransactionRequest.setCardId(paymentMethod.getQualpayId());
+                                                 pgApiTransactionRequest.setCardId(paymentMethodsRecord.getQualpayId());
 
                                                  final List<PGApiLineItem> lineItems = new ArrayList<PGApiLineItem>(1);
                                                  final PGApiLineItem lineItem = new PGApiLineItem();
@@ -491,7 +853,10 @@ public class QualpayPaymentPluginApi extends PluginPaymentPluginApi<QualpayRespo
                                                  lineItems.add(lineItem);
                                                  pgApiTransactionRequest.setLineItems(lineItems);
 
-                                                 logger.debug("Creating Qualpay transaction: {}", pgApiTransactionRequest);
+                                                 final QualpayAuditLog audit = auditLog;
+                                                 if (audit != null) {
+                                                     audit.transactionSent(context.getTenantId(), kbAccountId, kbPaymentId, kbTransactionId, transactionType, amount, currency);
+                                                 }
                                                  switch (transactionType) {
                                                      case AUTHORIZE:
                                                          return pgApi.authorize(pgApiTransactionRequest);
@@ -522,28 +887,48 @@ public class QualpayPaymentPluginApi extends PluginPaymentPluginApi<QualpayRespo
                                                                    final Currency currency,
                                                                    final Iterable<PluginProperty> properties,
                                                                    final TenantContext context) throws PaymentPluginApiException {
-        final Account account = getAccount(kbAccountId, context);
-        final QualpayPaymentMethodsRecord nonNullPaymentMethodsRecord = getQualpayPaymentMethodsRecord(kbPaymentMethodId, context);
-        final DateTime utcNow = clock.getUTCNow();
+        final QualpayOperationTimer timer = new QualpayOperationTimer(transactionType.toString());
+        try {
+            timer.enter(Phase.DAO_READ);
+            final QualpayResponsesRecord terminalResponse = getTerminalResponse(transactionType, kbTransactionId, context);
+            if (terminalResponse != null) {
+                return buildPaymentTransactionInfoPlugin(terminalResponse, timer, properties);
+            }
 
-        final GatewayResponse response;
-        if (shouldSkipQualpay(properties)) {
-            throw new UnsupportedOperationException("skip_gw=true not yet implemented, please contact support@killbill.io");
-        } else {
+            timer.enter(Phase.KB_API);
+            final Account account = getAccount(kbAccountId, context);
+            timer.enter(Phase.DAO_READ);
+            final QualpayPaymentMethodsRecord nonNullPaymentMethodsRecord = getQualpayPaymentMethodsRecord(kbPaymentMethodId, context);
+            final DateTime utcNow = clock.getUTCNow();
+
+            timer.enter(Phase.GATEWAY);
+            final GatewayResponse response;
+            if (shouldSkipQualpay(properties, context)) {
+                response = simulateTransaction(transactionType, context);
+            } else {
+                try {
+                    response = transactionExecutor.execute(account, nonNullPaymentMethodsRecord);
+                } catch (final ApiException e) {
+                    throw new PaymentPluginApiException("Error connecting to Qualpay", e);
+                } catch (final SQLException e) {
+                    throw new PaymentPluginApiException("Unable to submit payment, we encountered a database error", e);
+                }
+            }
+
+            timer.enter(Phase.DAO_WRITE);
             try {
-                response = transactionExecutor.execute(account, nonNullPaymentMethodsRecord);
-            } catch (final ApiException e) {
-                throw new PaymentPluginApiException("Error connecting to Qualpay", e);
+                final QualpayResponsesRecord responsesRecord = dao.addResponse(kbAccountId, kbPaymentId, kbTransactionId, transactionType, amount, currency, response, utcNow, context.getTenantId());
+                gatewayMetrics.recordTransaction(transactionType.toString(), responsesRecord.getPluginStatus());
+                final QualpayAuditLog audit = auditLog;
+                if (audit != null) {
+                    audit.transactionCompleted(context.getTenantId(), kbAccountId, kbPaymentId, kbTransactionId, transactionType, amount, currency, responsesRecord.getQualpayId(), responsesRecord.getPluginStatus());
+                }
+                return buildPaymentTransactionInfoPlugin(responsesRecord, timer, properties);
             } catch (final SQLException e) {
-                throw new PaymentPluginApiException("Unable to submit payment, we encountered a database error", e);
+                throw new PaymentPluginApiException("Payment went through, but we encountered a database error. Payment details: " + response.toString(), e);
             }
-        }
-
-        try {
-            final QualpayResponsesRecord responsesRecord = dao.addResponse(kbAccountId, kbPaymentId, kbTransactionId, transactionType, amount, currency, response, utcNow, context.getTenantId());
-            return QualpayPaymentTransactionInfoPlugin.build(responsesRecord);
-        } catch (final SQLException e) {
-            throw new PaymentPluginApiException("Payment went through, but we encountered a database error. Payment details: " + response.toString(), e);
+        } finally {
+            recordTiming(timer, kbTransactionId, context);
         }
     }
 
@@ -557,40 +942,122 @@ public class QualpayPaymentPluginApi extends PluginPaymentPluginApi<QualpayRespo
                                                                     @Nullable final Currency currency,
                                                                     final Iterable<PluginProperty> properties,
                                                                     final TenantContext context) throws PaymentPluginApiException {
-        final Account account = getAccount(kbAccountId, context);
-        final QualpayPaymentMethodsRecord nonNullPaymentMethodsRecord = getQualpayPaymentMethodsRecord(kbPaymentMethodId, context);
-
-        final QualpayResponsesRecord previousResponse;
+        final QualpayOperationTimer timer = new QualpayOperationTimer(transactionType.toString());
         try {
-            previousResponse = dao.getSuccessfulAuthorizationResponse(kbPaymentId, context.getTenantId());
-            if (previousResponse == null) {
-                throw new PaymentPluginApiException(null, "Unable to retrieve previous payment response for kbTransactionId " + kbTransactionId);
+            timer.enter(Phase.DAO_READ);
+            final QualpayResponsesRecord terminalResponse = getTerminalResponse(transactionType, kbTransactionId, context);
+            if (terminalResponse != null) {
+                return buildPaymentTransactionInfoPlugin(terminalResponse, timer, properties);
             }
-        } catch (final SQLException e) {
-            throw new PaymentPluginApiException("Unable to retrieve previous payment response for kbTransactionId " + kbTransactionId, e);
-        }
 
-        final DateTime utcNow = clock.getUTCNow();
+            timer.enter(Phase.KB_API);
+            final Account account = getAccount(kbAccountId, context);
+            timer.enter(Phase.DAO_READ);
+            final QualpayPaymentMethodsRecord nonNullPaymentMethodsRecord = getQualpayPaymentMethodsRecord(kbPaymentMethodId, context);
 
-        final GatewayResponse response;
-        if (shouldSkipQualpay(properties)) {
-            throw new UnsupportedOperationException("skip_gw=true not yet implemented, please contact support@killbill.io");
-        } else {
+            final QualpayResponsesRecord previousResponse;
             try {
-                response = transactionExecutor.execute(account, nonNullPaymentMethodsRecord, previousResponse);
-            } catch (final ApiException e) {
-                throw new PaymentPluginApiException("Error connecting to Qualpay", e);
+                previousResponse = dao.getSuccessfulAuthorizationResponse(kbPaymentId, context.getTenantId());
+                if (previousResponse == null) {
+                    throw new PaymentPluginApiException(null, "Unable to retrieve previous payment response for kbTransactionId " + kbTransactionId);
+                }
+            } catch (final SQLException e) {
+                throw new PaymentPluginApiException("Unable to retrieve previous payment response for kbTransactionId " + kbTransactionId, e);
+            }
+
+            final DateTime utcNow = clock.getUTCNow();
+
+            timer.enter(Phase.GATEWAY);
+            final GatewayResponse response;
+            if (shouldSkipQualpay(properties, context)) {
+                response = simulateTransaction(transactionType, context);
+            } else {
+                try {
+                    response = transactionExecutor.execute(account, nonNullPaymentMethodsRecord, previousResponse);
+                } catch (final ApiException e) {
+                    throw new PaymentPluginApiException("Error connecting to Qualpay", e);
+                }
+            }
+
+            timer.enter(Phase.DAO_WRITE);
+            try {
+                final QualpayResponsesRecord responsesRecord = dao.addResponse(kbAccountId, kbPaymentId, kbTransactionId, transactionType, amount, currency, response, utcNow, context.getTenantId());
+                gatewayMetrics.recordTransaction(transactionType.toString(), responsesRecord.getPluginStatus());
+                final QualpayAuditLog audit = auditLog;
+                if (audit != null) {
+                    audit.transactionCompleted(context.getTenantId(), kbAccountId, kbPaymentId, kbTransactionId, transactionType, amount, currency, responsesRecord.getQualpayId(), responsesRecord.getPluginStatus());
+                }
+                return buildPaymentTransactionInfoPlugin(responsesRecord, timer, properties);
+            } catch (final SQLException e) {
+                throw new PaymentPluginApiException("Payment went through, but we encountered a database error. Payment details: " + (response.toString()), e);
             }
+        } finally {
+            recordTiming(timer, kbTransactionId, context);
         }
+    }
 
+    // Kill Bill retries (e.g. after a timeout) reuse the kbTransactionId: if the gateway already answered, don't call it again
+    @Nullable
+    private QualpayResponsesRecord getTerminalResponse(final TransactionType transactionType, final UUID kbTransactionId, final TenantContext context) throws PaymentPluginApiException {
+        final QualpayResponsesRecord terminalResponse;
         try {
-            final QualpayResponsesRecord responsesRecord = dao.addResponse(kbAccountId, kbPaymentId, kbTransactionId, transactionType, amount, currency, response, utcNow, context.getTenantId());
-            return QualpayPaymentTransactionInfoPlugin.build(responsesRecord);
+            terminalResponse = dao.getTerminalResponse(kbTransactionId, transactionType, context.getTenantId());
         } catch (final SQLException e) {
-            throw new PaymentPluginApiException("Payment went through, but we encountered a database error. Payment details: " + (response.toString()), e);
+            throw new PaymentPluginApiException("Unable to retrieve previous payment response for kbTransactionId " + kbTransactionId, e);
+        }
+        if (terminalResponse == null) {
+            return null;
+        }
+
+        final QualpayAuditLog audit = auditLog;
+        if (audit != null) {
+            audit.transactionReplayed(context.getTenantId(), kbTransactionId, transactionType, terminalResponse.getQualpayId());
+        }
+        return terminalResponse;
+    }
+
+    private PaymentTransactionInfoPlugin buildPaymentTransactionInfoPlugin(final QualpayResponsesRecord responsesRecord, final QualpayOperationTimer timer, final Iterable<PluginProperty> properties) {
+        timer.stop();
+        if ("true".equals(PluginProperties.findPluginPropertyValue(PROPERTY_DEBUG_TIMING, properties))) {
+            return QualpayPaymentTransactionInfoPlugin.build(responsesRecord, ImmutableList.<PluginProperty>of(new PluginProperty(PROPERTY_TIMING, timer.toString(), false)));
+        }
+        return QualpayPaymentTransactionInfoPlugin.build(responsesRecord);
+    }
+
+    private void recordTiming(final QualpayOperationTimer timer, final UUID kbTransactionId, final TenantContext context) {
+        timer.stop();
+        for (final Phase phase : Phase.values()) {
+            gatewayMetrics.recordOperationPhase(timer.getOperation(), phase.toString().toLowerCase(), timer.getPhaseNanos(phase));
+        }
+        gatewayMetrics.recordOperationPhase(timer.getOperation(), "total", timer.getTotalNanos());
+
+        final long slowThresholdNanos = getSlowOperationThreshold(qualpayConfigPropertiesConfigurationHandler.getConfigurable(context.getTenantId()).getSlowOperationThresholdMillis()).nanos;
+        if (slowThresholdNanos > 0 && timer.getTotalNanos() >= slowThresholdNanos) {
+            if (shouldLogSlowOperation(System.nanoTime())) {
+                logger.warn("Slow Qualpay operation: kbTransactionId='{}', {} ({} other slow operation(s) not logged)", kbTransactionId, timer, nbSlowOperationsNotLogged.getAndSet(0));
+            } else {
+                nbSlowOperationsNotLogged.incrementAndGet();
+            }
         }
     }
 
+    @VisibleForTesting
+    boolean shouldLogSlowOperation(final long nowNanos) {
+        final long lastLogNanos = lastSlowOperationLogNanos.get();
+        // Only one of the concurrent callers wins the interval
+        return nowNanos - lastLogNanos >= SLOW_OPERATION_LOG_INTERVAL_NANOS && lastSlowOperationLogNanos.compareAndSet(lastLogNanos, nowNanos);
+    }
+
+    private SlowOperationThreshold getSlowOperationThreshold(final String thresholdMillis) {
+        // Only re-parsed when the tenant configuration changes
+        SlowOperationThreshold current = slowOperationThreshold;
+        if (!current.source.equals(thresholdMillis)) {
+            current = new SlowOperationThreshold(thresholdMillis);
+            slowOperationThreshold = current;
+        }
+        return current;
+    }
+
     @VisibleForTesting
     Long getMerchantId(final TenantContext context) {
         final QualpayConfigProperties qualpayConfigProperties = qualpayConfigPropertiesConfigurationHandler.getConfigurable(context.getTenantId());
@@ -622,7 +1089,7 @@ public class QualpayPaymentPluginApi extends PluginPaymentPluginApi<QualpayRespo
 
         if (kbPaymentMethodId != null) {
             try {
-                paymentMethodsRecord = dao.getPaymentMethod(kbPaymentMethodId, context.getTenantId());
+                paymentMethodsRecord = dao.getPaymentMethodFromPrimary(kbPaymentMethodId, context.getTenantId());
             } catch (final SQLException e) {
                 throw new PaymentPluginApiException("Failed to retrieve payment method", e);
             }
@@ -639,7 +1106,34 @@ public class QualpayPaymentPluginApi extends PluginPaymentPluginApi<QualpayRespo
         return record;
     }
 
-    private boolean shouldSkipQualpay(final Iterable<PluginProperty> properties) {
-        return "true".equals(PluginProperties.findPluginPropertyValue("skipGw", properties)) || "true".equals(PluginProperties.findPluginPropertyValue("skip_gw", properties));
+    private GatewayResponse simulateTransaction(final TransactionType transactionType, final TenantContext context) throws PaymentPluginApiException {
+        try {
+            return gatewaySimulator.execute(transactionType, qualpayConfigPropertiesConfigurationHandler.getConfigurable(context.getTenantId()));
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new PaymentPluginApiException("Interrupted while simulating the Qualpay call", e);
+        }
+    }
+
+    // The simulator approves payments without charging the card: only honor skip_gw on the tenants configured for load testing
+    private boolean shouldSkipQualpay(final Iterable<PluginProperty> properties, final TenantContext context) throws PaymentPluginApiException {
+        if (!"true".equals(PluginProperties.findPluginPropertyValue("skipGw", properties)) && !"true".equals(PluginProperties.findPluginPropertyValue("skip_gw", properties))) {
+            return false;
+        }
+        if (!Boolean.parseBoolean(qualpayConfigPropertiesConfigurationHandler.getConfigurable(context.getTenantId()).getSkipGwEnabled())) {
+            throw new PaymentPluginApiException("INTERNAL", "skip_gw isn't enabled for this tenant (org.killbill.billing.plugin.qualpay.skipGw.enabled)");
+        }
+        return true;
+    }
+
+    private static final class SlowOperationThreshold {
+
+        private final String source;
+        private final long nanos;
+
+        SlowOperationThreshold(final String source) {
+            this.source = source;
+            this.nanos = TimeUnit.MILLISECONDS.toNanos(Long.parseLong(source));
+        }
     }
 }
@@ -36,8 +36,10 @@ import org.killbill.billing.plugin.qualpay.dao.QualpayDao;
 import org.killbill.billing.plugin.qualpay.dao.gen.tables.records.QualpayResponsesRecord;
 
 import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.ImmutableSet.Builder;
+import com.google.common.collect.Iterables;
 
 public class QualpayPaymentTransactionInfoPlugin extends PluginPaymentTransactionInfoPlugin {
 
@@ -51,6 +53,11 @@ public class QualpayPaymentTransactionInfoPlugin extends PluginPaymentTransactio
     private final QualpayResponsesRecord qualpayResponseRecord;
 
     public static QualpayPaymentTransactionInfoPlugin build(final QualpayResponsesRecord qualpayResponsesRecord) {
+        return build(qualpayResponsesRecord, ImmutableList.<PluginProperty>of());
+    }
+
+    // Extra properties aren't persisted, they are only returned to the caller
+    public static QualpayPaymentTransactionInfoPlugin build(final QualpayResponsesRecord qualpayResponsesRecord, final List<PluginProperty> extraProperties) {
         final Map additionalData = QualpayDao.fromAdditionalData(qualpayResponsesRecord.getAdditionalData());
         final String firstPaymentReferenceId = (String) additionalData.get("id");
         final String secondPaymentReferenceId = (String) additionalData.get("auth_code");
@@ -70,10 +77,10 @@ public class QualpayPaymentTransactionInfoPlugin extends PluginPaymentTransactio
                                                        secondPaymentReferenceId,
                                                        responseDate,
                                                        responseDate,
-                                                       PluginProperties.buildPluginProperties(additionalData));
+                                                       ImmutableList.<PluginProperty>copyOf(Iterables.concat(PluginProperties.buildPluginProperties(additionalData), extraProperties)));
     }
 
-    private static PaymentPluginStatus getPaymentPluginStatus(final Map additionalData) {
+    public static PaymentPluginStatus getPaymentPluginStatus(final Map additionalData) {
         final String overriddenTransactionStatus = (String) additionalData.get(QualpayPaymentPluginApi.PROPERTY_OVERRIDDEN_TRANSACTION_STATUS);
         if (overriddenTransactionStatus != null) {
             return PaymentPluginStatus.valueOf(overriddenTransactionStatus);
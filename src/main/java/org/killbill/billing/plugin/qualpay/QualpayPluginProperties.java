@@ -19,12 +19,22 @@ package org.killbill.billing.plugin.qualpay;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
 
+import org.killbill.billing.payment.plugin.api.PaymentPluginStatus;
+
+import com.google.common.collect.ImmutableSet;
 import io.swagger.client.model.BillingCard;
 import io.swagger.client.model.GatewayResponse;
 
 public abstract class QualpayPluginProperties {
 
+    // Authorized, captured, held or settled
+    private static final Set<String> APPROVED_TRAN_STATUSES = ImmutableSet.<String>of("A", "C", "H", "S");
+    private static final String DECLINED_TRAN_STATUS = "D";
+    // Approved then voided: no funds moved
+    private static final String VOIDED_TRAN_STATUS = "V";
+
     public static Map<String, Object> toAdditionalDataMap(final BillingCard billingCard) {
         final Map<String, Object> additionalDataMap = new HashMap<String, Object>();
 
@@ -55,4 +65,29 @@ public abstract class QualpayPluginProperties {
 
         return additionalDataMap;
     }
+
+    // Transaction from the reporting API
+    public static Map<String, Object> toAdditionalDataMap(final Map<String, Object> reportedTransaction) {
+        final Map<String, Object> additionalDataMap = new HashMap<String, Object>();
+
+        for (final String key : new String[]{"rcode", "rmsg", "auth_code", "tran_status"}) {
+            if (reportedTransaction.get(key) != null) {
+                additionalDataMap.put(key, reportedTransaction.get(key).toString());
+            }
+        }
+
+        // Reports may only carry the transaction status
+        final Object tranStatus = reportedTransaction.get("tran_status");
+        if (reportedTransaction.get("rcode") == null && tranStatus != null) {
+            if (APPROVED_TRAN_STATUSES.contains(tranStatus.toString())) {
+                additionalDataMap.put("rcode", "000");
+            } else if (DECLINED_TRAN_STATUS.equals(tranStatus.toString())) {
+                additionalDataMap.put(QualpayPaymentPluginApi.PROPERTY_OVERRIDDEN_TRANSACTION_STATUS, PaymentPluginStatus.ERROR.toString());
+            } else if (VOIDED_TRAN_STATUS.equals(tranStatus.toString())) {
+                additionalDataMap.put(QualpayPaymentPluginApi.PROPERTY_OVERRIDDEN_TRANSACTION_STATUS, PaymentPluginStatus.CANCELED.toString());
+            }
+        }
+
+        return additionalDataMap;
+    }
 }
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2014-2019 Groupon, Inc
+ * Copyright 2014-2019 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.plugin.qualpay;
+
+import java.util.Iterator;
+import java.util.List;
+
+import javax.annotation.Nullable;
+
+import org.killbill.billing.util.entity.Pagination;
+
+// Offsets are numbers of matching records, as for the Kill Bill searches. Counts may be capped by the caller.
+// Full pages also carry the record_id cursor, to seek to the next page instead of skipping nextOffset records
+public class QualpaySearchPagination<T> implements Pagination<T> {
+
+    private final Long currentOffset;
+    private final Long nextOffset;
+    private final Long totalNbRecords;
+    private final Long maxNbRecords;
+    private final List<T> results;
+    private final String nextAfterRecordId;
+
+    public QualpaySearchPagination(final Long currentOffset,
+                                   @Nullable final Long nextOffset,
+                                   final Long totalNbRecords,
+                                   final Long maxNbRecords,
+                                   final List<T> results,
+                                   @Nullable final String nextAfterRecordId) {
+        this.currentOffset = currentOffset;
+        this.nextOffset = nextOffset;
+        this.totalNbRecords = totalNbRecords;
+        this.maxNbRecords = maxNbRecords;
+        this.results = results;
+        this.nextAfterRecordId = nextAfterRecordId;
+    }
+
+    @Override
+    public Long getCurrentOffset() {
+        return currentOffset;
+    }
+
+    @Override
+    public Long getNextOffset() {
+        return nextOffset;
+    }
+
+    @Override
+    public Long getMaxNbRecords() {
+        return maxNbRecords;
+    }
+
+    @Override
+    public Long getTotalNbRecords() {
+        return totalNbRecords;
+    }
+
+    // Value of the afterRecordId property for the next page, null on the last page
+    @Nullable
+    public String getNextAfterRecordId() {
+        return nextAfterRecordId;
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return results.iterator();
+    }
+
+    // Results are fully materialized, nothing to release
+    public void close() {
+    }
+}
@@ -0,0 +1,439 @@
+/*
+ * Copyright 2014-2019 Groupon, Inc
+ * Copyright 2014-2019 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.plugin.qualpay;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.zip.GZIPOutputStream;
+
+import javax.annotation.Nullable;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.jooq.Record;
+import org.killbill.billing.plugin.qualpay.client.QualpayGatewayMetrics;
+import org.killbill.billing.plugin.qualpay.dao.QualpayDao;
+import org.killbill.billing.plugin.qualpay.dao.QualpayDao.RecordHandler;
+import org.killbill.billing.plugin.qualpay.dao.gen.tables.records.QualpayPaymentMethodsRecord;
+import org.killbill.billing.plugin.qualpay.dao.gen.tables.records.QualpayReconciliationsRecord;
+import org.killbill.billing.plugin.qualpay.dao.gen.tables.records.QualpayResponsesRecord;
+import org.killbill.billing.tenant.api.Tenant;
+import org.killbill.clock.Clock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.io.BaseEncoding;
+import com.google.common.io.ByteStreams;
+
+public class QualpayServlet extends HttpServlet {
+
+    private static final Logger logger = LoggerFactory.getLogger(QualpayServlet.class);
+
+    private static final String TENANT_ATTRIBUTE = "killbill_tenant";
+    private static final String NDJSON_CONTENT_TYPE = "application/x-ndjson";
+    private static final String PROMETHEUS_CONTENT_TYPE = "text/plain; version=0.0.4";
+    private static final String RESUME_TOKEN = "resume_token";
+    private static final int EXPORT_FLUSH_ROWS = 1000;
+    private static final int DEFAULT_CAPTURES_LIMIT = 100;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final QualpayDao dao;
+    private final QualpayPaymentMethodsSyncJob paymentMethodsSyncJob;
+    private final QualpayNotificationProcessor notificationProcessor;
+    private final QualpaySettlementReconciler settlementReconciler;
+    private final QualpayGatewayMetrics gatewayMetrics;
+    private final QualpayHealthChecker healthChecker;
+    private final Clock clock;
+
+    public QualpayServlet(final QualpayDao dao,
+                          final QualpayPaymentMethodsSyncJob paymentMethodsSyncJob,
+                          @Nullable final QualpayNotificationProcessor notificationProcessor,
+                          final QualpaySettlementReconciler settlementReconciler,
+                          final QualpayGatewayMetrics gatewayMetrics,
+                          final QualpayHealthChecker healthChecker,
+                          final Clock clock) {
+        this.dao = dao;
+        this.paymentMethodsSyncJob = paymentMethodsSyncJob;
+        this.notificationProcessor = notificationProcessor;
+        this.settlementReconciler = settlementReconciler;
+        this.gatewayMetrics = gatewayMetrics;
+        this.healthChecker = healthChecker;
+        this.clock = clock;
+    }
+
+    @Override
+    protected void doGet(final HttpServletRequest req, final HttpServletResponse resp) throws ServletException, IOException {
+        final String pathInfo = req.getPathInfo();
+        if ("/export/responses".equals(pathInfo)) {
+            export(req, resp, true);
+        } else if ("/export/paymentMethods".equals(pathInfo)) {
+            export(req, resp, false);
+        } else if ("/sync/paymentMethods".equals(pathInfo)) {
+            getPaymentMethodsSyncStatus(req, resp);
+        } else if ("/notifications/metrics".equals(pathInfo)) {
+            getNotificationsMetrics(req, resp);
+        } else if ("/metrics".equals(pathInfo)) {
+            getPrometheusMetrics(resp);
+        } else if ("/healthcheck".equals(pathInfo)) {
+            getHealth(req, resp);
+        } else if ("/captures".equals(pathInfo)) {
+            getGatewayCaptures(req, resp);
+        } else {
+            resp.sendError(HttpServletResponse.SC_NOT_FOUND);
+        }
+    }
+
+    @Override
+    protected void doPost(final HttpServletRequest req, final HttpServletResponse resp) throws ServletException, IOException {
+        final String pathInfo = req.getPathInfo();
+        if ("/sync/paymentMethods".equals(pathInfo)) {
+            startPaymentMethodsSync(req, resp);
+        } else if ("/notifications".equals(pathInfo)) {
+            receiveNotification(req, resp);
+        } else if ("/reconciliation/settlements".equals(pathInfo)) {
+            reconcileSettlementReport(req, resp);
+        } else {
+            resp.sendError(HttpServletResponse.SC_NOT_FOUND);
+        }
+    }
+
+    // Webhooks
+
+    private void receiveNotification(final HttpServletRequest req, final HttpServletResponse resp) throws IOException {
+        final Tenant tenant = getTenant(req, resp);
+        if (tenant == null) {
+            return;
+        }
+
+        if (notificationProcessor == null) {
+            resp.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE, "Webhooks processing is disabled");
+            return;
+        }
+
+        // The signature is computed over the raw body
+        final String payload = new String(ByteStreams.toByteArray(req.getInputStream()), StandardCharsets.UTF_8);
+        final QualpayNotificationProcessor.IngestionResult result;
+        try {
+            result = notificationProcessor.ingest(payload, req.getHeader(QualpayNotificationProcessor.SIGNATURE_HEADER), tenant.getId());
+        } catch (final SQLException e) {
+            // Not acknowledged: Qualpay will retry
+            logger.warn("Unable to store notification for tenant {}", tenant.getId(), e);
+            resp.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            return;
+        }
+
+        switch (result) {
+            case INVALID_SIGNATURE:
+                resp.sendError(HttpServletResponse.SC_UNAUTHORIZED, "Invalid signature");
+                break;
+            case INVALID_PAYLOAD:
+                resp.sendError(HttpServletResponse.SC_BAD_REQUEST, "Invalid payload");
+                break;
+            case NOT_CONFIGURED:
+                resp.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE, "Webhooks aren't configured");
+                break;
+            default:
+                resp.setStatus(HttpServletResponse.SC_OK);
+        }
+    }
+
+    private void getNotificationsMetrics(final HttpServletRequest req, final HttpServletResponse resp) throws IOException {
+        if (getTenant(req, resp) == null) {
+            return;
+        }
+
+        if (notificationProcessor == null) {
+            resp.sendError(HttpServletResponse.SC_NOT_FOUND, "Webhooks processing is disabled");
+            return;
+        }
+
+        try {
+            writeJson(resp, notificationProcessor.getMetrics());
+        } catch (final SQLException e) {
+            resp.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR, e.getMessage());
+        }
+    }
+
+    // Settlement reconciliation
+
+    private void reconcileSettlementReport(final HttpServletRequest req, final HttpServletResponse resp) throws IOException {
+        final Tenant tenant = getTenant(req, resp);
+        if (tenant == null) {
+            return;
+        }
+
+        final String fileName = req.getParameter("file");
+        if (fileName == null) {
+            resp.sendError(HttpServletResponse.SC_BAD_REQUEST, "Missing file");
+            return;
+        }
+
+        final QualpayReconciliationsRecord reconciliation;
+        try {
+            // Previous UTC day by default
+            final DateTime today = clock.getUTCNow().withTimeAtStartOfDay();
+            final DateTime from = req.getParameter("from") == null ? today.minusDays(1) : DateTime.parse(req.getParameter("from"));
+            final DateTime to = req.getParameter("to") == null ? today : DateTime.parse(req.getParameter("to"));
+            reconciliation = settlementReconciler.reconcile(fileName, from, to, tenant.getId());
+        } catch (final IllegalArgumentException e) {
+            resp.sendError(HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+            return;
+        } catch (final IllegalStateException e) {
+            resp.sendError(HttpServletResponse.SC_CONFLICT, e.getMessage());
+            return;
+        } catch (final SQLException e) {
+            logger.warn("Settlement reconciliation failed for tenant {}", tenant.getId(), e);
+            resp.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR, e.getMessage());
+            return;
+        }
+
+        final Map<String, Object> summary = new LinkedHashMap<String, Object>();
+        summary.put("recordId", reconciliation.getRecordId().longValue());
+        summary.put("fileName", reconciliation.getFileName());
+        summary.put("status", reconciliation.getStatus());
+        summary.put("matched", reconciliation.getNbMatched());
+        summary.put("mismatched", reconciliation.getNbMismatched());
+        summary.put("missingInKillbill", reconciliation.getNbMissingInKillbill());
+        summary.put("missingInReport", reconciliation.getNbMissingInReport());
+        writeJson(resp, summary);
+    }
+
+    // Metrics
+
+    // Not tenant-scoped, so that Prometheus can scrape it: series aren't labelled by tenant
+    private void getPrometheusMetrics(final HttpServletResponse resp) throws IOException {
+        resp.setContentType(PROMETHEUS_CONTENT_TYPE);
+        resp.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        final Writer writer = new BufferedWriter(new OutputStreamWriter(resp.getOutputStream(), StandardCharsets.UTF_8));
+        gatewayMetrics.writePrometheus(writer);
+        if (notificationProcessor == null) {
+            writer.flush();
+            return;
+        }
+
+        try {
+            writer.write("# HELP qualpay_notifications Webhook events inbox (counts, lag in milliseconds)\n");
+            writer.write("# TYPE qualpay_notifications gauge\n");
+            for (final Map.Entry<String, Object> entry : notificationProcessor.getMetrics().entrySet()) {
+                writer.write("qualpay_notifications{metric=\"" + entry.getKey() + "\"} " + (entry.getValue() == null ? 0 : entry.getValue()) + "\n");
+            }
+        } catch (final SQLException e) {
+            // Still expose the gateway metrics
+            logger.warn("Unable to retrieve notifications metrics", e);
+        }
+        writer.flush();
+    }
+
+    // Not tenant-scoped either, for load balancers: only the caller's tenant (if authenticated) is detailed.
+    // Never blocks: the probes run in the background.
+    private void getHealth(final HttpServletRequest req, final HttpServletResponse resp) throws IOException {
+        final Tenant tenant = (Tenant) req.getAttribute(TENANT_ATTRIBUTE);
+        final Map<String, Object> health = healthChecker.getHealth(tenant == null ? null : tenant.getId());
+        final Object status = health.get("status");
+        if (QualpayHealthChecker.STATUS_DOWN.equals(status) || QualpayHealthChecker.STATUS_STARTING.equals(status)) {
+            resp.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+        }
+        writeJson(resp, health);
+    }
+
+    // Redacted bodies of the last failed, slow or sampled Qualpay calls of the tenant
+    private void getGatewayCaptures(final HttpServletRequest req, final HttpServletResponse resp) throws IOException {
+        final Tenant tenant = getTenant(req, resp);
+        if (tenant == null) {
+            return;
+        }
+
+        final int limit;
+        try {
+            limit = req.getParameter("limit") == null ? DEFAULT_CAPTURES_LIMIT : Integer.parseInt(req.getParameter("limit"));
+        } catch (final NumberFormatException e) {
+            resp.sendError(HttpServletResponse.SC_BAD_REQUEST, "Invalid limit");
+            return;
+        }
+        writeJson(resp, gatewayMetrics.getCaptures().getCaptures(tenant.getId(), Math.max(0, limit)));
+    }
+
+    // Tenant-wide payment methods sync
+
+    private void startPaymentMethodsSync(final HttpServletRequest req, final HttpServletResponse resp) throws IOException {
+        final Tenant tenant = getTenant(req, resp);
+        if (tenant == null) {
+            return;
+        }
+
+        if (!paymentMethodsSyncJob.start(tenant.getId())) {
+            resp.sendError(HttpServletResponse.SC_CONFLICT, "Payment methods sync already running");
+            return;
+        }
+        resp.setStatus(HttpServletResponse.SC_ACCEPTED);
+        writeJson(resp, paymentMethodsSyncJob.getRun(tenant.getId()).toMap());
+    }
+
+    private void getPaymentMethodsSyncStatus(final HttpServletRequest req, final HttpServletResponse resp) throws IOException {
+        final Tenant tenant = getTenant(req, resp);
+        if (tenant == null) {
+            return;
+        }
+
+        final QualpayPaymentMethodsSyncJob.SyncRun run = paymentMethodsSyncJob.getRun(tenant.getId());
+        if (run == null) {
+            resp.sendError(HttpServletResponse.SC_NOT_FOUND, "No payment methods sync since startup");
+            return;
+        }
+        writeJson(resp, run.toMap());
+    }
+
+    // Export
+
+    private void export(final HttpServletRequest req, final HttpServletResponse resp, final boolean responses) throws IOException {
+        final Tenant tenant = getTenant(req, resp);
+        if (tenant == null) {
+            return;
+        }
+
+        final DateTime from;
+        final DateTime to;
+        final DateTime afterCreatedDate;
+        final long afterRecordId;
+        try {
+            from = req.getParameter("from") == null ? new DateTime(0, DateTimeZone.UTC) : DateTime.parse(req.getParameter("from"));
+            to = req.getParameter("to") == null ? clock.getUTCNow() : DateTime.parse(req.getParameter("to"));
+
+            // Restart after the last row the client received
+            final String resumeToken = req.getParameter(RESUME_TOKEN);
+            if (resumeToken == null) {
+                afterCreatedDate = null;
+                afterRecordId = 0;
+            } else {
+                final String[] position = new String(BaseEncoding.base64Url().decode(resumeToken), StandardCharsets.UTF_8).split(":");
+                afterCreatedDate = new DateTime(Long.parseLong(position[0]), DateTimeZone.UTC);
+                afterRecordId = Long.parseLong(position[1]);
+            }
+        } catch (final IllegalArgumentException e) {
+            resp.sendError(HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+            return;
+        } catch (final ArrayIndexOutOfBoundsException e) {
+            resp.sendError(HttpServletResponse.SC_BAD_REQUEST, "Invalid resume token");
+            return;
+        }
+
+        resp.setContentType(NDJSON_CONTENT_TYPE);
+        resp.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        final boolean gzip = req.getHeader("Accept-Encoding") != null && req.getHeader("Accept-Encoding").contains("gzip");
+        if (gzip) {
+            resp.setHeader("Content-Encoding", "gzip");
+        }
+
+        // Rows are pulled from the cursor only once the previous one has been written: a slow client slows down the query
+        final OutputStream out = gzip ? new GZIPOutputStream(resp.getOutputStream(), true) : resp.getOutputStream();
+        final UUID kbTenantId = tenant.getId();
+        try {
+            if (responses) {
+                dao.streamResponses(from, to, afterCreatedDate, afterRecordId, kbTenantId, new NdjsonWriter<QualpayResponsesRecord>(out) {
+                    @Override
+                    protected String resumeToken(final QualpayResponsesRecord record) {
+                        return toResumeToken(record.getCreatedDate(), record.getRecordId().longValue());
+                    }
+                });
+            } else {
+                dao.streamPaymentMethods(from, to, afterCreatedDate, afterRecordId, kbTenantId, new NdjsonWriter<QualpayPaymentMethodsRecord>(out) {
+                    @Override
+                    protected String resumeToken(final QualpayPaymentMethodsRecord record) {
+                        return toResumeToken(record.getCreatedDate(), record.getRecordId().longValue());
+                    }
+                });
+            }
+            out.close();
+        } catch (final SQLException e) {
+            logger.warn("Export failed for tenant {}", kbTenantId, e);
+            if (!resp.isCommitted()) {
+                resp.reset();
+                resp.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR, e.getMessage());
+            } else {
+                // Don't finish the stream cleanly: the client must resume from its last resume_token
+                throw new IOException("Export aborted", e);
+            }
+        }
+    }
+
+    private Tenant getTenant(final HttpServletRequest req, final HttpServletResponse resp) throws IOException {
+        final Tenant tenant = (Tenant) req.getAttribute(TENANT_ATTRIBUTE);
+        if (tenant == null) {
+            resp.sendError(HttpServletResponse.SC_UNAUTHORIZED, "Missing tenant");
+        }
+        return tenant;
+    }
+
+    private void writeJson(final HttpServletResponse resp, final Object value) throws IOException {
+        resp.setContentType("application/json");
+        resp.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        objectMapper.writeValue(resp.getOutputStream(), value);
+    }
+
+    private static String toResumeToken(final Timestamp createdDate, final long recordId) {
+        return BaseEncoding.base64Url().encode((createdDate.getTime() + ":" + recordId).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private abstract class NdjsonWriter<R extends Record> implements RecordHandler<R> {
+
+        private final OutputStream out;
+        private long nbRows = 0;
+
+        private NdjsonWriter(final OutputStream out) {
+            this.out = out;
+        }
+
+        protected abstract String resumeToken(R record);
+
+        @Override
+        public void onRecord(final R record) throws IOException {
+            final Map<String, Object> row = new LinkedHashMap<String, Object>();
+            for (final Map.Entry<String, Object> entry : record.intoMap().entrySet()) {
+                final Object value = entry.getValue();
+                if ("additional_data".equals(entry.getKey())) {
+                    row.put(entry.getKey(), QualpayDao.fromAdditionalData((String) value));
+                } else if (value instanceof Timestamp) {
+                    row.put(entry.getKey(), new DateTime(((Timestamp) value).getTime(), DateTimeZone.UTC).toString());
+                } else {
+                    row.put(entry.getKey(), value == null ? null : value.toString());
+                }
+            }
+            row.put(RESUME_TOKEN, resumeToken(record));
+
+            out.write(objectMapper.writeValueAsBytes(row));
+            out.write('\n');
+            if (++nbRows % EXPORT_FLUSH_ROWS == 0) {
+                out.flush();
+            }
+        }
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright 2014-2019 Groupon, Inc
+ * Copyright 2014-2019 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.plugin.qualpay;
+
+import java.nio.charset.StandardCharsets;
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+
+// Open-addressing index of the Kill Bill transactions to reconcile: Qualpay id fingerprint -> (amount in cents, record id).
+// Parallel primitive arrays (~50 bytes per transaction) instead of a HashMap<String, ...> keep millions of entries cheap.
+class QualpaySettlementIndex {
+
+    static final int NOT_FOUND = -1;
+
+    private static final HashFunction FINGERPRINT = Hashing.murmur3_128();
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private long[] fingerprints;
+    private long[] amountsInCents;
+    private long[] recordIds;
+    private boolean[] matched;
+    private int size = 0;
+
+    QualpaySettlementIndex() {
+        allocate(INITIAL_CAPACITY);
+    }
+
+    // 64 bits of murmur3: collisions are negligible for a day of transactions (~1e-7 for 1M ids)
+    static long fingerprint(final String qualpayId) {
+        final long fingerprint = FINGERPRINT.hashString(qualpayId, StandardCharsets.UTF_8).asLong();
+        // 0 marks empty slots
+        return fingerprint == 0 ? 1 : fingerprint;
+    }
+
+    // Several responses with the same Qualpay id (e.g. partial captures) are reconciled against their total
+    void add(final long fingerprint, final long amountInCents, final long recordId) {
+        final int slot = find(fingerprint);
+        if (slot != NOT_FOUND) {
+            amountsInCents[slot] += amountInCents;
+            return;
+        }
+
+        if ((size + 1) * 2 > fingerprints.length) {
+            grow();
+        }
+        insert(fingerprint, amountInCents, recordId);
+        size++;
+    }
+
+    int find(final long fingerprint) {
+        final int mask = fingerprints.length - 1;
+        int slot = mix(fingerprint) & mask;
+        while (fingerprints[slot] != 0) {
+            if (fingerprints[slot] == fingerprint) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return NOT_FOUND;
+    }
+
+    long getAmountInCents(final int slot) {
+        return amountsInCents[slot];
+    }
+
+    long getRecordId(final int slot) {
+        return recordIds[slot];
+    }
+
+    boolean isMatched(final int slot) {
+        return matched[slot];
+    }
+
+    void setMatched(final int slot) {
+        matched[slot] = true;
+    }
+
+    int size() {
+        return size;
+    }
+
+    // Slots are 0..capacity()-1, empty ones have no record id
+    int capacity() {
+        return fingerprints.length;
+    }
+
+    boolean isEmpty(final int slot) {
+        return fingerprints[slot] == 0;
+    }
+
+    private void insert(final long fingerprint, final long amountInCents, final long recordId) {
+        final int mask = fingerprints.length - 1;
+        int slot = mix(fingerprint) & mask;
+        while (fingerprints[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        fingerprints[slot] = fingerprint;
+        amountsInCents[slot] = amountInCents;
+        recordIds[slot] = recordId;
+    }
+
+    private void grow() {
+        final long[] oldFingerprints = fingerprints;
+        final long[] oldAmountsInCents = amountsInCents;
+        final long[] oldRecordIds = recordIds;
+        allocate(oldFingerprints.length * 2);
+        for (int i = 0; i < oldFingerprints.length; i++) {
+            if (oldFingerprints[i] != 0) {
+                insert(oldFingerprints[i], oldAmountsInCents[i], oldRecordIds[i]);
+            }
+        }
+    }
+
+    private void allocate(final int capacity) {
+        fingerprints = new long[capacity];
+        amountsInCents = new long[capacity];
+        recordIds = new long[capacity];
+        matched = new boolean[capacity];
+    }
+
+    private static int mix(final long fingerprint) {
+        // The fingerprint is already a hash, fold it
+        return (int) (fingerprint ^ (fingerprint >>> 32));
+    }
+}
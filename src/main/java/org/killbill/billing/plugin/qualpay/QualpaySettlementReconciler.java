@@ -0,0 +1,357 @@
+/*
+ * Copyright 2014-2019 Groupon, Inc
+ * Copyright 2014-2019 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.plugin.qualpay;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nullable;
+
+import org.joda.time.DateTime;
+import org.jooq.types.ULong;
+import org.killbill.billing.payment.api.TransactionType;
+import org.killbill.billing.payment.plugin.api.PaymentPluginStatus;
+import org.killbill.billing.plugin.qualpay.dao.QualpayDao;
+import org.killbill.billing.plugin.qualpay.dao.QualpayDao.RecordHandler;
+import org.killbill.billing.plugin.qualpay.dao.gen.tables.records.QualpayReconciliationItemsRecord;
+import org.killbill.billing.plugin.qualpay.dao.gen.tables.records.QualpayReconciliationsRecord;
+import org.killbill.billing.plugin.qualpay.dao.gen.tables.records.QualpayResponsesRecord;
+import org.killbill.clock.Clock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+
+// Reconciles Qualpay settlement reports (CSV) against the responses of a time window.
+// Both sides are streamed: memory is bounded by the index of the window's transactions, not by the report size.
+public class QualpaySettlementReconciler {
+
+    public static final String ITEM_STATUS_MISMATCHED = "MISMATCHED";
+    public static final String ITEM_STATUS_MISSING_IN_KILLBILL = "MISSING_IN_KILLBILL";
+    public static final String ITEM_STATUS_MISSING_IN_REPORT = "MISSING_IN_REPORT";
+
+    private static final Logger logger = LoggerFactory.getLogger(QualpaySettlementReconciler.class);
+
+    private static final int ITEMS_FLUSH_SIZE = 1000;
+
+    // Report columns, compared after lower-casing and stripping non alphanumeric characters
+    private static final List<String> QUALPAY_ID_COLUMNS = ImmutableList.<String>of("pgid", "transactionid", "qualpayid");
+    private static final List<String> AMOUNT_COLUMNS = ImmutableList.<String>of("amttran", "tranamount", "transactionamount", "amount");
+
+    private static final Set<String> SETTLED_TRANSACTION_TYPES = ImmutableSet.<String>of(TransactionType.PURCHASE.toString(),
+                                                                                          TransactionType.CAPTURE.toString(),
+                                                                                          TransactionType.REFUND.toString(),
+                                                                                          TransactionType.CREDIT.toString());
+
+    private final QualpayDao dao;
+    private final QualpayConfigPropertiesConfigurationHandler qualpayConfigPropertiesConfigurationHandler;
+    private final Clock clock;
+
+    public QualpaySettlementReconciler(final QualpayDao dao,
+                                       final QualpayConfigPropertiesConfigurationHandler qualpayConfigPropertiesConfigurationHandler,
+                                       final Clock clock) {
+        this.dao = dao;
+        this.qualpayConfigPropertiesConfigurationHandler = qualpayConfigPropertiesConfigurationHandler;
+        this.clock = clock;
+    }
+
+    // The file is resolved in the tenant settlement reports directory
+    public QualpayReconciliationsRecord reconcile(final String fileName, final DateTime from, final DateTime to, final UUID kbTenantId) throws SQLException, IOException {
+        final String directory = qualpayConfigPropertiesConfigurationHandler.getConfigurable(kbTenantId).getSettlementReportsDirectory();
+        if (Strings.isNullOrEmpty(directory)) {
+            throw new IllegalStateException("Settlement reports directory not configured");
+        }
+
+        final File reportsDirectory = new File(directory).getCanonicalFile();
+        final File report = new File(reportsDirectory, fileName).getCanonicalFile();
+        if (!reportsDirectory.equals(report.getParentFile())) {
+            throw new IllegalArgumentException("Invalid settlement report " + fileName);
+        }
+        if (!report.isFile()) {
+            throw new IllegalArgumentException("Settlement report " + fileName + " not found");
+        }
+
+        final Reader reader = new InputStreamReader(new FileInputStream(report), StandardCharsets.UTF_8);
+        try {
+            return reconcile(reader, report.getName(), from, to, kbTenantId);
+        } finally {
+            reader.close();
+        }
+    }
+
+    @VisibleForTesting
+    QualpayReconciliationsRecord reconcile(final Reader report, final String fileName, final DateTime from, final DateTime to, final UUID kbTenantId) throws SQLException, IOException {
+        final long startNanos = System.nanoTime();
+        final QualpayReconciliationsRecord reconciliation = dao.addReconciliation(fileName, from, to, clock.getUTCNow(), kbTenantId);
+        final ItemsWriter itemsWriter = new ItemsWriter(reconciliation.getRecordId(), kbTenantId);
+        long nbMatched = 0;
+        try {
+            final QualpaySettlementIndex index = buildIndex(from, to, kbTenantId);
+
+            final BufferedReader reader = new BufferedReader(report, 1 << 16);
+            final List<String> fields = new ArrayList<String>();
+            String line = reader.readLine();
+            if (line == null) {
+                throw new IllegalArgumentException("Empty settlement report " + fileName);
+            }
+            splitCsvLine(line, fields);
+            final int qualpayIdColumn = findColumn(fields, QUALPAY_ID_COLUMNS);
+            final int amountColumn = findColumn(fields, AMOUNT_COLUMNS);
+            if (qualpayIdColumn < 0 || amountColumn < 0) {
+                throw new IllegalArgumentException("Settlement report " + fileName + " has no transaction id or amount column");
+            }
+
+            while ((line = reader.readLine()) != null) {
+                splitCsvLine(line, fields);
+                if (fields.size() <= Math.max(qualpayIdColumn, amountColumn) || fields.get(qualpayIdColumn).isEmpty()) {
+                    // Blank lines, totals
+                    continue;
+                }
+
+                final String qualpayId = fields.get(qualpayIdColumn);
+                final BigDecimal reportAmount = parseAmount(fields.get(amountColumn));
+                final int slot = index.find(QualpaySettlementIndex.fingerprint(qualpayId));
+                if (reportAmount == null) {
+                    // Unreadable amount: reported, without failing the whole run
+                    if (slot != QualpaySettlementIndex.NOT_FOUND) {
+                        index.setMatched(slot);
+                    }
+                    itemsWriter.add(ITEM_STATUS_MISMATCHED, qualpayId, null, slot == QualpaySettlementIndex.NOT_FOUND ? null : index.getRecordId(slot));
+                } else if (slot == QualpaySettlementIndex.NOT_FOUND) {
+                    itemsWriter.add(ITEM_STATUS_MISSING_IN_KILLBILL, qualpayId, reportAmount, null);
+                } else if (!index.isMatched(slot) && index.getAmountInCents(slot) == toCents(reportAmount)) {
+                    index.setMatched(slot);
+                    nbMatched++;
+                } else {
+                    // Wrong amount, or settled twice
+                    index.setMatched(slot);
+                    itemsWriter.add(ITEM_STATUS_MISMATCHED, qualpayId, reportAmount, index.getRecordId(slot));
+                }
+            }
+
+            for (int slot = 0; slot < index.capacity(); slot++) {
+                if (!index.isEmpty(slot) && !index.isMatched(slot)) {
+                    itemsWriter.add(ITEM_STATUS_MISSING_IN_REPORT, null, null, index.getRecordId(slot));
+                }
+            }
+            itemsWriter.flush();
+
+            reconciliation.setStatus(QualpayDao.RECONCILIATION_STATUS_COMPLETED);
+        } catch (final IOException e) {
+            fail(reconciliation);
+            throw e;
+        } catch (final SQLException e) {
+            fail(reconciliation);
+            throw e;
+        } catch (final RuntimeException e) {
+            fail(reconciliation);
+            throw e;
+        }
+
+        reconciliation.setNbMatched(nbMatched);
+        reconciliation.setNbMismatched(itemsWriter.getCount(ITEM_STATUS_MISMATCHED));
+        reconciliation.setNbMissingInKillbill(itemsWriter.getCount(ITEM_STATUS_MISSING_IN_KILLBILL));
+        reconciliation.setNbMissingInReport(itemsWriter.getCount(ITEM_STATUS_MISSING_IN_REPORT));
+        dao.updateReconciliation(reconciliation, clock.getUTCNow());
+
+        logger.info("Reconciled settlement report {} for tenant {} in {}ms: matched={}, mismatched={}, missingInKillbill={}, missingInReport={}",
+                    fileName, kbTenantId, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos),
+                    reconciliation.getNbMatched(), reconciliation.getNbMismatched(), reconciliation.getNbMissingInKillbill(), reconciliation.getNbMissingInReport());
+        return reconciliation;
+    }
+
+    private QualpaySettlementIndex buildIndex(final DateTime from, final DateTime to, final UUID kbTenantId) throws SQLException, IOException {
+        final QualpaySettlementIndex index = new QualpaySettlementIndex();
+        dao.streamResponses(from, to, null, 0, kbTenantId, new RecordHandler<QualpayResponsesRecord>() {
+            @Override
+            public void onRecord(final QualpayResponsesRecord response) {
+                if (response.getQualpayId() == null ||
+                    response.getAmount() == null ||
+                    !SETTLED_TRANSACTION_TYPES.contains(response.getTransactionType()) ||
+                    !PaymentPluginStatus.PROCESSED.toString().equals(response.getPluginStatus())) {
+                    return;
+                }
+                index.add(QualpaySettlementIndex.fingerprint(response.getQualpayId()), toCents(response.getAmount().abs()), response.getRecordId().longValue());
+            }
+        });
+        return index;
+    }
+
+    private void fail(final QualpayReconciliationsRecord reconciliation) {
+        reconciliation.setStatus(QualpayDao.RECONCILIATION_STATUS_FAILED);
+        try {
+            dao.updateReconciliation(reconciliation, clock.getUTCNow());
+        } catch (final SQLException e) {
+            logger.warn("Unable to mark reconciliation {} as failed", reconciliation.getRecordId(), e);
+        }
+    }
+
+    @Nullable
+    private static BigDecimal parseAmount(final String amount) {
+        try {
+            return new BigDecimal(amount.replace(",", "")).abs();
+        } catch (final NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static long toCents(final BigDecimal amount) {
+        return amount.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValue();
+    }
+
+    private static int findColumn(final List<String> header, final List<String> candidates) {
+        for (final String candidate : candidates) {
+            for (int i = 0; i < header.size(); i++) {
+                if (candidate.equals(header.get(i).toLowerCase().replaceAll("[^a-z0-9]", ""))) {
+                    return i;
+                }
+            }
+        }
+        return -1;
+    }
+
+    // RFC 4180 fields on a single line (settlement reports don't have embedded line breaks)
+    @VisibleForTesting
+    static void splitCsvLine(final String line, final List<String> fields) {
+        fields.clear();
+        final StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            final char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString().trim());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString().trim());
+    }
+
+    // Buffers the discrepancies and resolves their Kill Bill ids with one query per chunk
+    private final class ItemsWriter {
+
+        private final ULong reconciliationRecordId;
+        private final UUID kbTenantId;
+        private final List<PendingItem> pendingItems = new ArrayList<PendingItem>(ITEMS_FLUSH_SIZE);
+        private final Map<String, Long> counts = new HashMap<String, Long>();
+
+        private ItemsWriter(final ULong reconciliationRecordId, final UUID kbTenantId) {
+            this.reconciliationRecordId = reconciliationRecordId;
+            this.kbTenantId = kbTenantId;
+        }
+
+        void add(final String status, @Nullable final String qualpayId, @Nullable final BigDecimal reportAmount, @Nullable final Long responseRecordId) throws SQLException {
+            pendingItems.add(new PendingItem(status, qualpayId, reportAmount, responseRecordId));
+            counts.put(status, getCount(status) + 1);
+            if (pendingItems.size() >= ITEMS_FLUSH_SIZE) {
+                flush();
+            }
+        }
+
+        long getCount(final String status) {
+            final Long count = counts.get(status);
+            return count == null ? 0 : count;
+        }
+
+        void flush() throws SQLException {
+            if (pendingItems.isEmpty()) {
+                return;
+            }
+
+            final List<ULong> responseRecordIds = new ArrayList<ULong>();
+            for (final PendingItem pendingItem : pendingItems) {
+                if (pendingItem.responseRecordId != null) {
+                    responseRecordIds.add(ULong.valueOf(pendingItem.responseRecordId));
+                }
+            }
+            final Map<Long, QualpayResponsesRecord> responsesByRecordId = new HashMap<Long, QualpayResponsesRecord>();
+            for (final QualpayResponsesRecord response : dao.getResponsesByRecordIds(responseRecordIds, kbTenantId)) {
+                responsesByRecordId.put(response.getRecordId().longValue(), response);
+            }
+
+            final Timestamp createdDate = new Timestamp(clock.getUTCNow().getMillis());
+            final List<QualpayReconciliationItemsRecord> items = new ArrayList<QualpayReconciliationItemsRecord>(pendingItems.size());
+            for (final PendingItem pendingItem : pendingItems) {
+                final QualpayReconciliationItemsRecord item = new QualpayReconciliationItemsRecord();
+                item.setReconciliationRecordId(reconciliationRecordId);
+                item.setStatus(pendingItem.status);
+                item.setQualpayId(pendingItem.qualpayId);
+                item.setReportAmount(pendingItem.reportAmount);
+                item.setCreatedDate(createdDate);
+                item.setKbTenantId(kbTenantId.toString());
+
+                final QualpayResponsesRecord response = pendingItem.responseRecordId == null ? null : responsesByRecordId.get(pendingItem.responseRecordId);
+                if (response != null) {
+                    item.setQualpayId(response.getQualpayId());
+                    item.setKbAmount(response.getAmount());
+                    item.setKbPaymentId(response.getKbPaymentId());
+                    item.setKbPaymentTransactionId(response.getKbPaymentTransactionId());
+                }
+                items.add(item);
+            }
+            dao.addReconciliationItems(items);
+            pendingItems.clear();
+        }
+    }
+
+    private static final class PendingItem {
+
+        private final String status;
+        private final String qualpayId;
+        private final BigDecimal reportAmount;
+        private final Long responseRecordId;
+
+        private PendingItem(final String status, @Nullable final String qualpayId, @Nullable final BigDecimal reportAmount, @Nullable final Long responseRecordId) {
+            this.status = status;
+            this.qualpayId = qualpayId;
+            this.reportAmount = reportAmount;
+            this.responseRecordId = responseRecordId;
+        }
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright 2014-2019 Groupon, Inc
+ * Copyright 2014-2019 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.plugin.qualpay;
+
+import java.io.Closeable;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.joda.time.DateTime;
+import org.killbill.billing.payment.plugin.api.PaymentPluginStatus;
+import org.killbill.billing.plugin.api.PluginCallContext;
+import org.killbill.billing.plugin.qualpay.dao.QualpayDao;
+import org.killbill.billing.plugin.qualpay.dao.gen.tables.records.QualpayResponsesRecord;
+import org.killbill.clock.Clock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+// Periodically asks Qualpay for the outcome of the transactions left UNDEFINED for more than minAgeMinutes,
+// so that they don't wait for the Kill Bill janitor. Transactions older than maxAgeHours are left to the janitor.
+public class QualpayUndefinedTransactionsReconciler implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(QualpayUndefinedTransactionsReconciler.class);
+
+    private final QualpayPaymentPluginApi paymentPluginApi;
+    private final QualpayDao dao;
+    private final Clock clock;
+    private final long intervalSeconds;
+    private final long minAgeMinutes;
+    private final long maxAgeHours;
+    private final int batchSize;
+    private final ScheduledExecutorService executor;
+
+    public QualpayUndefinedTransactionsReconciler(final QualpayPaymentPluginApi paymentPluginApi,
+                                                  final QualpayDao dao,
+                                                  final Clock clock,
+                                                  final long intervalSeconds,
+                                                  final long minAgeMinutes,
+                                                  final long maxAgeHours,
+                                                  final int batchSize) {
+        this.paymentPluginApi = paymentPluginApi;
+        this.dao = dao;
+        this.clock = clock;
+        this.intervalSeconds = intervalSeconds;
+        this.minAgeMinutes = minAgeMinutes;
+        this.maxAgeHours = maxAgeHours;
+        this.batchSize = Math.max(1, batchSize);
+        this.executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder().setNameFormat("qualpay-undefined-reconciler-%d")
+                                                                                            .setDaemon(true)
+                                                                                            .build());
+    }
+
+    public void start() {
+        executor.scheduleWithFixedDelay(new Runnable() {
+                                            @Override
+                                            public void run() {
+                                                reconcile();
+                                            }
+                                        },
+                                        intervalSeconds,
+                                        intervalSeconds,
+                                        TimeUnit.SECONDS);
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    // Returns the number of transactions which aren't UNDEFINED anymore
+    @VisibleForTesting
+    int reconcile() {
+        final DateTime now = clock.getUTCNow();
+        final DateTime createdAfter = now.minusHours((int) maxAgeHours);
+        final DateTime createdBefore = now.minusMinutes((int) minAgeMinutes);
+
+        final List<UUID> kbTenantIds;
+        try {
+            kbTenantIds = dao.getTenantIdsByPluginStatus(PaymentPluginStatus.UNDEFINED.toString(), createdAfter, createdBefore);
+        } catch (final SQLException e) {
+            logger.warn("Unable to retrieve tenants with UNDEFINED transactions", e);
+            return 0;
+        }
+
+        int nbResolved = 0;
+        for (final UUID kbTenantId : kbTenantIds) {
+            if (Thread.currentThread().isInterrupted()) {
+                break;
+            }
+            nbResolved += reconcile(kbTenantId, createdAfter, createdBefore);
+        }
+        return nbResolved;
+    }
+
+    private int reconcile(final UUID kbTenantId, final DateTime createdAfter, final DateTime createdBefore) {
+        int nbResolved = 0;
+        int nbUndefined = 0;
+        long afterRecordId = 0;
+        while (!Thread.currentThread().isInterrupted()) {
+            final List<QualpayResponsesRecord> responses;
+            try {
+                responses = dao.getResponsesByPluginStatus(PaymentPluginStatus.UNDEFINED.toString(), createdAfter, createdBefore, afterRecordId, batchSize, kbTenantId);
+            } catch (final SQLException e) {
+                logger.warn("Unable to retrieve UNDEFINED transactions for tenant {}", kbTenantId, e);
+                break;
+            }
+            nbUndefined += responses.size();
+
+            // One gateway call per transaction, one database transaction per batch
+            final Map<UUID, Map<String, Object>> transactionStates = new HashMap<UUID, Map<String, Object>>();
+            for (final QualpayResponsesRecord response : responses) {
+                final PluginCallContext context = new PluginCallContext(QualpayActivator.PLUGIN_NAME, clock.getUTCNow(), UUID.fromString(response.getKbAccountId()), kbTenantId);
+                final Map<String, Object> transactionState = paymentPluginApi.fetchTransactionState(response, context);
+                if (transactionState != null) {
+                    transactionStates.put(UUID.fromString(response.getKbPaymentTransactionId()), transactionState);
+                }
+            }
+
+            if (!transactionStates.isEmpty()) {
+                try {
+                    for (final QualpayResponsesRecord updated : dao.updateResponses(transactionStates, kbTenantId)) {
+                        if (!PaymentPluginStatus.UNDEFINED.toString().equals(updated.getPluginStatus())) {
+                            nbResolved++;
+                        }
+                    }
+                } catch (final SQLException e) {
+                    logger.warn("Unable to update UNDEFINED transactions for tenant {}", kbTenantId, e);
+                }
+            }
+
+            if (responses.size() < batchSize) {
+                break;
+            }
+            afterRecordId = responses.get(responses.size() - 1).getRecordId().longValue();
+        }
+
+        if (nbUndefined > 0) {
+            logger.info("Resolved {}/{} UNDEFINED Qualpay transaction(s) for tenant {}", nbResolved, nbUndefined, kbTenantId);
+        }
+        return nbResolved;
+    }
+}
@@ -22,6 +22,11 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.UUID;
+
+import javax.annotation.Nullable;
+
+import org.killbill.billing.plugin.qualpay.jfr.QualpayEvents;
 
 import com.google.gson.reflect.TypeToken;
 import io.swagger.client.model.AddBillingCardRequest;
@@ -35,51 +40,150 @@ import qpPlatform.Pair;
 public class PGApi {
 
     private final ApiClient apiClient;
+    private final QualpayGatewayMetrics metrics;
+    private final UUID kbTenantId;
 
     public PGApi(final ApiClient apiClient) {
+        this(apiClient, null, null);
+    }
+
+    public PGApi(final ApiClient apiClient, @Nullable final QualpayGatewayMetrics metrics, @Nullable final UUID kbTenantId) {
         this.apiClient = apiClient;
         this.apiClient.setBasePath(apiClient.getBasePath().replace("/platform", ""));
+        this.metrics = metrics;
+        this.kbTenantId = kbTenantId;
     }
 
     public GatewayResponse tokenize(final AddBillingCardRequest body) throws ApiException {
-        return createPGTransactionWithHttpInfo("/pg/tokenize", body);
+        return createPGTransactionWithHttpInfo("pg_tokenize", "/pg/tokenize", body);
     }
 
     public GatewayResponse authorize(final PGApiTransactionRequest body) throws ApiException {
-        return createPGTransactionWithHttpInfo("/pg/auth", body);
+        return createPGTransactionWithHttpInfo("pg_auth", "/pg/auth", body);
     }
 
     public GatewayResponse capture(final String pgIdOrig,
                                    final PGApiCaptureRequest body) throws ApiException {
-        return createPGTransactionWithHttpInfo("/pg/capture/{pg_id_orig}".replaceAll("\\{" + "pg_id_orig" + "\\}", apiClient.escapeString(pgIdOrig)),
+        return createPGTransactionWithHttpInfo("pg_capture",
+                                               "/pg/capture/{pg_id_orig}".replaceAll("\\{" + "pg_id_orig" + "\\}", apiClient.escapeString(pgIdOrig)),
                                                body);
     }
 
     public GatewayResponse sale(final PGApiTransactionRequest body) throws ApiException {
-        return createPGTransactionWithHttpInfo("/pg/sale", body);
+        return createPGTransactionWithHttpInfo("pg_sale", "/pg/sale", body);
     }
 
     public GatewayResponse refund(final String pgIdOrig,
                                   final PGApiRefundRequest body) throws ApiException {
-        return createPGTransactionWithHttpInfo("/pg/refund/{pg_id_orig}".replaceAll("\\{" + "pg_id_orig" + "\\}", apiClient.escapeString(pgIdOrig)),
+        return createPGTransactionWithHttpInfo("pg_refund",
+                                               "/pg/refund/{pg_id_orig}".replaceAll("\\{" + "pg_id_orig" + "\\}", apiClient.escapeString(pgIdOrig)),
                                                body);
     }
 
     public GatewayResponse voidTx(final String pgIdOrig,
                                   final PGApiVoidRequest body) throws ApiException {
-        return createPGTransactionWithHttpInfo("/pg/void/{pg_id_orig}".replaceAll("\\{" + "pg_id_orig" + "\\}", apiClient.escapeString(pgIdOrig)),
+        return createPGTransactionWithHttpInfo("pg_void",
+                                               "/pg/void/{pg_id_orig}".replaceAll("\\{" + "pg_id_orig" + "\\}", apiClient.escapeString(pgIdOrig)),
                                                body);
     }
 
-    private GatewayResponse createPGTransactionWithHttpInfo(final String path, final Object body) throws ApiException {
-        final com.squareup.okhttp.Call call = createPGTransactionCall(path, body);
+    // Reporting API: current state of a transaction (null if unknown to Qualpay)
+    public Map<String, Object> getTransaction(final String pgId) throws ApiException {
+        final com.squareup.okhttp.Call call = createPGCall("/platform/reporting/transactions/bypgid/{pg_id}".replaceAll("\\{" + "pg_id" + "\\}", apiClient.escapeString(pgId)),
+                                                           "GET",
+                                                           null);
+        final Type localVarReturnType = new TypeToken<Map<String, Object>>() {}.getType();
+        final ApiResponse<Map<String, Object>> resp;
+        final Object event = QualpayEvents.beginGatewayCall();
+        final long startNanos = System.nanoTime();
+        try {
+            resp = apiClient.execute(call, localVarReturnType);
+        } catch (final ApiException e) {
+            recordCall("reporting_transaction", startNanos, event, QualpayGatewayMetrics.toCode(e), e.getResponseHeaders(), null, e.getResponseBody());
+            throw e;
+        }
+        recordCall("reporting_transaction", startNanos, event, QualpayGatewayMetrics.CODE_OK, resp.getHeaders(), null, resp.getData());
+
+        final Object data = resp.getData() == null ? null : resp.getData().get("data");
+        if (data instanceof List) {
+            return ((List) data).isEmpty() ? null : (Map<String, Object>) ((List) data).get(0);
+        } else {
+            return (Map<String, Object>) data;
+        }
+    }
+
+    private GatewayResponse createPGTransactionWithHttpInfo(final String endpoint, final String path, final Object body) throws ApiException {
+        final com.squareup.okhttp.Call call = createPGCall(path, "POST", body);
         final Type localVarReturnType = new TypeToken<GatewayResponse>() {}.getType();
-        final ApiResponse<GatewayResponse> resp = apiClient.execute(call, localVarReturnType);
+        final ApiResponse<GatewayResponse> resp;
+        final Object event = QualpayEvents.beginGatewayCall();
+        final long startNanos = System.nanoTime();
+        try {
+            resp = apiClient.execute(call, localVarReturnType);
+        } catch (final ApiException e) {
+            recordCall(endpoint, startNanos, event, QualpayGatewayMetrics.toCode(e), e.getResponseHeaders(), body, e.getResponseBody());
+            throw e;
+        }
+        recordCall(endpoint,
+                   startNanos,
+                   event,
+                   resp.getData() == null || resp.getData().getRcode() == null ? QualpayGatewayMetrics.CODE_OK : resp.getData().getRcode(),
+                   resp.getHeaders(),
+                   body,
+                   resp.getData());
         return resp.getData();
     }
 
-    private com.squareup.okhttp.Call createPGTransactionCall(final String path,
-                                                             final Object body) throws ApiException {
+    private void recordCall(final String endpoint,
+                            final long startNanos,
+                            @Nullable final Object event,
+                            final String code,
+                            @Nullable final Map<String, List<String>> responseHeaders,
+                            @Nullable final Object requestBody,
+                            @Nullable final Object responseBody) {
+        final long durationNanos = System.nanoTime() - startNanos;
+        if (metrics != null) {
+            metrics.recordCall(endpoint, kbTenantId, durationNanos, code);
+
+            // Approved (000) or no Qualpay code
+            final boolean failed = !QualpayGatewayMetrics.CODE_OK.equals(code) && !"000".equals(code);
+            final String reason = metrics.getCaptures().shouldCapture(durationNanos, failed);
+            if (reason != null) {
+                metrics.getCaptures().capture(reason, endpoint, kbTenantId, code, durationNanos, toJson(requestBody), toJson(responseBody));
+            }
+        }
+        if (event != null) {
+            QualpayEvents.commitGatewayCall(event, endpoint, kbTenantId, code, getContentLength(responseHeaders));
+        }
+    }
+
+    @Nullable
+    private String toJson(@Nullable final Object body) {
+        if (body == null || body instanceof String) {
+            return (String) body;
+        }
+        return apiClient.getJSON().serialize(body);
+    }
+
+    private static long getContentLength(@Nullable final Map<String, List<String>> responseHeaders) {
+        if (responseHeaders == null) {
+            return -1;
+        }
+        for (final Map.Entry<String, List<String>> entry : responseHeaders.entrySet()) {
+            if ("Content-Length".equalsIgnoreCase(entry.getKey()) && entry.getValue() != null && !entry.getValue().isEmpty()) {
+                try {
+                    return Long.parseLong(entry.getValue().get(0).trim());
+                } catch (final NumberFormatException e) {
+                    return -1;
+                }
+            }
+        }
+        return -1;
+    }
+
+    private com.squareup.okhttp.Call createPGCall(final String path,
+                                                  final String method,
+                                                  final Object body) throws ApiException {
         final List<Pair> localVarQueryParams = new ArrayList<Pair>();
         final List<Pair> localVarCollectionQueryParams = new ArrayList<Pair>();
 
@@ -103,7 +207,7 @@ public class PGApi {
 
         final String[] localVarAuthNames = {"basicAuth"};
         return apiClient.buildCall(path,
-                                   "POST",
+                                   method,
                                    localVarQueryParams,
                                    localVarCollectionQueryParams,
                                    body,
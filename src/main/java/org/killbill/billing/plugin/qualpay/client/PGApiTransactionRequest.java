@@ -45,6 +45,9 @@ public class PGApiTransactionRequest {
     @SerializedName("tran_currency")
     private String tranCurrency = null;
 
+    @SerializedName("merchant_ref_num")
+    private String merchantRefNum = null;
+
     @SerializedName("line_items")
     private List<PGApiLineItem> lineItems = null;
 
@@ -104,6 +107,14 @@ public class PGApiTransactionRequest {
         this.tranCurrency = tranCurrency;
     }
 
+    public String getMerchantRefNum() {
+        return merchantRefNum;
+    }
+
+    public void setMerchantRefNum(final String merchantRefNum) {
+        this.merchantRefNum = merchantRefNum;
+    }
+
     public List<PGApiLineItem> getLineItems() {
         return lineItems;
     }
@@ -122,6 +133,7 @@ public class PGApiTransactionRequest {
         sb.append(", cardId='").append(cardId).append('\'');
         sb.append(", avsZip='").append(avsZip).append('\'');
         sb.append(", tranCurrency='").append(tranCurrency).append('\'');
+        sb.append(", merchantRefNum='").append(merchantRefNum).append('\'');
         sb.append(", lineItems=").append(lineItems);
         sb.append('}');
         return sb.toString();
@@ -159,6 +171,9 @@ public class PGApiTransactionRequest {
         if (tranCurrency != null ? !tranCurrency.equals(that.tranCurrency) : that.tranCurrency != null) {
             return false;
         }
+        if (merchantRefNum != null ? !merchantRefNum.equals(that.merchantRefNum) : that.merchantRefNum != null) {
+            return false;
+        }
         return lineItems != null ? lineItems.equals(that.lineItems) : that.lineItems == null;
     }
 
@@ -171,6 +186,7 @@ public class PGApiTransactionRequest {
         result = 31 * result + (cardId != null ? cardId.hashCode() : 0);
         result = 31 * result + (avsZip != null ? avsZip.hashCode() : 0);
         result = 31 * result + (tranCurrency != null ? tranCurrency.hashCode() : 0);
+        result = 31 * result + (merchantRefNum != null ? merchantRefNum.hashCode() : 0);
         result = 31 * result + (lineItems != null ? lineItems.hashCode() : 0);
         return result;
     }
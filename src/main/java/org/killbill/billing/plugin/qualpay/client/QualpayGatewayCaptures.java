@@ -0,0 +1,195 @@
+/*
+ * Copyright 2014-2019 Groupon, Inc
+ * Copyright 2014-2019 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.plugin.qualpay.client;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.annotation.Nullable;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Ascii;
+
+// Last Qualpay calls which failed (error or unexpected code), were slow or were sampled, with their redacted bodies.
+// Recording is lock-free (a slot of a ring buffer is claimed with an atomic increment) and does no I/O: the bodies
+// are only serialized for the captured calls, the other ones cost a comparison and a random draw.
+public class QualpayGatewayCaptures {
+
+    public static final String REASON_FAILED = "failed";
+    public static final String REASON_SLOW = "slow";
+    public static final String REASON_SAMPLED = "sampled";
+
+    private static final int MAX_BODY_LENGTH = 4096;
+    // Card data: masked, except the last four digits of the card number
+    private static final Pattern SENSITIVE_FIELD = Pattern.compile("\"(card_number|cvv2|exp_date|track_data|card_swipe|card_pin|emv_tlv)\"(\\s*):(\\s*)\"([^\"]*)\"");
+
+    private final AtomicReferenceArray<Capture> captures;
+    private final int mask;
+    private final double sampleRate;
+    private final long slowThresholdNanos;
+    private final AtomicLong sequence = new AtomicLong();
+
+    public QualpayGatewayCaptures(final int capacity, final double sampleRate, final long slowThresholdMillis) {
+        // Power of two, so that the slot is a mask of the sequence
+        final int size = capacity <= 1 ? Math.max(0, capacity) : Integer.highestOneBit(capacity - 1) << 1;
+        this.captures = new AtomicReferenceArray<Capture>(size);
+        this.mask = size - 1;
+        this.sampleRate = sampleRate;
+        this.slowThresholdNanos = slowThresholdMillis <= 0 ? Long.MAX_VALUE : TimeUnit.MILLISECONDS.toNanos(slowThresholdMillis);
+    }
+
+    // Reason to capture the call, null if it shouldn't be
+    @Nullable
+    public String shouldCapture(final long durationNanos, final boolean failed) {
+        if (captures.length() == 0) {
+            return null;
+        } else if (failed) {
+            return REASON_FAILED;
+        } else if (durationNanos >= slowThresholdNanos) {
+            return REASON_SLOW;
+        } else if (sampleRate > 0 && ThreadLocalRandom.current().nextDouble() < sampleRate) {
+            return REASON_SAMPLED;
+        } else {
+            return null;
+        }
+    }
+
+    public void capture(final String reason,
+                        final String endpoint,
+                        @Nullable final UUID kbTenantId,
+                        final String code,
+                        final long durationNanos,
+                        @Nullable final String requestBody,
+                        @Nullable final String responseBody) {
+        if (captures.length() == 0) {
+            return;
+        }
+
+        final long id = sequence.getAndIncrement();
+        captures.set((int) (id & mask), new Capture(id,
+                                                    System.currentTimeMillis(),
+                                                    reason,
+                                                    endpoint,
+                                                    kbTenantId,
+                                                    code,
+                                                    durationNanos,
+                                                    redact(requestBody),
+                                                    redact(responseBody)));
+    }
+
+    // Most recent first
+    public List<Map<String, Object>> getCaptures(@Nullable final UUID kbTenantId, final int limit) {
+        final List<Capture> snapshot = new ArrayList<Capture>(captures.length());
+        for (int i = 0; i < captures.length(); i++) {
+            final Capture capture = captures.get(i);
+            if (capture != null && (kbTenantId == null || kbTenantId.equals(capture.kbTenantId))) {
+                snapshot.add(capture);
+            }
+        }
+        Collections.sort(snapshot, new Comparator<Capture>() {
+            @Override
+            public int compare(final Capture first, final Capture second) {
+                return Long.compare(second.id, first.id);
+            }
+        });
+
+        final List<Map<String, Object>> result = new ArrayList<Map<String, Object>>(Math.min(limit, snapshot.size()));
+        for (final Capture capture : snapshot.subList(0, Math.min(limit, snapshot.size()))) {
+            result.add(capture.toMap());
+        }
+        return result;
+    }
+
+    @VisibleForTesting
+    static String redact(@Nullable final String body) {
+        if (body == null) {
+            return null;
+        }
+
+        final Matcher matcher = SENSITIVE_FIELD.matcher(body);
+        final StringBuffer redacted = new StringBuffer(body.length());
+        while (matcher.find()) {
+            final String value = matcher.group(4);
+            final String mask = "card_number".equals(matcher.group(1)) && value.length() > 4 ? "xxxx" + value.substring(value.length() - 4) : "xxxx";
+            matcher.appendReplacement(redacted, Matcher.quoteReplacement("\"" + matcher.group(1) + "\"" + matcher.group(2) + ":" + matcher.group(3) + "\"" + mask + "\""));
+        }
+        matcher.appendTail(redacted);
+        return Ascii.truncate(redacted, MAX_BODY_LENGTH, "...");
+    }
+
+    private static final class Capture {
+
+        private final long id;
+        private final long timestampMillis;
+        private final String reason;
+        private final String endpoint;
+        private final UUID kbTenantId;
+        private final String code;
+        private final long durationNanos;
+        private final String requestBody;
+        private final String responseBody;
+
+        private Capture(final long id,
+                        final long timestampMillis,
+                        final String reason,
+                        final String endpoint,
+                        @Nullable final UUID kbTenantId,
+                        final String code,
+                        final long durationNanos,
+                        @Nullable final String requestBody,
+                        @Nullable final String responseBody) {
+            this.id = id;
+            this.timestampMillis = timestampMillis;
+            this.reason = reason;
+            this.endpoint = endpoint;
+            this.kbTenantId = kbTenantId;
+            this.code = code;
+            this.durationNanos = durationNanos;
+            this.requestBody = requestBody;
+            this.responseBody = responseBody;
+        }
+
+        private Map<String, Object> toMap() {
+            final Map<String, Object> map = new LinkedHashMap<String, Object>();
+            map.put("id", id);
+            map.put("date", new DateTime(timestampMillis, DateTimeZone.UTC).toString());
+            map.put("reason", reason);
+            map.put("endpoint", endpoint);
+            map.put("kbTenantId", kbTenantId == null ? null : kbTenantId.toString());
+            map.put("code", code);
+            map.put("durationMillis", durationNanos / 1000000.0);
+            map.put("request", requestBody);
+            map.put("response", responseBody);
+            return map;
+        }
+    }
+}
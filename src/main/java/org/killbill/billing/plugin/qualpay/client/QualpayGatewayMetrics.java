@@ -0,0 +1,236 @@
+/*
+ * Copyright 2014-2019 Groupon, Inc
+ * Copyright 2014-2019 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.plugin.qualpay.client;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.annotation.Nullable;
+
+import org.killbill.billing.plugin.qualpay.jfr.QualpayEvents;
+
+import qpPlatform.ApiException;
+
+// Latency histograms and response code counters of the Qualpay API calls, per endpoint, and phase breakdown of the
+// payment operations. Series aren't labelled by tenant: /metrics is scraped without Kill Bill credentials.
+// Recording is lock-free and allocation-free once a series exists (fixed buckets, LongAdder, nested maps instead of
+// composite keys), so it stays on in production.
+public class QualpayGatewayMetrics {
+
+    public static final String CODE_OK = "ok";
+
+    // Prometheus histogram buckets, in seconds (from database round trips to gateway timeouts)
+    private static final double[] LATENCY_BUCKETS_SECONDS = {0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.075, 0.1, 0.15, 0.2, 0.3, 0.4, 0.5, 0.75, 1, 1.5, 2, 3, 5, 10, 30, 60};
+    private static final long[] LATENCY_BUCKETS_NANOS = new long[LATENCY_BUCKETS_SECONDS.length];
+
+    static {
+        for (int i = 0; i < LATENCY_BUCKETS_SECONDS.length; i++) {
+            LATENCY_BUCKETS_NANOS[i] = (long) (LATENCY_BUCKETS_SECONDS[i] * TimeUnit.SECONDS.toNanos(1));
+        }
+    }
+
+    // endpoint -> histogram
+    private final ConcurrentMap<String, LatencyHistogram> latencies = new ConcurrentHashMap<String, LatencyHistogram>();
+    // endpoint -> code -> counter
+    private final ConcurrentMap<String, ConcurrentMap<String, LongAdder>> responseCodes = new ConcurrentHashMap<String, ConcurrentMap<String, LongAdder>>();
+    // transaction type -> status -> counter
+    private final ConcurrentMap<String, ConcurrentMap<String, LongAdder>> transactionStatuses = new ConcurrentHashMap<String, ConcurrentMap<String, LongAdder>>();
+    // operation -> phase -> histogram
+    private final ConcurrentMap<String, ConcurrentMap<String, LatencyHistogram>> operationPhases = new ConcurrentHashMap<String, ConcurrentMap<String, LatencyHistogram>>();
+    // For the health checker only
+    private final Set<UUID> tenants = ConcurrentHashMap.<UUID>newKeySet();
+
+    // Disabled until configured
+    private volatile QualpayGatewayCaptures captures = new QualpayGatewayCaptures(0, 0, 0);
+
+    public interface GatewayCall<T> {
+
+        T call() throws ApiException;
+    }
+
+    // For the calls without a Qualpay response code (e.g. Vault): ok or http_<status>
+    public <T> T record(final String endpoint, @Nullable final UUID kbTenantId, final GatewayCall<T> call) throws ApiException {
+        final Object event = QualpayEvents.beginGatewayCall();
+        final long startNanos = System.nanoTime();
+        try {
+            final T result = call.call();
+            final long durationNanos = System.nanoTime() - startNanos;
+            recordCall(endpoint, kbTenantId, durationNanos, CODE_OK);
+            QualpayEvents.commitGatewayCall(event, endpoint, kbTenantId, CODE_OK, -1);
+            // Bodies aren't available here: timings only
+            final String reason = captures.shouldCapture(durationNanos, false);
+            if (reason != null) {
+                captures.capture(reason, endpoint, kbTenantId, CODE_OK, durationNanos, null, null);
+            }
+            return result;
+        } catch (final ApiException e) {
+            final long durationNanos = System.nanoTime() - startNanos;
+            recordCall(endpoint, kbTenantId, durationNanos, toCode(e));
+            QualpayEvents.commitGatewayCall(event, endpoint, kbTenantId, toCode(e), -1);
+            if (captures.shouldCapture(durationNanos, true) != null) {
+                captures.capture(QualpayGatewayCaptures.REASON_FAILED, endpoint, kbTenantId, toCode(e), durationNanos, null, e.getResponseBody());
+            }
+            throw e;
+        }
+    }
+
+    public void recordCall(final String endpoint, @Nullable final UUID kbTenantId, final long durationNanos, final String code) {
+        if (kbTenantId != null && !tenants.contains(kbTenantId)) {
+            tenants.add(kbTenantId);
+        }
+        getHistogram(latencies, endpoint).record(durationNanos);
+        getCounter(getSeries(responseCodes, endpoint), code).increment();
+    }
+
+    // Time spent in each phase (kb_api, dao_read, gateway, dao_write, total) of the payment operations
+    public void recordOperationPhase(final String operation, final String phase, final long durationNanos) {
+        getHistogram(getSeries(operationPhases, operation), phase).record(durationNanos);
+    }
+
+    public void recordTransaction(final String transactionType, final String paymentPluginStatus) {
+        getCounter(getSeries(transactionStatuses, transactionType), paymentPluginStatus).increment();
+    }
+
+    public QualpayGatewayCaptures getCaptures() {
+        return captures;
+    }
+
+    public void setCaptures(final QualpayGatewayCaptures captures) {
+        this.captures = captures;
+    }
+
+    // Tenants which called Qualpay since startup
+    public Set<UUID> getTenants() {
+        return new HashSet<UUID>(tenants);
+    }
+
+    public static String toCode(final ApiException e) {
+        // 0 for network errors (timeouts, connection refused, ...)
+        return "http_" + e.getCode();
+    }
+
+    // Prometheus text exposition format (version 0.0.4)
+    public void writePrometheus(final Writer writer) throws IOException {
+        writer.write("# HELP qualpay_gateway_request_duration_seconds Latency of the Qualpay API calls\n");
+        writer.write("# TYPE qualpay_gateway_request_duration_seconds histogram\n");
+        for (final Map.Entry<String, LatencyHistogram> entry : latencies.entrySet()) {
+            writeHistogram(writer, "qualpay_gateway_request_duration_seconds", "endpoint=\"" + entry.getKey() + "\"", entry.getValue());
+        }
+
+        writer.write("# HELP qualpay_operation_duration_seconds Time spent in each phase of the payment operations\n");
+        writer.write("# TYPE qualpay_operation_duration_seconds histogram\n");
+        for (final Map.Entry<String, ConcurrentMap<String, LatencyHistogram>> operation : operationPhases.entrySet()) {
+            for (final Map.Entry<String, LatencyHistogram> entry : operation.getValue().entrySet()) {
+                writeHistogram(writer, "qualpay_operation_duration_seconds", "operation=\"" + operation.getKey() + "\",phase=\"" + entry.getKey() + "\"", entry.getValue());
+            }
+        }
+
+        writer.write("# HELP qualpay_gateway_responses_total Qualpay API responses, by Qualpay response code (rcode) or HTTP status\n");
+        writer.write("# TYPE qualpay_gateway_responses_total counter\n");
+        for (final Map.Entry<String, ConcurrentMap<String, LongAdder>> endpoint : responseCodes.entrySet()) {
+            for (final Map.Entry<String, LongAdder> entry : endpoint.getValue().entrySet()) {
+                writer.write("qualpay_gateway_responses_total{endpoint=\"" + endpoint.getKey() + "\",code=\"" + escape(entry.getKey()) + "\"} " + entry.getValue().sum() + "\n");
+            }
+        }
+
+        writer.write("# HELP qualpay_transactions_total Payment transactions, by Kill Bill payment plugin status\n");
+        writer.write("# TYPE qualpay_transactions_total counter\n");
+        for (final Map.Entry<String, ConcurrentMap<String, LongAdder>> transactionType : transactionStatuses.entrySet()) {
+            for (final Map.Entry<String, LongAdder> entry : transactionType.getValue().entrySet()) {
+                writer.write("qualpay_transactions_total{transaction_type=\"" + transactionType.getKey() + "\",status=\"" + entry.getKey() + "\"} " + entry.getValue().sum() + "\n");
+            }
+        }
+    }
+
+    private static void writeHistogram(final Writer writer, final String name, final String labels, final LatencyHistogram histogram) throws IOException {
+        // Read the count first: buckets may be slightly ahead of it, never behind
+        final long count = histogram.count.sum();
+        long cumulativeCount = 0;
+        for (int i = 0; i < LATENCY_BUCKETS_SECONDS.length; i++) {
+            cumulativeCount += histogram.buckets[i].sum();
+            writer.write(name + "_bucket{" + labels + ",le=\"" + LATENCY_BUCKETS_SECONDS[i] + "\"} " + Math.min(cumulativeCount, count) + "\n");
+        }
+        writer.write(name + "_bucket{" + labels + ",le=\"+Inf\"} " + count + "\n");
+        writer.write(name + "_sum{" + labels + "} " + (double) histogram.sumNanos.sum() / TimeUnit.SECONDS.toNanos(1) + "\n");
+        writer.write(name + "_count{" + labels + "} " + count + "\n");
+    }
+
+    private static <T> ConcurrentMap<String, T> getSeries(final ConcurrentMap<String, ConcurrentMap<String, T>> series, final String key) {
+        ConcurrentMap<String, T> values = series.get(key);
+        if (values == null) {
+            series.putIfAbsent(key, new ConcurrentHashMap<String, T>());
+            values = series.get(key);
+        }
+        return values;
+    }
+
+    private static LatencyHistogram getHistogram(final ConcurrentMap<String, LatencyHistogram> histograms, final String key) {
+        LatencyHistogram histogram = histograms.get(key);
+        if (histogram == null) {
+            histograms.putIfAbsent(key, new LatencyHistogram());
+            histogram = histograms.get(key);
+        }
+        return histogram;
+    }
+
+    private static LongAdder getCounter(final ConcurrentMap<String, LongAdder> counters, final String key) {
+        LongAdder counter = counters.get(key);
+        if (counter == null) {
+            counters.putIfAbsent(key, new LongAdder());
+            counter = counters.get(key);
+        }
+        return counter;
+    }
+
+    private static String escape(final String labelValue) {
+        return labelValue.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    private static final class LatencyHistogram {
+
+        // Non-cumulative: buckets[i] counts the calls in (bound[i-1], bound[i]]
+        private final LongAdder[] buckets = new LongAdder[LATENCY_BUCKETS_NANOS.length];
+        private final LongAdder count = new LongAdder();
+        private final LongAdder sumNanos = new LongAdder();
+
+        private LatencyHistogram() {
+            for (int i = 0; i < buckets.length; i++) {
+                buckets[i] = new LongAdder();
+            }
+        }
+
+        private void record(final long durationNanos) {
+            final int index = Arrays.binarySearch(LATENCY_BUCKETS_NANOS, durationNanos);
+            final int bucket = index >= 0 ? index : -index - 1;
+            if (bucket < buckets.length) {
+                buckets[bucket].increment();
+            }
+            sumNanos.add(durationNanos);
+            count.increment();
+        }
+    }
+}
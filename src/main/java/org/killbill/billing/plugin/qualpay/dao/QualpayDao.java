@@ -18,42 +18,262 @@
 package org.killbill.billing.plugin.qualpay.dao;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.sql.Connection;
+import java.sql.DatabaseMetaData;
 import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.TreeMap;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
 
 import javax.annotation.Nullable;
 import javax.sql.DataSource;
 
 import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.jooq.Condition;
+import org.jooq.Configuration;
+import org.jooq.Cursor;
+import org.jooq.DSLContext;
+import org.jooq.InsertValuesStep11;
+import org.jooq.InsertValuesStep9;
+import org.jooq.Query;
+import org.jooq.Record;
+import org.jooq.Record2;
+import org.jooq.SQLDialect;
+import org.jooq.Select;
+import org.jooq.SelectForUpdateWaitStep;
+import org.jooq.Table;
+import org.jooq.TableField;
+import org.jooq.TransactionalCallable;
+import org.jooq.exception.DataAccessException;
 import org.jooq.impl.DSL;
+import org.jooq.types.ULong;
 import org.killbill.billing.catalog.api.Currency;
 import org.killbill.billing.payment.api.PluginProperty;
 import org.killbill.billing.payment.api.TransactionType;
+import org.killbill.billing.payment.plugin.api.PaymentPluginStatus;
 import org.killbill.billing.plugin.api.PluginProperties;
 import org.killbill.billing.plugin.dao.payment.PluginPaymentDao;
+import org.killbill.billing.plugin.qualpay.QualpayPaymentTransactionInfoPlugin;
 import org.killbill.billing.plugin.qualpay.QualpayPluginProperties;
+import org.killbill.billing.plugin.qualpay.dao.gen.tables.QualpayNotifications;
 import org.killbill.billing.plugin.qualpay.dao.gen.tables.QualpayPaymentMethods;
 import org.killbill.billing.plugin.qualpay.dao.gen.tables.QualpayResponses;
+import org.killbill.billing.plugin.qualpay.dao.gen.tables.records.QualpayAccountsRecord;
+import org.killbill.billing.plugin.qualpay.dao.gen.tables.records.QualpayNotificationsRecord;
 import org.killbill.billing.plugin.qualpay.dao.gen.tables.records.QualpayPaymentMethodsRecord;
+import org.killbill.billing.plugin.qualpay.dao.gen.tables.records.QualpayReconciliationItemsRecord;
+import org.killbill.billing.plugin.qualpay.dao.gen.tables.records.QualpayReconciliationsRecord;
 import org.killbill.billing.plugin.qualpay.dao.gen.tables.records.QualpayResponsesRecord;
+import org.killbill.billing.plugin.qualpay.dao.gen.tables.records.QualpaySyncCheckpointsRecord;
+import org.killbill.billing.plugin.qualpay.jfr.QualpayEvents;
 
 import com.fasterxml.jackson.annotation.JsonInclude.Include;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Ascii;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.hash.Hashing;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
 import io.swagger.client.model.GatewayResponse;
 
+import static org.killbill.billing.plugin.qualpay.dao.gen.Tables.QUALPAY_ACCOUNTS;
+import static org.killbill.billing.plugin.qualpay.dao.gen.Tables.QUALPAY_NOTIFICATIONS;
 import static org.killbill.billing.plugin.qualpay.dao.gen.Tables.QUALPAY_PAYMENT_METHODS;
+import static org.killbill.billing.plugin.qualpay.dao.gen.Tables.QUALPAY_RECONCILIATIONS;
+import static org.killbill.billing.plugin.qualpay.dao.gen.Tables.QUALPAY_RECONCILIATION_ITEMS;
 import static org.killbill.billing.plugin.qualpay.dao.gen.Tables.QUALPAY_RESPONSES;
+import static org.killbill.billing.plugin.qualpay.dao.gen.Tables.QUALPAY_SYNC_CHECKPOINTS;
 
 public class QualpayDao extends PluginPaymentDao<QualpayResponsesRecord, QualpayResponses, QualpayPaymentMethodsRecord, QualpayPaymentMethods> {
 
+    public static final String NOTIFICATION_STATUS_PENDING = "PENDING";
+    public static final String NOTIFICATION_STATUS_PROCESSING = "PROCESSING";
+    public static final String NOTIFICATION_STATUS_PROCESSED = "PROCESSED";
+    // Poison messages, not retried anymore
+    public static final String NOTIFICATION_STATUS_PARKED = "PARKED";
+
+    public static final String RECONCILIATION_STATUS_RUNNING = "RUNNING";
+    public static final String RECONCILIATION_STATUS_COMPLETED = "COMPLETED";
+    public static final String RECONCILIATION_STATUS_FAILED = "FAILED";
+
+    private static final long RECENT_WRITES_MAX_SIZE = 100000;
+    private static final int CARD_TYPE_MAX_LENGTH = 32;
+    private static final int EXPORT_FETCH_SIZE = 1000;
+    private static final int LAST_ERROR_MAX_LENGTH = 1024;
+    private static final Pattern FOUR_DIGITS = Pattern.compile("\\d{4}");
+    private static final Pattern UUID_PATTERN = Pattern.compile("[0-9a-fA-F]{8}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{12}");
+
+    // Optional DAO on a read replica, for read-only queries
+    private final QualpayDao readOnlyDao;
+    // Ids (account, payment method, payment) recently written by this node, which the replica may not have yet
+    private final Cache<UUID, Boolean> recentWrites;
+
+    private volatile QualpayResponsesGroupCommitWriter groupCommitWriter;
+
     public QualpayDao(final DataSource dataSource) throws SQLException {
+        this(dataSource, null, 0);
+    }
+
+    public QualpayDao(final DataSource dataSource,
+                      @Nullable final DataSource readOnlyDataSource,
+                      final long lagGuardMillis) throws SQLException {
         super(QUALPAY_RESPONSES, QUALPAY_PAYMENT_METHODS, dataSource);
         // Save space in the database
         objectMapper.setSerializationInclusion(Include.NON_EMPTY);
+
+        this.readOnlyDao = readOnlyDataSource == null ? null : new QualpayDao(readOnlyDataSource);
+        this.recentWrites = CacheBuilder.newBuilder()
+                                        .expireAfterWrite(Math.max(0, lagGuardMillis), TimeUnit.MILLISECONDS)
+                                        .maximumSize(RECENT_WRITES_MAX_SIZE)
+                                        .<UUID, Boolean>build();
+    }
+
+    // Read replica routing
+
+    // Reads of these ids go to the primary until the replica lag guard expires
+    public void markWritten(final UUID... ids) {
+        if (readOnlyDao == null) {
+            return;
+        }
+        for (final UUID id : ids) {
+            if (id != null) {
+                recentWrites.put(id, Boolean.TRUE);
+            }
+        }
+    }
+
+    private boolean shouldReadFromReplica(final UUID id) {
+        if (readOnlyDao == null) {
+            return false;
+        }
+        final boolean recentlyWritten = recentWrites.getIfPresent(id) != null;
+        QualpayEvents.cacheLookup(QualpayEvents.CACHE_RECENT_WRITES, recentlyWritten);
+        return !recentlyWritten;
+    }
+
+    public boolean hasReadReplica() {
+        return readOnlyDao != null;
+    }
+
+    // Health checks
+
+    // Round trip to the primary database
+    public void ping() throws SQLException {
+        execute(dataSource.getConnection(),
+                new WithConnectionCallback<Void>() {
+                    @Override
+                    public Void withConnection(final Connection conn) throws SQLException {
+                        DSL.using(conn, dialect, settings).selectOne().fetch();
+                        return null;
+                    }
+                });
+    }
+
+    public void pingReadReplica() throws SQLException {
+        if (readOnlyDao != null) {
+            readOnlyDao.ping();
+        }
+    }
+
+    // Active, max and waiting connections of the primary and read replica pools (HikariCP pools only)
+    public Map<String, Map<String, Integer>> getPoolsUsage() {
+        final Map<String, Map<String, Integer>> poolsUsage = new LinkedHashMap<String, Map<String, Integer>>();
+        addPoolUsage(poolsUsage, "database", dataSource);
+        if (readOnlyDao != null) {
+            addPoolUsage(poolsUsage, "readReplica", readOnlyDao.dataSource);
+        }
+        return poolsUsage;
+    }
+
+    private static void addPoolUsage(final Map<String, Map<String, Integer>> poolsUsage, final String name, final DataSource pool) {
+        final HikariDataSource hikariDataSource;
+        try {
+            if (!pool.isWrapperFor(HikariDataSource.class)) {
+                return;
+            }
+            hikariDataSource = pool.unwrap(HikariDataSource.class);
+        } catch (final SQLException e) {
+            return;
+        }
+
+        final HikariPoolMXBean poolMXBean = hikariDataSource.getHikariPoolMXBean();
+        if (poolMXBean == null) {
+            // Not started yet
+            return;
+        }
+        poolsUsage.put(name, ImmutableMap.<String, Integer>of("active", poolMXBean.getActiveConnections(),
+                                                              "max", hikariDataSource.getMaximumPoolSize(),
+                                                              "waiting", poolMXBean.getThreadsAwaitingConnection()));
+    }
+
+    // Every query goes through here: record it in Flight Recorder, when enabled
+    @Override
+    protected <T> T execute(final Connection conn, final WithConnectionCallback<T> callback) throws SQLException {
+        final Object event = QualpayEvents.beginDaoOperation();
+        if (event == null) {
+            return super.execute(conn, callback);
+        }
+
+        boolean failed = true;
+        T result = null;
+        try {
+            result = super.execute(conn, callback);
+            failed = false;
+            return result;
+        } finally {
+            QualpayEvents.commitDaoOperation(event, result, failed);
+        }
+    }
+
+    @Override
+    public QualpayPaymentMethodsRecord getPaymentMethod(final UUID kbPaymentMethodId, final UUID kbTenantId) throws SQLException {
+        if (shouldReadFromReplica(kbPaymentMethodId)) {
+            return readOnlyDao.getPaymentMethod(kbPaymentMethodId, kbTenantId);
+        } else {
+            return super.getPaymentMethod(kbPaymentMethodId, kbTenantId);
+        }
+    }
+
+    public QualpayPaymentMethodsRecord getPaymentMethodFromPrimary(final UUID kbPaymentMethodId, final UUID kbTenantId) throws SQLException {
+        return super.getPaymentMethod(kbPaymentMethodId, kbTenantId);
+    }
+
+    @Override
+    public List<QualpayPaymentMethodsRecord> getPaymentMethods(final UUID kbAccountId, final UUID kbTenantId) throws SQLException {
+        if (shouldReadFromReplica(kbAccountId)) {
+            return readOnlyDao.getPaymentMethods(kbAccountId, kbTenantId);
+        } else {
+            return super.getPaymentMethods(kbAccountId, kbTenantId);
+        }
+    }
+
+    public List<QualpayPaymentMethodsRecord> getPaymentMethodsFromPrimary(final UUID kbAccountId, final UUID kbTenantId) throws SQLException {
+        return super.getPaymentMethods(kbAccountId, kbTenantId);
+    }
+
+    @Override
+    public List<QualpayResponsesRecord> getResponses(final UUID kbPaymentId, final UUID kbTenantId) throws SQLException {
+        if (shouldReadFromReplica(kbPaymentId)) {
+            return readOnlyDao.getResponses(kbPaymentId, kbTenantId);
+        } else {
+            return super.getResponses(kbPaymentId, kbTenantId);
+        }
     }
 
     // Payment methods
@@ -74,7 +294,11 @@ public class QualpayDao extends PluginPaymentDao<QualpayResponsesRecord, Qualpay
                                        QUALPAY_PAYMENT_METHODS.KB_PAYMENT_METHOD_ID,
                                        QUALPAY_PAYMENT_METHODS.QUALPAY_ID,
                                        QUALPAY_PAYMENT_METHODS.IS_DELETED,
+                                       QUALPAY_PAYMENT_METHODS.CARD_LAST_FOUR,
+                                       QUALPAY_PAYMENT_METHODS.CARD_TYPE,
+                                       QUALPAY_PAYMENT_METHODS.CARD_EXP_DATE,
                                        QUALPAY_PAYMENT_METHODS.ADDITIONAL_DATA,
+                                       QUALPAY_PAYMENT_METHODS.CONTENT_HASH,
                                        QUALPAY_PAYMENT_METHODS.CREATED_DATE,
                                        QUALPAY_PAYMENT_METHODS.UPDATED_DATE,
                                        QUALPAY_PAYMENT_METHODS.KB_TENANT_ID)
@@ -82,7 +306,11 @@ public class QualpayDao extends PluginPaymentDao<QualpayResponsesRecord, Qualpay
                                    kbPaymentMethodId.toString(),
                                    qualpayId,
                                    (short) FALSE,
+                                   toCardLastFour(additionalDataMap),
+                                   toCardType(additionalDataMap),
+                                   toCardExpDate(additionalDataMap),
                                    asString(additionalDataMap),
+                                   contentHash(additionalDataMap),
                                    toTimestamp(utcNow),
                                    toTimestamp(utcNow),
                                    kbTenantId.toString())
@@ -91,6 +319,7 @@ public class QualpayDao extends PluginPaymentDao<QualpayResponsesRecord, Qualpay
                         return null;
                     }
                 });
+        markWritten(kbAccountId, kbPaymentMethodId);
     }
 
     public void updatePaymentMethod(final UUID kbPaymentMethodId,
@@ -104,7 +333,11 @@ public class QualpayDao extends PluginPaymentDao<QualpayResponsesRecord, Qualpay
                     public QualpayResponsesRecord withConnection(final Connection conn) throws SQLException {
                         DSL.using(conn, dialect, settings)
                            .update(QUALPAY_PAYMENT_METHODS)
+                           .set(QUALPAY_PAYMENT_METHODS.CARD_LAST_FOUR, toCardLastFour(additionalDataMap))
+                           .set(QUALPAY_PAYMENT_METHODS.CARD_TYPE, toCardType(additionalDataMap))
+                           .set(QUALPAY_PAYMENT_METHODS.CARD_EXP_DATE, toCardExpDate(additionalDataMap))
                            .set(QUALPAY_PAYMENT_METHODS.ADDITIONAL_DATA, asString(additionalDataMap))
+                           .set(QUALPAY_PAYMENT_METHODS.CONTENT_HASH, contentHash(additionalDataMap))
                            .set(QUALPAY_PAYMENT_METHODS.UPDATED_DATE, toTimestamp(utcNow))
                            .where(QUALPAY_PAYMENT_METHODS.KB_PAYMENT_METHOD_ID.equal(kbPaymentMethodId.toString()))
                            .and(QUALPAY_PAYMENT_METHODS.QUALPAY_ID.equal(qualpayId))
@@ -113,6 +346,93 @@ public class QualpayDao extends PluginPaymentDao<QualpayResponsesRecord, Qualpay
                         return null;
                     }
                 });
+        markWritten(kbPaymentMethodId);
+    }
+
+    // Apply all updates in a single transaction (one batched round trip)
+    public void updatePaymentMethods(final Map<UUID, Map<String, Object>> additionalDataByKbPaymentMethodId,
+                                     final DateTime utcNow,
+                                     final UUID kbTenantId) throws SQLException {
+        if (additionalDataByKbPaymentMethodId.isEmpty()) {
+            return;
+        }
+
+        execute(dataSource.getConnection(),
+                new WithConnectionCallback<Void>() {
+                    @Override
+                    public Void withConnection(final Connection conn) throws SQLException {
+                        return DSL.using(conn, dialect, settings)
+                                  .transactionResult(new TransactionalCallable<Void>() {
+                                      @Override
+                                      public Void run(final Configuration configuration) throws Exception {
+                                          final DSLContext ctx = DSL.using(configuration);
+                                          final Collection<Query> updates = new ArrayList<Query>(additionalDataByKbPaymentMethodId.size());
+                                          for (final Map.Entry<UUID, Map<String, Object>> entry : additionalDataByKbPaymentMethodId.entrySet()) {
+                                              final Map<String, Object> additionalDataMap = entry.getValue();
+                                              updates.add(ctx.update(QUALPAY_PAYMENT_METHODS)
+                                                             .set(QUALPAY_PAYMENT_METHODS.CARD_LAST_FOUR, toCardLastFour(additionalDataMap))
+                                                             .set(QUALPAY_PAYMENT_METHODS.CARD_TYPE, toCardType(additionalDataMap))
+                                                             .set(QUALPAY_PAYMENT_METHODS.CARD_EXP_DATE, toCardExpDate(additionalDataMap))
+                                                             .set(QUALPAY_PAYMENT_METHODS.ADDITIONAL_DATA, asString(additionalDataMap))
+                                                             .set(QUALPAY_PAYMENT_METHODS.CONTENT_HASH, contentHash(additionalDataMap))
+                                                             .set(QUALPAY_PAYMENT_METHODS.UPDATED_DATE, toTimestamp(utcNow))
+                                                             .where(QUALPAY_PAYMENT_METHODS.KB_PAYMENT_METHOD_ID.equal(entry.getKey().toString()))
+                                                             .and(QUALPAY_PAYMENT_METHODS.KB_TENANT_ID.equal(kbTenantId.toString())));
+                                          }
+                                          ctx.batch(updates).execute();
+                                          return null;
+                                      }
+                                  });
+                    }
+                });
+        for (final UUID kbPaymentMethodId : additionalDataByKbPaymentMethodId.keySet()) {
+            markWritten(kbPaymentMethodId);
+        }
+    }
+
+    // Soft-delete all specified payment methods with a single statement, returns the number of deactivated rows
+    public int deletePaymentMethods(final Collection<UUID> kbPaymentMethodIds, final DateTime utcNow, final UUID kbTenantId) throws SQLException {
+        if (kbPaymentMethodIds.isEmpty()) {
+            return 0;
+        }
+
+        final List<String> kbPaymentMethodIdStrings = new ArrayList<String>(kbPaymentMethodIds.size());
+        for (final UUID kbPaymentMethodId : kbPaymentMethodIds) {
+            kbPaymentMethodIdStrings.add(kbPaymentMethodId.toString());
+        }
+
+        final int nbDeleted = execute(dataSource.getConnection(),
+                                      new WithConnectionCallback<Integer>() {
+                                          @Override
+                                          public Integer withConnection(final Connection conn) throws SQLException {
+                                              return DSL.using(conn, dialect, settings)
+                                                        .update(QUALPAY_PAYMENT_METHODS)
+                                                        .set(QUALPAY_PAYMENT_METHODS.IS_DELETED, (short) TRUE)
+                                                        .set(QUALPAY_PAYMENT_METHODS.UPDATED_DATE, toTimestamp(utcNow))
+                                                        .where(QUALPAY_PAYMENT_METHODS.KB_PAYMENT_METHOD_ID.in(kbPaymentMethodIdStrings))
+                                                        .and(QUALPAY_PAYMENT_METHODS.KB_TENANT_ID.equal(kbTenantId.toString()))
+                                                        .and(QUALPAY_PAYMENT_METHODS.IS_DELETED.equal((short) FALSE))
+                                                        .execute();
+                                          }
+                                      });
+        markWritten(kbPaymentMethodIds.toArray(new UUID[kbPaymentMethodIds.size()]));
+        return nbDeleted;
+    }
+
+    // SHA-256 of the canonical (sorted keys, without null values) JSON form, to detect changes without comparing additional_data
+    public static String contentHash(final Map<String, Object> additionalDataMap) {
+        final Map<String, Object> canonicalMap = new TreeMap<String, Object>();
+        for (final Map.Entry<String, Object> entry : additionalDataMap.entrySet()) {
+            if (entry.getValue() != null) {
+                canonicalMap.put(entry.getKey(), entry.getValue());
+            }
+        }
+        try {
+            final String canonicalForm = objectMapper.writeValueAsString(canonicalMap);
+            return Hashing.sha256().hashString(canonicalForm, StandardCharsets.UTF_8).toString();
+        } catch (final IOException e) {
+            throw new RuntimeException(e);
+        }
     }
 
     // Responses
@@ -128,38 +448,91 @@ public class QualpayDao extends PluginPaymentDao<QualpayResponsesRecord, Qualpay
                                               final UUID kbTenantId) throws SQLException {
         final Map<String, Object> additionalDataMap = QualpayPluginProperties.toAdditionalDataMap(gatewayResponse);
 
+        final QualpayResponsesRecord response = new QualpayResponsesRecord();
+        response.setKbAccountId(kbAccountId.toString());
+        response.setKbPaymentId(kbPaymentId.toString());
+        response.setKbPaymentTransactionId(kbPaymentTransactionId.toString());
+        response.setTransactionType(transactionType.toString());
+        response.setAmount(amount);
+        response.setCurrency(currency == null ? null : currency.name());
+        response.setQualpayId(gatewayResponse.getPgId());
+        response.setAdditionalData(asString(additionalDataMap));
+        response.setPluginStatus(QualpayPaymentTransactionInfoPlugin.getPaymentPluginStatus(additionalDataMap).toString());
+        response.setCreatedDate(toTimestamp(utcNow));
+        response.setKbTenantId(kbTenantId.toString());
+
+        markWritten(kbPaymentId);
+        final QualpayResponsesGroupCommitWriter writer = groupCommitWriter;
+        if (writer != null) {
+            return writer.addResponse(response);
+        } else {
+            return addResponses(ImmutableList.<QualpayResponsesRecord>of(response)).get(0);
+        }
+    }
+
+    // Insert all responses with a single statement, the returned records are in the same order as the input
+    public List<QualpayResponsesRecord> addResponses(final List<QualpayResponsesRecord> responses) throws SQLException {
+        if (responses.isEmpty()) {
+            return ImmutableList.<QualpayResponsesRecord>of();
+        }
+
         return execute(dataSource.getConnection(),
-                       new WithConnectionCallback<QualpayResponsesRecord>() {
+                       new WithConnectionCallback<List<QualpayResponsesRecord>>() {
                            @Override
-                           public QualpayResponsesRecord withConnection(final Connection conn) throws SQLException {
-                               return DSL.using(conn, dialect, settings)
-                                         .insertInto(QUALPAY_RESPONSES,
-                                                     QUALPAY_RESPONSES.KB_ACCOUNT_ID,
-                                                     QUALPAY_RESPONSES.KB_PAYMENT_ID,
-                                                     QUALPAY_RESPONSES.KB_PAYMENT_TRANSACTION_ID,
-                                                     QUALPAY_RESPONSES.TRANSACTION_TYPE,
-                                                     QUALPAY_RESPONSES.AMOUNT,
-                                                     QUALPAY_RESPONSES.CURRENCY,
-                                                     QUALPAY_RESPONSES.QUALPAY_ID,
-                                                     QUALPAY_RESPONSES.ADDITIONAL_DATA,
-                                                     QUALPAY_RESPONSES.CREATED_DATE,
-                                                     QUALPAY_RESPONSES.KB_TENANT_ID)
-                                         .values(kbAccountId.toString(),
-                                                 kbPaymentId.toString(),
-                                                 kbPaymentTransactionId.toString(),
-                                                 transactionType.toString(),
-                                                 amount,
-                                                 currency == null ? null : currency.name(),
-                                                 gatewayResponse.getPgId(),
-                                                 asString(additionalDataMap),
-                                                 toTimestamp(utcNow),
-                                                 kbTenantId.toString())
-                                         .returning()
-                                         .fetchOne();
+                           public List<QualpayResponsesRecord> withConnection(final Connection conn) throws SQLException {
+                               InsertValuesStep11<QualpayResponsesRecord, String, String, String, String, BigDecimal, String, String, String, String, Timestamp, String> insert;
+                               insert = DSL.using(conn, dialect, settings)
+                                           .insertInto(QUALPAY_RESPONSES,
+                                                       QUALPAY_RESPONSES.KB_ACCOUNT_ID,
+                                                       QUALPAY_RESPONSES.KB_PAYMENT_ID,
+                                                       QUALPAY_RESPONSES.KB_PAYMENT_TRANSACTION_ID,
+                                                       QUALPAY_RESPONSES.TRANSACTION_TYPE,
+                                                       QUALPAY_RESPONSES.AMOUNT,
+                                                       QUALPAY_RESPONSES.CURRENCY,
+                                                       QUALPAY_RESPONSES.QUALPAY_ID,
+                                                       QUALPAY_RESPONSES.ADDITIONAL_DATA,
+                                                       QUALPAY_RESPONSES.PLUGIN_STATUS,
+                                                       QUALPAY_RESPONSES.CREATED_DATE,
+                                                       QUALPAY_RESPONSES.KB_TENANT_ID);
+                               for (final QualpayResponsesRecord response : responses) {
+                                   insert = insert.values(response.getKbAccountId(),
+                                                          response.getKbPaymentId(),
+                                                          response.getKbPaymentTransactionId(),
+                                                          response.getTransactionType(),
+                                                          response.getAmount(),
+                                                          response.getCurrency(),
+                                                          response.getQualpayId(),
+                                                          response.getAdditionalData(),
+                                                          response.getPluginStatus(),
+                                                          response.getCreatedDate(),
+                                                          response.getKbTenantId());
+                               }
+
+                               // Identities are allocated in insertion order
+                               final List<QualpayResponsesRecord> inserted = insert.returning()
+                                                                                   .fetch()
+                                                                                   .sortAsc(QUALPAY_RESPONSES.RECORD_ID);
+                               if (inserted.size() != responses.size()) {
+                                   throw new SQLException(String.format("Inserted %s responses but %s were returned", responses.size(), inserted.size()));
+                               }
+                               return inserted;
                            }
                        });
     }
 
+    public void enableGroupCommit(final int maxBatchSize, final long lingerMillis) {
+        disableGroupCommit();
+        groupCommitWriter = new QualpayResponsesGroupCommitWriter(this, maxBatchSize, lingerMillis);
+    }
+
+    public void disableGroupCommit() {
+        final QualpayResponsesGroupCommitWriter writer = groupCommitWriter;
+        groupCommitWriter = null;
+        if (writer != null) {
+            writer.close();
+        }
+    }
+
     public QualpayResponsesRecord updateResponse(final UUID kbPaymentTransactionId,
                                                  final GatewayResponse gatewayResponse,
                                                  final UUID kbTenantId) throws SQLException {
@@ -177,54 +550,106 @@ public class QualpayDao extends PluginPaymentDao<QualpayResponsesRecord, Qualpay
     public QualpayResponsesRecord updateResponse(final UUID kbPaymentTransactionId,
                                                  final Map<String, Object> additionalProperties,
                                                  final UUID kbTenantId) throws SQLException {
+        final List<QualpayResponsesRecord> responses = updateResponses(ImmutableMap.<UUID, Map<String, Object>>of(kbPaymentTransactionId, additionalProperties), kbTenantId);
+        return responses.isEmpty() ? null : responses.get(0);
+    }
+
+    // Merge additional data into the latest response of each transaction, in a single transaction
+    public List<QualpayResponsesRecord> updateResponses(final Map<UUID, Map<String, Object>> additionalPropertiesByKbPaymentTransactionId,
+                                                        final UUID kbTenantId) throws SQLException {
+        if (additionalPropertiesByKbPaymentTransactionId.isEmpty()) {
+            return ImmutableList.<QualpayResponsesRecord>of();
+        }
+
+        final Collection<String> kbPaymentTransactionIds = new ArrayList<String>(additionalPropertiesByKbPaymentTransactionId.size());
+        for (final UUID kbPaymentTransactionId : additionalPropertiesByKbPaymentTransactionId.keySet()) {
+            kbPaymentTransactionIds.add(kbPaymentTransactionId.toString());
+        }
+
+        return execute(dataSource.getConnection(),
+                       new WithConnectionCallback<List<QualpayResponsesRecord>>() {
+                           @Override
+                           public List<QualpayResponsesRecord> withConnection(final Connection conn) throws SQLException {
+                               return DSL.using(conn, dialect, settings)
+                                         .transactionResult(new TransactionalCallable<List<QualpayResponsesRecord>>() {
+                                             @Override
+                                             public List<QualpayResponsesRecord> run(final Configuration configuration) {
+                                                 final DSLContext ctx = DSL.using(configuration);
+
+                                                 // Lock the rows so concurrent merges on the same transaction are serialized
+                                                 final Map<String, QualpayResponsesRecord> latestResponseByKbPaymentTransactionId = new LinkedHashMap<String, QualpayResponsesRecord>();
+                                                 for (final QualpayResponsesRecord response : ctx.selectFrom(QUALPAY_RESPONSES)
+                                                                                                 .where(QUALPAY_RESPONSES.KB_PAYMENT_TRANSACTION_ID.in(kbPaymentTransactionIds))
+                                                                                                 .and(QUALPAY_RESPONSES.KB_TENANT_ID.equal(kbTenantId.toString()))
+                                                                                                 .orderBy(QUALPAY_RESPONSES.RECORD_ID.asc())
+                                                                                                 .forUpdate()
+                                                                                                 .fetch()) {
+                                                     latestResponseByKbPaymentTransactionId.put(response.getKbPaymentTransactionId(), response);
+                                                 }
+
+                                                 final List<Query> updates = new ArrayList<Query>(latestResponseByKbPaymentTransactionId.size());
+                                                 for (final QualpayResponsesRecord response : latestResponseByKbPaymentTransactionId.values()) {
+                                                     final Map additionalProperties = additionalPropertiesByKbPaymentTransactionId.get(UUID.fromString(response.getKbPaymentTransactionId()));
+                                                     updates.add(mergeAdditionalData(ctx, response, additionalProperties));
+                                                 }
+                                                 if (!updates.isEmpty()) {
+                                                     ctx.batch(updates).execute();
+                                                 }
+                                                 for (final QualpayResponsesRecord response : latestResponseByKbPaymentTransactionId.values()) {
+                                                     markWritten(UUID.fromString(response.getKbPaymentId()));
+                                                 }
+
+                                                 return new ArrayList<QualpayResponsesRecord>(latestResponseByKbPaymentTransactionId.values());
+                                             }
+                                         });
+                           }
+                       });
+    }
+
+    public QualpayResponsesRecord updateResponse(final QualpayResponsesRecord qualpayResponsesRecord,
+                                                 final Map additionalMetadata) throws SQLException {
         return execute(dataSource.getConnection(),
                        new WithConnectionCallback<QualpayResponsesRecord>() {
                            @Override
                            public QualpayResponsesRecord withConnection(final Connection conn) throws SQLException {
-                               final QualpayResponsesRecord response = DSL.using(conn, dialect, settings)
-                                                                          .selectFrom(QUALPAY_RESPONSES)
-                                                                          .where(QUALPAY_RESPONSES.KB_PAYMENT_TRANSACTION_ID.equal(kbPaymentTransactionId.toString()))
-                                                                          .and(QUALPAY_RESPONSES.KB_TENANT_ID.equal(kbTenantId.toString()))
-                                                                          .orderBy(QUALPAY_RESPONSES.RECORD_ID.desc())
-                                                                          .limit(1)
-                                                                          .fetchOne();
-
-                               if (response == null) {
-                                   return null;
-                               }
+                               return DSL.using(conn, dialect, settings)
+                                         .transactionResult(new TransactionalCallable<QualpayResponsesRecord>() {
+                                             @Override
+                                             public QualpayResponsesRecord run(final Configuration configuration) {
+                                                 final DSLContext ctx = DSL.using(configuration);
 
-                               final Map originalData = new HashMap(fromAdditionalData(response.getAdditionalData()));
-                               originalData.putAll(additionalProperties);
+                                                 // Re-read under lock: the caller's copy may be stale
+                                                 final QualpayResponsesRecord response = ctx.selectFrom(QUALPAY_RESPONSES)
+                                                                                            .where(QUALPAY_RESPONSES.RECORD_ID.equal(qualpayResponsesRecord.getRecordId()))
+                                                                                            .forUpdate()
+                                                                                            .fetchOne();
+                                                 if (response == null) {
+                                                     return null;
+                                                 }
 
-                               DSL.using(conn, dialect, settings)
-                                  .update(QUALPAY_RESPONSES)
-                                  .set(QUALPAY_RESPONSES.ADDITIONAL_DATA, asString(originalData))
-                                  .where(QUALPAY_RESPONSES.RECORD_ID.equal(response.getRecordId()))
-                                  .execute();
-                               return response;
+                                                 mergeAdditionalData(ctx, response, additionalMetadata).execute();
+                                                 markWritten(UUID.fromString(response.getKbPaymentId()));
+                                                 qualpayResponsesRecord.setAdditionalData(response.getAdditionalData());
+                                                 return response;
+                                             }
+                                         });
                            }
                        });
     }
 
-    public void updateResponse(final QualpayResponsesRecord qualpayResponsesRecord,
-                               final Map additionalMetadata) throws SQLException {
-        final Map additionalDataMap = fromAdditionalData(qualpayResponsesRecord.getAdditionalData());
-        for (final Object key : additionalMetadata.keySet()) {
-            additionalDataMap.put(key, additionalMetadata.get(key));
-        }
+    // Merge in memory (the record is updated in place) and return the matching UPDATE statement
+    private Query mergeAdditionalData(final DSLContext ctx,
+                                      final QualpayResponsesRecord response,
+                                      final Map additionalProperties) {
+        final Map mergedData = new HashMap(fromAdditionalData(response.getAdditionalData()));
+        mergedData.putAll(additionalProperties);
+        response.setAdditionalData(asString(mergedData));
+        response.setPluginStatus(QualpayPaymentTransactionInfoPlugin.getPaymentPluginStatus(mergedData).toString());
 
-        execute(dataSource.getConnection(),
-                new WithConnectionCallback<Void>() {
-                    @Override
-                    public Void withConnection(final Connection conn) throws SQLException {
-                        DSL.using(conn, dialect, settings)
-                           .update(QUALPAY_RESPONSES)
-                           .set(QUALPAY_RESPONSES.ADDITIONAL_DATA, asString(additionalDataMap))
-                           .where(QUALPAY_RESPONSES.RECORD_ID.equal(qualpayResponsesRecord.getRecordId()))
-                           .execute();
-                        return null;
-                    }
-                });
+        return ctx.update(QUALPAY_RESPONSES)
+                  .set(QUALPAY_RESPONSES.ADDITIONAL_DATA, response.getAdditionalData())
+                  .set(QUALPAY_RESPONSES.PLUGIN_STATUS, response.getPluginStatus())
+                  .where(QUALPAY_RESPONSES.RECORD_ID.equal(response.getRecordId()));
     }
 
     @Override
@@ -248,6 +673,906 @@ public class QualpayDao extends PluginPaymentDao<QualpayResponsesRecord, Qualpay
                        });
     }
 
+    // Latest response of that transaction with a final status (PROCESSED, ERROR or CANCELED), if any.
+    // Always read from the primary: it guards against sending the same transaction twice to the gateway.
+    public QualpayResponsesRecord getTerminalResponse(final UUID kbTransactionId, final TransactionType transactionType, final UUID kbTenantId) throws SQLException {
+        return execute(dataSource.getConnection(),
+                       new WithConnectionCallback<QualpayResponsesRecord>() {
+                           @Override
+                           public QualpayResponsesRecord withConnection(final Connection conn) throws SQLException {
+                               return DSL.using(conn, dialect, settings)
+                                         .selectFrom(QUALPAY_RESPONSES)
+                                         .where(QUALPAY_RESPONSES.KB_PAYMENT_TRANSACTION_ID.equal(kbTransactionId.toString()))
+                                         .and(QUALPAY_RESPONSES.TRANSACTION_TYPE.equal(transactionType.toString()))
+                                         .and(QUALPAY_RESPONSES.PLUGIN_STATUS.in(PaymentPluginStatus.PROCESSED.toString(),
+                                                                                 PaymentPluginStatus.ERROR.toString(),
+                                                                                 PaymentPluginStatus.CANCELED.toString()))
+                                         .and(QUALPAY_RESPONSES.KB_TENANT_ID.equal(kbTenantId.toString()))
+                                         .orderBy(QUALPAY_RESPONSES.RECORD_ID.desc())
+                                         .limit(1)
+                                         .fetchOne();
+                           }
+                       });
+    }
+
+    // Tenants with responses in the specified status, created between createdAfter and createdBefore
+    public List<UUID> getTenantIdsByPluginStatus(final String pluginStatus,
+                                                 final DateTime createdAfter,
+                                                 final DateTime createdBefore) throws SQLException {
+        return execute(dataSource.getConnection(),
+                       new WithConnectionCallback<List<UUID>>() {
+                           @Override
+                           public List<UUID> withConnection(final Connection conn) throws SQLException {
+                               final List<UUID> kbTenantIds = new ArrayList<UUID>();
+                               for (final String kbTenantId : DSL.using(conn, dialect, settings)
+                                                                 .selectDistinct(QUALPAY_RESPONSES.KB_TENANT_ID)
+                                                                 .from(QUALPAY_RESPONSES)
+                                                                 .where(QUALPAY_RESPONSES.PLUGIN_STATUS.equal(pluginStatus))
+                                                                 .and(QUALPAY_RESPONSES.CREATED_DATE.greaterOrEqual(toTimestamp(createdAfter)))
+                                                                 .and(QUALPAY_RESPONSES.CREATED_DATE.lessThan(toTimestamp(createdBefore)))
+                                                                 .fetch(QUALPAY_RESPONSES.KB_TENANT_ID)) {
+                                   kbTenantIds.add(UUID.fromString(kbTenantId));
+                               }
+                               return kbTenantIds;
+                           }
+                       });
+    }
+
+    // Keyset pagination over the tenant responses with the specified status, created between createdAfter and createdBefore
+    public List<QualpayResponsesRecord> getResponsesByPluginStatus(final String pluginStatus,
+                                                                   final DateTime createdAfter,
+                                                                   final DateTime createdBefore,
+                                                                   final long afterRecordId,
+                                                                   final int limit,
+                                                                   final UUID kbTenantId) throws SQLException {
+        return execute(dataSource.getConnection(),
+                       new WithConnectionCallback<List<QualpayResponsesRecord>>() {
+                           @Override
+                           public List<QualpayResponsesRecord> withConnection(final Connection conn) throws SQLException {
+                               return DSL.using(conn, dialect, settings)
+                                         .selectFrom(QUALPAY_RESPONSES)
+                                         .where(QUALPAY_RESPONSES.PLUGIN_STATUS.equal(pluginStatus))
+                                         .and(QUALPAY_RESPONSES.KB_TENANT_ID.equal(kbTenantId.toString()))
+                                         .and(QUALPAY_RESPONSES.CREATED_DATE.greaterOrEqual(toTimestamp(createdAfter)))
+                                         .and(QUALPAY_RESPONSES.CREATED_DATE.lessThan(toTimestamp(createdBefore)))
+                                         .and(QUALPAY_RESPONSES.RECORD_ID.greaterThan(ULong.valueOf(afterRecordId)))
+                                         .orderBy(QUALPAY_RESPONSES.RECORD_ID.asc())
+                                         .limit(limit)
+                                         .fetch();
+                           }
+                       });
+    }
+
+    // Search
+
+    // Returns up to limit active payment methods matching the search key on qualpay_id, card type, last four or expiration
+    // date: with a record_id greater than afterRecordId (seek) if set, after skipping offset of them otherwise
+    public List<QualpayPaymentMethodsRecord> searchPaymentMethods(final String searchKey,
+                                                                  final long offset,
+                                                                  @Nullable final Long afterRecordId,
+                                                                  final int limit,
+                                                                  final UUID kbTenantId) throws SQLException {
+        // Searches don't need to read their own writes
+        if (readOnlyDao != null) {
+            return readOnlyDao.searchPaymentMethods(searchKey, offset, afterRecordId, limit, kbTenantId);
+        }
+
+        return execute(dataSource.getConnection(),
+                       new WithConnectionCallback<List<QualpayPaymentMethodsRecord>>() {
+                           @Override
+                           public List<QualpayPaymentMethodsRecord> withConnection(final Connection conn) throws SQLException {
+                               return DSL.using(conn, dialect, settings)
+                                         .selectFrom(QUALPAY_PAYMENT_METHODS)
+                                         .where(QUALPAY_PAYMENT_METHODS.KB_TENANT_ID.equal(kbTenantId.toString()))
+                                         .and(DSL.or(paymentMethodSearchConditions(searchKey)))
+                                         .and(QUALPAY_PAYMENT_METHODS.IS_DELETED.equal((short) FALSE))
+                                         .and(afterRecordIdCondition(QUALPAY_PAYMENT_METHODS.RECORD_ID, afterRecordId))
+                                         .orderBy(QUALPAY_PAYMENT_METHODS.RECORD_ID.asc())
+                                         .limit(limit)
+                                         .offset(afterRecordId == null ? (int) offset : 0)
+                                         .fetch();
+                           }
+                       });
+    }
+
+    // Number of matching payment methods, counting at most maxCount rows
+    public long countPaymentMethods(@Nullable final String searchKey, final int maxCount, final UUID kbTenantId) throws SQLException {
+        if (readOnlyDao != null) {
+            return readOnlyDao.countPaymentMethods(searchKey, maxCount, kbTenantId);
+        }
+
+        return execute(dataSource.getConnection(),
+                       new WithConnectionCallback<Long>() {
+                           @Override
+                           public Long withConnection(final Connection conn) throws SQLException {
+                               final Condition searchCondition = searchKey == null ? DSL.trueCondition() : DSL.or(paymentMethodSearchConditions(searchKey));
+                               final DSLContext ctx = DSL.using(conn, dialect, settings);
+                               return ctx.selectCount()
+                                         .from(ctx.select(QUALPAY_PAYMENT_METHODS.RECORD_ID)
+                                                  .from(QUALPAY_PAYMENT_METHODS)
+                                                  .where(QUALPAY_PAYMENT_METHODS.KB_TENANT_ID.equal(kbTenantId.toString()))
+                                                  .and(searchCondition)
+                                                  .and(QUALPAY_PAYMENT_METHODS.IS_DELETED.equal((short) FALSE))
+                                                  .limit(maxCount)
+                                                  .asTable("matches"))
+                                         .fetchOne(0, Long.class);
+                           }
+                       });
+    }
+
+    // Returns up to limit responses matching the search key on qualpay_id or, for UUIDs, on the Kill Bill payment or
+    // transaction id: with a record_id greater than afterRecordId (seek) if set, after skipping offset of them otherwise
+    public List<QualpayResponsesRecord> searchResponses(final String searchKey,
+                                                        final long offset,
+                                                        @Nullable final Long afterRecordId,
+                                                        final int limit,
+                                                        final UUID kbTenantId) throws SQLException {
+        if (readOnlyDao != null) {
+            return readOnlyDao.searchResponses(searchKey, offset, afterRecordId, limit, kbTenantId);
+        }
+
+        return execute(dataSource.getConnection(),
+                       new WithConnectionCallback<List<QualpayResponsesRecord>>() {
+                           @Override
+                           public List<QualpayResponsesRecord> withConnection(final Connection conn) throws SQLException {
+                               return DSL.using(conn, dialect, settings)
+                                         .selectFrom(QUALPAY_RESPONSES)
+                                         .where(QUALPAY_RESPONSES.KB_TENANT_ID.equal(kbTenantId.toString()))
+                                         .and(DSL.or(responseSearchConditions(searchKey)))
+                                         .and(afterRecordIdCondition(QUALPAY_RESPONSES.RECORD_ID, afterRecordId))
+                                         .orderBy(QUALPAY_RESPONSES.RECORD_ID.asc())
+                                         .limit(limit)
+                                         .offset(afterRecordId == null ? (int) offset : 0)
+                                         .fetch();
+                           }
+                       });
+    }
+
+    // Number of matching responses, counting at most maxCount rows
+    public long countResponses(@Nullable final String searchKey, final int maxCount, final UUID kbTenantId) throws SQLException {
+        if (readOnlyDao != null) {
+            return readOnlyDao.countResponses(searchKey, maxCount, kbTenantId);
+        }
+
+        return execute(dataSource.getConnection(),
+                       new WithConnectionCallback<Long>() {
+                           @Override
+                           public Long withConnection(final Connection conn) throws SQLException {
+                               final Condition searchCondition = searchKey == null ? DSL.trueCondition() : DSL.or(responseSearchConditions(searchKey));
+                               final DSLContext ctx = DSL.using(conn, dialect, settings);
+                               return ctx.selectCount()
+                                         .from(ctx.select(QUALPAY_RESPONSES.RECORD_ID)
+                                                  .from(QUALPAY_RESPONSES)
+                                                  .where(QUALPAY_RESPONSES.KB_TENANT_ID.equal(kbTenantId.toString()))
+                                                  .and(searchCondition)
+                                                  .limit(maxCount)
+                                                  .asTable("matches"))
+                                         .fetchOne(0, Long.class);
+                           }
+                       });
+    }
+
+    private static Condition afterRecordIdCondition(final TableField<?, ULong> recordId, @Nullable final Long afterRecordId) {
+        return afterRecordId == null ? DSL.trueCondition() : recordId.greaterThan(ULong.valueOf(afterRecordId));
+    }
+
+    private static List<Condition> paymentMethodSearchConditions(final String searchKey) {
+        final List<Condition> conditions = new ArrayList<Condition>(4);
+        conditions.add(QUALPAY_PAYMENT_METHODS.QUALPAY_ID.equal(searchKey));
+        if (searchKey.length() <= CARD_TYPE_MAX_LENGTH) {
+            conditions.add(QUALPAY_PAYMENT_METHODS.CARD_TYPE.equal(searchKey.toUpperCase(Locale.ROOT)));
+        }
+        if (FOUR_DIGITS.matcher(searchKey).matches()) {
+            conditions.add(QUALPAY_PAYMENT_METHODS.CARD_LAST_FOUR.equal(searchKey));
+            conditions.add(QUALPAY_PAYMENT_METHODS.CARD_EXP_DATE.equal(searchKey));
+        }
+        return conditions;
+    }
+
+    private static List<Condition> responseSearchConditions(final String searchKey) {
+        final List<Condition> conditions = new ArrayList<Condition>(3);
+        conditions.add(QUALPAY_RESPONSES.QUALPAY_ID.equal(searchKey));
+        if (UUID_PATTERN.matcher(searchKey).matches()) {
+            conditions.add(QUALPAY_RESPONSES.KB_PAYMENT_ID.equal(searchKey));
+            conditions.add(QUALPAY_RESPONSES.KB_PAYMENT_TRANSACTION_ID.equal(searchKey));
+        }
+        return conditions;
+    }
+
+    // Accounts
+
+    @Nullable
+    public DateTime getLastSyncedDate(final UUID kbAccountId, final UUID kbTenantId) throws SQLException {
+        final Timestamp lastSyncedDate = execute(dataSource.getConnection(),
+                                                 new WithConnectionCallback<Timestamp>() {
+                                                     @Override
+                                                     public Timestamp withConnection(final Connection conn) throws SQLException {
+                                                         return DSL.using(conn, dialect, settings)
+                                                                   .select(QUALPAY_ACCOUNTS.LAST_SYNCED_DATE)
+                                                                   .from(QUALPAY_ACCOUNTS)
+                                                                   .where(QUALPAY_ACCOUNTS.KB_ACCOUNT_ID.equal(kbAccountId.toString()))
+                                                                   .and(QUALPAY_ACCOUNTS.KB_TENANT_ID.equal(kbTenantId.toString()))
+                                                                   .fetchOne(QUALPAY_ACCOUNTS.LAST_SYNCED_DATE);
+                                                     }
+                                                 });
+        return lastSyncedDate == null ? null : new DateTime(lastSyncedDate.getTime(), DateTimeZone.UTC);
+    }
+
+    public void setLastSyncedDate(final UUID kbAccountId, final DateTime utcNow, final UUID kbTenantId) throws SQLException {
+        execute(dataSource.getConnection(),
+                new WithConnectionCallback<Void>() {
+                    @Override
+                    public Void withConnection(final Connection conn) throws SQLException {
+                        final DSLContext ctx = DSL.using(conn, dialect, settings);
+                        final int updated = ctx.update(QUALPAY_ACCOUNTS)
+                                               .set(QUALPAY_ACCOUNTS.LAST_SYNCED_DATE, toTimestamp(utcNow))
+                                               .where(QUALPAY_ACCOUNTS.KB_ACCOUNT_ID.equal(kbAccountId.toString()))
+                                               .and(QUALPAY_ACCOUNTS.KB_TENANT_ID.equal(kbTenantId.toString()))
+                                               .execute();
+                        if (updated == 0) {
+                            ctx.insertInto(QUALPAY_ACCOUNTS,
+                                           QUALPAY_ACCOUNTS.KB_ACCOUNT_ID,
+                                           QUALPAY_ACCOUNTS.LAST_SYNCED_DATE,
+                                           QUALPAY_ACCOUNTS.CREATED_DATE,
+                                           QUALPAY_ACCOUNTS.KB_TENANT_ID)
+                               .values(kbAccountId.toString(),
+                                       toTimestamp(utcNow),
+                                       toTimestamp(utcNow),
+                                       kbTenantId.toString())
+                               .execute();
+                        }
+                        return null;
+                    }
+                });
+    }
+
+    // Accounts (across all tenants) last synced before the specified date, least recently synced first
+    public List<QualpayAccountsRecord> getAccountsSyncedBefore(final DateTime syncedBefore, final int limit) throws SQLException {
+        return execute(dataSource.getConnection(),
+                       new WithConnectionCallback<List<QualpayAccountsRecord>>() {
+                           @Override
+                           public List<QualpayAccountsRecord> withConnection(final Connection conn) throws SQLException {
+                               return DSL.using(conn, dialect, settings)
+                                         .selectFrom(QUALPAY_ACCOUNTS)
+                                         .where(QUALPAY_ACCOUNTS.LAST_SYNCED_DATE.lessThan(toTimestamp(syncedBefore)))
+                                         .orderBy(QUALPAY_ACCOUNTS.LAST_SYNCED_DATE.asc())
+                                         .limit(limit)
+                                         .fetch();
+                           }
+                       });
+    }
+
+    // Sync jobs
+
+    // Keyset pagination over the accounts with Qualpay payment methods (including deleted ones)
+    public List<UUID> getKbAccountIdsWithPaymentMethods(@Nullable final UUID afterKbAccountId, final int limit, final UUID kbTenantId) throws SQLException {
+        return execute(dataSource.getConnection(),
+                       new WithConnectionCallback<List<UUID>>() {
+                           @Override
+                           public List<UUID> withConnection(final Connection conn) throws SQLException {
+                               Condition condition = QUALPAY_PAYMENT_METHODS.KB_TENANT_ID.equal(kbTenantId.toString());
+                               if (afterKbAccountId != null) {
+                                   condition = condition.and(QUALPAY_PAYMENT_METHODS.KB_ACCOUNT_ID.greaterThan(afterKbAccountId.toString()));
+                               }
+
+                               final List<String> kbAccountIds = DSL.using(conn, dialect, settings)
+                                                                    .selectDistinct(QUALPAY_PAYMENT_METHODS.KB_ACCOUNT_ID)
+                                                                    .from(QUALPAY_PAYMENT_METHODS)
+                                                                    .where(condition)
+                                                                    .orderBy(QUALPAY_PAYMENT_METHODS.KB_ACCOUNT_ID.asc())
+                                                                    .limit(limit)
+                                                                    .fetch(QUALPAY_PAYMENT_METHODS.KB_ACCOUNT_ID);
+                               final List<UUID> result = new ArrayList<UUID>(kbAccountIds.size());
+                               for (final String kbAccountId : kbAccountIds) {
+                                   result.add(UUID.fromString(kbAccountId));
+                               }
+                               return result;
+                           }
+                       });
+    }
+
+    public QualpaySyncCheckpointsRecord getSyncCheckpoint(final String jobName, final UUID kbTenantId) throws SQLException {
+        return execute(dataSource.getConnection(),
+                       new WithConnectionCallback<QualpaySyncCheckpointsRecord>() {
+                           @Override
+                           public QualpaySyncCheckpointsRecord withConnection(final Connection conn) throws SQLException {
+                               return DSL.using(conn, dialect, settings)
+                                         .selectFrom(QUALPAY_SYNC_CHECKPOINTS)
+                                         .where(QUALPAY_SYNC_CHECKPOINTS.JOB_NAME.equal(jobName))
+                                         .and(QUALPAY_SYNC_CHECKPOINTS.KB_TENANT_ID.equal(kbTenantId.toString()))
+                                         .fetchOne();
+                           }
+                       });
+    }
+
+    public void saveSyncCheckpoint(final String jobName,
+                                   @Nullable final UUID lastKbAccountId,
+                                   final String status,
+                                   final long nbProcessed,
+                                   final long nbSkipped,
+                                   final long nbErrors,
+                                   final DateTime utcNow,
+                                   final UUID kbTenantId) throws SQLException {
+        execute(dataSource.getConnection(),
+                new WithConnectionCallback<Void>() {
+                    @Override
+                    public Void withConnection(final Connection conn) throws SQLException {
+                        final String lastKbAccountIdString = lastKbAccountId == null ? null : lastKbAccountId.toString();
+                        final DSLContext ctx = DSL.using(conn, dialect, settings);
+                        final int updated = ctx.update(QUALPAY_SYNC_CHECKPOINTS)
+                                               .set(QUALPAY_SYNC_CHECKPOINTS.LAST_KB_ACCOUNT_ID, lastKbAccountIdString)
+                                               .set(QUALPAY_SYNC_CHECKPOINTS.STATUS, status)
+                                               .set(QUALPAY_SYNC_CHECKPOINTS.NB_PROCESSED, nbProcessed)
+                                               .set(QUALPAY_SYNC_CHECKPOINTS.NB_SKIPPED, nbSkipped)
+                                               .set(QUALPAY_SYNC_CHECKPOINTS.NB_ERRORS, nbErrors)
+                                               .set(QUALPAY_SYNC_CHECKPOINTS.UPDATED_DATE, toTimestamp(utcNow))
+                                               .where(QUALPAY_SYNC_CHECKPOINTS.JOB_NAME.equal(jobName))
+                                               .and(QUALPAY_SYNC_CHECKPOINTS.KB_TENANT_ID.equal(kbTenantId.toString()))
+                                               .execute();
+                        if (updated == 0) {
+                            ctx.insertInto(QUALPAY_SYNC_CHECKPOINTS,
+                                           QUALPAY_SYNC_CHECKPOINTS.JOB_NAME,
+                                           QUALPAY_SYNC_CHECKPOINTS.LAST_KB_ACCOUNT_ID,
+                                           QUALPAY_SYNC_CHECKPOINTS.STATUS,
+                                           QUALPAY_SYNC_CHECKPOINTS.NB_PROCESSED,
+                                           QUALPAY_SYNC_CHECKPOINTS.NB_SKIPPED,
+                                           QUALPAY_SYNC_CHECKPOINTS.NB_ERRORS,
+                                           QUALPAY_SYNC_CHECKPOINTS.CREATED_DATE,
+                                           QUALPAY_SYNC_CHECKPOINTS.UPDATED_DATE,
+                                           QUALPAY_SYNC_CHECKPOINTS.KB_TENANT_ID)
+                               .values(jobName,
+                                       lastKbAccountIdString,
+                                       status,
+                                       nbProcessed,
+                                       nbSkipped,
+                                       nbErrors,
+                                       toTimestamp(utcNow),
+                                       toTimestamp(utcNow),
+                                       kbTenantId.toString())
+                               .execute();
+                        }
+                        return null;
+                    }
+                });
+    }
+
+    // Notifications
+
+    // Returns false if the event had already been received (unique event id per tenant)
+    public boolean addNotification(final String eventId,
+                                   @Nullable final String eventType,
+                                   @Nullable final String pgId,
+                                   final String payload,
+                                   final DateTime utcNow,
+                                   final UUID kbTenantId) throws SQLException {
+        return execute(dataSource.getConnection(),
+                       new WithConnectionCallback<Boolean>() {
+                           @Override
+                           public Boolean withConnection(final Connection conn) throws SQLException {
+                               try {
+                                   DSL.using(conn, dialect, settings)
+                                      .insertInto(QUALPAY_NOTIFICATIONS,
+                                                  QUALPAY_NOTIFICATIONS.EVENT_ID,
+                                                  QUALPAY_NOTIFICATIONS.EVENT_TYPE,
+                                                  QUALPAY_NOTIFICATIONS.PG_ID,
+                                                  QUALPAY_NOTIFICATIONS.PAYLOAD,
+                                                  QUALPAY_NOTIFICATIONS.STATUS,
+                                                  QUALPAY_NOTIFICATIONS.AVAILABLE_DATE,
+                                                  QUALPAY_NOTIFICATIONS.CREATED_DATE,
+                                                  QUALPAY_NOTIFICATIONS.UPDATED_DATE,
+                                                  QUALPAY_NOTIFICATIONS.KB_TENANT_ID)
+                                      .values(eventId,
+                                              eventType,
+                                              pgId,
+                                              payload,
+                                              NOTIFICATION_STATUS_PENDING,
+                                              toTimestamp(utcNow),
+                                              toTimestamp(utcNow),
+                                              toTimestamp(utcNow),
+                                              kbTenantId.toString())
+                                      .execute();
+                                   return true;
+                               } catch (final DataAccessException e) {
+                                   if (isIntegrityConstraintViolation(e)) {
+                                       return false;
+                                   }
+                                   throw e;
+                               }
+                           }
+                       });
+    }
+
+    // Claims (status PROCESSING) up to limit pending notifications across all tenants, oldest first. Notifications
+    // for a transaction with an earlier unprocessed event are skipped, so that each transaction is applied in order.
+    public List<QualpayNotificationsRecord> claimNotifications(final int limit, final DateTime utcNow) throws SQLException {
+        return execute(dataSource.getConnection(),
+                       new WithConnectionCallback<List<QualpayNotificationsRecord>>() {
+                           @Override
+                           public List<QualpayNotificationsRecord> withConnection(final Connection conn) throws SQLException {
+                               final boolean isSkipLockedSupportedByMySQL = isMySQL8(conn);
+                               return DSL.using(conn, dialect, settings)
+                                         .transactionResult(new TransactionalCallable<List<QualpayNotificationsRecord>>() {
+                                             @Override
+                                             public List<QualpayNotificationsRecord> run(final Configuration configuration) {
+                                                 final DSLContext ctx = DSL.using(configuration);
+
+                                                 final QualpayNotifications previous = QUALPAY_NOTIFICATIONS.as("previous");
+                                                 final Condition noPreviousEvent = DSL.notExists(ctx.selectOne()
+                                                                                                    .from(previous)
+                                                                                                    .where(previous.KB_TENANT_ID.equal(QUALPAY_NOTIFICATIONS.KB_TENANT_ID))
+                                                                                                    .and(previous.PG_ID.equal(QUALPAY_NOTIFICATIONS.PG_ID))
+                                                                                                    .and(previous.RECORD_ID.lessThan(QUALPAY_NOTIFICATIONS.RECORD_ID))
+                                                                                                    .and(previous.STATUS.in(NOTIFICATION_STATUS_PENDING, NOTIFICATION_STATUS_PROCESSING)));
+                                                 final SelectForUpdateWaitStep<QualpayNotificationsRecord> select = ctx.selectFrom(QUALPAY_NOTIFICATIONS)
+                                                                                                                      .where(QUALPAY_NOTIFICATIONS.STATUS.equal(NOTIFICATION_STATUS_PENDING))
+                                                                                                                      .and(QUALPAY_NOTIFICATIONS.AVAILABLE_DATE.lessOrEqual(toTimestamp(utcNow)))
+                                                                                                                      .and(QUALPAY_NOTIFICATIONS.PG_ID.isNull().or(noPreviousEvent))
+                                                                                                                      .orderBy(QUALPAY_NOTIFICATIONS.RECORD_ID.asc())
+                                                                                                                      .limit(limit)
+                                                                                                                      .forUpdate();
+                                                 // Concurrent consumers (other nodes) don't wait on each other's claims
+                                                 final List<QualpayNotificationsRecord> notifications;
+                                                 if (dialect.family() == SQLDialect.POSTGRES) {
+                                                     notifications = select.skipLocked().fetch();
+                                                 } else if (isSkipLockedSupportedByMySQL) {
+                                                     notifications = forUpdateSkipLockedMySQL(select).fetch();
+                                                 } else {
+                                                     notifications = select.fetch();
+                                                 }
+                                                 if (notifications.isEmpty()) {
+                                                     return notifications;
+                                                 }
+
+                                                 final Collection<ULong> recordIds = new ArrayList<ULong>(notifications.size());
+                                                 for (final QualpayNotificationsRecord notification : notifications) {
+                                                     recordIds.add(notification.getRecordId());
+                                                     notification.setStatus(NOTIFICATION_STATUS_PROCESSING);
+                                                     notification.setUpdatedDate(toTimestamp(utcNow));
+                                                 }
+                                                 ctx.update(QUALPAY_NOTIFICATIONS)
+                                                    .set(QUALPAY_NOTIFICATIONS.STATUS, NOTIFICATION_STATUS_PROCESSING)
+                                                    .set(QUALPAY_NOTIFICATIONS.UPDATED_DATE, toTimestamp(utcNow))
+                                                    .where(QUALPAY_NOTIFICATIONS.RECORD_ID.in(recordIds))
+                                                    .execute();
+                                                 return notifications;
+                                             }
+                                         });
+                           }
+                       });
+    }
+
+    // Give back the notifications claimed by a consumer which died before completing them
+    public int releaseExpiredNotificationClaims(final DateTime claimedBefore, final DateTime utcNow) throws SQLException {
+        return execute(dataSource.getConnection(),
+                       new WithConnectionCallback<Integer>() {
+                           @Override
+                           public Integer withConnection(final Connection conn) throws SQLException {
+                               return DSL.using(conn, dialect, settings)
+                                         .update(QUALPAY_NOTIFICATIONS)
+                                         .set(QUALPAY_NOTIFICATIONS.STATUS, NOTIFICATION_STATUS_PENDING)
+                                         .set(QUALPAY_NOTIFICATIONS.UPDATED_DATE, toTimestamp(utcNow))
+                                         .where(QUALPAY_NOTIFICATIONS.STATUS.equal(NOTIFICATION_STATUS_PROCESSING))
+                                         .and(QUALPAY_NOTIFICATIONS.UPDATED_DATE.lessThan(toTimestamp(claimedBefore)))
+                                         .execute();
+                           }
+                       });
+    }
+
+    public int setNotificationsStatus(final Collection<ULong> recordIds, final String status, final DateTime utcNow) throws SQLException {
+        if (recordIds.isEmpty()) {
+            return 0;
+        }
+
+        return execute(dataSource.getConnection(),
+                       new WithConnectionCallback<Integer>() {
+                           @Override
+                           public Integer withConnection(final Connection conn) throws SQLException {
+                               return DSL.using(conn, dialect, settings)
+                                         .update(QUALPAY_NOTIFICATIONS)
+                                         .set(QUALPAY_NOTIFICATIONS.STATUS, status)
+                                         .set(QUALPAY_NOTIFICATIONS.UPDATED_DATE, toTimestamp(utcNow))
+                                         .where(QUALPAY_NOTIFICATIONS.RECORD_ID.in(recordIds))
+                                         .execute();
+                           }
+                       });
+    }
+
+    // Failed notifications are retried after availableDate, unless parked
+    public void failNotification(final ULong recordId,
+                                 final int attempts,
+                                 final String error,
+                                 final boolean park,
+                                 final DateTime availableDate,
+                                 final DateTime utcNow) throws SQLException {
+        execute(dataSource.getConnection(),
+                new WithConnectionCallback<Void>() {
+                    @Override
+                    public Void withConnection(final Connection conn) throws SQLException {
+                        DSL.using(conn, dialect, settings)
+                           .update(QUALPAY_NOTIFICATIONS)
+                           .set(QUALPAY_NOTIFICATIONS.STATUS, park ? NOTIFICATION_STATUS_PARKED : NOTIFICATION_STATUS_PENDING)
+                           .set(QUALPAY_NOTIFICATIONS.ATTEMPTS, attempts)
+                           .set(QUALPAY_NOTIFICATIONS.LAST_ERROR, Ascii.truncate(error, LAST_ERROR_MAX_LENGTH, "..."))
+                           .set(QUALPAY_NOTIFICATIONS.AVAILABLE_DATE, toTimestamp(availableDate))
+                           .set(QUALPAY_NOTIFICATIONS.UPDATED_DATE, toTimestamp(utcNow))
+                           .where(QUALPAY_NOTIFICATIONS.RECORD_ID.equal(recordId))
+                           .execute();
+                        return null;
+                    }
+                });
+    }
+
+    // Number of pending, in-flight and parked notifications (processed ones aren't counted)
+    public Map<String, Integer> countUnprocessedNotifications() throws SQLException {
+        return execute(dataSource.getConnection(),
+                       new WithConnectionCallback<Map<String, Integer>>() {
+                           @Override
+                           public Map<String, Integer> withConnection(final Connection conn) throws SQLException {
+                               final Map<String, Integer> countByStatus = new HashMap<String, Integer>();
+                               countByStatus.put(NOTIFICATION_STATUS_PENDING, 0);
+                               countByStatus.put(NOTIFICATION_STATUS_PROCESSING, 0);
+                               countByStatus.put(NOTIFICATION_STATUS_PARKED, 0);
+                               for (final Record2<String, Integer> count : DSL.using(conn, dialect, settings)
+                                                                              .select(QUALPAY_NOTIFICATIONS.STATUS, DSL.count())
+                                                                              .from(QUALPAY_NOTIFICATIONS)
+                                                                              .where(QUALPAY_NOTIFICATIONS.STATUS.in(countByStatus.keySet()))
+                                                                              .groupBy(QUALPAY_NOTIFICATIONS.STATUS)
+                                                                              .fetch()) {
+                                   countByStatus.put(count.value1(), count.value2());
+                               }
+                               return countByStatus;
+                           }
+                       });
+    }
+
+    @Nullable
+    public DateTime getOldestPendingNotificationCreatedDate() throws SQLException {
+        final Timestamp createdDate = execute(dataSource.getConnection(),
+                                              new WithConnectionCallback<Timestamp>() {
+                                                  @Override
+                                                  public Timestamp withConnection(final Connection conn) throws SQLException {
+                                                      return DSL.using(conn, dialect, settings)
+                                                                .select(QUALPAY_NOTIFICATIONS.CREATED_DATE)
+                                                                .from(QUALPAY_NOTIFICATIONS)
+                                                                .where(QUALPAY_NOTIFICATIONS.STATUS.in(NOTIFICATION_STATUS_PENDING, NOTIFICATION_STATUS_PROCESSING))
+                                                                .orderBy(QUALPAY_NOTIFICATIONS.RECORD_ID.asc())
+                                                                .limit(1)
+                                                                .fetchOne(QUALPAY_NOTIFICATIONS.CREATED_DATE);
+                                                  }
+                                              });
+        return createdDate == null ? null : new DateTime(createdDate.getTime(), DateTimeZone.UTC);
+    }
+
+    // Latest response of each Qualpay transaction (pg_id)
+    public Map<String, QualpayResponsesRecord> getResponsesByQualpayIds(final Collection<String> pgIds, final UUID kbTenantId) throws SQLException {
+        if (pgIds.isEmpty()) {
+            return ImmutableMap.<String, QualpayResponsesRecord>of();
+        }
+
+        return execute(dataSource.getConnection(),
+                       new WithConnectionCallback<Map<String, QualpayResponsesRecord>>() {
+                           @Override
+                           public Map<String, QualpayResponsesRecord> withConnection(final Connection conn) throws SQLException {
+                               final Map<String, QualpayResponsesRecord> responseByPgId = new HashMap<String, QualpayResponsesRecord>();
+                               for (final QualpayResponsesRecord response : DSL.using(conn, dialect, settings)
+                                                                               .selectFrom(QUALPAY_RESPONSES)
+                                                                               .where(QUALPAY_RESPONSES.QUALPAY_ID.in(pgIds))
+                                                                               .and(QUALPAY_RESPONSES.KB_TENANT_ID.equal(kbTenantId.toString()))
+                                                                               .orderBy(QUALPAY_RESPONSES.RECORD_ID.asc())
+                                                                               .fetch()) {
+                                   responseByPgId.put(response.getQualpayId(), response);
+                               }
+                               return responseByPgId;
+                           }
+                       });
+    }
+
+    public QualpayPaymentMethodsRecord getPaymentMethodByQualpayId(final String cardId, final UUID kbTenantId) throws SQLException {
+        return execute(dataSource.getConnection(),
+                       new WithConnectionCallback<QualpayPaymentMethodsRecord>() {
+                           @Override
+                           public QualpayPaymentMethodsRecord withConnection(final Connection conn) throws SQLException {
+                               return DSL.using(conn, dialect, settings)
+                                         .selectFrom(QUALPAY_PAYMENT_METHODS)
+                                         .where(QUALPAY_PAYMENT_METHODS.QUALPAY_ID.equal(cardId))
+                                         .and(QUALPAY_PAYMENT_METHODS.KB_TENANT_ID.equal(kbTenantId.toString()))
+                                         .orderBy(QUALPAY_PAYMENT_METHODS.RECORD_ID.desc())
+                                         .limit(1)
+                                         .fetchOne();
+                           }
+                       });
+    }
+
+    private static boolean isIntegrityConstraintViolation(final DataAccessException e) {
+        Throwable cause = e.getCause();
+        while (cause != null) {
+            if (cause instanceof SQLException && ((SQLException) cause).getSQLState() != null && ((SQLException) cause).getSQLState().startsWith("23")) {
+                return true;
+            }
+            cause = cause.getCause();
+        }
+        return false;
+    }
+
+    // SKIP LOCKED isn't rendered by jOOQ for MySQL: add it as a query option, which is rendered after FOR UPDATE
+    @VisibleForTesting
+    public static <R extends Record> Select<R> forUpdateSkipLockedMySQL(final SelectForUpdateWaitStep<R> select) {
+        return select.option("skip locked");
+    }
+
+    // SKIP LOCKED is available as of MySQL 8.0 (MariaDB reports itself as 5.5.5-10.x through the MySQL driver)
+    private boolean isMySQL8(final Connection conn) throws SQLException {
+        if (dialect.family() != SQLDialect.MYSQL) {
+            return false;
+        }
+
+        final DatabaseMetaData metaData = conn.getMetaData();
+        return "MySQL".equalsIgnoreCase(metaData.getDatabaseProductName()) && metaData.getDatabaseMajorVersion() >= 8;
+    }
+
+    // Reconciliation
+
+    public QualpayReconciliationsRecord addReconciliation(final String fileName,
+                                                         final DateTime from,
+                                                         final DateTime to,
+                                                         final DateTime utcNow,
+                                                         final UUID kbTenantId) throws SQLException {
+        return execute(dataSource.getConnection(),
+                       new WithConnectionCallback<QualpayReconciliationsRecord>() {
+                           @Override
+                           public QualpayReconciliationsRecord withConnection(final Connection conn) throws SQLException {
+                               return DSL.using(conn, dialect, settings)
+                                         .insertInto(QUALPAY_RECONCILIATIONS,
+                                                     QUALPAY_RECONCILIATIONS.FILE_NAME,
+                                                     QUALPAY_RECONCILIATIONS.FROM_DATE,
+                                                     QUALPAY_RECONCILIATIONS.TO_DATE,
+                                                     QUALPAY_RECONCILIATIONS.STATUS,
+                                                     QUALPAY_RECONCILIATIONS.CREATED_DATE,
+                                                     QUALPAY_RECONCILIATIONS.UPDATED_DATE,
+                                                     QUALPAY_RECONCILIATIONS.KB_TENANT_ID)
+                                         .values(fileName,
+                                                 toTimestamp(from),
+                                                 toTimestamp(to),
+                                                 RECONCILIATION_STATUS_RUNNING,
+                                                 toTimestamp(utcNow),
+                                                 toTimestamp(utcNow),
+                                                 kbTenantId.toString())
+                                         .returning()
+                                         .fetchOne();
+                           }
+                       });
+    }
+
+    public void updateReconciliation(final QualpayReconciliationsRecord reconciliation, final DateTime utcNow) throws SQLException {
+        execute(dataSource.getConnection(),
+                new WithConnectionCallback<Void>() {
+                    @Override
+                    public Void withConnection(final Connection conn) throws SQLException {
+                        DSL.using(conn, dialect, settings)
+                           .update(QUALPAY_RECONCILIATIONS)
+                           .set(QUALPAY_RECONCILIATIONS.STATUS, reconciliation.getStatus())
+                           .set(QUALPAY_RECONCILIATIONS.NB_MATCHED, reconciliation.getNbMatched())
+                           .set(QUALPAY_RECONCILIATIONS.NB_MISMATCHED, reconciliation.getNbMismatched())
+                           .set(QUALPAY_RECONCILIATIONS.NB_MISSING_IN_KILLBILL, reconciliation.getNbMissingInKillbill())
+                           .set(QUALPAY_RECONCILIATIONS.NB_MISSING_IN_REPORT, reconciliation.getNbMissingInReport())
+                           .set(QUALPAY_RECONCILIATIONS.UPDATED_DATE, toTimestamp(utcNow))
+                           .where(QUALPAY_RECONCILIATIONS.RECORD_ID.equal(reconciliation.getRecordId()))
+                           .execute();
+                        return null;
+                    }
+                });
+    }
+
+    // Insert all items with a single statement
+    public void addReconciliationItems(final Collection<QualpayReconciliationItemsRecord> items) throws SQLException {
+        if (items.isEmpty()) {
+            return;
+        }
+
+        execute(dataSource.getConnection(),
+                new WithConnectionCallback<Void>() {
+                    @Override
+                    public Void withConnection(final Connection conn) throws SQLException {
+                        InsertValuesStep9<QualpayReconciliationItemsRecord, ULong, String, String, BigDecimal, BigDecimal, String, String, Timestamp, String> insert;
+                        insert = DSL.using(conn, dialect, settings)
+                                    .insertInto(QUALPAY_RECONCILIATION_ITEMS,
+                                                QUALPAY_RECONCILIATION_ITEMS.RECONCILIATION_RECORD_ID,
+                                                QUALPAY_RECONCILIATION_ITEMS.STATUS,
+                                                QUALPAY_RECONCILIATION_ITEMS.QUALPAY_ID,
+                                                QUALPAY_RECONCILIATION_ITEMS.REPORT_AMOUNT,
+                                                QUALPAY_RECONCILIATION_ITEMS.KB_AMOUNT,
+                                                QUALPAY_RECONCILIATION_ITEMS.KB_PAYMENT_ID,
+                                                QUALPAY_RECONCILIATION_ITEMS.KB_PAYMENT_TRANSACTION_ID,
+                                                QUALPAY_RECONCILIATION_ITEMS.CREATED_DATE,
+                                                QUALPAY_RECONCILIATION_ITEMS.KB_TENANT_ID);
+                        for (final QualpayReconciliationItemsRecord item : items) {
+                            insert = insert.values(item.getReconciliationRecordId(),
+                                                   item.getStatus(),
+                                                   item.getQualpayId(),
+                                                   item.getReportAmount(),
+                                                   item.getKbAmount(),
+                                                   item.getKbPaymentId(),
+                                                   item.getKbPaymentTransactionId(),
+                                                   item.getCreatedDate(),
+                                                   item.getKbTenantId());
+                        }
+                        insert.execute();
+                        return null;
+                    }
+                });
+    }
+
+    public List<QualpayReconciliationItemsRecord> getReconciliationItems(final ULong reconciliationRecordId, final UUID kbTenantId) throws SQLException {
+        return execute(dataSource.getConnection(),
+                       new WithConnectionCallback<List<QualpayReconciliationItemsRecord>>() {
+                           @Override
+                           public List<QualpayReconciliationItemsRecord> withConnection(final Connection conn) throws SQLException {
+                               return DSL.using(conn, dialect, settings)
+                                         .selectFrom(QUALPAY_RECONCILIATION_ITEMS)
+                                         .where(QUALPAY_RECONCILIATION_ITEMS.RECONCILIATION_RECORD_ID.equal(reconciliationRecordId))
+                                         .and(QUALPAY_RECONCILIATION_ITEMS.KB_TENANT_ID.equal(kbTenantId.toString()))
+                                         .orderBy(QUALPAY_RECONCILIATION_ITEMS.RECORD_ID.asc())
+                                         .fetch();
+                           }
+                       });
+    }
+
+    public List<QualpayResponsesRecord> getResponsesByRecordIds(final Collection<ULong> recordIds, final UUID kbTenantId) throws SQLException {
+        if (recordIds.isEmpty()) {
+            return ImmutableList.<QualpayResponsesRecord>of();
+        }
+
+        return execute(dataSource.getConnection(),
+                       new WithConnectionCallback<List<QualpayResponsesRecord>>() {
+                           @Override
+                           public List<QualpayResponsesRecord> withConnection(final Connection conn) throws SQLException {
+                               return DSL.using(conn, dialect, settings)
+                                         .selectFrom(QUALPAY_RESPONSES)
+                                         .where(QUALPAY_RESPONSES.RECORD_ID.in(recordIds))
+                                         .and(QUALPAY_RESPONSES.KB_TENANT_ID.equal(kbTenantId.toString()))
+                                         .fetch();
+                           }
+                       });
+    }
+
+    // Export
+
+    public interface RecordHandler<R> {
+
+        void onRecord(R record) throws IOException;
+    }
+
+    // Streams the tenant responses created in [from, to), ordered by (created_date, record_id) and
+    // starting strictly after (afterCreatedDate, afterRecordId) when resuming. Rows are never buffered.
+    public void streamResponses(final DateTime from,
+                                final DateTime to,
+                                @Nullable final DateTime afterCreatedDate,
+                                final long afterRecordId,
+                                final UUID kbTenantId,
+                                final RecordHandler<QualpayResponsesRecord> handler) throws SQLException, IOException {
+        // Exports can run for hours, keep them off the primary
+        if (readOnlyDao != null) {
+            readOnlyDao.streamResponses(from, to, afterCreatedDate, afterRecordId, kbTenantId, handler);
+            return;
+        }
+
+        streamRecords(QUALPAY_RESPONSES,
+                      QUALPAY_RESPONSES.RECORD_ID,
+                      QUALPAY_RESPONSES.CREATED_DATE,
+                      QUALPAY_RESPONSES.KB_TENANT_ID,
+                      from,
+                      to,
+                      afterCreatedDate,
+                      afterRecordId,
+                      kbTenantId,
+                      handler);
+    }
+
+    // Same as streamResponses, for payment methods (including deleted ones)
+    public void streamPaymentMethods(final DateTime from,
+                                     final DateTime to,
+                                     @Nullable final DateTime afterCreatedDate,
+                                     final long afterRecordId,
+                                     final UUID kbTenantId,
+                                     final RecordHandler<QualpayPaymentMethodsRecord> handler) throws SQLException, IOException {
+        if (readOnlyDao != null) {
+            readOnlyDao.streamPaymentMethods(from, to, afterCreatedDate, afterRecordId, kbTenantId, handler);
+            return;
+        }
+
+        streamRecords(QUALPAY_PAYMENT_METHODS,
+                      QUALPAY_PAYMENT_METHODS.RECORD_ID,
+                      QUALPAY_PAYMENT_METHODS.CREATED_DATE,
+                      QUALPAY_PAYMENT_METHODS.KB_TENANT_ID,
+                      from,
+                      to,
+                      afterCreatedDate,
+                      afterRecordId,
+                      kbTenantId,
+                      handler);
+    }
+
+    private <R extends Record> void streamRecords(final Table<R> table,
+                                                  final TableField<R, ULong> recordIdField,
+                                                  final TableField<R, Timestamp> createdDateField,
+                                                  final TableField<R, String> kbTenantIdField,
+                                                  final DateTime from,
+                                                  final DateTime to,
+                                                  @Nullable final DateTime afterCreatedDate,
+                                                  final long afterRecordId,
+                                                  final UUID kbTenantId,
+                                                  final RecordHandler<R> handler) throws SQLException, IOException {
+        try {
+            execute(dataSource.getConnection(),
+                    new WithConnectionCallback<Void>() {
+                        @Override
+                        public Void withConnection(final Connection conn) throws SQLException {
+                            // PostgreSQL only honors the fetch size outside of auto-commit mode
+                            final boolean autoCommit = conn.getAutoCommit();
+                            if (dialect.family() == SQLDialect.POSTGRES) {
+                                conn.setAutoCommit(false);
+                            }
+
+                            Condition condition = kbTenantIdField.equal(kbTenantId.toString())
+                                                                 .and(createdDateField.greaterOrEqual(toTimestamp(from)))
+                                                                 .and(createdDateField.lessThan(toTimestamp(to)));
+                            if (afterCreatedDate != null) {
+                                condition = condition.and(DSL.row(createdDateField, recordIdField).greaterThan(toTimestamp(afterCreatedDate), ULong.valueOf(afterRecordId)));
+                            }
+
+                            // MySQL Connector/J only streams rows with a fetch size of Integer.MIN_VALUE
+                            final int fetchSize = dialect.family() == SQLDialect.MYSQL ? Integer.MIN_VALUE : EXPORT_FETCH_SIZE;
+                            final Cursor<R> cursor = DSL.using(conn, dialect, settings)
+                                                        .selectFrom(table)
+                                                        .where(condition)
+                                                        .orderBy(createdDateField.asc(), recordIdField.asc())
+                                                        .fetchSize(fetchSize)
+                                                        .fetchLazy();
+                            try {
+                                for (final R record : cursor) {
+                                    handler.onRecord(record);
+                                }
+                            } catch (final IOException e) {
+                                throw new UncheckedIOException(e);
+                            } finally {
+                                cursor.close();
+                                if (conn.getAutoCommit() != autoCommit) {
+                                    conn.commit();
+                                    conn.setAutoCommit(autoCommit);
+                                }
+                            }
+                            return null;
+                        }
+                    });
+        } catch (final UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    // Denormalized card details (indexed, for search)
+
+    @Nullable
+    private static String toCardLastFour(final Map<String, Object> additionalDataMap) {
+        final Object cardNumber = additionalDataMap.get("card_number");
+        if (cardNumber == null || cardNumber.toString().length() < 4) {
+            return null;
+        }
+        final String cardNumberString = cardNumber.toString();
+        return cardNumberString.substring(cardNumberString.length() - 4);
+    }
+
+    @Nullable
+    private static String toCardType(final Map<String, Object> additionalDataMap) {
+        final Object cardType = additionalDataMap.get("card_type");
+        return cardType == null ? null : Ascii.truncate(cardType.toString().toUpperCase(Locale.ROOT), CARD_TYPE_MAX_LENGTH, "");
+    }
+
+    @Nullable
+    private static String toCardExpDate(final Map<String, Object> additionalDataMap) {
+        final Object expDate = additionalDataMap.get("exp_date");
+        return expDate == null || !FOUR_DIGITS.matcher(expDate.toString()).matches() ? null : expDate.toString();
+    }
+
     public static Map fromAdditionalData(@Nullable final String additionalData) {
         if (additionalData == null) {
             return ImmutableMap.of();
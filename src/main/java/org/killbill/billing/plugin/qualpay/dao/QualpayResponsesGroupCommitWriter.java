@@ -0,0 +1,181 @@
+/*
+ * Copyright 2014-2019 Groupon, Inc
+ * Copyright 2014-2019 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.plugin.qualpay.dao;
+
+import java.io.Closeable;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.killbill.billing.plugin.qualpay.dao.gen.tables.records.QualpayResponsesRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.SettableFuture;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+// Coalesces concurrent addResponse calls into multi-row inserts (one statement, one commit per batch)
+public class QualpayResponsesGroupCommitWriter implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(QualpayResponsesGroupCommitWriter.class);
+
+    private static final long POLL_TIMEOUT_MILLIS = 100;
+    private static final long SHUTDOWN_TIMEOUT_SECONDS = 30;
+
+    private final QualpayDao dao;
+    private final int maxBatchSize;
+    private final long lingerNanos;
+    private final BlockingQueue<PendingResponse> pendingResponses = new LinkedBlockingQueue<PendingResponse>();
+    private final ExecutorService executor;
+
+    private volatile boolean isStopped = false;
+
+    public QualpayResponsesGroupCommitWriter(final QualpayDao dao, final int maxBatchSize, final long lingerMillis) {
+        this.dao = dao;
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+        this.lingerNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, lingerMillis));
+        this.executor = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder().setNameFormat("qualpay-group-commit-%d")
+                                                                                    .setDaemon(true)
+                                                                                    .build());
+        this.executor.submit(new Runnable() {
+            @Override
+            public void run() {
+                flushLoop();
+            }
+        });
+    }
+
+    // Blocks until the batch containing this response has been committed
+    public QualpayResponsesRecord addResponse(final QualpayResponsesRecord response) throws SQLException {
+        final PendingResponse pendingResponse = new PendingResponse(response);
+        pendingResponses.add(pendingResponse);
+        if (isStopped && pendingResponses.remove(pendingResponse)) {
+            // The flusher may already be gone, write it ourselves
+            return dao.addResponses(ImmutableList.<QualpayResponsesRecord>of(response)).get(0);
+        }
+
+        try {
+            return pendingResponse.future.get();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for the response to be committed", e);
+        } catch (final ExecutionException e) {
+            if (e.getCause() instanceof SQLException) {
+                throw (SQLException) e.getCause();
+            }
+            throw new SQLException("Unable to commit response", e.getCause());
+        }
+    }
+
+    @Override
+    public void close() {
+        isStopped = true;
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                logger.warn("Timed out waiting for pending Qualpay responses to be committed");
+                executor.shutdownNow();
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            executor.shutdownNow();
+        }
+    }
+
+    private void flushLoop() {
+        final List<PendingResponse> batch = new ArrayList<PendingResponse>(maxBatchSize);
+        // Keep draining after close() so that no caller is left blocked
+        while (!isStopped || !pendingResponses.isEmpty()) {
+            try {
+                final PendingResponse first = pendingResponses.poll(POLL_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+
+                final long deadline = System.nanoTime() + lingerNanos;
+                while (batch.size() < maxBatchSize) {
+                    pendingResponses.drainTo(batch, maxBatchSize - batch.size());
+                    final long remainingNanos = deadline - System.nanoTime();
+                    if (batch.size() >= maxBatchSize || remainingNanos <= 0) {
+                        break;
+                    }
+
+                    final PendingResponse next = pendingResponses.poll(remainingNanos, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+
+                flush(batch);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                fail(batch, new SQLException("Interrupted before the response could be committed", e));
+                break;
+            } finally {
+                batch.clear();
+            }
+        }
+
+        final List<PendingResponse> leftovers = new ArrayList<PendingResponse>();
+        pendingResponses.drainTo(leftovers);
+        fail(leftovers, new SQLException("Group commit writer stopped before the response could be committed"));
+    }
+
+    private void flush(final List<PendingResponse> batch) {
+        final List<QualpayResponsesRecord> responses = new ArrayList<QualpayResponsesRecord>(batch.size());
+        for (final PendingResponse pendingResponse : batch) {
+            responses.add(pendingResponse.response);
+        }
+
+        try {
+            final List<QualpayResponsesRecord> inserted = dao.addResponses(responses);
+            for (int i = 0; i < batch.size(); i++) {
+                batch.get(i).future.set(inserted.get(i));
+            }
+        } catch (final SQLException e) {
+            fail(batch, e);
+        } catch (final RuntimeException e) {
+            fail(batch, e);
+        }
+    }
+
+    private void fail(final Iterable<PendingResponse> pendingResponses, final Exception e) {
+        for (final PendingResponse pendingResponse : pendingResponses) {
+            pendingResponse.future.setException(e);
+        }
+    }
+
+    private static final class PendingResponse {
+
+        private final QualpayResponsesRecord response;
+        private final SettableFuture<QualpayResponsesRecord> future = SettableFuture.create();
+
+        private PendingResponse(final QualpayResponsesRecord response) {
+            this.response = response;
+        }
+    }
+}
@@ -27,10 +27,20 @@ import org.jooq.Identity;
 import org.jooq.UniqueKey;
 import org.jooq.impl.AbstractKeys;
 import org.jooq.types.ULong;
+import org.killbill.billing.plugin.qualpay.dao.gen.tables.QualpayAccounts;
+import org.killbill.billing.plugin.qualpay.dao.gen.tables.QualpayNotifications;
 import org.killbill.billing.plugin.qualpay.dao.gen.tables.QualpayPaymentMethods;
+import org.killbill.billing.plugin.qualpay.dao.gen.tables.QualpayReconciliationItems;
+import org.killbill.billing.plugin.qualpay.dao.gen.tables.QualpayReconciliations;
 import org.killbill.billing.plugin.qualpay.dao.gen.tables.QualpayResponses;
+import org.killbill.billing.plugin.qualpay.dao.gen.tables.QualpaySyncCheckpoints;
+import org.killbill.billing.plugin.qualpay.dao.gen.tables.records.QualpayAccountsRecord;
+import org.killbill.billing.plugin.qualpay.dao.gen.tables.records.QualpayNotificationsRecord;
 import org.killbill.billing.plugin.qualpay.dao.gen.tables.records.QualpayPaymentMethodsRecord;
+import org.killbill.billing.plugin.qualpay.dao.gen.tables.records.QualpayReconciliationItemsRecord;
+import org.killbill.billing.plugin.qualpay.dao.gen.tables.records.QualpayReconciliationsRecord;
 import org.killbill.billing.plugin.qualpay.dao.gen.tables.records.QualpayResponsesRecord;
+import org.killbill.billing.plugin.qualpay.dao.gen.tables.records.QualpaySyncCheckpointsRecord;
 
 
 /**
@@ -51,18 +61,36 @@ public class Keys {
     // IDENTITY definitions
     // -------------------------------------------------------------------------
 
+    public static final Identity<QualpayAccountsRecord, ULong> IDENTITY_QUALPAY_ACCOUNTS = Identities0.IDENTITY_QUALPAY_ACCOUNTS;
+    public static final Identity<QualpayNotificationsRecord, ULong> IDENTITY_QUALPAY_NOTIFICATIONS = Identities0.IDENTITY_QUALPAY_NOTIFICATIONS;
     public static final Identity<QualpayPaymentMethodsRecord, ULong> IDENTITY_QUALPAY_PAYMENT_METHODS = Identities0.IDENTITY_QUALPAY_PAYMENT_METHODS;
+    public static final Identity<QualpayReconciliationItemsRecord, ULong> IDENTITY_QUALPAY_RECONCILIATION_ITEMS = Identities0.IDENTITY_QUALPAY_RECONCILIATION_ITEMS;
+    public static final Identity<QualpayReconciliationsRecord, ULong> IDENTITY_QUALPAY_RECONCILIATIONS = Identities0.IDENTITY_QUALPAY_RECONCILIATIONS;
     public static final Identity<QualpayResponsesRecord, ULong> IDENTITY_QUALPAY_RESPONSES = Identities0.IDENTITY_QUALPAY_RESPONSES;
+    public static final Identity<QualpaySyncCheckpointsRecord, ULong> IDENTITY_QUALPAY_SYNC_CHECKPOINTS = Identities0.IDENTITY_QUALPAY_SYNC_CHECKPOINTS;
 
     // -------------------------------------------------------------------------
     // UNIQUE and PRIMARY KEY definitions
     // -------------------------------------------------------------------------
 
+    public static final UniqueKey<QualpayAccountsRecord> KEY_QUALPAY_ACCOUNTS_PRIMARY = UniqueKeys0.KEY_QUALPAY_ACCOUNTS_PRIMARY;
+    public static final UniqueKey<QualpayAccountsRecord> KEY_QUALPAY_ACCOUNTS_RECORD_ID = UniqueKeys0.KEY_QUALPAY_ACCOUNTS_RECORD_ID;
+    public static final UniqueKey<QualpayAccountsRecord> KEY_QUALPAY_ACCOUNTS_QUALPAY_ACCOUNTS_KB_ACCOUNT_ID = UniqueKeys0.KEY_QUALPAY_ACCOUNTS_QUALPAY_ACCOUNTS_KB_ACCOUNT_ID;
+    public static final UniqueKey<QualpayNotificationsRecord> KEY_QUALPAY_NOTIFICATIONS_PRIMARY = UniqueKeys0.KEY_QUALPAY_NOTIFICATIONS_PRIMARY;
+    public static final UniqueKey<QualpayNotificationsRecord> KEY_QUALPAY_NOTIFICATIONS_RECORD_ID = UniqueKeys0.KEY_QUALPAY_NOTIFICATIONS_RECORD_ID;
+    public static final UniqueKey<QualpayNotificationsRecord> KEY_QUALPAY_NOTIFICATIONS_QUALPAY_NOTIFICATIONS_EVENT_ID_KB_TENANT_ID = UniqueKeys0.KEY_QUALPAY_NOTIFICATIONS_QUALPAY_NOTIFICATIONS_EVENT_ID_KB_TENANT_ID;
     public static final UniqueKey<QualpayPaymentMethodsRecord> KEY_QUALPAY_PAYMENT_METHODS_PRIMARY = UniqueKeys0.KEY_QUALPAY_PAYMENT_METHODS_PRIMARY;
     public static final UniqueKey<QualpayPaymentMethodsRecord> KEY_QUALPAY_PAYMENT_METHODS_RECORD_ID = UniqueKeys0.KEY_QUALPAY_PAYMENT_METHODS_RECORD_ID;
     public static final UniqueKey<QualpayPaymentMethodsRecord> KEY_QUALPAY_PAYMENT_METHODS_QUALPAY_PAYMENT_METHODS_KB_PAYMENT_ID = UniqueKeys0.KEY_QUALPAY_PAYMENT_METHODS_QUALPAY_PAYMENT_METHODS_KB_PAYMENT_ID;
+    public static final UniqueKey<QualpayReconciliationItemsRecord> KEY_QUALPAY_RECONCILIATION_ITEMS_PRIMARY = UniqueKeys0.KEY_QUALPAY_RECONCILIATION_ITEMS_PRIMARY;
+    public static final UniqueKey<QualpayReconciliationItemsRecord> KEY_QUALPAY_RECONCILIATION_ITEMS_RECORD_ID = UniqueKeys0.KEY_QUALPAY_RECONCILIATION_ITEMS_RECORD_ID;
+    public static final UniqueKey<QualpayReconciliationsRecord> KEY_QUALPAY_RECONCILIATIONS_PRIMARY = UniqueKeys0.KEY_QUALPAY_RECONCILIATIONS_PRIMARY;
+    public static final UniqueKey<QualpayReconciliationsRecord> KEY_QUALPAY_RECONCILIATIONS_RECORD_ID = UniqueKeys0.KEY_QUALPAY_RECONCILIATIONS_RECORD_ID;
     public static final UniqueKey<QualpayResponsesRecord> KEY_QUALPAY_RESPONSES_PRIMARY = UniqueKeys0.KEY_QUALPAY_RESPONSES_PRIMARY;
     public static final UniqueKey<QualpayResponsesRecord> KEY_QUALPAY_RESPONSES_RECORD_ID = UniqueKeys0.KEY_QUALPAY_RESPONSES_RECORD_ID;
+    public static final UniqueKey<QualpaySyncCheckpointsRecord> KEY_QUALPAY_SYNC_CHECKPOINTS_PRIMARY = UniqueKeys0.KEY_QUALPAY_SYNC_CHECKPOINTS_PRIMARY;
+    public static final UniqueKey<QualpaySyncCheckpointsRecord> KEY_QUALPAY_SYNC_CHECKPOINTS_RECORD_ID = UniqueKeys0.KEY_QUALPAY_SYNC_CHECKPOINTS_RECORD_ID;
+    public static final UniqueKey<QualpaySyncCheckpointsRecord> KEY_QUALPAY_SYNC_CHECKPOINTS_QUALPAY_SYNC_CHECKPOINTS_JOB_NAME_KB_TENANT_ID = UniqueKeys0.KEY_QUALPAY_SYNC_CHECKPOINTS_QUALPAY_SYNC_CHECKPOINTS_JOB_NAME_KB_TENANT_ID;
 
     // -------------------------------------------------------------------------
     // FOREIGN KEY definitions
@@ -74,15 +102,33 @@ public class Keys {
     // -------------------------------------------------------------------------
 
     private static class Identities0 extends AbstractKeys {
+        public static Identity<QualpayAccountsRecord, ULong> IDENTITY_QUALPAY_ACCOUNTS = createIdentity(QualpayAccounts.QUALPAY_ACCOUNTS, QualpayAccounts.QUALPAY_ACCOUNTS.RECORD_ID);
+        public static Identity<QualpayNotificationsRecord, ULong> IDENTITY_QUALPAY_NOTIFICATIONS = createIdentity(QualpayNotifications.QUALPAY_NOTIFICATIONS, QualpayNotifications.QUALPAY_NOTIFICATIONS.RECORD_ID);
         public static Identity<QualpayPaymentMethodsRecord, ULong> IDENTITY_QUALPAY_PAYMENT_METHODS = createIdentity(QualpayPaymentMethods.QUALPAY_PAYMENT_METHODS, QualpayPaymentMethods.QUALPAY_PAYMENT_METHODS.RECORD_ID);
+        public static Identity<QualpayReconciliationItemsRecord, ULong> IDENTITY_QUALPAY_RECONCILIATION_ITEMS = createIdentity(QualpayReconciliationItems.QUALPAY_RECONCILIATION_ITEMS, QualpayReconciliationItems.QUALPAY_RECONCILIATION_ITEMS.RECORD_ID);
+        public static Identity<QualpayReconciliationsRecord, ULong> IDENTITY_QUALPAY_RECONCILIATIONS = createIdentity(QualpayReconciliations.QUALPAY_RECONCILIATIONS, QualpayReconciliations.QUALPAY_RECONCILIATIONS.RECORD_ID);
         public static Identity<QualpayResponsesRecord, ULong> IDENTITY_QUALPAY_RESPONSES = createIdentity(QualpayResponses.QUALPAY_RESPONSES, QualpayResponses.QUALPAY_RESPONSES.RECORD_ID);
+        public static Identity<QualpaySyncCheckpointsRecord, ULong> IDENTITY_QUALPAY_SYNC_CHECKPOINTS = createIdentity(QualpaySyncCheckpoints.QUALPAY_SYNC_CHECKPOINTS, QualpaySyncCheckpoints.QUALPAY_SYNC_CHECKPOINTS.RECORD_ID);
     }
 
     private static class UniqueKeys0 extends AbstractKeys {
+        public static final UniqueKey<QualpayAccountsRecord> KEY_QUALPAY_ACCOUNTS_PRIMARY = createUniqueKey(QualpayAccounts.QUALPAY_ACCOUNTS, "KEY_qualpay_accounts_PRIMARY", QualpayAccounts.QUALPAY_ACCOUNTS.RECORD_ID);
+        public static final UniqueKey<QualpayAccountsRecord> KEY_QUALPAY_ACCOUNTS_RECORD_ID = createUniqueKey(QualpayAccounts.QUALPAY_ACCOUNTS, "KEY_qualpay_accounts_record_id", QualpayAccounts.QUALPAY_ACCOUNTS.RECORD_ID);
+        public static final UniqueKey<QualpayAccountsRecord> KEY_QUALPAY_ACCOUNTS_QUALPAY_ACCOUNTS_KB_ACCOUNT_ID = createUniqueKey(QualpayAccounts.QUALPAY_ACCOUNTS, "KEY_qualpay_accounts_qualpay_accounts_kb_account_id", QualpayAccounts.QUALPAY_ACCOUNTS.KB_ACCOUNT_ID);
+        public static final UniqueKey<QualpayNotificationsRecord> KEY_QUALPAY_NOTIFICATIONS_PRIMARY = createUniqueKey(QualpayNotifications.QUALPAY_NOTIFICATIONS, "KEY_qualpay_notifications_PRIMARY", QualpayNotifications.QUALPAY_NOTIFICATIONS.RECORD_ID);
+        public static final UniqueKey<QualpayNotificationsRecord> KEY_QUALPAY_NOTIFICATIONS_RECORD_ID = createUniqueKey(QualpayNotifications.QUALPAY_NOTIFICATIONS, "KEY_qualpay_notifications_record_id", QualpayNotifications.QUALPAY_NOTIFICATIONS.RECORD_ID);
+        public static final UniqueKey<QualpayNotificationsRecord> KEY_QUALPAY_NOTIFICATIONS_QUALPAY_NOTIFICATIONS_EVENT_ID_KB_TENANT_ID = createUniqueKey(QualpayNotifications.QUALPAY_NOTIFICATIONS, "KEY_qualpay_notifications_qualpay_notifications_event_id_kb_tenant_id", QualpayNotifications.QUALPAY_NOTIFICATIONS.EVENT_ID, QualpayNotifications.QUALPAY_NOTIFICATIONS.KB_TENANT_ID);
         public static final UniqueKey<QualpayPaymentMethodsRecord> KEY_QUALPAY_PAYMENT_METHODS_PRIMARY = createUniqueKey(QualpayPaymentMethods.QUALPAY_PAYMENT_METHODS, "KEY_qualpay_payment_methods_PRIMARY", QualpayPaymentMethods.QUALPAY_PAYMENT_METHODS.RECORD_ID);
         public static final UniqueKey<QualpayPaymentMethodsRecord> KEY_QUALPAY_PAYMENT_METHODS_RECORD_ID = createUniqueKey(QualpayPaymentMethods.QUALPAY_PAYMENT_METHODS, "KEY_qualpay_payment_methods_record_id", QualpayPaymentMethods.QUALPAY_PAYMENT_METHODS.RECORD_ID);
         public static final UniqueKey<QualpayPaymentMethodsRecord> KEY_QUALPAY_PAYMENT_METHODS_QUALPAY_PAYMENT_METHODS_KB_PAYMENT_ID = createUniqueKey(QualpayPaymentMethods.QUALPAY_PAYMENT_METHODS, "KEY_qualpay_payment_methods_qualpay_payment_methods_kb_payment_id", QualpayPaymentMethods.QUALPAY_PAYMENT_METHODS.KB_PAYMENT_METHOD_ID);
+        public static final UniqueKey<QualpayReconciliationItemsRecord> KEY_QUALPAY_RECONCILIATION_ITEMS_PRIMARY = createUniqueKey(QualpayReconciliationItems.QUALPAY_RECONCILIATION_ITEMS, "KEY_qualpay_reconciliation_items_PRIMARY", QualpayReconciliationItems.QUALPAY_RECONCILIATION_ITEMS.RECORD_ID);
+        public static final UniqueKey<QualpayReconciliationItemsRecord> KEY_QUALPAY_RECONCILIATION_ITEMS_RECORD_ID = createUniqueKey(QualpayReconciliationItems.QUALPAY_RECONCILIATION_ITEMS, "KEY_qualpay_reconciliation_items_record_id", QualpayReconciliationItems.QUALPAY_RECONCILIATION_ITEMS.RECORD_ID);
+        public static final UniqueKey<QualpayReconciliationsRecord> KEY_QUALPAY_RECONCILIATIONS_PRIMARY = createUniqueKey(QualpayReconciliations.QUALPAY_RECONCILIATIONS, "KEY_qualpay_reconciliations_PRIMARY", QualpayReconciliations.QUALPAY_RECONCILIATIONS.RECORD_ID);
+        public static final UniqueKey<QualpayReconciliationsRecord> KEY_QUALPAY_RECONCILIATIONS_RECORD_ID = createUniqueKey(QualpayReconciliations.QUALPAY_RECONCILIATIONS, "KEY_qualpay_reconciliations_record_id", QualpayReconciliations.QUALPAY_RECONCILIATIONS.RECORD_ID);
         public static final UniqueKey<QualpayResponsesRecord> KEY_QUALPAY_RESPONSES_PRIMARY = createUniqueKey(QualpayResponses.QUALPAY_RESPONSES, "KEY_qualpay_responses_PRIMARY", QualpayResponses.QUALPAY_RESPONSES.RECORD_ID);
         public static final UniqueKey<QualpayResponsesRecord> KEY_QUALPAY_RESPONSES_RECORD_ID = createUniqueKey(QualpayResponses.QUALPAY_RESPONSES, "KEY_qualpay_responses_record_id", QualpayResponses.QUALPAY_RESPONSES.RECORD_ID);
+        public static final UniqueKey<QualpaySyncCheckpointsRecord> KEY_QUALPAY_SYNC_CHECKPOINTS_PRIMARY = createUniqueKey(QualpaySyncCheckpoints.QUALPAY_SYNC_CHECKPOINTS, "KEY_qualpay_sync_checkpoints_PRIMARY", QualpaySyncCheckpoints.QUALPAY_SYNC_CHECKPOINTS.RECORD_ID);
+        public static final UniqueKey<QualpaySyncCheckpointsRecord> KEY_QUALPAY_SYNC_CHECKPOINTS_RECORD_ID = createUniqueKey(QualpaySyncCheckpoints.QUALPAY_SYNC_CHECKPOINTS, "KEY_qualpay_sync_checkpoints_record_id", QualpaySyncCheckpoints.QUALPAY_SYNC_CHECKPOINTS.RECORD_ID);
+        public static final UniqueKey<QualpaySyncCheckpointsRecord> KEY_QUALPAY_SYNC_CHECKPOINTS_QUALPAY_SYNC_CHECKPOINTS_JOB_NAME_KB_TENANT_ID = createUniqueKey(QualpaySyncCheckpoints.QUALPAY_SYNC_CHECKPOINTS, "KEY_qualpay_sync_checkpoints_qualpay_sync_checkpoints_job_name_kb_tenant_id", QualpaySyncCheckpoints.QUALPAY_SYNC_CHECKPOINTS.JOB_NAME, QualpaySyncCheckpoints.QUALPAY_SYNC_CHECKPOINTS.KB_TENANT_ID);
     }
 }
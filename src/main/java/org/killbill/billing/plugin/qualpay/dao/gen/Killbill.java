@@ -30,8 +30,13 @@ import javax.annotation.Generated;
 import org.jooq.Catalog;
 import org.jooq.Table;
 import org.jooq.impl.SchemaImpl;
+import org.killbill.billing.plugin.qualpay.dao.gen.tables.QualpayAccounts;
+import org.killbill.billing.plugin.qualpay.dao.gen.tables.QualpayNotifications;
 import org.killbill.billing.plugin.qualpay.dao.gen.tables.QualpayPaymentMethods;
+import org.killbill.billing.plugin.qualpay.dao.gen.tables.QualpayReconciliationItems;
+import org.killbill.billing.plugin.qualpay.dao.gen.tables.QualpayReconciliations;
 import org.killbill.billing.plugin.qualpay.dao.gen.tables.QualpayResponses;
+import org.killbill.billing.plugin.qualpay.dao.gen.tables.QualpaySyncCheckpoints;
 
 
 /**
@@ -47,23 +52,48 @@ import org.killbill.billing.plugin.qualpay.dao.gen.tables.QualpayResponses;
 @SuppressWarnings({ "all", "unchecked", "rawtypes" })
 public class Killbill extends SchemaImpl {
 
-    private static final long serialVersionUID = -127110581;
+    private static final long serialVersionUID = 607710234;
 
     /**
      * The reference instance of <code>killbill</code>
      */
     public static final Killbill KILLBILL = new Killbill();
 
+    /**
+     * The table <code>killbill.qualpay_accounts</code>.
+     */
+    public final QualpayAccounts QUALPAY_ACCOUNTS = org.killbill.billing.plugin.qualpay.dao.gen.tables.QualpayAccounts.QUALPAY_ACCOUNTS;
+
+    /**
+     * The table <code>killbill.qualpay_notifications</code>.
+     */
+    public final QualpayNotifications QUALPAY_NOTIFICATIONS = org.killbill.billing.plugin.qualpay.dao.gen.tables.QualpayNotifications.QUALPAY_NOTIFICATIONS;
+
     /**
      * The table <code>killbill.qualpay_payment_methods</code>.
      */
     public final QualpayPaymentMethods QUALPAY_PAYMENT_METHODS = org.killbill.billing.plugin.qualpay.dao.gen.tables.QualpayPaymentMethods.QUALPAY_PAYMENT_METHODS;
 
+    /**
+     * The table <code>killbill.qualpay_reconciliation_items</code>.
+     */
+    public final QualpayReconciliationItems QUALPAY_RECONCILIATION_ITEMS = org.killbill.billing.plugin.qualpay.dao.gen.tables.QualpayReconciliationItems.QUALPAY_RECONCILIATION_ITEMS;
+
+    /**
+     * The table <code>killbill.qualpay_reconciliations</code>.
+     */
+    public final QualpayReconciliations QUALPAY_RECONCILIATIONS = org.killbill.billing.plugin.qualpay.dao.gen.tables.QualpayReconciliations.QUALPAY_RECONCILIATIONS;
+
     /**
      * The table <code>killbill.qualpay_responses</code>.
      */
     public final QualpayResponses QUALPAY_RESPONSES = org.killbill.billing.plugin.qualpay.dao.gen.tables.QualpayResponses.QUALPAY_RESPONSES;
 
+    /**
+     * The table <code>killbill.qualpay_sync_checkpoints</code>.
+     */
+    public final QualpaySyncCheckpoints QUALPAY_SYNC_CHECKPOINTS = org.killbill.billing.plugin.qualpay.dao.gen.tables.QualpaySyncCheckpoints.QUALPAY_SYNC_CHECKPOINTS;
+
     /**
      * No further instances allowed
      */
@@ -89,7 +119,12 @@ public class Killbill extends SchemaImpl {
 
     private final List<Table<?>> getTables0() {
         return Arrays.<Table<?>>asList(
+            QualpayAccounts.QUALPAY_ACCOUNTS,
+            QualpayNotifications.QUALPAY_NOTIFICATIONS,
             QualpayPaymentMethods.QUALPAY_PAYMENT_METHODS,
-            QualpayResponses.QUALPAY_RESPONSES);
+            QualpayReconciliationItems.QUALPAY_RECONCILIATION_ITEMS,
+            QualpayReconciliations.QUALPAY_RECONCILIATIONS,
+            QualpayResponses.QUALPAY_RESPONSES,
+            QualpaySyncCheckpoints.QUALPAY_SYNC_CHECKPOINTS);
     }
 }
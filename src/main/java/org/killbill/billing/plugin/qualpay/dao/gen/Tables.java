@@ -23,8 +23,13 @@ package org.killbill.billing.plugin.qualpay.dao.gen;
 
 import javax.annotation.Generated;
 
+import org.killbill.billing.plugin.qualpay.dao.gen.tables.QualpayAccounts;
+import org.killbill.billing.plugin.qualpay.dao.gen.tables.QualpayNotifications;
 import org.killbill.billing.plugin.qualpay.dao.gen.tables.QualpayPaymentMethods;
+import org.killbill.billing.plugin.qualpay.dao.gen.tables.QualpayReconciliationItems;
+import org.killbill.billing.plugin.qualpay.dao.gen.tables.QualpayReconciliations;
 import org.killbill.billing.plugin.qualpay.dao.gen.tables.QualpayResponses;
+import org.killbill.billing.plugin.qualpay.dao.gen.tables.QualpaySyncCheckpoints;
 
 
 /**
@@ -40,13 +45,38 @@ import org.killbill.billing.plugin.qualpay.dao.gen.tables.QualpayResponses;
 @SuppressWarnings({ "all", "unchecked", "rawtypes" })
 public class Tables {
 
+    /**
+     * The table <code>killbill.qualpay_accounts</code>.
+     */
+    public static final QualpayAccounts QUALPAY_ACCOUNTS = org.killbill.billing.plugin.qualpay.dao.gen.tables.QualpayAccounts.QUALPAY_ACCOUNTS;
+
+    /**
+     * The table <code>killbill.qualpay_notifications</code>.
+     */
+    public static final QualpayNotifications QUALPAY_NOTIFICATIONS = org.killbill.billing.plugin.qualpay.dao.gen.tables.QualpayNotifications.QUALPAY_NOTIFICATIONS;
+
     /**
      * The table <code>killbill.qualpay_payment_methods</code>.
      */
     public static final QualpayPaymentMethods QUALPAY_PAYMENT_METHODS = org.killbill.billing.plugin.qualpay.dao.gen.tables.QualpayPaymentMethods.QUALPAY_PAYMENT_METHODS;
 
+    /**
+     * The table <code>killbill.qualpay_reconciliation_items</code>.
+     */
+    public static final QualpayReconciliationItems QUALPAY_RECONCILIATION_ITEMS = org.killbill.billing.plugin.qualpay.dao.gen.tables.QualpayReconciliationItems.QUALPAY_RECONCILIATION_ITEMS;
+
+    /**
+     * The table <code>killbill.qualpay_reconciliations</code>.
+     */
+    public static final QualpayReconciliations QUALPAY_RECONCILIATIONS = org.killbill.billing.plugin.qualpay.dao.gen.tables.QualpayReconciliations.QUALPAY_RECONCILIATIONS;
+
     /**
      * The table <code>killbill.qualpay_responses</code>.
      */
     public static final QualpayResponses QUALPAY_RESPONSES = org.killbill.billing.plugin.qualpay.dao.gen.tables.QualpayResponses.QUALPAY_RESPONSES;
+
+    /**
+     * The table <code>killbill.qualpay_sync_checkpoints</code>.
+     */
+    public static final QualpaySyncCheckpoints QUALPAY_SYNC_CHECKPOINTS = org.killbill.billing.plugin.qualpay.dao.gen.tables.QualpaySyncCheckpoints.QUALPAY_SYNC_CHECKPOINTS;
 }
@@ -53,7 +53,7 @@ import org.killbill.billing.plugin.qualpay.dao.gen.tables.records.QualpayPayment
 @SuppressWarnings({ "all", "unchecked", "rawtypes" })
 public class QualpayPaymentMethods extends TableImpl<QualpayPaymentMethodsRecord> {
 
-    private static final long serialVersionUID = 1088168636;
+    private static final long serialVersionUID = 1197299086;
 
     /**
      * The reference instance of <code>killbill.qualpay_payment_methods</code>
@@ -93,11 +93,31 @@ public class QualpayPaymentMethods extends TableImpl<QualpayPaymentMethodsRecord
      */
     public final TableField<QualpayPaymentMethodsRecord, Short> IS_DELETED = createField("is_deleted", org.jooq.impl.SQLDataType.SMALLINT.nullable(false).defaultValue(org.jooq.impl.DSL.inline("0", org.jooq.impl.SQLDataType.SMALLINT)), this, "");
 
+    /**
+     * The column <code>killbill.qualpay_payment_methods.card_last_four</code>.
+     */
+    public final TableField<QualpayPaymentMethodsRecord, String> CARD_LAST_FOUR = createField("card_last_four", org.jooq.impl.SQLDataType.VARCHAR.length(4).defaultValue(org.jooq.impl.DSL.inline("NULL", org.jooq.impl.SQLDataType.VARCHAR)), this, "");
+
+    /**
+     * The column <code>killbill.qualpay_payment_methods.card_type</code>.
+     */
+    public final TableField<QualpayPaymentMethodsRecord, String> CARD_TYPE = createField("card_type", org.jooq.impl.SQLDataType.VARCHAR.length(32).defaultValue(org.jooq.impl.DSL.inline("NULL", org.jooq.impl.SQLDataType.VARCHAR)), this, "");
+
+    /**
+     * The column <code>killbill.qualpay_payment_methods.card_exp_date</code>.
+     */
+    public final TableField<QualpayPaymentMethodsRecord, String> CARD_EXP_DATE = createField("card_exp_date", org.jooq.impl.SQLDataType.VARCHAR.length(4).defaultValue(org.jooq.impl.DSL.inline("NULL", org.jooq.impl.SQLDataType.VARCHAR)), this, "");
+
     /**
      * The column <code>killbill.qualpay_payment_methods.additional_data</code>.
      */
     public final TableField<QualpayPaymentMethodsRecord, String> ADDITIONAL_DATA = createField("additional_data", org.jooq.impl.SQLDataType.CLOB.defaultValue(org.jooq.impl.DSL.inline("NULL", org.jooq.impl.SQLDataType.CLOB)), this, "");
 
+    /**
+     * The column <code>killbill.qualpay_payment_methods.content_hash</code>.
+     */
+    public final TableField<QualpayPaymentMethodsRecord, String> CONTENT_HASH = createField("content_hash", org.jooq.impl.SQLDataType.VARCHAR.length(64).defaultValue(org.jooq.impl.DSL.inline("NULL", org.jooq.impl.SQLDataType.VARCHAR)), this, "");
+
     /**
      * The column <code>killbill.qualpay_payment_methods.created_date</code>.
      */
@@ -114,6 +114,11 @@ public class QualpayResponses extends TableImpl<QualpayResponsesRecord> {
      */
     public final TableField<QualpayResponsesRecord, String> ADDITIONAL_DATA = createField("additional_data", org.jooq.impl.SQLDataType.CLOB.defaultValue(org.jooq.impl.DSL.inline("NULL", org.jooq.impl.SQLDataType.CLOB)), this, "");
 
+    /**
+     * The column <code>killbill.qualpay_responses.plugin_status</code>.
+     */
+    public final TableField<QualpayResponsesRecord, String> PLUGIN_STATUS = createField("plugin_status", org.jooq.impl.SQLDataType.VARCHAR.length(32).defaultValue(org.jooq.impl.DSL.inline("NULL", org.jooq.impl.SQLDataType.VARCHAR)), this, "");
+
     /**
      * The column <code>killbill.qualpay_responses.created_date</code>.
      */
@@ -27,8 +27,8 @@ import javax.annotation.Generated;
 
 import org.jooq.Field;
 import org.jooq.Record1;
-import org.jooq.Record9;
-import org.jooq.Row9;
+import org.jooq.Record13;
+import org.jooq.Row13;
 import org.jooq.impl.UpdatableRecordImpl;
 import org.jooq.types.ULong;
 import org.killbill.billing.plugin.qualpay.dao.gen.tables.QualpayPaymentMethods;
@@ -45,9 +45,9 @@ import org.killbill.billing.plugin.qualpay.dao.gen.tables.QualpayPaymentMethods;
     comments = "This class is generated by jOOQ"
 )
 @SuppressWarnings({ "all", "unchecked", "rawtypes" })
-public class QualpayPaymentMethodsRecord extends UpdatableRecordImpl<QualpayPaymentMethodsRecord> implements Record9<ULong, String, String, String, Short, String, Timestamp, Timestamp, String> {
+public class QualpayPaymentMethodsRecord extends UpdatableRecordImpl<QualpayPaymentMethodsRecord> implements Record13<ULong, String, String, String, Short, String, String, String, String, String, Timestamp, Timestamp, String> {
 
-    private static final long serialVersionUID = 1758215017;
+    private static final long serialVersionUID = 1231966506;
 
     /**
      * Setter for <code>killbill.qualpay_payment_methods.record_id</code>.
@@ -119,60 +119,116 @@ public class QualpayPaymentMethodsRecord extends UpdatableRecordImpl<QualpayPaym
         return (Short) get(4);
     }
 
+    /**
+     * Setter for <code>killbill.qualpay_payment_methods.card_last_four</code>.
+     */
+    public void setCardLastFour(String value) {
+        set(5, value);
+    }
+
+    /**
+     * Getter for <code>killbill.qualpay_payment_methods.card_last_four</code>.
+     */
+    public String getCardLastFour() {
+        return (String) get(5);
+    }
+
+    /**
+     * Setter for <code>killbill.qualpay_payment_methods.card_type</code>.
+     */
+    public void setCardType(String value) {
+        set(6, value);
+    }
+
+    /**
+     * Getter for <code>killbill.qualpay_payment_methods.card_type</code>.
+     */
+    public String getCardType() {
+        return (String) get(6);
+    }
+
+    /**
+     * Setter for <code>killbill.qualpay_payment_methods.card_exp_date</code>.
+     */
+    public void setCardExpDate(String value) {
+        set(7, value);
+    }
+
+    /**
+     * Getter for <code>killbill.qualpay_payment_methods.card_exp_date</code>.
+     */
+    public String getCardExpDate() {
+        return (String) get(7);
+    }
+
     /**
      * Setter for <code>killbill.qualpay_payment_methods.additional_data</code>.
      */
     public void setAdditionalData(String value) {
-        set(5, value);
+        set(8, value);
     }
 
     /**
      * Getter for <code>killbill.qualpay_payment_methods.additional_data</code>.
      */
     public String getAdditionalData() {
-        return (String) get(5);
+        return (String) get(8);
+    }
+
+    /**
+     * Setter for <code>killbill.qualpay_payment_methods.content_hash</code>.
+     */
+    public void setContentHash(String value) {
+        set(9, value);
+    }
+
+    /**
+     * Getter for <code>killbill.qualpay_payment_methods.content_hash</code>.
+     */
+    public String getContentHash() {
+        return (String) get(9);
     }
 
     /**
      * Setter for <code>killbill.qualpay_payment_methods.created_date</code>.
      */
     public void setCreatedDate(Timestamp value) {
-        set(6, value);
+        set(10, value);
     }
 
     /**
      * Getter for <code>killbill.qualpay_payment_methods.created_date</code>.
      */
     public Timestamp getCreatedDate() {
-        return (Timestamp) get(6);
+        return (Timestamp) get(10);
     }
 
     /**
      * Setter for <code>killbill.qualpay_payment_methods.updated_date</code>.
      */
     public void setUpdatedDate(Timestamp value) {
-        set(7, value);
+        set(11, value);
     }
 
     /**
      * Getter for <code>killbill.qualpay_payment_methods.updated_date</code>.
      */
     public Timestamp getUpdatedDate() {
-        return (Timestamp) get(7);
+        return (Timestamp) get(11);
     }
 
     /**
      * Setter for <code>killbill.qualpay_payment_methods.kb_tenant_id</code>.
      */
     public void setKbTenantId(String value) {
-        set(8, value);
+        set(12, value);
     }
 
     /**
      * Getter for <code>killbill.qualpay_payment_methods.kb_tenant_id</code>.
      */
     public String getKbTenantId() {
-        return (String) get(8);
+        return (String) get(12);
     }
 
     // -------------------------------------------------------------------------
@@ -188,23 +244,23 @@ public class QualpayPaymentMethodsRecord extends UpdatableRecordImpl<QualpayPaym
     }
 
     // -------------------------------------------------------------------------
-    // Record9 type implementation
+    // Record13 type implementation
     // -------------------------------------------------------------------------
 
     /**
      * {@inheritDoc}
      */
     @Override
-    public Row9<ULong, String, String, String, Short, String, Timestamp, Timestamp, String> fieldsRow() {
-        return (Row9) super.fieldsRow();
+    public Row13<ULong, String, String, String, Short, String, String, String, String, String, Timestamp, Timestamp, String> fieldsRow() {
+        return (Row13) super.fieldsRow();
     }
 
     /**
      * {@inheritDoc}
      */
     @Override
-    public Row9<ULong, String, String, String, Short, String, Timestamp, Timestamp, String> valuesRow() {
-        return (Row9) super.valuesRow();
+    public Row13<ULong, String, String, String, Short, String, String, String, String, String, Timestamp, Timestamp, String> valuesRow() {
+        return (Row13) super.valuesRow();
     }
 
     /**
@@ -252,6 +308,30 @@ public class QualpayPaymentMethodsRecord extends UpdatableRecordImpl<QualpayPaym
      */
     @Override
     public Field<String> field6() {
+        return QualpayPaymentMethods.QUALPAY_PAYMENT_METHODS.CARD_LAST_FOUR;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Field<String> field7() {
+        return QualpayPaymentMethods.QUALPAY_PAYMENT_METHODS.CARD_TYPE;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Field<String> field8() {
+        return QualpayPaymentMethods.QUALPAY_PAYMENT_METHODS.CARD_EXP_DATE;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Field<String> field9() {
         return QualpayPaymentMethods.QUALPAY_PAYMENT_METHODS.ADDITIONAL_DATA;
     }
 
@@ -259,7 +339,15 @@ public class QualpayPaymentMethodsRecord extends UpdatableRecordImpl<QualpayPaym
      * {@inheritDoc}
      */
     @Override
-    public Field<Timestamp> field7() {
+    public Field<String> field10() {
+        return QualpayPaymentMethods.QUALPAY_PAYMENT_METHODS.CONTENT_HASH;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Field<Timestamp> field11() {
         return QualpayPaymentMethods.QUALPAY_PAYMENT_METHODS.CREATED_DATE;
     }
 
@@ -267,7 +355,7 @@ public class QualpayPaymentMethodsRecord extends UpdatableRecordImpl<QualpayPaym
      * {@inheritDoc}
      */
     @Override
-    public Field<Timestamp> field8() {
+    public Field<Timestamp> field12() {
         return QualpayPaymentMethods.QUALPAY_PAYMENT_METHODS.UPDATED_DATE;
     }
 
@@ -275,7 +363,7 @@ public class QualpayPaymentMethodsRecord extends UpdatableRecordImpl<QualpayPaym
      * {@inheritDoc}
      */
     @Override
-    public Field<String> field9() {
+    public Field<String> field13() {
         return QualpayPaymentMethods.QUALPAY_PAYMENT_METHODS.KB_TENANT_ID;
     }
 
@@ -324,6 +412,30 @@ public class QualpayPaymentMethodsRecord extends UpdatableRecordImpl<QualpayPaym
      */
     @Override
     public String value6() {
+        return getCardLastFour();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String value7() {
+        return getCardType();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String value8() {
+        return getCardExpDate();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String value9() {
         return getAdditionalData();
     }
 
@@ -331,7 +443,15 @@ public class QualpayPaymentMethodsRecord extends UpdatableRecordImpl<QualpayPaym
      * {@inheritDoc}
      */
     @Override
-    public Timestamp value7() {
+    public String value10() {
+        return getContentHash();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Timestamp value11() {
         return getCreatedDate();
     }
 
@@ -339,7 +459,7 @@ public class QualpayPaymentMethodsRecord extends UpdatableRecordImpl<QualpayPaym
      * {@inheritDoc}
      */
     @Override
-    public Timestamp value8() {
+    public Timestamp value12() {
         return getUpdatedDate();
     }
 
@@ -347,7 +467,7 @@ public class QualpayPaymentMethodsRecord extends UpdatableRecordImpl<QualpayPaym
      * {@inheritDoc}
      */
     @Override
-    public String value9() {
+    public String value13() {
         return getKbTenantId();
     }
 
@@ -401,6 +521,33 @@ public class QualpayPaymentMethodsRecord extends UpdatableRecordImpl<QualpayPaym
      */
     @Override
     public QualpayPaymentMethodsRecord value6(String value) {
+        setCardLastFour(value);
+        return this;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public QualpayPaymentMethodsRecord value7(String value) {
+        setCardType(value);
+        return this;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public QualpayPaymentMethodsRecord value8(String value) {
+        setCardExpDate(value);
+        return this;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public QualpayPaymentMethodsRecord value9(String value) {
         setAdditionalData(value);
         return this;
     }
@@ -409,7 +556,16 @@ public class QualpayPaymentMethodsRecord extends UpdatableRecordImpl<QualpayPaym
      * {@inheritDoc}
      */
     @Override
-    public QualpayPaymentMethodsRecord value7(Timestamp value) {
+    public QualpayPaymentMethodsRecord value10(String value) {
+        setContentHash(value);
+        return this;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public QualpayPaymentMethodsRecord value11(Timestamp value) {
         setCreatedDate(value);
         return this;
     }
@@ -418,7 +574,7 @@ public class QualpayPaymentMethodsRecord extends UpdatableRecordImpl<QualpayPaym
      * {@inheritDoc}
      */
     @Override
-    public QualpayPaymentMethodsRecord value8(Timestamp value) {
+    public QualpayPaymentMethodsRecord value12(Timestamp value) {
         setUpdatedDate(value);
         return this;
     }
@@ -427,7 +583,7 @@ public class QualpayPaymentMethodsRecord extends UpdatableRecordImpl<QualpayPaym
      * {@inheritDoc}
      */
     @Override
-    public QualpayPaymentMethodsRecord value9(String value) {
+    public QualpayPaymentMethodsRecord value13(String value) {
         setKbTenantId(value);
         return this;
     }
@@ -436,7 +592,7 @@ public class QualpayPaymentMethodsRecord extends UpdatableRecordImpl<QualpayPaym
      * {@inheritDoc}
      */
     @Override
-    public QualpayPaymentMethodsRecord values(ULong value1, String value2, String value3, String value4, Short value5, String value6, Timestamp value7, Timestamp value8, String value9) {
+    public QualpayPaymentMethodsRecord values(ULong value1, String value2, String value3, String value4, Short value5, String value6, String value7, String value8, String value9, String value10, Timestamp value11, Timestamp value12, String value13) {
         value1(value1);
         value2(value2);
         value3(value3);
@@ -446,6 +602,10 @@ public class QualpayPaymentMethodsRecord extends UpdatableRecordImpl<QualpayPaym
         value7(value7);
         value8(value8);
         value9(value9);
+        value10(value10);
+        value11(value11);
+        value12(value12);
+        value13(value13);
         return this;
     }
 
@@ -463,7 +623,7 @@ public class QualpayPaymentMethodsRecord extends UpdatableRecordImpl<QualpayPaym
     /**
      * Create a detached, initialised QualpayPaymentMethodsRecord
      */
-    public QualpayPaymentMethodsRecord(ULong recordId, String kbAccountId, String kbPaymentMethodId, String qualpayId, Short isDeleted, String additionalData, Timestamp createdDate, Timestamp updatedDate, String kbTenantId) {
+    public QualpayPaymentMethodsRecord(ULong recordId, String kbAccountId, String kbPaymentMethodId, String qualpayId, Short isDeleted, String cardLastFour, String cardType, String cardExpDate, String additionalData, String contentHash, Timestamp createdDate, Timestamp updatedDate, String kbTenantId) {
         super(QualpayPaymentMethods.QUALPAY_PAYMENT_METHODS);
 
         set(0, recordId);
@@ -471,9 +631,13 @@ public class QualpayPaymentMethodsRecord extends UpdatableRecordImpl<QualpayPaym
         set(2, kbPaymentMethodId);
         set(3, qualpayId);
         set(4, isDeleted);
-        set(5, additionalData);
-        set(6, createdDate);
-        set(7, updatedDate);
-        set(8, kbTenantId);
+        set(5, cardLastFour);
+        set(6, cardType);
+        set(7, cardExpDate);
+        set(8, additionalData);
+        set(9, contentHash);
+        set(10, createdDate);
+        set(11, updatedDate);
+        set(12, kbTenantId);
     }
 }
@@ -28,8 +28,8 @@ import javax.annotation.Generated;
 
 import org.jooq.Field;
 import org.jooq.Record1;
-import org.jooq.Record11;
-import org.jooq.Row11;
+import org.jooq.Record12;
+import org.jooq.Row12;
 import org.jooq.impl.UpdatableRecordImpl;
 import org.jooq.types.ULong;
 import org.killbill.billing.plugin.qualpay.dao.gen.tables.QualpayResponses;
@@ -46,7 +46,7 @@ import org.killbill.billing.plugin.qualpay.dao.gen.tables.QualpayResponses;
     comments = "This class is generated by jOOQ"
 )
 @SuppressWarnings({ "all", "unchecked", "rawtypes" })
-public class QualpayResponsesRecord extends UpdatableRecordImpl<QualpayResponsesRecord> implements Record11<ULong, String, String, String, String, BigDecimal, String, String, String, Timestamp, String> {
+public class QualpayResponsesRecord extends UpdatableRecordImpl<QualpayResponsesRecord> implements Record12<ULong, String, String, String, String, BigDecimal, String, String, String, String, Timestamp, String> {
 
     private static final long serialVersionUID = 330059286;
 
@@ -176,32 +176,46 @@ public class QualpayResponsesRecord extends UpdatableRecordImpl<QualpayResponses
         return (String) get(8);
     }
 
+    /**
+     * Setter for <code>killbill.qualpay_responses.plugin_status</code>.
+     */
+    public void setPluginStatus(String value) {
+        set(9, value);
+    }
+
+    /**
+     * Getter for <code>killbill.qualpay_responses.plugin_status</code>.
+     */
+    public String getPluginStatus() {
+        return (String) get(9);
+    }
+
     /**
      * Setter for <code>killbill.qualpay_responses.created_date</code>.
      */
     public void setCreatedDate(Timestamp value) {
-        set(9, value);
+        set(10, value);
     }
 
     /**
      * Getter for <code>killbill.qualpay_responses.created_date</code>.
      */
     public Timestamp getCreatedDate() {
-        return (Timestamp) get(9);
+        return (Timestamp) get(10);
     }
 
     /**
      * Setter for <code>killbill.qualpay_responses.kb_tenant_id</code>.
      */
     public void setKbTenantId(String value) {
-        set(10, value);
+        set(11, value);
     }
 
     /**
      * Getter for <code>killbill.qualpay_responses.kb_tenant_id</code>.
      */
     public String getKbTenantId() {
-        return (String) get(10);
+        return (String) get(11);
     }
 
     // -------------------------------------------------------------------------
@@ -217,23 +231,23 @@ public class QualpayResponsesRecord extends UpdatableRecordImpl<QualpayResponses
     }
 
     // -------------------------------------------------------------------------
-    // Record11 type implementation
+    // Record12 type implementation
     // -------------------------------------------------------------------------
 
     /**
      * {@inheritDoc}
      */
     @Override
-    public Row11<ULong, String, String, String, String, BigDecimal, String, String, String, Timestamp, String> fieldsRow() {
-        return (Row11) super.fieldsRow();
+    public Row12<ULong, String, String, String, String, BigDecimal, String, String, String, String, Timestamp, String> fieldsRow() {
+        return (Row12) super.fieldsRow();
     }
 
     /**
      * {@inheritDoc}
      */
     @Override
-    public Row11<ULong, String, String, String, String, BigDecimal, String, String, String, Timestamp, String> valuesRow() {
-        return (Row11) super.valuesRow();
+    public Row12<ULong, String, String, String, String, BigDecimal, String, String, String, String, Timestamp, String> valuesRow() {
+        return (Row12) super.valuesRow();
     }
 
     /**
@@ -312,7 +326,15 @@ public class QualpayResponsesRecord extends UpdatableRecordImpl<QualpayResponses
      * {@inheritDoc}
      */
     @Override
-    public Field<Timestamp> field10() {
+    public Field<String> field10() {
+        return QualpayResponses.QUALPAY_RESPONSES.PLUGIN_STATUS;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Field<Timestamp> field11() {
         return QualpayResponses.QUALPAY_RESPONSES.CREATED_DATE;
     }
 
@@ -320,7 +342,7 @@ public class QualpayResponsesRecord extends UpdatableRecordImpl<QualpayResponses
      * {@inheritDoc}
      */
     @Override
-    public Field<String> field11() {
+    public Field<String> field12() {
         return QualpayResponses.QUALPAY_RESPONSES.KB_TENANT_ID;
     }
 
@@ -400,7 +422,15 @@ public class QualpayResponsesRecord extends UpdatableRecordImpl<QualpayResponses
      * {@inheritDoc}
      */
     @Override
-    public Timestamp value10() {
+    public String value10() {
+        return getPluginStatus();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Timestamp value11() {
         return getCreatedDate();
     }
 
@@ -408,7 +438,7 @@ public class QualpayResponsesRecord extends UpdatableRecordImpl<QualpayResponses
      * {@inheritDoc}
      */
     @Override
-    public String value11() {
+    public String value12() {
         return getKbTenantId();
     }
 
@@ -497,7 +527,16 @@ public class QualpayResponsesRecord extends UpdatableRecordImpl<QualpayResponses
      * {@inheritDoc}
      */
     @Override
-    public QualpayResponsesRecord value10(Timestamp value) {
+    public QualpayResponsesRecord value10(String value) {
+        setPluginStatus(value);
+        return this;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public QualpayResponsesRecord value11(Timestamp value) {
         setCreatedDate(value);
         return this;
     }
@@ -506,7 +545,7 @@ public class QualpayResponsesRecord extends UpdatableRecordImpl<QualpayResponses
      * {@inheritDoc}
      */
     @Override
-    public QualpayResponsesRecord value11(String value) {
+    public QualpayResponsesRecord value12(String value) {
         setKbTenantId(value);
         return this;
     }
@@ -515,7 +554,7 @@ public class QualpayResponsesRecord extends UpdatableRecordImpl<QualpayResponses
      * {@inheritDoc}
      */
     @Override
-    public QualpayResponsesRecord values(ULong value1, String value2, String value3, String value4, String value5, BigDecimal value6, String value7, String value8, String value9, Timestamp value10, String value11) {
+    public QualpayResponsesRecord values(ULong value1, String value2, String value3, String value4, String value5, BigDecimal value6, String value7, String value8, String value9, String value10, Timestamp value11, String value12) {
         value1(value1);
         value2(value2);
         value3(value3);
@@ -527,6 +566,7 @@ public class QualpayResponsesRecord extends UpdatableRecordImpl<QualpayResponses
         value9(value9);
         value10(value10);
         value11(value11);
+        value12(value12);
         return this;
     }
 
@@ -544,7 +584,7 @@ public class QualpayResponsesRecord extends UpdatableRecordImpl<QualpayResponses
     /**
      * Create a detached, initialised QualpayResponsesRecord
      */
-    public QualpayResponsesRecord(ULong recordId, String kbAccountId, String kbPaymentId, String kbPaymentTransactionId, String transactionType, BigDecimal amount, String currency, String qualpayId, String additionalData, Timestamp createdDate, String kbTenantId) {
+    public QualpayResponsesRecord(ULong recordId, String kbAccountId, String kbPaymentId, String kbPaymentTransactionId, String transactionType, BigDecimal amount, String currency, String qualpayId, String additionalData, String pluginStatus, Timestamp createdDate, String kbTenantId) {
         super(QualpayResponses.QUALPAY_RESPONSES);
 
         set(0, recordId);
@@ -556,7 +596,8 @@ public class QualpayResponsesRecord extends UpdatableRecordImpl<QualpayResponses
         set(6, currency);
         set(7, qualpayId);
         set(8, additionalData);
-        set(9, createdDate);
-        set(10, kbTenantId);
+        set(9, pluginStatus);
+        set(10, createdDate);
+        set(11, kbTenantId);
     }
 }
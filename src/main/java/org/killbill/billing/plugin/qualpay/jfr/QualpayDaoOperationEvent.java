@@ -0,0 +1,42 @@
+/*
+ * Copyright 2014-2019 Groupon, Inc
+ * Copyright 2014-2019 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.plugin.qualpay.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("org.killbill.billing.plugin.qualpay.DaoOperation")
+@Label("Qualpay DAO Operation")
+@Category({"Kill Bill", "Qualpay"})
+@Description("Database access by the Qualpay DAO (one connection checkout)")
+@StackTrace(false)
+class QualpayDaoOperationEvent extends jdk.jfr.Event {
+
+    @Label("Method")
+    String method;
+
+    @Label("Rows")
+    @Description("Rows returned or updated, -1 if unknown")
+    long rows;
+
+    @Label("Failed")
+    boolean failed;
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright 2014-2019 Groupon, Inc
+ * Copyright 2014-2019 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.plugin.qualpay.jfr;
+
+import java.util.Collection;
+import java.util.UUID;
+
+import javax.annotation.Nullable;
+
+import org.jooq.Record;
+
+// Java Flight Recorder events. jdk.jfr isn't available on every Java 8 runtime (8u262+ only): when it's missing,
+// all methods are no-ops. Event classes are only touched through Recorder, which isn't loaded in that case.
+// The begin methods return null when the event type isn't enabled in any running recording.
+public abstract class QualpayEvents {
+
+    public static final String CACHE_RECENT_WRITES = "recent_writes";
+    public static final String CACHE_WEBHOOK_MACS = "webhook_macs";
+    public static final String CACHE_PAYMENT_METHODS = "payment_methods";
+
+    private static final String JFR_PACKAGE = "org.killbill.billing.plugin.qualpay.jfr.";
+    private static final boolean AVAILABLE = isAvailable();
+
+    public static boolean isAvailable() {
+        try {
+            Class.forName("jdk.jfr.Event", false, QualpayEvents.class.getClassLoader());
+            return true;
+        } catch (final ClassNotFoundException e) {
+            return false;
+        } catch (final LinkageError e) {
+            return false;
+        }
+    }
+
+    @Nullable
+    public static Object beginGatewayCall() {
+        return AVAILABLE ? Recorder.beginGatewayCall() : null;
+    }
+
+    public static void commitGatewayCall(@Nullable final Object event,
+                                         final String endpoint,
+                                         @Nullable final UUID kbTenantId,
+                                         final String rcode,
+                                         final long bytes) {
+        if (event != null) {
+            Recorder.commitGatewayCall(event, endpoint, kbTenantId, rcode, bytes);
+        }
+    }
+
+    @Nullable
+    public static Object beginDaoOperation() {
+        return AVAILABLE ? Recorder.beginDaoOperation() : null;
+    }
+
+    public static void commitDaoOperation(@Nullable final Object event, @Nullable final Object result, final boolean failed) {
+        if (event != null) {
+            Recorder.commitDaoOperation(event, result, failed);
+        }
+    }
+
+    public static void cacheLookup(final String cache, final boolean hit) {
+        if (AVAILABLE) {
+            Recorder.cacheLookup(cache, hit);
+        }
+    }
+
+    // Rows returned (list, record) or updated (count) by a DAO callback
+    static long toRows(@Nullable final Object result) {
+        if (result == null) {
+            return 0;
+        } else if (result instanceof Collection) {
+            return ((Collection) result).size();
+        } else if (result instanceof Record) {
+            return 1;
+        } else if (result instanceof Integer || result instanceof Long) {
+            return ((Number) result).longValue();
+        } else {
+            return -1;
+        }
+    }
+
+    // First frame outside of this package and of the DAO plumbing, e.g. QualpayDao.getResponsesByPluginStatus
+    static String callerMethod(final StackTraceElement[] stackTrace) {
+        for (final StackTraceElement element : stackTrace) {
+            if (element.getClassName().startsWith(JFR_PACKAGE) ||
+                "execute".equals(element.getMethodName()) ||
+                "withConnection".equals(element.getMethodName())) {
+                continue;
+            }
+            final String className = element.getClassName();
+            return className.substring(className.lastIndexOf('.') + 1) + "." + element.getMethodName();
+        }
+        return "unknown";
+    }
+
+    private static final class Recorder {
+
+        private static Object beginGatewayCall() {
+            final QualpayGatewayCallEvent event = new QualpayGatewayCallEvent();
+            if (!event.isEnabled()) {
+                return null;
+            }
+            event.begin();
+            return event;
+        }
+
+        private static void commitGatewayCall(final Object event, final String endpoint, @Nullable final UUID kbTenantId, final String rcode, final long bytes) {
+            final QualpayGatewayCallEvent gatewayCallEvent = (QualpayGatewayCallEvent) event;
+            gatewayCallEvent.end();
+            if (gatewayCallEvent.shouldCommit()) {
+                gatewayCallEvent.endpoint = endpoint;
+                gatewayCallEvent.tenant = kbTenantId == null ? null : kbTenantId.toString();
+                gatewayCallEvent.rcode = rcode;
+                gatewayCallEvent.bytes = bytes;
+                gatewayCallEvent.commit();
+            }
+        }
+
+        private static Object beginDaoOperation() {
+            final QualpayDaoOperationEvent event = new QualpayDaoOperationEvent();
+            if (!event.isEnabled()) {
+                return null;
+            }
+            event.begin();
+            return event;
+        }
+
+        private static void commitDaoOperation(final Object event, @Nullable final Object result, final boolean failed) {
+            final QualpayDaoOperationEvent daoOperationEvent = (QualpayDaoOperationEvent) event;
+            daoOperationEvent.end();
+            // Walking the stack is expensive: only do it for the events above the recording threshold
+            if (daoOperationEvent.shouldCommit()) {
+                daoOperationEvent.method = callerMethod(new Throwable().getStackTrace());
+                daoOperationEvent.rows = toRows(result);
+                daoOperationEvent.failed = failed;
+                daoOperationEvent.commit();
+            }
+        }
+
+        private static void cacheLookup(final String cache, final boolean hit) {
+            final QualpayCacheLookupEvent event = new QualpayCacheLookupEvent();
+            if (event.shouldCommit()) {
+                event.cache = cache;
+                event.hit = hit;
+                event.commit();
+            }
+        }
+    }
+}
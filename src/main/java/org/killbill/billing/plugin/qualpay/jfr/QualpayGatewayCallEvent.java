@@ -0,0 +1,46 @@
+/*
+ * Copyright 2014-2019 Groupon, Inc
+ * Copyright 2014-2019 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.plugin.qualpay.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("org.killbill.billing.plugin.qualpay.GatewayCall")
+@Label("Qualpay Gateway Call")
+@Category({"Kill Bill", "Qualpay"})
+@Description("Call to the Qualpay Payment Gateway or Platform API")
+@StackTrace(false)
+class QualpayGatewayCallEvent extends jdk.jfr.Event {
+
+    @Label("Endpoint")
+    String endpoint;
+
+    @Label("Tenant")
+    String tenant;
+
+    @Label("Response Code")
+    @Description("Qualpay rcode, ok or http_<status>")
+    String rcode;
+
+    @Label("Response Bytes")
+    @Description("Content-Length of the response, -1 if unknown")
+    long bytes;
+}
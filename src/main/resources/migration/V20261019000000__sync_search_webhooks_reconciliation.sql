@@ -0,0 +1,95 @@
+-- Upgrades the schema of existing installations to the latest ddl.sql (new installations only need ddl.sql)
+
+-- Transaction status, for the UNDEFINED reconciler (older responses keep a null status and are left to the Janitor)
+alter table qualpay_responses add plugin_status varchar(32) default null;
+create index qualpay_responses_kb_tenant_id_created_date on qualpay_responses(kb_tenant_id, created_date);
+create index qualpay_responses_plugin_status_kb_tenant_id_created_date on qualpay_responses(plugin_status, kb_tenant_id, created_date);
+
+-- Searchable card columns and content hash (filled in for existing payment methods by the next sync of their account)
+alter table qualpay_payment_methods add card_last_four varchar(4) default null;
+alter table qualpay_payment_methods add card_type varchar(32) default null;
+alter table qualpay_payment_methods add card_exp_date varchar(4) default null;
+alter table qualpay_payment_methods add content_hash varchar(64) default null;
+create index qualpay_payment_methods_kb_tenant_id_kb_account_id on qualpay_payment_methods(kb_tenant_id, kb_account_id);
+create index qualpay_payment_methods_kb_tenant_id_qualpay_id on qualpay_payment_methods(kb_tenant_id, qualpay_id);
+create index qualpay_payment_methods_kb_tenant_id_card_last_four on qualpay_payment_methods(kb_tenant_id, card_last_four);
+create index qualpay_payment_methods_kb_tenant_id_card_type on qualpay_payment_methods(kb_tenant_id, card_type);
+create index qualpay_payment_methods_kb_tenant_id_card_exp_date on qualpay_payment_methods(kb_tenant_id, card_exp_date);
+create index qualpay_payment_methods_kb_tenant_id_created_date on qualpay_payment_methods(kb_tenant_id, created_date);
+
+create table qualpay_sync_checkpoints (
+  record_id serial
+, job_name varchar(64) not null
+, last_kb_account_id char(36) default null
+, status varchar(32) not null
+, nb_processed bigint not null default 0
+, nb_errors bigint not null default 0
+, nb_skipped bigint not null default 0
+, created_date datetime not null
+, updated_date datetime not null
+, kb_tenant_id char(36) not null
+, primary key(record_id)
+) /*! CHARACTER SET utf8 COLLATE utf8_bin */;
+create unique index qualpay_sync_checkpoints_job_name_kb_tenant_id on qualpay_sync_checkpoints(job_name, kb_tenant_id);
+
+create table qualpay_accounts (
+  record_id serial
+, kb_account_id char(36) not null
+, last_synced_date datetime not null
+, created_date datetime not null
+, kb_tenant_id char(36) not null
+, primary key(record_id)
+) /*! CHARACTER SET utf8 COLLATE utf8_bin */;
+create unique index qualpay_accounts_kb_account_id on qualpay_accounts(kb_account_id);
+create index qualpay_accounts_last_synced_date on qualpay_accounts(last_synced_date);
+
+create table qualpay_notifications (
+  record_id serial
+, event_id varchar(64) not null
+, event_type varchar(64) default null
+, pg_id varchar(255) default null
+, payload longtext not null
+, status varchar(32) not null
+, attempts int not null default 0
+, last_error varchar(1024) default null
+, available_date datetime not null
+, created_date datetime not null
+, updated_date datetime not null
+, kb_tenant_id char(36) not null
+, primary key(record_id)
+) /*! CHARACTER SET utf8 COLLATE utf8_bin */;
+create unique index qualpay_notifications_event_id_kb_tenant_id on qualpay_notifications(event_id, kb_tenant_id);
+create index qualpay_notifications_status_record_id on qualpay_notifications(status, record_id);
+create index qualpay_notifications_kb_tenant_id_pg_id on qualpay_notifications(kb_tenant_id, pg_id, record_id);
+
+create table qualpay_reconciliations (
+  record_id serial
+, file_name varchar(255) not null
+, from_date datetime not null
+, to_date datetime not null
+, status varchar(32) not null
+, nb_matched bigint not null default 0
+, nb_mismatched bigint not null default 0
+, nb_missing_in_killbill bigint not null default 0
+, nb_missing_in_report bigint not null default 0
+, created_date datetime not null
+, updated_date datetime not null
+, kb_tenant_id char(36) not null
+, primary key(record_id)
+) /*! CHARACTER SET utf8 COLLATE utf8_bin */;
+create index qualpay_reconciliations_kb_tenant_id_created_date on qualpay_reconciliations(kb_tenant_id, created_date);
+
+create table qualpay_reconciliation_items (
+  record_id serial
+, reconciliation_record_id bigint /*! unsigned */ not null
+, status varchar(32) not null
+, qualpay_id varchar(255) not null
+, report_amount numeric(15,9) default null
+, kb_amount numeric(15,9) default null
+, kb_payment_id char(36) default null
+, kb_payment_transaction_id char(36) default null
+, created_date datetime not null
+, kb_tenant_id char(36) not null
+, primary key(record_id)
+) /*! CHARACTER SET utf8 COLLATE utf8_bin */;
+create index qualpay_reconciliation_items_reconciliation_record_id on qualpay_reconciliation_items(reconciliation_record_id);
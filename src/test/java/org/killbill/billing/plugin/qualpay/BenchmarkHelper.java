@@ -0,0 +1,115 @@
+/*
+ * Copyright 2014-2019 Groupon, Inc
+ * Copyright 2014-2019 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.plugin.qualpay;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import com.google.common.io.ByteStreams;
+
+// Shared by the benchmarks: latency percentiles and CSV results comparable across commits
+public abstract class BenchmarkHelper {
+
+    // Results are appended to target/<name>, with the header if the file is new
+    public static Writer openResults(final String name, final String header) throws IOException {
+        final File csv = new File("target", name);
+        final boolean isNew = !csv.exists();
+        final Writer writer = new FileWriter(csv, true);
+        if (isNew) {
+            writer.write(header + "\n");
+        }
+        return writer;
+    }
+
+    // Short hash of the current commit, unless overridden
+    public static String getLabel(final String labelProperty) {
+        final String label = System.getProperty(labelProperty);
+        if (label != null) {
+            return label;
+        }
+
+        try {
+            final Process process = new ProcessBuilder("git", "rev-parse", "--short", "HEAD").redirectErrorStream(true).start();
+            final InputStream inputStream = process.getInputStream();
+            try {
+                final String commit = new String(ByteStreams.toByteArray(inputStream), StandardCharsets.UTF_8).trim();
+                return process.waitFor() == 0 ? commit : "unknown";
+            } finally {
+                inputStream.close();
+            }
+        } catch (final IOException e) {
+            return "unknown";
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return "unknown";
+        }
+    }
+
+    // Latencies (nanoseconds) of one operation, not thread-safe: one instance per thread, merged at the end
+    public static final class LatencySamples {
+
+        private long[] latencies = new long[1024];
+        private int size = 0;
+        private long errors = 0;
+        private boolean sorted = true;
+
+        public void add(final long latencyNanos) {
+            if (size == latencies.length) {
+                latencies = Arrays.copyOf(latencies, size * 2);
+            }
+            latencies[size++] = latencyNanos;
+            sorted = false;
+        }
+
+        public void fail() {
+            errors++;
+        }
+
+        public void addAll(final LatencySamples other) {
+            for (int i = 0; i < other.size; i++) {
+                add(other.latencies[i]);
+            }
+            errors += other.errors;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public long getErrors() {
+            return errors;
+        }
+
+        public double percentileMillis(final double percentile) {
+            if (size == 0) {
+                return 0;
+            }
+            if (!sorted) {
+                Arrays.sort(latencies, 0, size);
+                sorted = true;
+            }
+            final int index = (int) Math.ceil(percentile * size) - 1;
+            return latencies[Math.max(0, Math.min(size - 1, index))] / 1000000.0;
+        }
+    }
+}
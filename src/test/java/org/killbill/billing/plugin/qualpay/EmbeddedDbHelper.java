@@ -20,6 +20,8 @@ package org.killbill.billing.plugin.qualpay;
 import java.io.IOException;
 import java.sql.SQLException;
 
+import javax.sql.DataSource;
+
 import org.killbill.billing.platform.test.PlatformDBTestingHelper;
 import org.killbill.billing.plugin.TestUtils;
 import org.killbill.billing.plugin.qualpay.dao.QualpayDao;
@@ -53,10 +55,18 @@ public class EmbeddedDbHelper {
         embeddedDB.refreshTableNames();
     }
 
+    public DataSource getDataSource() throws IOException {
+        return embeddedDB.getDataSource();
+    }
+
     public QualpayDao getQualpayDao() throws IOException, SQLException {
         return new QualpayDao(embeddedDB.getDataSource());
     }
 
+    public QualpayDao getQualpayDao(final DataSource readOnlyDataSource, final long lagGuardMillis) throws IOException, SQLException {
+        return new QualpayDao(embeddedDB.getDataSource(), readOnlyDataSource, lagGuardMillis);
+    }
+
     public void resetDB() throws Exception {
         embeddedDB.cleanupAllTables();
     }
@@ -0,0 +1,359 @@
+/*
+ * Copyright 2014-2019 Groupon, Inc
+ * Copyright 2014-2019 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.plugin.qualpay;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+import javax.sql.DataSource;
+
+import org.killbill.billing.payment.api.TransactionType;
+import org.killbill.billing.plugin.qualpay.dao.gen.tables.records.QualpayResponsesRecord;
+
+// Bulk-loads realistic Qualpay data: a few large tenants and a long tail of small ones (Zipf), accounts with
+// 1 to 3 cards and payments of the usual shapes (purchase, auth/capture, auth/void, partial refunds, declines
+// then retry). Rows are created in time order, 4 per second. The generation is deterministic for a given seed.
+public class QualpayDataGenerator {
+
+    private static final int ROWS_PER_STATEMENT = 500;
+    private static final int RECENT_ACCOUNTS_PER_TENANT = 1024;
+    private static final double NEW_ACCOUNT_PROBABILITY = 0.3;
+    private static final double TENANTS_ZIPF_EXPONENT = 1.1;
+    private static final long START_MILLIS = 1546300800000L; // 2019-01-01
+    private static final long MILLIS_PER_ROW = 250;
+
+    private static final String INSERT_RESPONSES = "insert into qualpay_responses (kb_account_id, kb_payment_id, kb_payment_transaction_id, transaction_type, amount, currency, qualpay_id, additional_data, plugin_status, created_date, kb_tenant_id) values ";
+    private static final String RESPONSES_ROW = "(?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String INSERT_PAYMENT_METHODS = "insert into qualpay_payment_methods (kb_account_id, kb_payment_method_id, qualpay_id, is_deleted, card_last_four, card_type, card_exp_date, additional_data, created_date, updated_date, kb_tenant_id) values ";
+    private static final String PAYMENT_METHODS_ROW = "(?, ?, ?, 0, ?, ?, ?, ?, ?, ?, ?)";
+
+    private final DataSource dataSource;
+    private final Random random;
+    private final UUID[] tenants;
+    private final double[] cumulativeTenantWeights;
+    private final List<List<UUID>> recentAccountsByTenant;
+
+    public QualpayDataGenerator(final DataSource dataSource, final int nbTenants, final long seed) {
+        this.dataSource = dataSource;
+        this.random = new Random(seed);
+        this.tenants = new UUID[nbTenants];
+        this.cumulativeTenantWeights = new double[nbTenants];
+        this.recentAccountsByTenant = new ArrayList<List<UUID>>(nbTenants);
+
+        double totalWeight = 0;
+        for (int i = 0; i < nbTenants; i++) {
+            tenants[i] = newUUID();
+            totalWeight += 1 / Math.pow(i + 1, TENANTS_ZIPF_EXPONENT);
+            cumulativeTenantWeights[i] = totalWeight;
+            recentAccountsByTenant.add(new ArrayList<UUID>(RECENT_ACCOUNTS_PER_TENANT));
+        }
+        for (int i = 0; i < nbTenants; i++) {
+            cumulativeTenantWeights[i] /= totalWeight;
+        }
+    }
+
+    public long countResponses() throws SQLException {
+        final Connection connection = dataSource.getConnection();
+        try {
+            final Statement statement = connection.createStatement();
+            try {
+                final ResultSet resultSet = statement.executeQuery("select count(*) from qualpay_responses");
+                resultSet.next();
+                return resultSet.getLong(1);
+            } finally {
+                statement.close();
+            }
+        } finally {
+            connection.close();
+        }
+    }
+
+    // Grows qualpay_responses to (at least) targetRows rows, returns the number of rows added
+    public long generate(final long targetRows) throws SQLException {
+        final long existingRows = countResponses();
+        if (existingRows >= targetRows) {
+            return 0;
+        }
+
+        final Connection connection = dataSource.getConnection();
+        try {
+            connection.setAutoCommit(false);
+            final RowsWriter responses = new RowsWriter(connection, INSERT_RESPONSES, RESPONSES_ROW, 11);
+            final RowsWriter paymentMethods = new RowsWriter(connection, INSERT_PAYMENT_METHODS, PAYMENT_METHODS_ROW, 10);
+
+            long rowIndex = existingRows;
+            while (rowIndex < targetRows) {
+                final int tenantIndex = nextTenantIndex();
+                final UUID kbAccountId = nextAccount(tenantIndex, paymentMethods, new Timestamp(START_MILLIS + rowIndex * MILLIS_PER_ROW));
+                rowIndex += addPayment(tenants[tenantIndex], kbAccountId, rowIndex, responses);
+            }
+
+            responses.flush();
+            paymentMethods.flush();
+            connection.commit();
+            responses.close();
+            paymentMethods.close();
+            return rowIndex - existingRows;
+        } finally {
+            connection.close();
+        }
+    }
+
+    // Uniform sample over the responses, hence skewed towards the largest tenants and the longest payments (like production lookups)
+    public List<QualpayResponsesRecord> sampleResponses(final int count) throws SQLException {
+        final Connection connection = dataSource.getConnection();
+        try {
+            final Statement statement = connection.createStatement();
+            final long minRecordId;
+            final long maxRecordId;
+            try {
+                final ResultSet resultSet = statement.executeQuery("select min(record_id), max(record_id) from qualpay_responses");
+                resultSet.next();
+                minRecordId = resultSet.getLong(1);
+                maxRecordId = resultSet.getLong(2);
+            } finally {
+                statement.close();
+            }
+
+            final List<QualpayResponsesRecord> samples = new ArrayList<QualpayResponsesRecord>(count);
+            if (maxRecordId == 0) {
+                return samples;
+            }
+
+            final PreparedStatement lookup = connection.prepareStatement("select kb_account_id, kb_payment_id, kb_payment_transaction_id, kb_tenant_id from qualpay_responses where record_id >= ? order by record_id limit 1");
+            try {
+                while (samples.size() < count) {
+                    lookup.setLong(1, minRecordId + (long) (random.nextDouble() * (maxRecordId - minRecordId + 1)));
+                    final ResultSet resultSet = lookup.executeQuery();
+                    if (resultSet.next()) {
+                        final QualpayResponsesRecord sample = new QualpayResponsesRecord();
+                        sample.setKbAccountId(resultSet.getString(1));
+                        sample.setKbPaymentId(resultSet.getString(2));
+                        sample.setKbPaymentTransactionId(resultSet.getString(3));
+                        sample.setKbTenantId(resultSet.getString(4));
+                        samples.add(sample);
+                    }
+                    resultSet.close();
+                }
+            } finally {
+                lookup.close();
+            }
+            return samples;
+        } finally {
+            connection.close();
+        }
+    }
+
+    private int nextTenantIndex() {
+        final double value = random.nextDouble();
+        for (int i = 0; i < cumulativeTenantWeights.length - 1; i++) {
+            if (value < cumulativeTenantWeights[i]) {
+                return i;
+            }
+        }
+        return cumulativeTenantWeights.length - 1;
+    }
+
+    private UUID nextAccount(final int tenantIndex, final RowsWriter paymentMethods, final Timestamp createdDate) throws SQLException {
+        final List<UUID> recentAccounts = recentAccountsByTenant.get(tenantIndex);
+        if (!recentAccounts.isEmpty() && random.nextDouble() >= NEW_ACCOUNT_PROBABILITY) {
+            return recentAccounts.get(random.nextInt(recentAccounts.size()));
+        }
+
+        final UUID kbAccountId = newUUID();
+        final int nbCards = 1 + (random.nextDouble() < 0.2 ? 1 + random.nextInt(2) : 0);
+        for (int i = 0; i < nbCards; i++) {
+            final String qualpayId = newQualpayId();
+            final boolean isVisa = random.nextDouble() < 0.6;
+            final String lastFour = String.format("%04d", random.nextInt(10000));
+            final String expDate = String.format("%02d%02d", 1 + random.nextInt(12), 20 + random.nextInt(6));
+            paymentMethods.addRow(kbAccountId.toString(),
+                                  newUUID().toString(),
+                                  qualpayId,
+                                  lastFour,
+                                  isVisa ? "VS" : "MC",
+                                  expDate,
+                                  "{\"id\":\"" + qualpayId + "\",\"card_number\":\"" + (isVisa ? "411111" : "555555") + "xxxxxx" + lastFour + "\",\"exp_date\":\"" + expDate + "\",\"card_type\":\"" + (isVisa ? "VS" : "MC") + "\",\"billing_zip\":\"94402\"}",
+                                  createdDate,
+                                  createdDate,
+                                  tenants[tenantIndex].toString());
+        }
+
+        if (recentAccounts.size() < RECENT_ACCOUNTS_PER_TENANT) {
+            recentAccounts.add(kbAccountId);
+        } else {
+            recentAccounts.set(random.nextInt(RECENT_ACCOUNTS_PER_TENANT), kbAccountId);
+        }
+        return kbAccountId;
+    }
+
+    // Returns the number of responses added
+    private int addPayment(final UUID kbTenantId, final UUID kbAccountId, final long rowIndex, final RowsWriter responses) throws SQLException {
+        final UUID kbPaymentId = newUUID();
+        final BigDecimal amount = BigDecimal.valueOf(100 + random.nextInt(50000), 2);
+        final double shape = random.nextDouble();
+
+        int nbRows = 0;
+        if (shape < 0.45) {
+            addResponse(kbTenantId, kbAccountId, kbPaymentId, TransactionType.PURCHASE, amount, "000", rowIndex + nbRows++, responses);
+        } else if (shape < 0.75) {
+            addResponse(kbTenantId, kbAccountId, kbPaymentId, TransactionType.AUTHORIZE, amount, "000", rowIndex + nbRows++, responses);
+            addResponse(kbTenantId, kbAccountId, kbPaymentId, TransactionType.CAPTURE, amount, "000", rowIndex + nbRows++, responses);
+        } else if (shape < 0.85) {
+            addResponse(kbTenantId, kbAccountId, kbPaymentId, TransactionType.PURCHASE, amount, "000", rowIndex + nbRows++, responses);
+            // Geometric number of partial refunds
+            do {
+                addResponse(kbTenantId, kbAccountId, kbPaymentId, TransactionType.REFUND, amount.divide(BigDecimal.TEN), "000", rowIndex + nbRows++, responses);
+            } while (nbRows < 6 && random.nextDouble() < 0.4);
+        } else if (shape < 0.93) {
+            addResponse(kbTenantId, kbAccountId, kbPaymentId, TransactionType.AUTHORIZE, amount, "000", rowIndex + nbRows++, responses);
+            addResponse(kbTenantId, kbAccountId, kbPaymentId, TransactionType.VOID, null, "000", rowIndex + nbRows++, responses);
+        } else if (shape < 0.98) {
+            addResponse(kbTenantId, kbAccountId, kbPaymentId, TransactionType.PURCHASE, amount, "005", rowIndex + nbRows++, responses);
+            addResponse(kbTenantId, kbAccountId, kbPaymentId, TransactionType.PURCHASE, amount, "000", rowIndex + nbRows++, responses);
+        } else {
+            // Timed out: UNDEFINED
+            addResponse(kbTenantId, kbAccountId, kbPaymentId, TransactionType.PURCHASE, amount, null, rowIndex + nbRows++, responses);
+        }
+        return nbRows;
+    }
+
+    private void addResponse(final UUID kbTenantId,
+                             final UUID kbAccountId,
+                             final UUID kbPaymentId,
+                             final TransactionType transactionType,
+                             final BigDecimal amount,
+                             final String rcode,
+                             final long rowIndex,
+                             final RowsWriter responses) throws SQLException {
+        final String pgId = newQualpayId();
+        final String authCode = String.format("T%05d", random.nextInt(100000));
+        final String additionalData;
+        final String pluginStatus;
+        if (rcode == null) {
+            additionalData = "{\"id\":\"" + pgId + "\"}";
+            pluginStatus = "UNDEFINED";
+        } else if ("000".equals(rcode)) {
+            additionalData = "{\"id\":\"" + pgId + "\",\"rcode\":\"000\",\"rmsg\":\"Approved " + authCode + "\",\"auth_code\":\"" + authCode + "\"}";
+            pluginStatus = "PROCESSED";
+        } else {
+            additionalData = "{\"id\":\"" + pgId + "\",\"rcode\":\"" + rcode + "\",\"rmsg\":\"Declined\"}";
+            pluginStatus = "ERROR";
+        }
+
+        responses.addRow(kbAccountId.toString(),
+                         kbPaymentId.toString(),
+                         newUUID().toString(),
+                         transactionType.toString(),
+                         amount,
+                         amount == null ? null : "USD",
+                         pgId,
+                         additionalData,
+                         pluginStatus,
+                         new Timestamp(START_MILLIS + rowIndex * MILLIS_PER_ROW),
+                         kbTenantId.toString());
+    }
+
+    private UUID newUUID() {
+        return new UUID(random.nextLong(), random.nextLong());
+    }
+
+    private String newQualpayId() {
+        return Long.toHexString(random.nextLong()) + Long.toHexString(random.nextLong());
+    }
+
+    // Multi-row inserts, one commit per statement
+    private static final class RowsWriter {
+
+        private final Connection connection;
+        private final int nbColumns;
+        private final PreparedStatement fullStatement;
+        private final String insert;
+        private final String row;
+        private final Object[] values;
+        private int nbRows = 0;
+
+        private RowsWriter(final Connection connection, final String insert, final String row, final int nbColumns) throws SQLException {
+            this.connection = connection;
+            this.insert = insert;
+            this.row = row;
+            this.nbColumns = nbColumns;
+            this.values = new Object[ROWS_PER_STATEMENT * nbColumns];
+            this.fullStatement = connection.prepareStatement(buildSql(insert, row, ROWS_PER_STATEMENT));
+        }
+
+        private void addRow(final Object... rowValues) throws SQLException {
+            System.arraycopy(rowValues, 0, values, nbRows * nbColumns, nbColumns);
+            nbRows++;
+            if (nbRows == ROWS_PER_STATEMENT) {
+                execute(fullStatement);
+            }
+        }
+
+        private void flush() throws SQLException {
+            if (nbRows == 0) {
+                return;
+            }
+            final PreparedStatement statement = connection.prepareStatement(buildSql(insert, row, nbRows));
+            try {
+                execute(statement);
+            } finally {
+                statement.close();
+            }
+        }
+
+        private void close() throws SQLException {
+            fullStatement.close();
+        }
+
+        private void execute(final PreparedStatement statement) throws SQLException {
+            for (int i = 0; i < nbRows * nbColumns; i++) {
+                if (values[i] == null) {
+                    statement.setNull(i + 1, Types.NULL);
+                } else {
+                    statement.setObject(i + 1, values[i]);
+                }
+            }
+            statement.executeUpdate();
+            connection.commit();
+            nbRows = 0;
+        }
+
+        private static String buildSql(final String insert, final String row, final int nbRows) {
+            final StringBuilder sql = new StringBuilder(insert.length() + nbRows * (row.length() + 2));
+            sql.append(insert);
+            for (int i = 0; i < nbRows; i++) {
+                if (i > 0) {
+                    sql.append(", ");
+                }
+                sql.append(row);
+            }
+            return sql.toString();
+        }
+    }
+}
@@ -0,0 +1,317 @@
+/*
+ * Copyright 2014-2019 Groupon, Inc
+ * Copyright 2014-2019 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.plugin.qualpay;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+// In-memory stand-in for the Qualpay Payment Gateway (/pg) and Customer Vault (/platform/vault) APIs, so that
+// the integration tests and benchmarks can run offline. Latency, HTTP error rate and rcode mix are configurable.
+public class QualpayStubServer implements Closeable {
+
+    public static final String API_KEY = "stub-api-key";
+    public static final String MERCHANT_ID = "212000000001";
+
+    private static final Pattern PG_TRANSACTION = Pattern.compile("/pg/(auth|sale|tokenize)");
+    private static final Pattern PG_FOLLOW_UP = Pattern.compile("/pg/(capture|refund|void)/([^/]+)");
+    private static final Pattern VAULT_CUSTOMER = Pattern.compile("/platform/vault/customer");
+    private static final Pattern VAULT_BILLING = Pattern.compile("/platform/vault/customer/([^/]+)/billing(/delete)?");
+    private static final Pattern REPORTING_TRANSACTION = Pattern.compile("/platform/reporting/transactions/bypgid/([^/]+)");
+
+    private final Gson gson = new Gson();
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final AtomicLong requestCount = new AtomicLong();
+    // customer id -> card id -> billing card
+    private final ConcurrentMap<String, Map<String, Map<String, Object>>> customers = new ConcurrentHashMap<String, Map<String, Map<String, Object>>>();
+    // pg_id -> transaction, for the follow-up transactions and the reporting API
+    private final ConcurrentMap<String, Map<String, Object>> transactions = new ConcurrentHashMap<String, Map<String, Object>>();
+
+    private volatile long latencyMedianMillis;
+    private volatile long latencyP99Millis;
+    private volatile double errorRate;
+    private volatile QualpayGatewaySimulator.ResponseCodeMix responseCodeMix;
+
+    public QualpayStubServer() throws IOException {
+        reset();
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/", new HttpHandler() {
+            @Override
+            public void handle(final HttpExchange exchange) throws IOException {
+                try {
+                    QualpayStubServer.this.handle(exchange);
+                } finally {
+                    exchange.close();
+                }
+            }
+        });
+        executor = Executors.newCachedThreadPool(new ThreadFactoryBuilder().setNameFormat("qualpay-stub-%d")
+                                                                           .setDaemon(true)
+                                                                           .build());
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    public String getBaseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    // Log-normal latency, see QualpayGatewaySimulator
+    public void setLatency(final long medianMillis, final long p99Millis) {
+        this.latencyMedianMillis = medianMillis;
+        this.latencyP99Millis = p99Millis;
+    }
+
+    // Share of the requests (all endpoints) answered with a 503
+    public void setErrorRate(final double errorRate) {
+        this.errorRate = errorRate;
+    }
+
+    // Weighted rcodes of the Payment Gateway, e.g. 000:95,005:4,998:1
+    public void setResponseCodes(final String responseCodes) {
+        this.responseCodeMix = new QualpayGatewaySimulator.ResponseCodeMix(responseCodes);
+    }
+
+    public long getRequestCount() {
+        return requestCount.get();
+    }
+
+    public void reset() {
+        setLatency(0, 0);
+        setErrorRate(0);
+        setResponseCodes("000");
+        requestCount.set(0);
+        customers.clear();
+        transactions.clear();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(final HttpExchange exchange) throws IOException {
+        requestCount.incrementAndGet();
+        final Random random = ThreadLocalRandom.current();
+
+        final long latencyMillis = QualpayGatewaySimulator.nextLatencyMillis(random, latencyMedianMillis, latencyP99Millis);
+        if (latencyMillis > 0) {
+            try {
+                TimeUnit.MILLISECONDS.sleep(latencyMillis);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+        if (errorRate > 0 && random.nextDouble() < errorRate) {
+            respond(exchange, 503, ImmutableMap.<String, Object>of("code", 503, "message", "Service Unavailable"));
+            return;
+        }
+
+        final String method = exchange.getRequestMethod();
+        final String path = exchange.getRequestURI().getPath();
+        final Map<String, Object> body = "GET".equals(method) ? ImmutableMap.<String, Object>of() : readBody(exchange);
+
+        Matcher matcher;
+        if ((matcher = PG_TRANSACTION.matcher(path)).matches()) {
+            respond(exchange, 200, "tokenize".equals(matcher.group(1)) ? tokenize(body) : transaction(matcher.group(1), null, body, random));
+        } else if ((matcher = PG_FOLLOW_UP.matcher(path)).matches()) {
+            respond(exchange, 200, transaction(matcher.group(1), matcher.group(2), body, random));
+        } else if ((matcher = REPORTING_TRANSACTION.matcher(path)).matches()) {
+            final Map<String, Object> transaction = transactions.get(matcher.group(1));
+            respond(exchange, 200, success(transaction == null ? ImmutableList.<Object>of() : ImmutableList.<Object>of(transaction)));
+        } else if (VAULT_CUSTOMER.matcher(path).matches() && "POST".equals(method)) {
+            respond(exchange, 200, success(addCustomer(body)));
+        } else if ((matcher = VAULT_BILLING.matcher(path)).matches()) {
+            final Map<String, Map<String, Object>> cards = customers.get(matcher.group(1));
+            if (cards == null) {
+                respond(exchange, 400, ImmutableMap.<String, Object>of("code", 2, "message", "Customer not found"));
+            } else if (matcher.group(2) != null) {
+                cards.remove(String.valueOf(body.get("card_id")));
+                respond(exchange, 200, success(customer(matcher.group(1), cards)));
+            } else if ("POST".equals(method)) {
+                addBillingCard(cards, body);
+                respond(exchange, 200, success(customer(matcher.group(1), cards)));
+            } else if ("PUT".equals(method)) {
+                final Map<String, Object> card = cards.get(String.valueOf(body.get("card_id")));
+                if (card == null) {
+                    respond(exchange, 400, ImmutableMap.<String, Object>of("code", 2, "message", "Card not found"));
+                    return;
+                }
+                card.putAll(toCardFields(body));
+                respond(exchange, 200, success(customer(matcher.group(1), cards)));
+            } else {
+                respond(exchange, 200, success(customer(matcher.group(1), cards)));
+            }
+        } else {
+            respond(exchange, 404, ImmutableMap.<String, Object>of("code", 404, "message", "Unsupported endpoint " + method + " " + path));
+        }
+    }
+
+    private Map<String, Object> transaction(final String type, final String pgIdOrig, final Map<String, Object> body, final Random random) {
+        final Map<String, Object> response = new LinkedHashMap<String, Object>();
+        if (pgIdOrig != null && !transactions.containsKey(pgIdOrig)) {
+            response.put("rcode", "404");
+            response.put("rmsg", "Transaction not found");
+            return response;
+        }
+
+        final String rcode = responseCodeMix.next(random);
+        final String pgId = newId();
+        response.put("pg_id", pgId);
+        response.put("rcode", rcode);
+        response.put("rmsg", "000".equals(rcode) ? "Approved" : "Declined");
+        if ("000".equals(rcode) && ("auth".equals(type) || "sale".equals(type))) {
+            response.put("auth_code", String.format("T%05d", random.nextInt(100000)));
+        }
+
+        final Map<String, Object> transaction = new LinkedHashMap<String, Object>(response);
+        transaction.put("tran_status", "000".equals(rcode) ? "A" : "D");
+        if (body.get("amt_tran") != null) {
+            transaction.put("amt_tran", body.get("amt_tran"));
+        }
+        transactions.put(pgId, transaction);
+        return response;
+    }
+
+    private Map<String, Object> tokenize(final Map<String, Object> body) {
+        final Map<String, Object> response = new LinkedHashMap<String, Object>();
+        response.put("rcode", "000");
+        response.put("rmsg", "Card tokenized");
+        response.put("card_id", newId());
+        response.put("card_number", mask(body.get("card_number")));
+        return response;
+    }
+
+    private Map<String, Object> addCustomer(final Map<String, Object> body) {
+        final String customerId = body.get("customer_id") == null ? newId().substring(0, 16) : body.get("customer_id").toString();
+        // Insertion ordered: newest card last, like Qualpay
+        final Map<String, Map<String, Object>> cards = Collections.synchronizedMap(new LinkedHashMap<String, Map<String, Object>>());
+        if (body.get("billing_cards") instanceof List) {
+            for (final Object card : (List) body.get("billing_cards")) {
+                addBillingCard(cards, (Map<String, Object>) card);
+            }
+        }
+        customers.put(customerId, cards);
+
+        final Map<String, Object> customer = customer(customerId, cards);
+        customer.put("customer_first_name", body.get("customer_first_name"));
+        customer.put("customer_last_name", body.get("customer_last_name"));
+        customer.put("customer_firm_name", body.get("customer_firm_name"));
+        return customer;
+    }
+
+    private void addBillingCard(final Map<String, Map<String, Object>> cards, final Map<String, Object> request) {
+        final Map<String, Object> card = toCardFields(request);
+        final Object cardNumber = card.remove("card_number");
+        card.put("card_id", newId());
+        card.put("card_number", mask(cardNumber));
+        card.put("card_type", cardNumber != null && cardNumber.toString().startsWith("5") ? "MC" : "VS");
+        card.put("verified_date", "2019-01-01");
+        cards.put(card.get("card_id").toString(), card);
+    }
+
+    private Map<String, Object> customer(final String customerId, final Map<String, Map<String, Object>> cards) {
+        final List<Map<String, Object>> billingCards;
+        synchronized (cards) {
+            billingCards = new ArrayList<Map<String, Object>>(cards.values());
+        }
+
+        final Map<String, Object> customer = new LinkedHashMap<String, Object>();
+        customer.put("customer_id", customerId);
+        customer.put("billing_cards", billingCards);
+        return customer;
+    }
+
+    private static Map<String, Object> success(final Object data) {
+        return ImmutableMap.<String, Object>of("code", 0, "message", "Success", "data", data);
+    }
+
+    // Request parameters (merchant_id, cvv2) aren't stored
+    private static Map<String, Object> toCardFields(final Map<String, Object> request) {
+        final Map<String, Object> card = new LinkedHashMap<String, Object>();
+        for (final Map.Entry<String, Object> entry : request.entrySet()) {
+            if (entry.getValue() != null && !"merchant_id".equals(entry.getKey()) && !"cvv2".equals(entry.getKey())) {
+                card.put(entry.getKey(), entry.getValue());
+            }
+        }
+        return card;
+    }
+
+    private static String mask(final Object cardNumber) {
+        final String number = cardNumber == null ? "4111111111111111" : cardNumber.toString();
+        return number.length() < 10 ? number : number.substring(0, 6) + "xxxxxx" + number.substring(number.length() - 4);
+    }
+
+    private static String newId() {
+        return UUID.randomUUID().toString().replace("-", "");
+    }
+
+    private Map<String, Object> readBody(final HttpExchange exchange) throws IOException {
+        final InputStreamReader reader = new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8);
+        try {
+            final Map<String, Object> body = gson.fromJson(reader, new TypeToken<Map<String, Object>>() {}.getType());
+            return body == null ? ImmutableMap.<String, Object>of() : body;
+        } finally {
+            reader.close();
+        }
+    }
+
+    private void respond(final HttpExchange exchange, final int status, final Object body) throws IOException {
+        final byte[] bytes = gson.toJson(body).getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        final OutputStream outputStream = exchange.getResponseBody();
+        try {
+            outputStream.write(bytes);
+        } finally {
+            outputStream.close();
+        }
+    }
+}
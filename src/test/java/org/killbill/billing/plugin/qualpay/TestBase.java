@@ -17,6 +17,9 @@
 
 package org.killbill.billing.plugin.qualpay;
 
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.sql.SQLException;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Properties;
@@ -29,8 +32,14 @@ import org.killbill.billing.osgi.libs.killbill.OSGIConfigPropertiesService;
 import org.killbill.billing.osgi.libs.killbill.OSGIKillbillAPI;
 import org.killbill.billing.osgi.libs.killbill.OSGIKillbillLogService;
 import org.killbill.billing.payment.api.PaymentMethodPlugin;
+import org.killbill.billing.payment.api.PluginProperty;
+import org.killbill.billing.payment.api.TransactionType;
+import org.killbill.billing.payment.plugin.api.PaymentPluginApiException;
 import org.killbill.billing.plugin.TestUtils;
+import org.killbill.billing.plugin.api.PluginProperties;
+import org.killbill.billing.plugin.api.payment.PluginPaymentMethodPlugin;
 import org.killbill.billing.plugin.qualpay.dao.QualpayDao;
+import org.killbill.billing.plugin.qualpay.dao.gen.tables.records.QualpayResponsesRecord;
 import org.killbill.billing.security.api.SecurityApi;
 import org.killbill.billing.util.api.CustomFieldUserApi;
 import org.killbill.billing.util.callcontext.CallContext;
@@ -44,10 +53,19 @@ import org.testng.annotations.AfterSuite;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.BeforeSuite;
 
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+import io.swagger.client.model.GatewayResponse;
+
 
 public class TestBase {
 
     private static final String PROPERTIES_FILE_NAME = "qualpay.properties";
+    // Run against the local stub instead of the Qualpay sandbox (default when there are no sandbox credentials)
+    private static final boolean USE_STUB = Boolean.getBoolean("qualpay.stub") || TestBase.class.getClassLoader().getResource(PROPERTIES_FILE_NAME) == null;
+
+    protected static QualpayStubServer qualpayStubServer;
 
     public static final Currency DEFAULT_CURRENCY = Currency.USD;
     public static final String DEFAULT_COUNTRY = "US";
@@ -81,7 +99,10 @@ public class TestBase {
         TestUtils.buildPaymentMethod(account.getId(), account.getPaymentMethodId(), QualpayActivator.PLUGIN_NAME, killbillApi);
 
         final OSGIKillbillLogService logService = TestUtils.buildLogService();
-        final Properties properties = TestUtils.loadProperties(PROPERTIES_FILE_NAME);
+        if (qualpayStubServer != null) {
+            qualpayStubServer.reset();
+        }
+        final Properties properties = buildProperties();
 
         final QualpayConfigProperties qualpayConfigProperties = new QualpayConfigProperties(properties, "");
         qualpayConfigPropertiesConfigurationHandler = new QualpayConfigPropertiesConfigurationHandler(QualpayActivator.PLUGIN_NAME, killbillApi, logService, null);
@@ -130,13 +151,70 @@ public class TestBase {
                .when(customFieldUserApi).addCustomFields(Mockito.anyList(), Mockito.any(CallContext.class));
     }
 
+    // Plugin configuration pointing to the Qualpay sandbox or stub, for tests to add their own settings on top
+    protected Properties buildProperties() throws IOException {
+        final Properties properties = USE_STUB ? new Properties() : TestUtils.loadProperties(PROPERTIES_FILE_NAME);
+        if (qualpayStubServer != null) {
+            properties.setProperty("org.killbill.billing.plugin.qualpay.baseUrl", qualpayStubServer.getBaseUrl());
+            properties.setProperty("org.killbill.billing.plugin.qualpay.apiKey", QualpayStubServer.API_KEY);
+            properties.setProperty("org.killbill.billing.plugin.qualpay.merchantId", QualpayStubServer.MERCHANT_ID);
+        }
+        return properties;
+    }
+
+    // Creates the Qualpay customer of the account, with one card in the Vault
+    protected String createQualpayCustomerWithCreditCard() throws PaymentPluginApiException {
+        final UUID kbAccountId = account.getId();
+        final UUID kbPaymentMethodId = UUID.randomUUID();
+
+        final ImmutableMap.Builder<String, String> builder = new ImmutableMap.Builder<String, String>();
+        builder.put("card_number", "4111111111111111");
+        builder.put("exp_date", "0420");
+        builder.put("cvv2", "152");
+        builder.put("billing_first_name", "John");
+        builder.put("billing_last_name", "Doe");
+        builder.put("billing_zip", "94402");
+
+        qualpayPaymentPluginApi.addPaymentMethod(kbAccountId,
+                                                 kbPaymentMethodId,
+                                                 new PluginPaymentMethodPlugin(kbPaymentMethodId, null, false, ImmutableList.<PluginProperty>of()),
+                                                 false,
+                                                 PluginProperties.buildPluginProperties(builder.build()),
+                                                 context);
+
+        return customFieldUserApi.getCustomFieldsForAccountType(kbAccountId, ObjectType.ACCOUNT, context).get(0).getFieldValue();
+    }
+
+    protected QualpayResponsesRecord addResponse(final UUID kbPaymentId, final UUID kbTransactionId, final String pgId, final String rcode) throws SQLException {
+        final GatewayResponse gatewayResponse = new GatewayResponse();
+        gatewayResponse.setPgId(pgId);
+        gatewayResponse.setRcode(rcode);
+        gatewayResponse.setRmsg("Approved");
+        return dao.addResponse(account.getId(),
+                               kbPaymentId,
+                               kbTransactionId,
+                               TransactionType.PURCHASE,
+                               BigDecimal.TEN,
+                               DEFAULT_CURRENCY,
+                               gatewayResponse,
+                               clock.getUTCNow(),
+                               context.getTenantId());
+    }
+
     @BeforeSuite(groups = {"slow", "integration"})
     public void setUpBeforeSuite() throws Exception {
         EmbeddedDbHelper.instance().startDb();
+        if (USE_STUB) {
+            qualpayStubServer = new QualpayStubServer();
+        }
     }
 
     @AfterSuite(groups = {"slow", "integration"})
     public void tearDownAfterSuite() throws Exception {
         EmbeddedDbHelper.instance().stopDB();
+        if (qualpayStubServer != null) {
+            qualpayStubServer.close();
+            qualpayStubServer = null;
+        }
     }
 }
@@ -0,0 +1,60 @@
+/*
+ * Copyright 2014-2019 Groupon, Inc
+ * Copyright 2014-2019 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.plugin.qualpay;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+import org.killbill.billing.catalog.api.Currency;
+import org.killbill.billing.payment.api.TransactionType;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+
+public class TestQualpayAuditLog {
+
+    @Test(groups = "slow")
+    public void testFormat() {
+        final UUID kbTenantId = UUID.fromString("11111111-1111-1111-1111-111111111111");
+        final UUID kbTransactionId = UUID.fromString("22222222-2222-2222-2222-222222222222");
+
+        final StringBuilder line = new StringBuilder();
+        QualpayAuditLog.format(new QualpayAuditLog.AuditEvent(0, "transaction_completed", kbTenantId, null, null, kbTransactionId, TransactionType.PURCHASE, new BigDecimal("10.50"), Currency.USD, "pg\"1", "PROCESSED", -1), line);
+        assertEquals(line.toString(),
+                     "{\"event\":\"transaction_completed\",\"date\":\"1970-01-01T00:00:00.000Z\",\"kbTenantId\":\"11111111-1111-1111-1111-111111111111\"," +
+                     "\"kbTransactionId\":\"22222222-2222-2222-2222-222222222222\",\"transactionType\":\"PURCHASE\",\"amount\":10.50,\"currency\":\"USD\"," +
+                     "\"qualpayId\":\"pg\\\"1\",\"status\":\"PROCESSED\"}");
+
+        line.setLength(0);
+        QualpayAuditLog.format(new QualpayAuditLog.AuditEvent(0, "payment_methods_deactivated", kbTenantId, null, null, null, null, null, null, null, null, 2), line);
+        assertEquals(line.toString(), "{\"event\":\"payment_methods_deactivated\",\"date\":\"1970-01-01T00:00:00.000Z\",\"kbTenantId\":\"11111111-1111-1111-1111-111111111111\",\"count\":2}");
+    }
+
+    @Test(groups = "slow")
+    public void testClose() {
+        final QualpayAuditLog auditLog = new QualpayAuditLog(1, QualpayAuditLog.OverflowPolicy.BLOCK);
+        for (int i = 0; i < 100; i++) {
+            auditLog.paymentMethodCreated(UUID.randomUUID(), UUID.randomUUID(), "card" + i);
+        }
+        auditLog.close();
+
+        // Ignored once closed
+        auditLog.paymentMethodCreated(UUID.randomUUID(), UUID.randomUUID(), "card");
+        assertEquals(auditLog.getNbDropped(), 0);
+    }
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright 2014-2019 Groupon, Inc
+ * Copyright 2014-2019 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.plugin.qualpay;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import javax.sql.DataSource;
+
+import org.killbill.billing.payment.api.TransactionType;
+import org.killbill.billing.plugin.qualpay.BenchmarkHelper.LatencySamples;
+import org.killbill.billing.plugin.qualpay.dao.QualpayDao;
+import org.killbill.billing.plugin.qualpay.dao.gen.tables.records.QualpayResponsesRecord;
+import org.testng.SkipException;
+import org.testng.annotations.Test;
+
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+
+import io.swagger.client.model.GatewayResponse;
+
+// DAO latencies at production table sizes: mvn test -Dtest=TestQualpayDaoBenchmark -Dqualpay.daoBenchmark=true
+// The tables are grown to each size of qualpay.daoBenchmark.rows (see QualpayDataGenerator), then each DAO call is timed
+// against responses picked at random. Sizes above a few millions rows need a dedicated MySQL instance
+// (-Dqualpay.daoBenchmark.url=jdbc:mysql://...), whose tables are kept between runs so that the load is only paid once.
+// Results are printed and appended to target/qualpay-dao-benchmark.csv, labelled with the current commit.
+public class TestQualpayDaoBenchmark extends TestBase {
+
+    private static final String PROPERTY_PREFIX = "qualpay.daoBenchmark.";
+    private static final List<String> OPERATIONS = ImmutableList.<String>of("addResponse", "getSuccessfulAuthorizationResponse", "getResponses", "getPaymentMethods", "updateResponse");
+
+    @Test(groups = "slow")
+    public void testDaoLatencies() throws Exception {
+        if (!Boolean.getBoolean("qualpay.daoBenchmark")) {
+            throw new SkipException("Enable with -Dqualpay.daoBenchmark=true");
+        }
+
+        final int iterations = Integer.getInteger(PROPERTY_PREFIX + "iterations", 2000);
+        final int warmupIterations = Integer.getInteger(PROPERTY_PREFIX + "warmupIterations", 200);
+        final String label = BenchmarkHelper.getLabel(PROPERTY_PREFIX + "label");
+
+        final String url = System.getProperty(PROPERTY_PREFIX + "url");
+        final HikariDataSource externalDataSource = url == null ? null : createDataSource(url);
+        try {
+            final DataSource dataSource = externalDataSource == null ? EmbeddedDbHelper.instance().getDataSource() : externalDataSource;
+            final QualpayDao benchmarkDao = externalDataSource == null ? dao : new QualpayDao(externalDataSource);
+            final QualpayDataGenerator generator = new QualpayDataGenerator(dataSource,
+                                                                           Integer.getInteger(PROPERTY_PREFIX + "tenants", 50),
+                                                                           Long.getLong(PROPERTY_PREFIX + "seed", 42));
+
+            for (final String rows : Splitter.on(',').trimResults().split(System.getProperty(PROPERTY_PREFIX + "rows", "1000000,10000000,100000000"))) {
+                final long targetRows = Long.parseLong(rows);
+
+                final long startNanos = System.nanoTime();
+                final long addedRows = generator.generate(targetRows);
+                final long loadMillis = Math.max(1, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+                System.out.println(String.format(Locale.ROOT, "Loaded %d responses in %.1fs (%.0f rows/s)", addedRows, loadMillis / 1000.0, addedRows * 1000.0 / loadMillis));
+
+                // Warm up the JIT and the buffer pool on a separate sample
+                measure(benchmarkDao, generator.sampleResponses(warmupIterations));
+                report(label, targetRows, measure(benchmarkDao, generator.sampleResponses(iterations)));
+            }
+        } finally {
+            if (externalDataSource != null) {
+                externalDataSource.close();
+            }
+        }
+    }
+
+    private Map<String, LatencySamples> measure(final QualpayDao benchmarkDao, final List<QualpayResponsesRecord> responses) {
+        final Map<String, LatencySamples> samples = new TreeMap<String, LatencySamples>();
+        for (final String operation : OPERATIONS) {
+            samples.put(operation, new LatencySamples());
+        }
+
+        final GatewayResponse gatewayResponse = new GatewayResponse();
+        gatewayResponse.setPgId("benchmark");
+        gatewayResponse.setRcode("000");
+        gatewayResponse.setRmsg("Approved");
+        final Map<String, Object> additionalData = ImmutableMap.<String, Object>of("benchmark", "true");
+
+        for (final QualpayResponsesRecord response : responses) {
+            final UUID kbAccountId = UUID.fromString(response.getKbAccountId());
+            final UUID kbPaymentId = UUID.fromString(response.getKbPaymentId());
+            final UUID kbTransactionId = UUID.fromString(response.getKbPaymentTransactionId());
+            final UUID kbTenantId = UUID.fromString(response.getKbTenantId());
+
+            for (final String operation : OPERATIONS) {
+                final long startNanos = System.nanoTime();
+                try {
+                    if ("addResponse".equals(operation)) {
+                        benchmarkDao.addResponse(kbAccountId, kbPaymentId, UUID.randomUUID(), TransactionType.REFUND, BigDecimal.ONE, DEFAULT_CURRENCY, gatewayResponse, clock.getUTCNow(), kbTenantId);
+                    } else if ("getSuccessfulAuthorizationResponse".equals(operation)) {
+                        benchmarkDao.getSuccessfulAuthorizationResponse(kbPaymentId, kbTenantId);
+                    } else if ("getResponses".equals(operation)) {
+                        benchmarkDao.getResponses(kbPaymentId, kbTenantId);
+                    } else if ("getPaymentMethods".equals(operation)) {
+                        benchmarkDao.getPaymentMethods(kbAccountId, kbTenantId);
+                    } else {
+                        benchmarkDao.updateResponse(kbTransactionId, additionalData, kbTenantId);
+                    }
+                    samples.get(operation).add(System.nanoTime() - startNanos);
+                } catch (final SQLException e) {
+                    samples.get(operation).fail();
+                }
+            }
+        }
+        return samples;
+    }
+
+    private void report(final String label, final long rows, final Map<String, LatencySamples> samples) throws IOException {
+        final Writer writer = BenchmarkHelper.openResults("qualpay-dao-benchmark.csv", "label,rows,operation,samples,p50_ms,p99_ms,p999_ms,errors");
+        try {
+            for (final Map.Entry<String, LatencySamples> entry : samples.entrySet()) {
+                final LatencySamples operationSamples = entry.getValue();
+                final String line = String.format(Locale.ROOT,
+                                                  "%s,%d,%s,%d,%.2f,%.2f,%.2f,%d",
+                                                  label,
+                                                  rows,
+                                                  entry.getKey(),
+                                                  operationSamples.size(),
+                                                  operationSamples.percentileMillis(0.50),
+                                                  operationSamples.percentileMillis(0.99),
+                                                  operationSamples.percentileMillis(0.999),
+                                                  operationSamples.getErrors());
+                System.out.println(line);
+                writer.write(line + "\n");
+            }
+        } finally {
+            writer.close();
+        }
+    }
+
+    private static HikariDataSource createDataSource(final String url) {
+        final HikariConfig config = new HikariConfig();
+        config.setJdbcUrl(url);
+        config.setUsername(System.getProperty(PROPERTY_PREFIX + "user"));
+        config.setPassword(System.getProperty(PROPERTY_PREFIX + "password"));
+        config.setMaximumPoolSize(4);
+        config.setPoolName("qualpay-dao-benchmark");
+        return new HikariDataSource(config);
+    }
+}
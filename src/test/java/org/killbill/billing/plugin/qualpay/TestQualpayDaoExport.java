@@ -0,0 +1,65 @@
+/*
+ * Copyright 2014-2019 Groupon, Inc
+ * Copyright 2014-2019 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.plugin.qualpay;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.killbill.billing.plugin.qualpay.dao.QualpayDao.RecordHandler;
+import org.killbill.billing.plugin.qualpay.dao.gen.tables.records.QualpayResponsesRecord;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+
+public class TestQualpayDaoExport extends TestBase {
+
+    @Test(groups = "slow")
+    public void testStreamResponses() throws Exception {
+        final UUID kbPaymentId = UUID.randomUUID();
+        for (int i = 0; i < 5; i++) {
+            addResponse(kbPaymentId, UUID.randomUUID(), "pg" + i, "000");
+        }
+
+        final List<QualpayResponsesRecord> streamed = new ArrayList<QualpayResponsesRecord>();
+        final RecordHandler<QualpayResponsesRecord> handler = new RecordHandler<QualpayResponsesRecord>() {
+            @Override
+            public void onRecord(final QualpayResponsesRecord record) {
+                streamed.add(record);
+            }
+        };
+        final DateTime from = clock.getUTCNow().minusDays(1);
+        final DateTime to = clock.getUTCNow().plusDays(1);
+        dao.streamResponses(from, to, null, 0, context.getTenantId(), handler);
+        assertEquals(streamed.size(), 5);
+
+        // Resume after the third row
+        final QualpayResponsesRecord third = streamed.get(2);
+        streamed.clear();
+        dao.streamResponses(from, to, new DateTime(third.getCreatedDate().getTime(), DateTimeZone.UTC), third.getRecordId().longValue(), context.getTenantId(), handler);
+        assertEquals(streamed.size(), 2);
+        assertEquals(streamed.get(0).getQualpayId(), "pg3");
+        assertEquals(streamed.get(1).getQualpayId(), "pg4");
+
+        streamed.clear();
+        dao.streamResponses(from, to, null, 0, UUID.randomUUID(), handler);
+        assertEquals(streamed.size(), 0);
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2014-2019 Groupon, Inc
+ * Copyright 2014-2019 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.plugin.qualpay;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.killbill.billing.plugin.qualpay.dao.gen.tables.records.QualpayResponsesRecord;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+
+public class TestQualpayDaoGroupCommit extends TestBase {
+
+    @Test(groups = "slow")
+    public void testGroupCommit() throws Exception {
+        dao.enableGroupCommit(10, 50);
+        try {
+            final UUID kbPaymentId = UUID.randomUUID();
+            final int nbThreads = 25;
+            final ExecutorService executor = Executors.newFixedThreadPool(nbThreads);
+            final List<Future<QualpayResponsesRecord>> futures = new ArrayList<Future<QualpayResponsesRecord>>();
+            final List<UUID> kbTransactionIds = new ArrayList<UUID>();
+            for (int i = 0; i < nbThreads; i++) {
+                final UUID kbTransactionId = UUID.randomUUID();
+                final String pgId = "pg" + i;
+                kbTransactionIds.add(kbTransactionId);
+                futures.add(executor.submit(new Callable<QualpayResponsesRecord>() {
+                    @Override
+                    public QualpayResponsesRecord call() throws Exception {
+                        return addResponse(kbPaymentId, kbTransactionId, pgId, "000");
+                    }
+                }));
+            }
+
+            // Each caller gets its own row back
+            for (int i = 0; i < nbThreads; i++) {
+                final QualpayResponsesRecord response = futures.get(i).get();
+                assertNotNull(response.getRecordId());
+                assertEquals(response.getKbPaymentTransactionId(), kbTransactionIds.get(i).toString());
+                assertEquals(response.getQualpayId(), "pg" + i);
+            }
+            executor.shutdown();
+
+            assertEquals(dao.getResponses(kbPaymentId, context.getTenantId()).size(), nbThreads);
+        } finally {
+            dao.disableGroupCommit();
+        }
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2014-2019 Groupon, Inc
+ * Copyright 2014-2019 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.plugin.qualpay;
+
+import java.sql.SQLException;
+import java.util.Locale;
+import java.util.UUID;
+
+import org.jooq.SQLDialect;
+import org.jooq.impl.DSL;
+import org.jooq.types.ULong;
+import org.killbill.billing.plugin.qualpay.dao.QualpayDao;
+import org.killbill.billing.plugin.qualpay.dao.gen.tables.records.QualpayNotificationsRecord;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableList;
+
+import static org.killbill.billing.plugin.qualpay.dao.gen.Tables.QUALPAY_NOTIFICATIONS;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+
+public class TestQualpayDaoNotifications extends TestBase {
+
+    @Test(groups = "slow")
+    public void testNotificationsInbox() throws SQLException {
+        final String pgId = UUID.randomUUID().toString().substring(0, 32);
+        final String eventId1 = UUID.randomUUID().toString();
+        final String eventId2 = UUID.randomUUID().toString();
+        final String payload = "{\"event\":\"transaction_status_updated\",\"data\":{\"pg_id\":\"" + pgId + "\"}}";
+        Assert.assertTrue(dao.addNotification(eventId1, "transaction_status_updated", pgId, payload, clock.getUTCNow(), context.getTenantId()));
+        // Redeliveries are ignored
+        Assert.assertFalse(dao.addNotification(eventId1, "transaction_status_updated", pgId, payload, clock.getUTCNow(), context.getTenantId()));
+        Assert.assertTrue(dao.addNotification(eventId2, "transaction_status_updated", pgId, payload, clock.getUTCNow(), context.getTenantId()));
+
+        // Only the first event of the transaction can be claimed
+        QualpayNotificationsRecord claimed = findNotification(dao.claimNotifications(1000, clock.getUTCNow()), pgId);
+        assertEquals(claimed.getEventId(), eventId1);
+        assertEquals(claimed.getStatus(), QualpayDao.NOTIFICATION_STATUS_PROCESSING);
+        assertNull(findNotification(dao.claimNotifications(1000, clock.getUTCNow()), pgId));
+        assertEquals((int) dao.countUnprocessedNotifications().get(QualpayDao.NOTIFICATION_STATUS_PROCESSING), 1);
+
+        assertEquals(dao.setNotificationsStatus(ImmutableList.<ULong>of(claimed.getRecordId()), QualpayDao.NOTIFICATION_STATUS_PROCESSED, clock.getUTCNow()), 1);
+        claimed = findNotification(dao.claimNotifications(1000, clock.getUTCNow()), pgId);
+        assertEquals(claimed.getEventId(), eventId2);
+
+        // Failed events are retried after the backoff
+        dao.failNotification(claimed.getRecordId(), 1, "boom", false, clock.getUTCNow().plusMinutes(1), clock.getUTCNow());
+        assertNull(findNotification(dao.claimNotifications(1000, clock.getUTCNow()), pgId));
+        claimed = findNotification(dao.claimNotifications(1000, clock.getUTCNow().plusMinutes(2)), pgId);
+        assertEquals(claimed.getAttempts(), (Integer) 1);
+        assertEquals(claimed.getLastError(), "boom");
+
+        // Parked events aren't claimed anymore
+        dao.failNotification(claimed.getRecordId(), 2, "boom", true, clock.getUTCNow(), clock.getUTCNow());
+        assertNull(findNotification(dao.claimNotifications(1000, clock.getUTCNow().plusDays(1)), pgId));
+        assertEquals((int) dao.countUnprocessedNotifications().get(QualpayDao.NOTIFICATION_STATUS_PARKED), 1);
+    }
+
+    @Test(groups = "slow")
+    public void testSkipLockedIsRenderedAfterForUpdateOnMySQL() {
+        final String sql = QualpayDao.forUpdateSkipLockedMySQL(DSL.using(SQLDialect.MYSQL)
+                                                                  .selectFrom(QUALPAY_NOTIFICATIONS)
+                                                                  .where(QUALPAY_NOTIFICATIONS.STATUS.equal(QualpayDao.NOTIFICATION_STATUS_PENDING))
+                                                                  .orderBy(QUALPAY_NOTIFICATIONS.RECORD_ID.asc())
+                                                                  .limit(10)
+                                                                  .forUpdate())
+                                     .getSQL();
+        Assert.assertTrue(sql.toLowerCase(Locale.ROOT).endsWith(" for update skip locked"), sql);
+    }
+
+    private QualpayNotificationsRecord findNotification(final Iterable<QualpayNotificationsRecord> notifications, final String pgId) {
+        for (final QualpayNotificationsRecord notification : notifications) {
+            if (pgId.equals(notification.getPgId())) {
+                return notification;
+            }
+        }
+        return null;
+    }
+}
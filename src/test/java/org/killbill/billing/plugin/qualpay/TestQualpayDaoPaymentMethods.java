@@ -0,0 +1,138 @@
+/*
+ * Copyright 2014-2019 Groupon, Inc
+ * Copyright 2014-2019 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.plugin.qualpay;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.joda.time.DateTime;
+import org.killbill.billing.plugin.qualpay.dao.QualpayDao;
+import org.killbill.billing.plugin.qualpay.dao.gen.tables.records.QualpayAccountsRecord;
+import org.killbill.billing.plugin.qualpay.dao.gen.tables.records.QualpayPaymentMethodsRecord;
+import org.killbill.billing.plugin.qualpay.dao.gen.tables.records.QualpaySyncCheckpointsRecord;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableMap;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotEquals;
+import static org.testng.Assert.assertNull;
+
+public class TestQualpayDaoPaymentMethods extends TestBase {
+
+    @Test(groups = "slow")
+    public void testUpdatePaymentMethodsWithContentHash() throws SQLException {
+        final UUID kbPaymentMethodId1 = UUID.randomUUID();
+        final UUID kbPaymentMethodId2 = UUID.randomUUID();
+        final Map<String, Object> card1 = ImmutableMap.<String, Object>of("id", "card1", "exp_date", "1220", "card_type", "VS");
+        dao.addPaymentMethod(account.getId(), kbPaymentMethodId1, card1, "card1", clock.getUTCNow(), context.getTenantId());
+        dao.addPaymentMethod(account.getId(), kbPaymentMethodId2, ImmutableMap.<String, Object>of("id", "card2"), "card2", clock.getUTCNow(), context.getTenantId());
+
+        // The hash doesn't depend on the key order
+        final String hash = dao.getPaymentMethod(kbPaymentMethodId1, context.getTenantId()).getContentHash();
+        assertEquals(QualpayDao.contentHash(ImmutableMap.<String, Object>of("card_type", "VS", "exp_date", "1220", "id", "card1")), hash);
+        assertNotEquals(QualpayDao.contentHash(ImmutableMap.<String, Object>of("id", "card1", "exp_date", "1221", "card_type", "VS")), hash);
+
+        dao.updatePaymentMethods(ImmutableMap.<UUID, Map<String, Object>>of(kbPaymentMethodId1, ImmutableMap.<String, Object>of("id", "card1", "exp_date", "1225"),
+                                                                            kbPaymentMethodId2, ImmutableMap.<String, Object>of("id", "card2", "exp_date", "0130")),
+                                 clock.getUTCNow(),
+                                 context.getTenantId());
+        final QualpayPaymentMethodsRecord updated1 = dao.getPaymentMethod(kbPaymentMethodId1, context.getTenantId());
+        assertEquals(updated1.getCardExpDate(), "1225");
+        assertEquals(updated1.getContentHash(), QualpayDao.contentHash(ImmutableMap.<String, Object>of("id", "card1", "exp_date", "1225")));
+        assertEquals(dao.getPaymentMethod(kbPaymentMethodId2, context.getTenantId()).getCardExpDate(), "0130");
+    }
+
+    @Test(groups = "slow")
+    public void testDeletePaymentMethods() throws SQLException {
+        final List<UUID> kbPaymentMethodIds = new ArrayList<UUID>();
+        for (int i = 0; i < 3; i++) {
+            final UUID kbPaymentMethodId = UUID.randomUUID();
+            kbPaymentMethodIds.add(kbPaymentMethodId);
+            dao.addPaymentMethod(account.getId(), kbPaymentMethodId, ImmutableMap.<String, Object>of(), "card" + i, clock.getUTCNow(), context.getTenantId());
+        }
+
+        assertEquals(dao.deletePaymentMethods(kbPaymentMethodIds.subList(0, 2), clock.getUTCNow(), context.getTenantId()), 2);
+        // Already deleted rows and other tenants aren't counted
+        assertEquals(dao.deletePaymentMethods(kbPaymentMethodIds.subList(0, 2), clock.getUTCNow(), context.getTenantId()), 0);
+        assertEquals(dao.deletePaymentMethods(kbPaymentMethodIds, clock.getUTCNow(), UUID.randomUUID()), 0);
+
+        final List<QualpayPaymentMethodsRecord> paymentMethods = dao.getPaymentMethods(account.getId(), context.getTenantId());
+        assertEquals(paymentMethods.size(), 1);
+        assertEquals(paymentMethods.get(0).getQualpayId(), "card2");
+    }
+
+    @Test(groups = "slow")
+    public void testSyncCheckpoints() throws SQLException {
+        final List<UUID> kbAccountIds = new ArrayList<UUID>();
+        for (int i = 0; i < 3; i++) {
+            final UUID kbAccountId = UUID.randomUUID();
+            kbAccountIds.add(kbAccountId);
+            // Two payment methods per account
+            dao.addPaymentMethod(kbAccountId, UUID.randomUUID(), ImmutableMap.<String, Object>of(), "card" + i, clock.getUTCNow(), context.getTenantId());
+            dao.addPaymentMethod(kbAccountId, UUID.randomUUID(), ImmutableMap.<String, Object>of(), "card" + i + "bis", clock.getUTCNow(), context.getTenantId());
+        }
+        Collections.sort(kbAccountIds, new Comparator<UUID>() {
+            @Override
+            public int compare(final UUID o1, final UUID o2) {
+                return o1.toString().compareTo(o2.toString());
+            }
+        });
+
+        final List<UUID> firstPage = dao.getKbAccountIdsWithPaymentMethods(null, 2, context.getTenantId());
+        assertEquals(firstPage, kbAccountIds.subList(0, 2));
+        assertEquals(dao.getKbAccountIdsWithPaymentMethods(firstPage.get(1), 2, context.getTenantId()), kbAccountIds.subList(2, 3));
+
+        assertNull(dao.getSyncCheckpoint("test", context.getTenantId()));
+        dao.saveSyncCheckpoint("test", firstPage.get(1), "RUNNING", 2, 0, 0, clock.getUTCNow(), context.getTenantId());
+        dao.saveSyncCheckpoint("test", kbAccountIds.get(2), "RUNNING", 2, 3, 1, clock.getUTCNow(), context.getTenantId());
+        final QualpaySyncCheckpointsRecord checkpoint = dao.getSyncCheckpoint("test", context.getTenantId());
+        assertEquals(checkpoint.getLastKbAccountId(), kbAccountIds.get(2).toString());
+        assertEquals(checkpoint.getStatus(), "RUNNING");
+        assertEquals((long) checkpoint.getNbProcessed(), 2L);
+        assertEquals((long) checkpoint.getNbSkipped(), 3L);
+        assertEquals((long) checkpoint.getNbErrors(), 1L);
+    }
+
+    @Test(groups = "slow")
+    public void testLastSyncedDate() throws SQLException {
+        final UUID kbAccountId1 = UUID.randomUUID();
+        final UUID kbAccountId2 = UUID.randomUUID();
+        assertNull(dao.getLastSyncedDate(kbAccountId1, context.getTenantId()));
+
+        final DateTime firstSync = clock.getUTCNow();
+        dao.setLastSyncedDate(kbAccountId1, firstSync, context.getTenantId());
+        clock.addDays(1);
+        dao.setLastSyncedDate(kbAccountId2, clock.getUTCNow(), context.getTenantId());
+        assertEquals(dao.getLastSyncedDate(kbAccountId1, context.getTenantId()).getMillis() / 1000, firstSync.getMillis() / 1000);
+
+        // Least recently synced first
+        final List<QualpayAccountsRecord> staleAccounts = dao.getAccountsSyncedBefore(clock.getUTCNow().plusSeconds(1), 10);
+        assertEquals(staleAccounts.size(), 2);
+        assertEquals(staleAccounts.get(0).getKbAccountId(), kbAccountId1.toString());
+        assertEquals(dao.getAccountsSyncedBefore(clock.getUTCNow().minusHours(1), 10).size(), 1);
+
+        dao.setLastSyncedDate(kbAccountId1, clock.getUTCNow().plusDays(1), context.getTenantId());
+        assertEquals(dao.getAccountsSyncedBefore(clock.getUTCNow().minusHours(1), 10).size(), 0);
+    }
+}
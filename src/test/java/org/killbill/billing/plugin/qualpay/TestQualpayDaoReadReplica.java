@@ -0,0 +1,132 @@
+/*
+ * Copyright 2014-2019 Groupon, Inc
+ * Copyright 2014-2019 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.plugin.qualpay;
+
+import java.io.PrintWriter;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+import javax.sql.DataSource;
+
+import org.killbill.billing.plugin.qualpay.dao.QualpayDao;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableMap;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+
+public class TestQualpayDaoReadReplica extends TestBase {
+
+    @Test(groups = "slow")
+    public void testReadReplicaRouting() throws Exception {
+        // Stand-in for a replica: the embedded database itself, counting the queries routed to it
+        final CountingDataSource readOnlyDataSource = new CountingDataSource(EmbeddedDbHelper.instance().getDataSource());
+        final QualpayDao routingDao = EmbeddedDbHelper.instance().getQualpayDao(readOnlyDataSource, 60000);
+        final int nbConnections = readOnlyDataSource.getNbConnections();
+
+        final UUID kbPaymentMethodId = UUID.randomUUID();
+        assertNull(routingDao.getPaymentMethod(kbPaymentMethodId, context.getTenantId()));
+        assertEquals(readOnlyDataSource.getNbConnections(), nbConnections + 1);
+
+        // Freshly written objects are read from the primary
+        routingDao.addPaymentMethod(account.getId(), kbPaymentMethodId, ImmutableMap.<String, Object>of(), "card1", clock.getUTCNow(), context.getTenantId());
+        assertEquals(routingDao.getPaymentMethod(kbPaymentMethodId, context.getTenantId()).getQualpayId(), "card1");
+        assertEquals(routingDao.getPaymentMethods(account.getId(), context.getTenantId()).size(), 1);
+        assertNull(routingDao.getPaymentMethodFromPrimary(UUID.randomUUID(), context.getTenantId()));
+        assertEquals(readOnlyDataSource.getNbConnections(), nbConnections + 1);
+    }
+
+    @Test(groups = "slow")
+    public void testReadReplicaAfterLagGuard() throws Exception {
+        final CountingDataSource readOnlyDataSource = new CountingDataSource(EmbeddedDbHelper.instance().getDataSource());
+        // Replica assumed to be always up to date
+        final QualpayDao routingDao = EmbeddedDbHelper.instance().getQualpayDao(readOnlyDataSource, 0);
+        final int nbConnections = readOnlyDataSource.getNbConnections();
+
+        final UUID kbPaymentMethodId = UUID.randomUUID();
+        routingDao.addPaymentMethod(account.getId(), kbPaymentMethodId, ImmutableMap.<String, Object>of(), "card1", clock.getUTCNow(), context.getTenantId());
+        assertEquals(routingDao.getPaymentMethod(kbPaymentMethodId, context.getTenantId()).getQualpayId(), "card1");
+        assertEquals(readOnlyDataSource.getNbConnections(), nbConnections + 1);
+    }
+
+    private static final class CountingDataSource implements DataSource {
+
+        private final DataSource delegate;
+        private final AtomicInteger nbConnections = new AtomicInteger();
+
+        private CountingDataSource(final DataSource delegate) {
+            this.delegate = delegate;
+        }
+
+        int getNbConnections() {
+            return nbConnections.get();
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            nbConnections.incrementAndGet();
+            return delegate.getConnection();
+        }
+
+        @Override
+        public Connection getConnection(final String username, final String password) throws SQLException {
+            nbConnections.incrementAndGet();
+            return delegate.getConnection(username, password);
+        }
+
+        @Override
+        public PrintWriter getLogWriter() throws SQLException {
+            return delegate.getLogWriter();
+        }
+
+        @Override
+        public void setLogWriter(final PrintWriter out) throws SQLException {
+            delegate.setLogWriter(out);
+        }
+
+        @Override
+        public void setLoginTimeout(final int seconds) throws SQLException {
+            delegate.setLoginTimeout(seconds);
+        }
+
+        @Override
+        public int getLoginTimeout() throws SQLException {
+            return delegate.getLoginTimeout();
+        }
+
+        @Override
+        public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+            return delegate.getParentLogger();
+        }
+
+        @Override
+        public <T> T unwrap(final Class<T> iface) throws SQLException {
+            return delegate.unwrap(iface);
+        }
+
+        @Override
+        public boolean isWrapperFor(final Class<?> iface) throws SQLException {
+            return delegate.isWrapperFor(iface);
+        }
+    }
+}
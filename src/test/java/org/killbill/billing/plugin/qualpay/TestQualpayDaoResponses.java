@@ -0,0 +1,174 @@
+/*
+ * Copyright 2014-2019 Groupon, Inc
+ * Copyright 2014-2019 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.plugin.qualpay;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.killbill.billing.payment.api.TransactionType;
+import org.killbill.billing.payment.plugin.api.PaymentPluginStatus;
+import org.killbill.billing.plugin.qualpay.dao.QualpayDao;
+import org.killbill.billing.plugin.qualpay.dao.gen.tables.records.QualpayResponsesRecord;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+public class TestQualpayDaoResponses extends TestBase {
+
+    @Test(groups = "slow")
+    public void testUpdateResponseMergesIntoLatestResponse() throws SQLException {
+        final UUID kbPaymentId = UUID.randomUUID();
+        final UUID kbTransactionId = UUID.randomUUID();
+        addResponse(kbPaymentId, kbTransactionId, "pg1", "101");
+        addResponse(kbPaymentId, kbTransactionId, "pg2", "000");
+
+        final QualpayResponsesRecord updated = dao.updateResponse(kbTransactionId,
+                                                                  ImmutableMap.<String, Object>of("rcode", "401", "note", "retried"),
+                                                                  context.getTenantId());
+        final Map additionalData = QualpayDao.fromAdditionalData(updated.getAdditionalData());
+        assertEquals(additionalData.get("id"), "pg2");
+        assertEquals(additionalData.get("rcode"), "401");
+        assertEquals(additionalData.get("note"), "retried");
+
+        final List<QualpayResponsesRecord> responses = dao.getResponses(kbPaymentId, context.getTenantId());
+        assertEquals(responses.size(), 2);
+        assertEquals(QualpayDao.fromAdditionalData(responses.get(0).getAdditionalData()).get("rcode"), "101");
+        assertEquals(QualpayDao.fromAdditionalData(responses.get(1).getAdditionalData()).get("rcode"), "401");
+
+        assertNull(dao.updateResponse(UUID.randomUUID(), ImmutableMap.<String, Object>of("rcode", "000"), context.getTenantId()));
+    }
+
+    @Test(groups = "slow")
+    public void testUpdateResponsesInBatch() throws SQLException {
+        final UUID kbPaymentId = UUID.randomUUID();
+        final UUID kbTransactionId1 = UUID.randomUUID();
+        final UUID kbTransactionId2 = UUID.randomUUID();
+        addResponse(kbPaymentId, kbTransactionId1, "pg1", "000");
+        addResponse(kbPaymentId, kbTransactionId2, "pg2", "000");
+
+        final List<QualpayResponsesRecord> updated = dao.updateResponses(ImmutableMap.<UUID, Map<String, Object>>of(kbTransactionId1, ImmutableMap.<String, Object>of("status", "settled"),
+                                                                                                                    kbTransactionId2, ImmutableMap.<String, Object>of("status", "declined")),
+                                                                         context.getTenantId());
+        assertEquals(updated.size(), 2);
+
+        final List<QualpayResponsesRecord> responses = dao.getResponses(kbPaymentId, context.getTenantId());
+        assertEquals(QualpayDao.fromAdditionalData(responses.get(0).getAdditionalData()).get("status"), "settled");
+        assertEquals(QualpayDao.fromAdditionalData(responses.get(1).getAdditionalData()).get("status"), "declined");
+    }
+
+    @Test(groups = "slow")
+    public void testConcurrentUpdatesAreNotLost() throws Exception {
+        final UUID kbPaymentId = UUID.randomUUID();
+        final UUID kbTransactionId = UUID.randomUUID();
+        final UUID kbTenantId = context.getTenantId();
+        addResponse(kbPaymentId, kbTransactionId, "pg1", "000");
+
+        // Both threads merge their own keys into the same row: without the row lock, concurrent read-merge-write cycles overwrite each other
+        final int nbUpdates = 20;
+        final CyclicBarrier barrier = new CyclicBarrier(2);
+        final ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            final List<Future<Void>> futures = new ArrayList<Future<Void>>();
+            for (final String thread : ImmutableList.<String>of("t1", "t2")) {
+                futures.add(executor.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() throws Exception {
+                        barrier.await();
+                        for (int i = 0; i < nbUpdates; i++) {
+                            dao.updateResponse(kbTransactionId, ImmutableMap.<String, Object>of(thread + "-" + i, i), kbTenantId);
+                        }
+                        return null;
+                    }
+                }));
+            }
+            for (final Future<Void> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        final Map additionalData = QualpayDao.fromAdditionalData(dao.getResponses(kbPaymentId, kbTenantId).get(0).getAdditionalData());
+        for (int i = 0; i < nbUpdates; i++) {
+            assertTrue(additionalData.containsKey("t1-" + i));
+            assertTrue(additionalData.containsKey("t2-" + i));
+        }
+    }
+
+    @Test(groups = "slow")
+    public void testTerminalResponse() throws SQLException {
+        final UUID kbPaymentId = UUID.randomUUID();
+        final UUID kbTransactionId = UUID.randomUUID();
+        assertNull(dao.getTerminalResponse(kbTransactionId, TransactionType.PURCHASE, context.getTenantId()));
+
+        // Gateway timeouts aren't final
+        addResponse(kbPaymentId, kbTransactionId, "pg1", "998");
+        assertNull(dao.getTerminalResponse(kbTransactionId, TransactionType.PURCHASE, context.getTenantId()));
+
+        addResponse(kbPaymentId, kbTransactionId, "pg2", "000");
+        assertEquals(dao.getTerminalResponse(kbTransactionId, TransactionType.PURCHASE, context.getTenantId()).getQualpayId(), "pg2");
+        assertNull(dao.getTerminalResponse(kbTransactionId, TransactionType.REFUND, context.getTenantId()));
+        assertNull(dao.getTerminalResponse(kbTransactionId, TransactionType.PURCHASE, UUID.randomUUID()));
+    }
+
+    @Test(groups = "slow")
+    public void testUndefinedResponses() throws SQLException {
+        final UUID kbPaymentId = UUID.randomUUID();
+        final UUID kbTransactionId = UUID.randomUUID();
+        final QualpayResponsesRecord response = addResponse(kbPaymentId, kbTransactionId, UUID.randomUUID().toString(), "998");
+        assertEquals(response.getPluginStatus(), PaymentPluginStatus.UNDEFINED.toString());
+
+        // Only transactions within the window are returned
+        final String undefined = PaymentPluginStatus.UNDEFINED.toString();
+        assertTrue(dao.getTenantIdsByPluginStatus(undefined, clock.getUTCNow().minusHours(1), clock.getUTCNow().plusMinutes(1)).contains(context.getTenantId()));
+        assertFalse(containsResponse(dao.getResponsesByPluginStatus(undefined, clock.getUTCNow().minusHours(1), clock.getUTCNow().minusMinutes(10), 0, 1000, context.getTenantId()), kbTransactionId));
+        assertFalse(containsResponse(dao.getResponsesByPluginStatus(undefined, clock.getUTCNow().plusMinutes(1), clock.getUTCNow().plusMinutes(2), 0, 1000, context.getTenantId()), kbTransactionId));
+        assertFalse(containsResponse(dao.getResponsesByPluginStatus(undefined, clock.getUTCNow().minusHours(1), clock.getUTCNow().plusMinutes(1), 0, 1000, UUID.randomUUID()), kbTransactionId));
+        assertTrue(containsResponse(dao.getResponsesByPluginStatus(undefined, clock.getUTCNow().minusHours(1), clock.getUTCNow().plusMinutes(1), 0, 1000, context.getTenantId()), kbTransactionId));
+
+        // The status follows the merged additional data
+        final QualpayResponsesRecord updated = dao.updateResponse(kbTransactionId,
+                                                                  QualpayPluginProperties.toAdditionalDataMap(ImmutableMap.<String, Object>of("tran_status", "C")),
+                                                                  context.getTenantId());
+        assertEquals(updated.getPluginStatus(), PaymentPluginStatus.PROCESSED.toString());
+        assertFalse(containsResponse(dao.getResponsesByPluginStatus(undefined, clock.getUTCNow().minusHours(1), clock.getUTCNow().plusMinutes(1), 0, 1000, context.getTenantId()), kbTransactionId));
+    }
+
+    private boolean containsResponse(final Iterable<QualpayResponsesRecord> responses, final UUID kbTransactionId) {
+        for (final QualpayResponsesRecord response : responses) {
+            if (kbTransactionId.toString().equals(response.getKbPaymentTransactionId())) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
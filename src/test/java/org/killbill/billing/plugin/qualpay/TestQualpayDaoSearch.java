@@ -0,0 +1,132 @@
+/*
+ * Copyright 2014-2019 Groupon, Inc
+ * Copyright 2014-2019 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.plugin.qualpay;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.UUID;
+
+import org.killbill.billing.payment.api.PaymentMethodPlugin;
+import org.killbill.billing.payment.api.PluginProperty;
+import org.killbill.billing.payment.plugin.api.PaymentPluginApiException;
+import org.killbill.billing.plugin.api.PluginProperties;
+import org.killbill.billing.plugin.qualpay.dao.gen.tables.records.QualpayPaymentMethodsRecord;
+import org.killbill.billing.util.entity.Pagination;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Iterables;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+public class TestQualpayDaoSearch extends TestBase {
+
+    @Test(groups = "slow")
+    public void testSearchPaymentMethods() throws SQLException, PaymentPluginApiException {
+        for (int i = 0; i < 3; i++) {
+            dao.addPaymentMethod(account.getId(),
+                                 UUID.randomUUID(),
+                                 ImmutableMap.<String, Object>of("card_number", "XXXXXXXXXXXX1111", "card_type", "vs", "exp_date", "122" + i),
+                                 "card" + i,
+                                 clock.getUTCNow(),
+                                 context.getTenantId());
+        }
+
+        // Pagination on the last four
+        final List<QualpayPaymentMethodsRecord> firstPage = dao.searchPaymentMethods("1111", 0, null, 2, context.getTenantId());
+        assertEquals(firstPage.size(), 2);
+        assertEquals(firstPage.get(0).getQualpayId(), "card0");
+        assertEquals(firstPage.get(1).getQualpayId(), "card1");
+        final List<QualpayPaymentMethodsRecord> secondPage = dao.searchPaymentMethods("1111", 2, null, 2, context.getTenantId());
+        assertEquals(secondPage.size(), 1);
+        assertEquals(secondPage.get(0).getQualpayId(), "card2");
+        // Seek: the cursor wins over the offset
+        final List<QualpayPaymentMethodsRecord> seekPage = dao.searchPaymentMethods("1111", 100, firstPage.get(1).getRecordId().longValue(), 2, context.getTenantId());
+        assertEquals(seekPage.size(), 1);
+        assertEquals(seekPage.get(0).getQualpayId(), "card2");
+
+        assertEquals(dao.searchPaymentMethods("1221", 0, null, 10, context.getTenantId()).get(0).getQualpayId(), "card1");
+        assertEquals(dao.searchPaymentMethods("card2", 0, null, 10, context.getTenantId()).size(), 1);
+        assertEquals(dao.searchPaymentMethods("VS", 0, null, 10, context.getTenantId()).size(), 3);
+        assertEquals(dao.searchPaymentMethods("1111", 0, null, 10, UUID.randomUUID()).size(), 0);
+
+        // Counts are capped
+        assertEquals(dao.countPaymentMethods("vs", 100, context.getTenantId()), 3);
+        assertEquals(dao.countPaymentMethods(null, 2, context.getTenantId()), 2);
+
+        // Kill Bill offsets
+        final Pagination<PaymentMethodPlugin> lastPage = qualpayPaymentPluginApi.searchPaymentMethods("1111", 2L, 2L, ImmutableList.<PluginProperty>of(), context);
+        assertEquals(lastPage.getCurrentOffset(), (Long) 2L);
+        assertNull(lastPage.getNextOffset());
+        assertEquals(lastPage.getTotalNbRecords(), (Long) 3L);
+        assertEquals(lastPage.getMaxNbRecords(), (Long) 3L);
+        assertEquals(Iterables.size(lastPage), 1);
+
+        // The cursor of a full page, on the pagination and on its last result, seeks to the next page
+        final QualpaySearchPagination<PaymentMethodPlugin> fullPage = (QualpaySearchPagination<PaymentMethodPlugin>) qualpayPaymentPluginApi.searchPaymentMethods("1111", 0L, 2L, ImmutableList.<PluginProperty>of(), context);
+        assertEquals(fullPage.getNextOffset(), (Long) 2L);
+        assertEquals(fullPage.getTotalNbRecords(), (Long) 3L);
+        final String afterRecordId = fullPage.getNextAfterRecordId();
+        assertEquals(afterRecordId, firstPage.get(1).getRecordId().toString());
+        assertEquals(PluginProperties.findPluginPropertyValue(QualpayPaymentPluginApi.PROPERTY_AFTER_RECORD_ID, Iterables.getLast(fullPage).getProperties()), afterRecordId);
+
+        final List<PluginProperty> cursor = ImmutableList.<PluginProperty>of(new PluginProperty(QualpayPaymentPluginApi.PROPERTY_AFTER_RECORD_ID, afterRecordId, false));
+        final QualpaySearchPagination<PaymentMethodPlugin> nextPage = (QualpaySearchPagination<PaymentMethodPlugin>) qualpayPaymentPluginApi.searchPaymentMethods("1111", fullPage.getNextOffset(), 2L, cursor, context);
+        assertEquals(nextPage.getCurrentOffset(), (Long) 2L);
+        assertNull(nextPage.getNextOffset());
+        assertNull(nextPage.getNextAfterRecordId());
+        assertEquals(nextPage.getTotalNbRecords(), (Long) 3L);
+        assertEquals(Iterables.getOnlyElement(nextPage).getKbPaymentMethodId().toString(), secondPage.get(0).getKbPaymentMethodId());
+    }
+
+    @Test(groups = "slow")
+    public void testMaxNbRecordsIsCachedPerTenant() throws SQLException, PaymentPluginApiException {
+        dao.addPaymentMethod(account.getId(),
+                             UUID.randomUUID(),
+                             ImmutableMap.<String, Object>of("card_number", "XXXXXXXXXXXX1111", "card_type", "vs", "exp_date", "1220"),
+                             "card0",
+                             clock.getUTCNow(),
+                             context.getTenantId());
+        assertEquals(qualpayPaymentPluginApi.searchPaymentMethods("1111", 0L, 10L, ImmutableList.<PluginProperty>of(), context).getMaxNbRecords(), (Long) 1L);
+
+        // Not recounted for the next searches
+        dao.addPaymentMethod(account.getId(),
+                             UUID.randomUUID(),
+                             ImmutableMap.<String, Object>of("card_number", "XXXXXXXXXXXX2222", "card_type", "mc", "exp_date", "1220"),
+                             "card1",
+                             clock.getUTCNow(),
+                             context.getTenantId());
+        final Pagination<PaymentMethodPlugin> page = qualpayPaymentPluginApi.searchPaymentMethods("2222", 0L, 10L, ImmutableList.<PluginProperty>of(), context);
+        assertEquals(page.getMaxNbRecords(), (Long) 1L);
+        assertEquals(page.getTotalNbRecords(), (Long) 1L);
+    }
+
+    @Test(groups = "slow")
+    public void testInvalidCursor() throws PaymentPluginApiException {
+        try {
+            qualpayPaymentPluginApi.searchPayments("pg", 0L, 10L, ImmutableList.<PluginProperty>of(new PluginProperty(QualpayPaymentPluginApi.PROPERTY_AFTER_RECORD_ID, "abc", false)), context);
+            fail("Invalid cursors should be rejected");
+        } catch (final PaymentPluginApiException e) {
+            assertTrue(e.getErrorMessage().contains("abc"));
+        }
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2014-2019 Groupon, Inc
+ * Copyright 2014-2019 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.plugin.qualpay;
+
+import java.util.Arrays;
+import java.util.Properties;
+import java.util.Random;
+
+import org.killbill.billing.payment.api.TransactionType;
+import org.testng.annotations.Test;
+
+import io.swagger.client.model.GatewayResponse;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+public class TestQualpayGatewaySimulator {
+
+    @Test(groups = "slow")
+    public void testDefaultResponse() throws InterruptedException {
+        final QualpayConfigProperties qualpayConfigProperties = new QualpayConfigProperties(new Properties(), "");
+        final QualpayGatewaySimulator simulator = new QualpayGatewaySimulator();
+
+        final GatewayResponse purchase = simulator.execute(TransactionType.PURCHASE, qualpayConfigProperties);
+        assertEquals(purchase.getRcode(), "000");
+        assertEquals(purchase.getPgId().length(), 32);
+        assertNotNull(purchase.getAuthCode());
+        assertTrue(purchase.getRmsg().startsWith(QualpayGatewaySimulator.SIMULATED_RMSG_PREFIX));
+
+        assertNull(simulator.execute(TransactionType.REFUND, qualpayConfigProperties).getAuthCode());
+    }
+
+    @Test(groups = "slow")
+    public void testResponseCodeMix() {
+        final QualpayGatewaySimulator.ResponseCodeMix responseCodeMix = new QualpayGatewaySimulator.ResponseCodeMix("000:90, 005:9, 998:1");
+        final Random random = new Random(42);
+        int nbApproved = 0;
+        int nbDeclined = 0;
+        int nbTimeouts = 0;
+        for (int i = 0; i < 100000; i++) {
+            final String rcode = responseCodeMix.next(random);
+            if ("000".equals(rcode)) {
+                nbApproved++;
+            } else if ("005".equals(rcode)) {
+                nbDeclined++;
+            } else {
+                assertEquals(rcode, "998");
+                nbTimeouts++;
+            }
+        }
+        assertTrue(Math.abs(nbApproved - 90000) < 1000);
+        assertTrue(Math.abs(nbDeclined - 9000) < 1000);
+        assertTrue(Math.abs(nbTimeouts - 1000) < 300);
+
+        assertEquals(new QualpayGatewaySimulator.ResponseCodeMix("").next(random), "000");
+        assertEquals(new QualpayGatewaySimulator.ResponseCodeMix("401").next(random), "401");
+    }
+
+    @Test(groups = "slow")
+    public void testLatencyDistribution() {
+        final Random random = new Random(42);
+        assertEquals(QualpayGatewaySimulator.nextLatencyMillis(random, 0, 0), 0);
+        assertEquals(QualpayGatewaySimulator.nextLatencyMillis(random, 50, 0), 50);
+
+        final long[] latencies = new long[100000];
+        for (int i = 0; i < latencies.length; i++) {
+            latencies[i] = QualpayGatewaySimulator.nextLatencyMillis(random, 100, 1000);
+        }
+        Arrays.sort(latencies);
+        assertTrue(Math.abs(latencies[latencies.length / 2] - 100) <= 5);
+        assertTrue(Math.abs(latencies[latencies.length * 99 / 100] - 1000) <= 100);
+    }
+}
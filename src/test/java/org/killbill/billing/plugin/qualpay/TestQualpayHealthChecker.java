@@ -0,0 +1,112 @@
+/*
+ * Copyright 2014-2019 Groupon, Inc
+ * Copyright 2014-2019 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.plugin.qualpay;
+
+import java.util.Map;
+import java.util.UUID;
+
+import org.testng.SkipException;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableSet;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+public class TestQualpayHealthChecker extends TestBase {
+
+    @Test(groups = "slow")
+    public void testHealth() throws Exception {
+        final QualpayHealthChecker healthChecker = new QualpayHealthChecker(qualpayPaymentPluginApi, dao, qualpayConfigPropertiesConfigurationHandler, clock, 30, 2000);
+        try {
+            assertEquals(healthChecker.getHealth(null).get("status"), QualpayHealthChecker.STATUS_STARTING);
+
+            healthChecker.probe();
+            final Map<String, Object> health = healthChecker.getHealth(null);
+            assertEquals(health.get("status"), QualpayHealthChecker.STATUS_UP);
+            assertEquals(((Map) health.get("database")).get("status"), QualpayHealthChecker.STATUS_UP);
+            assertEquals(((Map) ((Map) health.get("gateway")).get("default")).get("status"), QualpayHealthChecker.STATUS_UP);
+            assertFalse((Boolean) ((Map) ((Map) health.get("pools")).get("http")).get("saturated"));
+            assertFalse((Boolean) ((Map) ((Map) health.get("pools")).get("stateRefreshes")).get("saturated"));
+
+            // Results older than 3 probe intervals aren't trusted anymore
+            clock.addDeltaFromReality(91 * 1000);
+            final Map<String, Object> staleHealth = healthChecker.getHealth(null);
+            assertEquals(staleHealth.get("status"), QualpayHealthChecker.STATUS_DOWN);
+            assertEquals(((Map) staleHealth.get("database")).get("status"), QualpayHealthChecker.STATUS_DOWN);
+        } finally {
+            healthChecker.close();
+        }
+    }
+
+    @Test(groups = "slow")
+    public void testTenantGateways() throws Exception {
+        final UUID kbTenantId = UUID.randomUUID();
+        final UUID otherKbTenantId = UUID.randomUUID();
+        // Tenants which called Qualpay are probed too
+        qualpayPaymentPluginApi.getGatewayMetrics().recordCall("pg_sale", kbTenantId, 1000, "000");
+        qualpayPaymentPluginApi.getGatewayMetrics().recordCall("pg_sale", otherKbTenantId, 1000, "000");
+
+        final QualpayHealthChecker healthChecker = new QualpayHealthChecker(qualpayPaymentPluginApi, dao, qualpayConfigPropertiesConfigurationHandler, clock, 30, 2000);
+        try {
+            healthChecker.probe();
+
+            // Unauthenticated: no tenant id
+            final Map gateway = (Map) healthChecker.getHealth(null).get("gateway");
+            assertEquals(gateway.keySet(), ImmutableSet.<String>of("default", "tenants"));
+            assertEquals(((Map) gateway.get("tenants")).get("nbProbed"), 2);
+            assertEquals(((Map) gateway.get("tenants")).get("nbDegraded"), 0);
+
+            // Only the caller's tenant is detailed
+            final Map tenantGateway = (Map) healthChecker.getHealth(kbTenantId).get("gateway");
+            assertEquals(tenantGateway.keySet(), ImmutableSet.<String>of("default", kbTenantId.toString(), "tenants"));
+            assertEquals(((Map) tenantGateway.get(kbTenantId.toString())).get("status"), QualpayHealthChecker.STATUS_UP);
+        } finally {
+            healthChecker.close();
+        }
+    }
+
+    @Test(groups = "slow")
+    public void testGatewayUnreachable() throws Exception {
+        if (qualpayStubServer == null) {
+            throw new SkipException("Requires the Qualpay stub");
+        }
+
+        final QualpayHealthChecker healthChecker = new QualpayHealthChecker(qualpayPaymentPluginApi, dao, qualpayConfigPropertiesConfigurationHandler, clock, 30, 2000);
+        try {
+            qualpayStubServer.setErrorRate(1);
+            healthChecker.probe();
+            healthChecker.probe();
+
+            // The gateway being down doesn't take the node out of rotation
+            final Map<String, Object> health = healthChecker.getHealth(null);
+            assertEquals(health.get("status"), QualpayHealthChecker.STATUS_DEGRADED);
+            final Map gateway = (Map) ((Map) health.get("gateway")).get("default");
+            assertEquals(gateway.get("status"), QualpayHealthChecker.STATUS_DOWN);
+            assertEquals(gateway.get("consecutiveFailures"), 2);
+            assertTrue(((String) gateway.get("error")).startsWith("http_503"));
+
+            qualpayStubServer.setErrorRate(0);
+            healthChecker.probe();
+            assertEquals(healthChecker.getHealth(null).get("status"), QualpayHealthChecker.STATUS_UP);
+        } finally {
+            healthChecker.close();
+        }
+    }
+}
@@ -0,0 +1,211 @@
+/*
+ * Copyright 2014-2019 Groupon, Inc
+ * Copyright 2014-2019 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.plugin.qualpay;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.Properties;
+import java.util.UUID;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.killbill.billing.payment.api.PluginProperty;
+import org.killbill.billing.payment.api.TransactionType;
+import org.killbill.billing.payment.plugin.api.PaymentPluginStatus;
+import org.killbill.billing.plugin.qualpay.QualpayNotificationProcessor.IngestionResult;
+import org.killbill.billing.plugin.qualpay.dao.QualpayDao;
+import org.killbill.billing.plugin.qualpay.dao.gen.tables.records.QualpayResponsesRecord;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.BaseEncoding;
+
+import io.swagger.client.model.GatewayResponse;
+
+import static org.testng.Assert.assertEquals;
+
+public class TestQualpayNotificationProcessor extends TestBase {
+
+    private static final String WEBHOOK_SECRET = "s3cr3t";
+
+    @Test(groups = "slow")
+    public void testWebhookSecretNotConfigured() throws Exception {
+        final QualpayNotificationProcessor processor = newProcessor(5);
+        try {
+            final String payload = buildPayload(UUID.randomUUID().toString(), "S");
+            // Nothing can be trusted without a secret, even a signed payload
+            assertEquals(processor.ingest(payload, sign(payload), context.getTenantId()), IngestionResult.NOT_CONFIGURED);
+            assertEquals(processor.getMetrics().get("pending"), 0);
+
+            // Not acknowledged, so that Qualpay retries once the secret is configured
+            assertEquals(qualpayPaymentPluginApi.processNotification(payload, ImmutableList.<PluginProperty>of(), context).getStatus(), (Integer) 503);
+            qualpayPaymentPluginApi.setNotificationProcessor(processor);
+            assertEquals(qualpayPaymentPluginApi.processNotification(payload, ImmutableList.<PluginProperty>of(), context).getStatus(), (Integer) 503);
+        } finally {
+            processor.close();
+        }
+    }
+
+    @Test(groups = "slow")
+    public void testInvalidSignature() throws Exception {
+        configureWebhookSecret();
+        final QualpayNotificationProcessor processor = newProcessor(5);
+        try {
+            final String payload = buildPayload(UUID.randomUUID().toString(), "S");
+            assertEquals(processor.ingest(payload, null, context.getTenantId()), IngestionResult.INVALID_SIGNATURE);
+            assertEquals(processor.ingest(payload, "not-base64!", context.getTenantId()), IngestionResult.INVALID_SIGNATURE);
+            assertEquals(processor.ingest(payload, sign(payload.replace("\"S\"", "\"D\"")), context.getTenantId()), IngestionResult.INVALID_SIGNATURE);
+            assertEquals(processor.getMetrics().get("pending"), 0);
+
+            // Any of the signatures may match while the secret is being rotated
+            assertEquals(processor.ingest(payload, sign("old") + "," + sign(payload), context.getTenantId()), IngestionResult.ACCEPTED);
+            assertEquals(processor.ingest(payload, sign(payload), context.getTenantId()), IngestionResult.DUPLICATE);
+            assertEquals(processor.getMetrics().get("pending"), 1);
+        } finally {
+            processor.close();
+        }
+    }
+
+    @Test(groups = "slow")
+    public void testEventsArePartitionedByTenantAndTransaction() throws Exception {
+        configureWebhookSecret();
+        final QualpayNotificationProcessor processor = newProcessor(5);
+        try {
+            // Same pg_id in two tenants
+            final String pgId = UUID.randomUUID().toString();
+            final UUID otherKbTenantId = UUID.randomUUID();
+            addUndefinedResponse(pgId, context.getTenantId());
+            addUndefinedResponse(pgId, otherKbTenantId);
+
+            ingest(processor, buildPayload(pgId, "S"), context.getTenantId());
+            ingest(processor, buildPayload(pgId, "D"), otherKbTenantId);
+            // Not claimed until the previous event of the transaction is applied
+            ingest(processor, buildPayload(pgId, "V"), context.getTenantId());
+
+            assertEquals(processor.processNotifications(), 2);
+            assertEquals(getResponse(pgId, context.getTenantId()).getPluginStatus(), PaymentPluginStatus.PROCESSED.toString());
+            // The rcode of the event is ignored
+            assertEquals(getResponse(pgId, otherKbTenantId).getPluginStatus(), PaymentPluginStatus.ERROR.toString());
+
+            // Late events don't overturn the outcome
+            assertEquals(processor.processNotifications(), 1);
+            final QualpayResponsesRecord response = getResponse(pgId, context.getTenantId());
+            assertEquals(response.getPluginStatus(), PaymentPluginStatus.PROCESSED.toString());
+            assertEquals(QualpayDao.fromAdditionalData(response.getAdditionalData()).get("tran_status"), "V");
+
+            assertEquals(processor.processNotifications(), 0);
+            assertEquals(processor.getMetrics().get("nb_processed"), 3L);
+        } finally {
+            processor.close();
+        }
+    }
+
+    @Test(groups = "slow")
+    public void testEventReceivedBeforeResponse() throws Exception {
+        configureWebhookSecret();
+        final QualpayNotificationProcessor processor = newProcessor(5);
+        try {
+            final String pgId = UUID.randomUUID().toString();
+            ingest(processor, buildPayload(pgId, "S"), context.getTenantId());
+
+            // Rescheduled, with a backoff
+            assertEquals(processor.processNotifications(), 1);
+            assertEquals(processor.getMetrics().get("pending"), 1);
+            assertEquals(processor.getMetrics().get("nb_retried"), 1L);
+            assertEquals(processor.processNotifications(), 0);
+
+            addUndefinedResponse(pgId, context.getTenantId());
+            clock.addDeltaFromReality(60 * 1000);
+            assertEquals(processor.processNotifications(), 1);
+            assertEquals(getResponse(pgId, context.getTenantId()).getPluginStatus(), PaymentPluginStatus.PROCESSED.toString());
+            assertEquals(processor.getMetrics().get("pending"), 0);
+        } finally {
+            processor.close();
+        }
+    }
+
+    @Test(groups = "slow")
+    public void testParkedAfterMaxAttempts() throws Exception {
+        configureWebhookSecret();
+        final QualpayNotificationProcessor processor = newProcessor(2);
+        try {
+            ingest(processor, buildPayload(UUID.randomUUID().toString(), "S"), context.getTenantId());
+
+            assertEquals(processor.processNotifications(), 1);
+            clock.addDeltaFromReality(60 * 60 * 1000);
+            assertEquals(processor.processNotifications(), 1);
+
+            final Map<String, Object> metrics = processor.getMetrics();
+            assertEquals(metrics.get("pending"), 0);
+            assertEquals(metrics.get("parked"), 1);
+            assertEquals(metrics.get("nb_parked"), 1L);
+
+            // Not retried anymore
+            clock.addDeltaFromReality(60 * 60 * 1000);
+            assertEquals(processor.processNotifications(), 0);
+        } finally {
+            processor.close();
+        }
+    }
+
+    private QualpayNotificationProcessor newProcessor(final int maxAttempts) {
+        return new QualpayNotificationProcessor(qualpayPaymentPluginApi, dao, qualpayConfigPropertiesConfigurationHandler, clock, 4, 100, 1000, maxAttempts);
+    }
+
+    private void configureWebhookSecret() {
+        final Properties properties = new Properties();
+        properties.setProperty("org.killbill.billing.plugin.qualpay.webhookSecret", WEBHOOK_SECRET);
+        qualpayConfigPropertiesConfigurationHandler.setDefaultConfigurable(new QualpayConfigProperties(properties, ""));
+    }
+
+    private void ingest(final QualpayNotificationProcessor processor, final String payload, final UUID kbTenantId) throws Exception {
+        assertEquals(processor.ingest(payload, sign(payload), kbTenantId), IngestionResult.ACCEPTED);
+    }
+
+    private void addUndefinedResponse(final String pgId, final UUID kbTenantId) throws SQLException {
+        final GatewayResponse gatewayResponse = new GatewayResponse();
+        gatewayResponse.setPgId(pgId);
+        gatewayResponse.setRcode("998");
+        dao.addResponse(account.getId(),
+                        UUID.randomUUID(),
+                        UUID.randomUUID(),
+                        TransactionType.PURCHASE,
+                        BigDecimal.TEN,
+                        DEFAULT_CURRENCY,
+                        gatewayResponse,
+                        clock.getUTCNow(),
+                        kbTenantId);
+    }
+
+    private QualpayResponsesRecord getResponse(final String pgId, final UUID kbTenantId) throws SQLException {
+        return dao.getResponsesByQualpayIds(ImmutableList.<String>of(pgId), kbTenantId).get(pgId);
+    }
+
+    private static String buildPayload(final String pgId, final String tranStatus) {
+        return "{\"event_id\":\"" + UUID.randomUUID() + "\",\"event\":\"transaction_status_updated\",\"data\":{\"pg_id\":\"" + pgId + "\",\"tran_status\":\"" + tranStatus + "\",\"rcode\":\"000\"}}";
+    }
+
+    private static String sign(final String payload) throws Exception {
+        final Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(new SecretKeySpec(WEBHOOK_SECRET.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+        return BaseEncoding.base64().encode(mac.doFinal(payload.getBytes(StandardCharsets.UTF_8)));
+    }
+}
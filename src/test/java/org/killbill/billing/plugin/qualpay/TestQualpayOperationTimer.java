@@ -0,0 +1,51 @@
+/*
+ * Copyright 2014-2019 Groupon, Inc
+ * Copyright 2014-2019 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.plugin.qualpay;
+
+import org.killbill.billing.plugin.qualpay.QualpayOperationTimer.Phase;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+public class TestQualpayOperationTimer {
+
+    @Test(groups = "slow")
+    public void testPhases() throws InterruptedException {
+        final QualpayOperationTimer timer = new QualpayOperationTimer("PURCHASE");
+        timer.enter(Phase.DAO_READ);
+        Thread.sleep(5);
+        timer.enter(Phase.GATEWAY);
+        Thread.sleep(20);
+        // Phases can be entered several times
+        timer.enter(Phase.DAO_READ);
+        Thread.sleep(5);
+        timer.stop();
+
+        final long total = timer.getTotalNanos();
+        timer.stop();
+        assertEquals(timer.getTotalNanos(), total);
+
+        assertTrue(timer.getPhaseNanos(Phase.DAO_READ) >= 10000000L);
+        assertTrue(timer.getPhaseNanos(Phase.GATEWAY) >= 20000000L);
+        assertEquals(timer.getPhaseNanos(Phase.KB_API), 0);
+        assertTrue(timer.getPhaseNanos(Phase.DAO_READ) + timer.getPhaseNanos(Phase.GATEWAY) <= total);
+        assertTrue(timer.toString().startsWith("operation=PURCHASE total_ms="));
+        assertTrue(timer.toString().contains(" kb_api_ms=0.0 "));
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2014-2019 Groupon, Inc
+ * Copyright 2014-2019 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.plugin.qualpay;
+
+import java.util.UUID;
+
+import org.joda.time.DateTime;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+public class TestQualpayPaymentMethodsRefreshScheduler extends TestBase {
+
+    private static final long TTL_SECONDS = 3600;
+    private static final long INTERVAL_SECONDS = 600;
+
+    @Test(groups = "slow")
+    public void testRefreshStaleAccounts() throws Exception {
+        createQualpayCustomerWithCreditCard();
+
+        final DateTime now = clock.getUTCNow();
+        // Goes stale before the next run
+        dao.setLastSyncedDate(account.getId(), now.minusMinutes(55), context.getTenantId());
+        // Still fresh at the next run
+        final UUID freshKbAccountId = UUID.randomUUID();
+        dao.setLastSyncedDate(freshKbAccountId, now.minusMinutes(40), context.getTenantId());
+        // Already stale but without any Qualpay customer: the refresh fails
+        final UUID failingKbAccountId = UUID.randomUUID();
+        dao.setLastSyncedDate(failingKbAccountId, now.minusHours(3), context.getTenantId());
+
+        // The least recently synced account first
+        final QualpayPaymentMethodsRefreshScheduler oneAccountScheduler = new QualpayPaymentMethodsRefreshScheduler(qualpayPaymentPluginApi, dao, clock, TTL_SECONDS, INTERVAL_SECONDS, 1);
+        try {
+            assertEquals(oneAccountScheduler.refreshStaleAccounts(), 0);
+            assertEquals(dao.getLastSyncedDate(account.getId(), context.getTenantId()).compareTo(now.minusMinutes(55)), 0);
+            assertEquals(dao.getLastSyncedDate(failingKbAccountId, context.getTenantId()).compareTo(now.minusHours(3)), 0);
+        } finally {
+            oneAccountScheduler.close();
+        }
+
+        final QualpayPaymentMethodsRefreshScheduler scheduler = new QualpayPaymentMethodsRefreshScheduler(qualpayPaymentPluginApi, dao, clock, TTL_SECONDS, INTERVAL_SECONDS, 10);
+        try {
+            assertEquals(scheduler.refreshStaleAccounts(), 1);
+            assertTrue(dao.getLastSyncedDate(account.getId(), context.getTenantId()).isAfter(now.minusMinutes(1)));
+            assertEquals(dao.getLastSyncedDate(freshKbAccountId, context.getTenantId()).compareTo(now.minusMinutes(40)), 0);
+
+            // Nothing left to refresh but the failing account
+            assertEquals(scheduler.refreshStaleAccounts(), 0);
+        } finally {
+            scheduler.close();
+        }
+    }
+}
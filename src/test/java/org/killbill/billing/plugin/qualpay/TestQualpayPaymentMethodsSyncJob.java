@@ -0,0 +1,139 @@
+/*
+ * Copyright 2014-2019 Groupon, Inc
+ * Copyright 2014-2019 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.plugin.qualpay;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.killbill.billing.plugin.qualpay.QualpayPaymentMethodsSyncJob.SyncRun;
+import org.killbill.billing.plugin.qualpay.dao.gen.tables.records.QualpaySyncCheckpointsRecord;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableMap;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+public class TestQualpayPaymentMethodsSyncJob extends TestBase {
+
+    private static final long TIMEOUT_MILLIS = 30 * 1000;
+
+    @Test(groups = "slow")
+    public void testSync() throws Exception {
+        createQualpayCustomerWithCreditCard();
+        // Tokenized via the Payment Gateway API: nothing to sync
+        addAccountsWithPaymentMethods(2);
+
+        final QualpayPaymentMethodsSyncJob syncJob = new QualpayPaymentMethodsSyncJob(qualpayPaymentPluginApi, dao, qualpayConfigPropertiesConfigurationHandler, clock);
+        try {
+            final Map<String, Object> run = runToCompletion(syncJob);
+            assertEquals(run.get("status"), QualpayPaymentMethodsSyncJob.STATUS_COMPLETED);
+            assertEquals(run.get("nbProcessed"), 1L);
+            assertEquals(run.get("nbSkipped"), 2L);
+            assertEquals(run.get("nbErrors"), 0L);
+            assertEquals(run.get("nbDeactivatedPaymentMethods"), 0L);
+
+            final QualpaySyncCheckpointsRecord checkpoint = dao.getSyncCheckpoint(QualpayPaymentMethodsSyncJob.JOB_NAME, context.getTenantId());
+            assertEquals(checkpoint.getStatus(), QualpayPaymentMethodsSyncJob.STATUS_COMPLETED);
+            assertNull(checkpoint.getLastKbAccountId());
+            assertEquals((long) checkpoint.getNbProcessed(), 1L);
+            assertEquals((long) checkpoint.getNbSkipped(), 2L);
+        } finally {
+            syncJob.close();
+        }
+    }
+
+    @Test(groups = "slow")
+    public void testResumeFromCheckpoint() throws Exception {
+        final List<UUID> kbAccountIds = addAccountsWithPaymentMethods(5);
+        // Interrupted after the third account
+        dao.saveSyncCheckpoint(QualpayPaymentMethodsSyncJob.JOB_NAME, kbAccountIds.get(2), QualpayPaymentMethodsSyncJob.STATUS_RUNNING, 0, 10, 0, clock.getUTCNow(), context.getTenantId());
+
+        final QualpayPaymentMethodsSyncJob syncJob = new QualpayPaymentMethodsSyncJob(qualpayPaymentPluginApi, dao, qualpayConfigPropertiesConfigurationHandler, clock);
+        try {
+            // Counts carry over from the interrupted run
+            final Map<String, Object> resumedRun = runToCompletion(syncJob);
+            assertEquals(resumedRun.get("status"), QualpayPaymentMethodsSyncJob.STATUS_COMPLETED);
+            assertEquals(resumedRun.get("nbSkipped"), 12L);
+            assertEquals((long) dao.getSyncCheckpoint(QualpayPaymentMethodsSyncJob.JOB_NAME, context.getTenantId()).getNbSkipped(), 12L);
+
+            // Completed runs aren't resumed
+            assertEquals(runToCompletion(syncJob).get("nbSkipped"), 5L);
+        } finally {
+            syncJob.close();
+        }
+    }
+
+    @Test(groups = "slow")
+    public void testSyncAcrossPages() throws Exception {
+        // More than one page of accounts
+        addAccountsWithPaymentMethods(150);
+
+        final QualpayPaymentMethodsSyncJob syncJob = new QualpayPaymentMethodsSyncJob(qualpayPaymentPluginApi, dao, qualpayConfigPropertiesConfigurationHandler, clock);
+        try {
+            final Map<String, Object> run = runToCompletion(syncJob);
+            assertEquals(run.get("status"), QualpayPaymentMethodsSyncJob.STATUS_COMPLETED);
+            assertEquals(run.get("nbSkipped"), 150L);
+        } finally {
+            syncJob.close();
+        }
+    }
+
+    @Test(groups = "slow")
+    public void testClose() throws Exception {
+        final QualpayPaymentMethodsSyncJob syncJob = new QualpayPaymentMethodsSyncJob(qualpayPaymentPluginApi, dao, qualpayConfigPropertiesConfigurationHandler, clock);
+        syncJob.close();
+        assertFalse(syncJob.start(context.getTenantId()));
+        assertNull(syncJob.getRun(context.getTenantId()));
+    }
+
+    private Map<String, Object> runToCompletion(final QualpayPaymentMethodsSyncJob syncJob) throws InterruptedException {
+        assertTrue(syncJob.start(context.getTenantId()));
+
+        final long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        SyncRun run = syncJob.getRun(context.getTenantId());
+        while (QualpayPaymentMethodsSyncJob.STATUS_RUNNING.equals(run.getStatus()) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+            run = syncJob.getRun(context.getTenantId());
+        }
+        return run.toMap();
+    }
+
+    // Sorted, as they are synced
+    private List<UUID> addAccountsWithPaymentMethods(final int nbAccounts) throws Exception {
+        final List<UUID> kbAccountIds = new ArrayList<UUID>(nbAccounts);
+        for (int i = 0; i < nbAccounts; i++) {
+            final UUID kbAccountId = UUID.randomUUID();
+            dao.addPaymentMethod(kbAccountId, UUID.randomUUID(), ImmutableMap.<String, Object>of(), "card" + i, clock.getUTCNow(), context.getTenantId());
+            kbAccountIds.add(kbAccountId);
+        }
+        Collections.sort(kbAccountIds, new Comparator<UUID>() {
+            @Override
+            public int compare(final UUID o1, final UUID o2) {
+                return o1.toString().compareTo(o2.toString());
+            }
+        });
+        return kbAccountIds;
+    }
+}
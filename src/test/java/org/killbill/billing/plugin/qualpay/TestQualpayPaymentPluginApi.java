@@ -17,9 +17,13 @@
 
 package org.killbill.billing.plugin.qualpay;
 
+import java.io.IOException;
 import java.math.BigDecimal;
+import java.sql.SQLException;
 import java.util.List;
+import java.util.Properties;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 
 import org.killbill.billing.ObjectType;
 import org.killbill.billing.payment.api.Payment;
@@ -37,8 +41,10 @@ import org.killbill.billing.plugin.api.PluginProperties;
 import org.killbill.billing.plugin.api.core.PluginCustomField;
 import org.killbill.billing.plugin.api.payment.PluginPaymentMethodPlugin;
 import org.killbill.billing.plugin.qualpay.client.PGApi;
+import org.killbill.billing.plugin.qualpay.dao.gen.tables.records.QualpayPaymentMethodsRecord;
 import org.killbill.billing.util.api.CustomFieldApiException;
 import org.killbill.billing.util.customfield.CustomField;
+import org.testng.Assert;
 import org.testng.annotations.Test;
 
 import com.google.common.collect.ImmutableList;
@@ -54,8 +60,11 @@ import qpPlatform.ApiClient;
 import qpPlatform.ApiException;
 
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertNotNull;
 import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
 
 public class TestQualpayPaymentPluginApi extends TestBase {
 
@@ -82,7 +91,7 @@ public class TestQualpayPaymentPluginApi extends TestBase {
     }
 
     @Test(groups = "slow")
-    public void testVerifySyncOfPaymentMethodsAdd() throws PaymentPluginApiException, ApiException, CustomFieldApiException {
+    public void testVerifySyncOfPaymentMethodsAdd() throws PaymentPluginApiException, ApiException, CustomFieldApiException, SQLException {
         final UUID kbAccountId = account.getId();
 
         final AddCustomerRequest addCustomerRequest = new AddCustomerRequest();
@@ -115,6 +124,13 @@ public class TestQualpayPaymentPluginApi extends TestBase {
         final List<PaymentMethodInfoPlugin> paymentMethodInfoPlugins = qualpayPaymentPluginApi.getPaymentMethods(kbAccountId, true, ImmutableList.<PluginProperty>of(), context);
         assertEquals(paymentMethodInfoPlugins.size(), 1);
         assertEquals(paymentMethodInfoPlugins.get(0).getExternalPaymentMethodId(), customerVault.getBillingCards().get(0).getCardId());
+
+        // Unchanged cards aren't rewritten by the next sync
+        final UUID kbPaymentMethodId = paymentMethodInfoPlugins.get(0).getPaymentMethodId();
+        final QualpayPaymentMethodsRecord syncedPaymentMethod = dao.getPaymentMethod(kbPaymentMethodId, context.getTenantId());
+        clock.addDeltaFromReality(60 * 1000);
+        qualpayPaymentPluginApi.refreshPaymentMethods(kbAccountId, ImmutableList.<PluginProperty>of(), context);
+        assertEquals(dao.getPaymentMethod(kbPaymentMethodId, context.getTenantId()).getUpdatedDate(), syncedPaymentMethod.getUpdatedDate());
     }
 
     @Test(groups = "slow")
@@ -316,6 +332,59 @@ public class TestQualpayPaymentPluginApi extends TestBase {
         assertEquals(paymentTransactionInfoPlugin4.size(), 4);
     }
 
+    @Test(groups = "slow")
+    public void testRetriedTransactionIsReplayed() throws PaymentPluginApiException, PaymentApiException {
+        final UUID kbPaymentMethodId = createQualpayCustomerWithCreditCardAndReturnKBPaymentMethodId();
+
+        final Payment payment = TestUtils.buildPayment(account.getId(), account.getPaymentMethodId(), account.getCurrency(), killbillApi);
+        final PaymentTransaction purchaseTransaction = TestUtils.buildPaymentTransaction(payment, TransactionType.PURCHASE, BigDecimal.TEN, payment.getCurrency());
+
+        final PaymentTransactionInfoPlugin purchaseInfoPlugin = qualpayPaymentPluginApi.purchasePayment(account.getId(),
+                                                                                                        payment.getId(),
+                                                                                                        purchaseTransaction.getId(),
+                                                                                                        kbPaymentMethodId,
+                                                                                                        purchaseTransaction.getAmount(),
+                                                                                                        purchaseTransaction.getCurrency(),
+                                                                                                        ImmutableList.of(),
+                                                                                                        context);
+        verifyPaymentTransactionInfoPlugin(payment, purchaseTransaction, purchaseInfoPlugin, PaymentPluginStatus.PROCESSED);
+
+        // Make any further gateway call fail
+        final Properties properties = new Properties();
+        properties.setProperty("org.killbill.billing.plugin.qualpay.baseUrl", "http://127.0.0.1:1");
+        properties.setProperty("org.killbill.billing.plugin.qualpay.apiKey", "unreachable");
+        qualpayConfigPropertiesConfigurationHandler.setDefaultConfigurable(new QualpayConfigProperties(properties, ""));
+
+        // Kill Bill retry (e.g. after a timeout): same kbTransactionId
+        final PaymentTransactionInfoPlugin retriedPurchaseInfoPlugin = qualpayPaymentPluginApi.purchasePayment(account.getId(),
+                                                                                                               payment.getId(),
+                                                                                                               purchaseTransaction.getId(),
+                                                                                                               kbPaymentMethodId,
+                                                                                                               purchaseTransaction.getAmount(),
+                                                                                                               purchaseTransaction.getCurrency(),
+                                                                                                               ImmutableList.of(),
+                                                                                                               context);
+        verifyPaymentTransactionInfoPlugin(payment, purchaseTransaction, retriedPurchaseInfoPlugin, PaymentPluginStatus.PROCESSED);
+        assertEquals(retriedPurchaseInfoPlugin.getFirstPaymentReferenceId(), purchaseInfoPlugin.getFirstPaymentReferenceId());
+        assertEquals(qualpayPaymentPluginApi.getPaymentInfo(account.getId(), payment.getId(), ImmutableList.of(), context).size(), 1);
+
+        // A new transaction does go to the gateway
+        final PaymentTransaction newPurchaseTransaction = TestUtils.buildPaymentTransaction(payment, TransactionType.PURCHASE, BigDecimal.TEN, payment.getCurrency());
+        try {
+            qualpayPaymentPluginApi.purchasePayment(account.getId(),
+                                                    payment.getId(),
+                                                    newPurchaseTransaction.getId(),
+                                                    kbPaymentMethodId,
+                                                    newPurchaseTransaction.getAmount(),
+                                                    newPurchaseTransaction.getCurrency(),
+                                                    ImmutableList.of(),
+                                                    context);
+            Assert.fail("Qualpay should have been called");
+        } catch (final PaymentPluginApiException e) {
+            assertEquals(e.getMessage(), "Error connecting to Qualpay");
+        }
+    }
+
     @Test(groups = "slow")
     public void testVerifyAddPaymentMethodPurchaseNoVault() throws PaymentPluginApiException, ApiException, PaymentApiException {
         // Directly tokenize the card
@@ -395,26 +464,50 @@ public class TestQualpayPaymentPluginApi extends TestBase {
         return paymentMethods.get(0).getPaymentMethodId();
     }
 
-    private String createQualpayCustomerWithCreditCard() throws PaymentPluginApiException {
-        final UUID kbAccountId = account.getId();
-        final UUID kbPaymentMethodId = UUID.randomUUID();
+    @Test(groups = "slow")
+    public void testSkipGwRequiresSetting() throws PaymentPluginApiException, PaymentApiException, IOException {
+        final UUID kbPaymentMethodId = createQualpayCustomerWithCreditCardAndReturnKBPaymentMethodId();
+        final List<PluginProperty> skipGw = ImmutableList.<PluginProperty>of(new PluginProperty("skip_gw", "true", false));
 
-        final ImmutableMap.Builder<String, String> builder = new ImmutableMap.Builder<String, String>();
-        builder.put("card_number", "4111111111111111");
-        builder.put("exp_date", "0420");
-        builder.put("cvv2", "152");
-        builder.put("billing_first_name", "John");
-        builder.put("billing_last_name", "Doe");
-        builder.put("billing_zip", "94402");
+        final Payment payment = TestUtils.buildPayment(account.getId(), account.getPaymentMethodId(), account.getCurrency(), killbillApi);
+        final PaymentTransaction purchaseTransaction = TestUtils.buildPaymentTransaction(payment, TransactionType.PURCHASE, BigDecimal.TEN, payment.getCurrency());
+        try {
+            qualpayPaymentPluginApi.purchasePayment(account.getId(),
+                                                    payment.getId(),
+                                                    purchaseTransaction.getId(),
+                                                    kbPaymentMethodId,
+                                                    purchaseTransaction.getAmount(),
+                                                    purchaseTransaction.getCurrency(),
+                                                    skipGw,
+                                                    context);
+            fail("skip_gw shouldn't be honored by default");
+        } catch (final PaymentPluginApiException e) {
+            assertEquals(qualpayPaymentPluginApi.getPaymentInfo(account.getId(), payment.getId(), ImmutableList.<PluginProperty>of(), context).size(), 0);
+        }
 
-        qualpayPaymentPluginApi.addPaymentMethod(kbAccountId,
-                                                 kbPaymentMethodId,
-                                                 new PluginPaymentMethodPlugin(kbPaymentMethodId, null, false, ImmutableList.<PluginProperty>of()),
-                                                 false,
-                                                 PluginProperties.buildPluginProperties(builder.build()),
-                                                 context);
+        final Properties properties = buildProperties();
+        properties.setProperty("org.killbill.billing.plugin.qualpay.skipGw.enabled", "true");
+        qualpayConfigPropertiesConfigurationHandler.setDefaultConfigurable(new QualpayConfigProperties(properties, ""));
 
-        return customFieldUserApi.getCustomFieldsForAccountType(kbAccountId, ObjectType.ACCOUNT, context).get(0).getFieldValue();
+        final PaymentTransactionInfoPlugin purchaseInfoPlugin = qualpayPaymentPluginApi.purchasePayment(account.getId(),
+                                                                                                        payment.getId(),
+                                                                                                        purchaseTransaction.getId(),
+                                                                                                        kbPaymentMethodId,
+                                                                                                        purchaseTransaction.getAmount(),
+                                                                                                        purchaseTransaction.getCurrency(),
+                                                                                                        skipGw,
+                                                                                                        context);
+        assertEquals(purchaseInfoPlugin.getStatus(), PaymentPluginStatus.PROCESSED);
+        assertTrue(purchaseInfoPlugin.getGatewayError().startsWith(QualpayGatewaySimulator.SIMULATED_RMSG_PREFIX));
+    }
+
+    @Test(groups = "slow")
+    public void testSlowOperationLogIsRateLimited() {
+        final long nowNanos = System.nanoTime();
+        assertTrue(qualpayPaymentPluginApi.shouldLogSlowOperation(nowNanos));
+        assertFalse(qualpayPaymentPluginApi.shouldLogSlowOperation(nowNanos + TimeUnit.SECONDS.toNanos(1)));
+        assertFalse(qualpayPaymentPluginApi.shouldLogSlowOperation(nowNanos + TimeUnit.SECONDS.toNanos(9)));
+        assertTrue(qualpayPaymentPluginApi.shouldLogSlowOperation(nowNanos + TimeUnit.SECONDS.toNanos(10)));
     }
 
     private String tokenizeCreditCard() throws ApiException {
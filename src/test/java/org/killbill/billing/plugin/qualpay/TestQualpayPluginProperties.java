@@ -0,0 +1,49 @@
+/*
+ * Copyright 2014-2019 Groupon, Inc
+ * Copyright 2014-2019 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.plugin.qualpay;
+
+import java.util.Map;
+
+import org.killbill.billing.payment.plugin.api.PaymentPluginStatus;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableMap;
+
+import static org.testng.Assert.assertEquals;
+
+public class TestQualpayPluginProperties {
+
+    @Test(groups = "slow")
+    public void testReportedTransactionStatus() {
+        assertEquals(getPaymentPluginStatus("A"), PaymentPluginStatus.PROCESSED);
+        assertEquals(getPaymentPluginStatus("S"), PaymentPluginStatus.PROCESSED);
+        assertEquals(getPaymentPluginStatus("D"), PaymentPluginStatus.ERROR);
+        // Voided: not approved anymore
+        assertEquals(getPaymentPluginStatus("V"), PaymentPluginStatus.CANCELED);
+        assertEquals(getPaymentPluginStatus("X"), PaymentPluginStatus.UNDEFINED);
+
+        // The reported response code wins
+        final Map<String, Object> additionalData = QualpayPluginProperties.toAdditionalDataMap(ImmutableMap.<String, Object>of("rcode", "402", "tran_status", "A"));
+        assertEquals(QualpayPaymentTransactionInfoPlugin.getPaymentPluginStatus(additionalData), PaymentPluginStatus.ERROR);
+    }
+
+    private static PaymentPluginStatus getPaymentPluginStatus(final String tranStatus) {
+        final Map<String, Object> additionalData = QualpayPluginProperties.toAdditionalDataMap(ImmutableMap.<String, Object>of("tran_status", tranStatus));
+        return QualpayPaymentTransactionInfoPlugin.getPaymentPluginStatus(additionalData);
+    }
+}
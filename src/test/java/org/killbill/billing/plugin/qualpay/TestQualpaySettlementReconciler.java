@@ -0,0 +1,175 @@
+/*
+ * Copyright 2014-2019 Groupon, Inc
+ * Copyright 2014-2019 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.plugin.qualpay;
+
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Properties;
+import java.util.UUID;
+
+import org.killbill.billing.payment.api.TransactionType;
+import org.killbill.billing.plugin.qualpay.dao.QualpayDao;
+import org.killbill.billing.plugin.qualpay.dao.gen.tables.records.QualpayReconciliationItemsRecord;
+import org.killbill.billing.plugin.qualpay.dao.gen.tables.records.QualpayReconciliationsRecord;
+import org.killbill.billing.plugin.qualpay.dao.gen.tables.records.QualpayResponsesRecord;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableList;
+
+import io.swagger.client.model.GatewayResponse;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.fail;
+
+public class TestQualpaySettlementReconciler extends TestBase {
+
+    @Test(groups = "slow")
+    public void testSettlementReconciliation() throws Exception {
+        // Dedicated tenant, to only see the responses of this test
+        final UUID kbTenantId = UUID.randomUUID();
+        addSettledResponse("pg-matched", TransactionType.PURCHASE, new BigDecimal("10.00"), "000", kbTenantId);
+        addSettledResponse("pg-mismatched", TransactionType.CAPTURE, new BigDecimal("20.00"), "000", kbTenantId);
+        final QualpayResponsesRecord missingInReport = addSettledResponse("pg-missing", TransactionType.PURCHASE, new BigDecimal("5.00"), "000", kbTenantId);
+        // Not settled
+        addSettledResponse("pg-declined", TransactionType.PURCHASE, new BigDecimal("7.00"), "101", kbTenantId);
+        addSettledResponse("pg-auth", TransactionType.AUTHORIZE, new BigDecimal("8.00"), "000", kbTenantId);
+
+        final String report = "Merchant Id,PG ID,Tran Amount,Card Type\n" +
+                              "1,pg-matched,10.00,VS\n" +
+                              "1,\"pg-mismatched\",\"2,000.00\",MC\n" +
+                              "1,pg-unknown,3.50,VS\n" +
+                              "\n";
+        final QualpaySettlementReconciler reconciler = new QualpaySettlementReconciler(dao, null, clock);
+        final QualpayReconciliationsRecord reconciliation = reconciler.reconcile(new StringReader(report),
+                                                                                  "settlement.csv",
+                                                                                  clock.getUTCNow().minusDays(1),
+                                                                                  clock.getUTCNow().plusDays(1),
+                                                                                  kbTenantId);
+        assertEquals(reconciliation.getStatus(), QualpayDao.RECONCILIATION_STATUS_COMPLETED);
+        assertEquals(reconciliation.getNbMatched(), (Long) 1L);
+        assertEquals(reconciliation.getNbMismatched(), (Long) 1L);
+        assertEquals(reconciliation.getNbMissingInKillbill(), (Long) 1L);
+        assertEquals(reconciliation.getNbMissingInReport(), (Long) 1L);
+
+        final List<QualpayReconciliationItemsRecord> items = dao.getReconciliationItems(reconciliation.getRecordId(), kbTenantId);
+        assertEquals(items.size(), 3);
+        assertEquals(items.get(0).getStatus(), QualpaySettlementReconciler.ITEM_STATUS_MISMATCHED);
+        assertEquals(items.get(0).getQualpayId(), "pg-mismatched");
+        assertEquals(items.get(0).getReportAmount().compareTo(new BigDecimal("2000.00")), 0);
+        assertEquals(items.get(0).getKbAmount().compareTo(new BigDecimal("20.00")), 0);
+        assertEquals(items.get(1).getStatus(), QualpaySettlementReconciler.ITEM_STATUS_MISSING_IN_KILLBILL);
+        assertEquals(items.get(1).getQualpayId(), "pg-unknown");
+        assertNull(items.get(1).getKbPaymentTransactionId());
+        assertEquals(items.get(2).getStatus(), QualpaySettlementReconciler.ITEM_STATUS_MISSING_IN_REPORT);
+        assertEquals(items.get(2).getQualpayId(), "pg-missing");
+        assertEquals(items.get(2).getKbPaymentTransactionId(), missingInReport.getKbPaymentTransactionId());
+    }
+
+    @Test(groups = "slow")
+    public void testInvalidAmount() throws Exception {
+        final UUID kbTenantId = UUID.randomUUID();
+        final QualpayResponsesRecord response = addSettledResponse("pg-corrupted", TransactionType.PURCHASE, new BigDecimal("10.00"), "000", kbTenantId);
+        addSettledResponse("pg-matched", TransactionType.PURCHASE, new BigDecimal("4.00"), "000", kbTenantId);
+
+        // The rows after the corrupted one are still reconciled
+        final String report = "PG ID,Amount\n" +
+                              "pg-corrupted,N/A\n" +
+                              "pg-matched,4.00\n";
+        final QualpaySettlementReconciler reconciler = new QualpaySettlementReconciler(dao, null, clock);
+        final QualpayReconciliationsRecord reconciliation = reconciler.reconcile(new StringReader(report),
+                                                                                  "settlement.csv",
+                                                                                  clock.getUTCNow().minusDays(1),
+                                                                                  clock.getUTCNow().plusDays(1),
+                                                                                  kbTenantId);
+        assertEquals(reconciliation.getStatus(), QualpayDao.RECONCILIATION_STATUS_COMPLETED);
+        assertEquals(reconciliation.getNbMatched(), (Long) 1L);
+        assertEquals(reconciliation.getNbMismatched(), (Long) 1L);
+        assertEquals(reconciliation.getNbMissingInReport(), (Long) 0L);
+
+        final List<QualpayReconciliationItemsRecord> items = dao.getReconciliationItems(reconciliation.getRecordId(), kbTenantId);
+        assertEquals(items.size(), 1);
+        assertEquals(items.get(0).getStatus(), QualpaySettlementReconciler.ITEM_STATUS_MISMATCHED);
+        assertNull(items.get(0).getReportAmount());
+        assertEquals(items.get(0).getKbPaymentTransactionId(), response.getKbPaymentTransactionId());
+    }
+
+    @Test(groups = "slow")
+    public void testReconcileFile() throws Exception {
+        final UUID kbTenantId = UUID.randomUUID();
+        addSettledResponse("pg-matched", TransactionType.PURCHASE, new BigDecimal("10.00"), "000", kbTenantId);
+
+        final QualpaySettlementReconciler reconciler = new QualpaySettlementReconciler(dao, qualpayConfigPropertiesConfigurationHandler, clock);
+        try {
+            reconciler.reconcile("settlement.csv", clock.getUTCNow().minusDays(1), clock.getUTCNow().plusDays(1), kbTenantId);
+            fail("Settlement reports directory isn't configured");
+        } catch (final IllegalStateException e) {
+            // Expected
+        }
+
+        final Path reportsDirectory = Files.createTempDirectory("qualpay-settlement-reports");
+        final Path report = reportsDirectory.resolve("settlement.csv");
+        final Path outsideReport = reportsDirectory.resolveSibling(reportsDirectory.getFileName() + "-outside.csv");
+        try {
+            Files.write(report, "PG ID,Amount\npg-matched,10.00\n".getBytes(StandardCharsets.UTF_8));
+            Files.write(outsideReport, "PG ID,Amount\n".getBytes(StandardCharsets.UTF_8));
+            final Properties properties = new Properties();
+            properties.setProperty("org.killbill.billing.plugin.qualpay.settlementReports.directory", reportsDirectory.toString());
+            qualpayConfigPropertiesConfigurationHandler.setDefaultConfigurable(new QualpayConfigProperties(properties, ""));
+
+            final QualpayReconciliationsRecord reconciliation = reconciler.reconcile("settlement.csv", clock.getUTCNow().minusDays(1), clock.getUTCNow().plusDays(1), kbTenantId);
+            assertEquals(reconciliation.getStatus(), QualpayDao.RECONCILIATION_STATUS_COMPLETED);
+            assertEquals(reconciliation.getFileName(), "settlement.csv");
+            assertEquals(reconciliation.getNbMatched(), (Long) 1L);
+
+            // Only files of the reports directory can be read
+            for (final String fileName : ImmutableList.<String>of("../" + outsideReport.getFileName(), "unknown.csv")) {
+                try {
+                    reconciler.reconcile(fileName, clock.getUTCNow().minusDays(1), clock.getUTCNow().plusDays(1), kbTenantId);
+                    fail(fileName + " shouldn't be readable");
+                } catch (final IllegalArgumentException e) {
+                    // Expected
+                }
+            }
+        } finally {
+            Files.deleteIfExists(report);
+            Files.deleteIfExists(outsideReport);
+            Files.deleteIfExists(reportsDirectory);
+        }
+    }
+
+    private QualpayResponsesRecord addSettledResponse(final String pgId, final TransactionType transactionType, final BigDecimal amount, final String rcode, final UUID kbTenantId) throws SQLException {
+        final GatewayResponse gatewayResponse = new GatewayResponse();
+        gatewayResponse.setPgId(pgId);
+        gatewayResponse.setRcode(rcode);
+        return dao.addResponse(account.getId(),
+                               UUID.randomUUID(),
+                               UUID.randomUUID(),
+                               transactionType,
+                               amount,
+                               DEFAULT_CURRENCY,
+                               gatewayResponse,
+                               clock.getUTCNow(),
+                               kbTenantId);
+    }
+}
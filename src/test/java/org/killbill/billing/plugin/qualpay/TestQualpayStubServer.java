@@ -0,0 +1,114 @@
+/*
+ * Copyright 2014-2019 Groupon, Inc
+ * Copyright 2014-2019 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.plugin.qualpay;
+
+import java.util.Map;
+
+import org.killbill.billing.plugin.qualpay.client.PGApi;
+import org.killbill.billing.plugin.qualpay.client.PGApiCaptureRequest;
+import org.killbill.billing.plugin.qualpay.client.PGApiTransactionRequest;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableList;
+import io.swagger.client.api.CustomerVaultApi;
+import io.swagger.client.model.AddBillingCardRequest;
+import io.swagger.client.model.AddCustomerRequest;
+import io.swagger.client.model.CustomerVault;
+import io.swagger.client.model.GatewayResponse;
+import qpPlatform.ApiClient;
+import qpPlatform.ApiException;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.fail;
+
+public class TestQualpayStubServer {
+
+    private QualpayStubServer stubServer;
+
+    @BeforeMethod(groups = "slow")
+    public void setUp() throws Exception {
+        stubServer = new QualpayStubServer();
+    }
+
+    @AfterMethod(groups = "slow")
+    public void tearDown() {
+        stubServer.close();
+    }
+
+    @Test(groups = "slow")
+    public void testPaymentGateway() throws ApiException {
+        final PGApi pgApi = new PGApi(buildApiClient(false));
+
+        final PGApiTransactionRequest saleRequest = new PGApiTransactionRequest();
+        saleRequest.setAmtTran(10.0);
+        saleRequest.setCardId("card");
+        final GatewayResponse sale = pgApi.sale(saleRequest);
+        assertEquals(sale.getRcode(), "000");
+        assertNotNull(sale.getAuthCode());
+
+        final PGApiCaptureRequest captureRequest = new PGApiCaptureRequest();
+        captureRequest.setAmtTran(10.0);
+        assertEquals(pgApi.capture(sale.getPgId(), captureRequest).getRcode(), "000");
+        assertEquals(pgApi.capture("unknown", captureRequest).getRcode(), "404");
+
+        final Map<String, Object> reportedTransaction = pgApi.getTransaction(sale.getPgId());
+        assertEquals(reportedTransaction.get("tran_status"), "A");
+
+        stubServer.setResponseCodes("005");
+        assertEquals(pgApi.sale(saleRequest).getRcode(), "005");
+
+        stubServer.setErrorRate(1);
+        try {
+            pgApi.sale(saleRequest);
+            fail();
+        } catch (final ApiException e) {
+            assertEquals(e.getCode(), 503);
+        }
+        assertEquals(stubServer.getRequestCount(), 6);
+    }
+
+    @Test(groups = "slow")
+    public void testCustomerVault() throws ApiException {
+        final CustomerVaultApi customerVaultApi = new CustomerVaultApi(buildApiClient(true));
+
+        final AddBillingCardRequest billingCardRequest = new AddBillingCardRequest();
+        billingCardRequest.setCardNumber("4111111111111111");
+        billingCardRequest.setExpDate("0420");
+        billingCardRequest.setBillingZip("94402");
+        final AddCustomerRequest addCustomerRequest = new AddCustomerRequest();
+        addCustomerRequest.setAutoGenerateCustomerId(true);
+        addCustomerRequest.setBillingCards(ImmutableList.of(billingCardRequest));
+        final CustomerVault customerVault = customerVaultApi.addCustomer(addCustomerRequest).getData();
+        assertEquals(customerVault.getBillingCards().size(), 1);
+        assertEquals(customerVault.getBillingCards().get(0).getCardNumber(), "411111xxxxxx1111");
+
+        final CustomerVault updatedCustomerVault = customerVaultApi.addBillingCard(customerVault.getCustomerId(), billingCardRequest).getData();
+        assertEquals(updatedCustomerVault.getBillingCards().size(), 2);
+        assertEquals(customerVaultApi.getBillingCards(customerVault.getCustomerId(), null).getData().getBillingCards().size(), 2);
+    }
+
+    private ApiClient buildApiClient(final boolean platform) {
+        final ApiClient apiClient = new ApiClient();
+        apiClient.setUsername(QualpayStubServer.API_KEY);
+        apiClient.setBasePath(stubServer.getBaseUrl() + (platform ? "/platform" : ""));
+        return apiClient;
+    }
+}
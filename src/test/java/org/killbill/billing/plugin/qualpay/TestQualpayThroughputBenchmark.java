@@ -0,0 +1,242 @@
+/*
+ * Copyright 2014-2019 Groupon, Inc
+ * Copyright 2014-2019 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.plugin.qualpay;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.killbill.billing.payment.api.PluginProperty;
+import org.killbill.billing.payment.plugin.api.PaymentMethodInfoPlugin;
+import org.killbill.billing.payment.plugin.api.PaymentPluginStatus;
+import org.killbill.billing.payment.plugin.api.PaymentTransactionInfoPlugin;
+import org.killbill.billing.plugin.api.PluginProperties;
+import org.killbill.billing.plugin.api.payment.PluginPaymentMethodPlugin;
+import org.killbill.billing.plugin.qualpay.BenchmarkHelper.LatencySamples;
+import org.testng.SkipException;
+import org.testng.annotations.Test;
+
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+// End-to-end throughput of the plugin (embedded database, stub gateway): mvn test -Dtest=TestQualpayThroughputBenchmark -Dqualpay.benchmark=true
+// Each thread loops over authorize -> capture, purchase -> 3 partial refunds and a payment methods refresh.
+// Results are printed and appended to target/qualpay-throughput.csv, labelled with the current commit.
+public class TestQualpayThroughputBenchmark extends TestBase {
+
+    private static final String PROPERTY_PREFIX = "qualpay.benchmark.";
+    private static final List<String> OPERATIONS = ImmutableList.<String>of("authorize", "capture", "purchase", "refund", "refresh_payment_methods");
+    // A thread count is past the saturation point when it brings less than this throughput increase
+    private static final double SATURATION_MIN_GAIN = 0.10;
+
+    @Test(groups = "slow")
+    public void testThroughput() throws Exception {
+        if (!Boolean.getBoolean("qualpay.benchmark")) {
+            throw new SkipException("Enable with -Dqualpay.benchmark=true");
+        }
+        if (qualpayStubServer == null) {
+            throw new SkipException("Not load testing the Qualpay sandbox, use -Dqualpay.stub=true");
+        }
+
+        final long warmupSeconds = Long.getLong(PROPERTY_PREFIX + "warmupSeconds", 5);
+        final long durationSeconds = Long.getLong(PROPERTY_PREFIX + "durationSeconds", 20);
+        final String label = BenchmarkHelper.getLabel(PROPERTY_PREFIX + "label");
+
+        final UUID kbPaymentMethodId = createPaymentMethod();
+        qualpayStubServer.setLatency(Long.getLong(PROPERTY_PREFIX + "latencyMedianMillis", 20), Long.getLong(PROPERTY_PREFIX + "latencyP99Millis", 100));
+
+        double previousThroughput = 0;
+        Integer saturationThreads = null;
+        for (final String threads : Splitter.on(',').trimResults().split(System.getProperty(PROPERTY_PREFIX + "threads", "1,2,4,8,16,32"))) {
+            final int nbThreads = Integer.parseInt(threads);
+            run(kbPaymentMethodId, nbThreads, TimeUnit.SECONDS.toNanos(warmupSeconds));
+            final Map<String, LatencySamples> samples = run(kbPaymentMethodId, nbThreads, TimeUnit.SECONDS.toNanos(durationSeconds));
+
+            final double throughput = report(label, nbThreads, durationSeconds, samples);
+            if (saturationThreads == null && previousThroughput > 0 && throughput < previousThroughput * (1 + SATURATION_MIN_GAIN)) {
+                saturationThreads = nbThreads;
+            }
+            previousThroughput = throughput;
+        }
+        System.out.println(saturationThreads == null ? "No saturation point reached" : "Saturation point reached at " + saturationThreads + " threads");
+    }
+
+    private Map<String, LatencySamples> run(final UUID kbPaymentMethodId, final int nbThreads, final long durationNanos) throws Exception {
+        final ExecutorService executor = Executors.newFixedThreadPool(nbThreads);
+        final CountDownLatch start = new CountDownLatch(1);
+        final List<Future<Map<String, LatencySamples>>> futures = new ArrayList<Future<Map<String, LatencySamples>>>(nbThreads);
+        for (int i = 0; i < nbThreads; i++) {
+            futures.add(executor.submit(new Callable<Map<String, LatencySamples>>() {
+                @Override
+                public Map<String, LatencySamples> call() throws Exception {
+                    start.await();
+                    final Map<String, LatencySamples> samples = newSamples();
+                    final long deadline = System.nanoTime() + durationNanos;
+                    for (int iteration = 0; System.nanoTime() < deadline; iteration++) {
+                        switch (iteration % 3) {
+                            case 0:
+                                authorizeCapture(kbPaymentMethodId, samples);
+                                break;
+                            case 1:
+                                purchaseRefunds(kbPaymentMethodId, samples);
+                                break;
+                            default:
+                                refreshPaymentMethods(samples);
+                                break;
+                        }
+                    }
+                    return samples;
+                }
+            }));
+        }
+        start.countDown();
+
+        final Map<String, LatencySamples> samples = newSamples();
+        try {
+            for (final Future<Map<String, LatencySamples>> future : futures) {
+                for (final Map.Entry<String, LatencySamples> entry : future.get().entrySet()) {
+                    samples.get(entry.getKey()).addAll(entry.getValue());
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        return samples;
+    }
+
+    private void authorizeCapture(final UUID kbPaymentMethodId, final Map<String, LatencySamples> samples) {
+        final UUID kbPaymentId = UUID.randomUUID();
+        if (execute("authorize", kbPaymentId, kbPaymentMethodId, BigDecimal.TEN, samples)) {
+            execute("capture", kbPaymentId, kbPaymentMethodId, BigDecimal.TEN, samples);
+        }
+    }
+
+    private void purchaseRefunds(final UUID kbPaymentMethodId, final Map<String, LatencySamples> samples) {
+        final UUID kbPaymentId = UUID.randomUUID();
+        if (execute("purchase", kbPaymentId, kbPaymentMethodId, BigDecimal.TEN, samples)) {
+            for (final String amount : new String[]{"1", "2", "3"}) {
+                execute("refund", kbPaymentId, kbPaymentMethodId, new BigDecimal(amount), samples);
+            }
+        }
+    }
+
+    private void refreshPaymentMethods(final Map<String, LatencySamples> samples) {
+        final long startNanos = System.nanoTime();
+        try {
+            qualpayPaymentPluginApi.getPaymentMethods(account.getId(), true, ImmutableList.<PluginProperty>of(), context);
+            samples.get("refresh_payment_methods").add(System.nanoTime() - startNanos);
+        } catch (final Exception e) {
+            samples.get("refresh_payment_methods").fail();
+        }
+    }
+
+    // Returns true if the transaction was processed
+    private boolean execute(final String operation, final UUID kbPaymentId, final UUID kbPaymentMethodId, final BigDecimal amount, final Map<String, LatencySamples> samples) {
+        final UUID kbTransactionId = UUID.randomUUID();
+        final long startNanos = System.nanoTime();
+        final PaymentTransactionInfoPlugin transaction;
+        try {
+            if ("authorize".equals(operation)) {
+                transaction = qualpayPaymentPluginApi.authorizePayment(account.getId(), kbPaymentId, kbTransactionId, kbPaymentMethodId, amount, DEFAULT_CURRENCY, ImmutableList.<PluginProperty>of(), context);
+            } else if ("capture".equals(operation)) {
+                transaction = qualpayPaymentPluginApi.capturePayment(account.getId(), kbPaymentId, kbTransactionId, kbPaymentMethodId, amount, DEFAULT_CURRENCY, ImmutableList.<PluginProperty>of(), context);
+            } else if ("purchase".equals(operation)) {
+                transaction = qualpayPaymentPluginApi.purchasePayment(account.getId(), kbPaymentId, kbTransactionId, kbPaymentMethodId, amount, DEFAULT_CURRENCY, ImmutableList.<PluginProperty>of(), context);
+            } else {
+                transaction = qualpayPaymentPluginApi.refundPayment(account.getId(), kbPaymentId, kbTransactionId, kbPaymentMethodId, amount, DEFAULT_CURRENCY, ImmutableList.<PluginProperty>of(), context);
+            }
+        } catch (final Exception e) {
+            samples.get(operation).fail();
+            return false;
+        }
+
+        samples.get(operation).add(System.nanoTime() - startNanos);
+        if (transaction.getStatus() != PaymentPluginStatus.PROCESSED) {
+            samples.get(operation).fail();
+            return false;
+        }
+        return true;
+    }
+
+    // Returns the total throughput (plugin calls per second)
+    private double report(final String label, final int nbThreads, final long durationSeconds, final Map<String, LatencySamples> samples) throws IOException {
+        final Writer writer = BenchmarkHelper.openResults("qualpay-throughput.csv", "label,threads,operation,ops_per_sec,p50_ms,p99_ms,p999_ms,errors");
+        try {
+            long total = 0;
+            for (final Map.Entry<String, LatencySamples> entry : samples.entrySet()) {
+                final LatencySamples operationSamples = entry.getValue();
+                total += operationSamples.size();
+                final String line = String.format(Locale.ROOT,
+                                                  "%s,%d,%s,%.1f,%.2f,%.2f,%.2f,%d",
+                                                  label,
+                                                  nbThreads,
+                                                  entry.getKey(),
+                                                  (double) operationSamples.size() / durationSeconds,
+                                                  operationSamples.percentileMillis(0.50),
+                                                  operationSamples.percentileMillis(0.99),
+                                                  operationSamples.percentileMillis(0.999),
+                                                  operationSamples.getErrors());
+                System.out.println(line);
+                writer.write(line + "\n");
+            }
+
+            final double throughput = (double) total / durationSeconds;
+            System.out.println(String.format(Locale.ROOT, "%s,%d,total,%.1f", label, nbThreads, throughput));
+            return throughput;
+        } finally {
+            writer.close();
+        }
+    }
+
+    private UUID createPaymentMethod() throws Exception {
+        final UUID kbPaymentMethodId = UUID.randomUUID();
+        qualpayPaymentPluginApi.addPaymentMethod(account.getId(),
+                                                 kbPaymentMethodId,
+                                                 new PluginPaymentMethodPlugin(kbPaymentMethodId, null, false, ImmutableList.<PluginProperty>of()),
+                                                 false,
+                                                 PluginProperties.buildPluginProperties(ImmutableMap.<String, String>of("card_number", "4111111111111111",
+                                                                                                                        "exp_date", "0420",
+                                                                                                                        "cvv2", "152",
+                                                                                                                        "billing_zip", "94402")),
+                                                 context);
+
+        final List<PaymentMethodInfoPlugin> paymentMethods = qualpayPaymentPluginApi.getPaymentMethods(account.getId(), true, ImmutableList.<PluginProperty>of(), context);
+        return paymentMethods.get(0).getPaymentMethodId();
+    }
+
+    private static Map<String, LatencySamples> newSamples() {
+        final Map<String, LatencySamples> samples = new TreeMap<String, LatencySamples>();
+        for (final String operation : OPERATIONS) {
+            samples.put(operation, new LatencySamples());
+        }
+        return samples;
+    }
+}
@@ -0,0 +1,209 @@
+/*
+ * Copyright 2014-2019 Groupon, Inc
+ * Copyright 2014-2019 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.plugin.qualpay;
+
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Properties;
+import java.util.UUID;
+
+import org.joda.time.DateTime;
+import org.killbill.billing.payment.api.PluginProperty;
+import org.killbill.billing.payment.api.TransactionType;
+import org.killbill.billing.payment.plugin.api.PaymentMethodInfoPlugin;
+import org.killbill.billing.payment.plugin.api.PaymentPluginApiException;
+import org.killbill.billing.payment.plugin.api.PaymentPluginStatus;
+import org.killbill.billing.payment.plugin.api.PaymentTransactionInfoPlugin;
+import org.killbill.billing.plugin.qualpay.dao.gen.tables.records.QualpayResponsesRecord;
+import org.testng.SkipException;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableList;
+
+import io.swagger.client.model.GatewayResponse;
+
+import static org.testng.Assert.assertEquals;
+
+public class TestQualpayUndefinedTransactionsReconciler extends TestBase {
+
+    private static final long MIN_AGE_MINUTES = 5;
+    private static final long MAX_AGE_HOURS = 72;
+
+    @Test(groups = "slow")
+    public void testReconcile() throws Exception {
+        final String pgId = purchase();
+
+        final DateTime now = clock.getUTCNow();
+        final UUID kbPaymentId = addUndefinedResponse(pgId, now.minusMinutes(10), context.getTenantId());
+        // e.g. timeout: nothing to look up
+        final UUID noPgIdKbPaymentId = addUndefinedResponse(null, now.minusMinutes(10), context.getTenantId());
+        // Kill Bill may still be retrying it
+        final UUID tooRecentKbPaymentId = addUndefinedResponse(pgId, now.minusMinutes(1), context.getTenantId());
+        // Left to the Janitor
+        final UUID tooOldKbPaymentId = addUndefinedResponse(pgId, now.minusHours((int) MAX_AGE_HOURS + 1), context.getTenantId());
+
+        final QualpayUndefinedTransactionsReconciler reconciler = newReconciler(10);
+        try {
+            final long nbRequests = qualpayStubServer.getRequestCount();
+            assertEquals(reconciler.reconcile(), 1);
+            // Only the transaction in the window is looked up
+            assertEquals(qualpayStubServer.getRequestCount() - nbRequests, 1);
+
+            assertEquals(getPluginStatus(kbPaymentId), PaymentPluginStatus.PROCESSED.toString());
+            assertEquals(getPluginStatus(noPgIdKbPaymentId), PaymentPluginStatus.UNDEFINED.toString());
+            assertEquals(getPluginStatus(tooRecentKbPaymentId), PaymentPluginStatus.UNDEFINED.toString());
+            assertEquals(getPluginStatus(tooOldKbPaymentId), PaymentPluginStatus.UNDEFINED.toString());
+
+            // Nothing left to resolve in the window
+            assertEquals(reconciler.reconcile(), 0);
+        } finally {
+            reconciler.close();
+        }
+    }
+
+    @Test(groups = "slow")
+    public void testReconcileInBatchesPerTenant() throws Exception {
+        final String pgId = purchase();
+
+        final DateTime createdDate = clock.getUTCNow().minusMinutes(10);
+        final UUID otherKbTenantId = UUID.randomUUID();
+        // More than one batch for the first tenant
+        for (int i = 0; i < 5; i++) {
+            addUndefinedResponse(pgId, createdDate, context.getTenantId());
+        }
+        for (int i = 0; i < 2; i++) {
+            addUndefinedResponse(pgId, createdDate, otherKbTenantId);
+        }
+
+        final QualpayUndefinedTransactionsReconciler reconciler = newReconciler(2);
+        try {
+            assertEquals(reconciler.reconcile(), 7);
+            assertEquals(dao.getResponsesByPluginStatus(PaymentPluginStatus.UNDEFINED.toString(), createdDate.minusMinutes(1), clock.getUTCNow(), 0, 10, context.getTenantId()).size(), 0);
+            assertEquals(dao.getResponsesByPluginStatus(PaymentPluginStatus.UNDEFINED.toString(), createdDate.minusMinutes(1), clock.getUTCNow(), 0, 10, otherKbTenantId).size(), 0);
+        } finally {
+            reconciler.close();
+        }
+    }
+
+    @Test(groups = "slow")
+    public void testClose() throws Exception {
+        addUndefinedResponse(null, clock.getUTCNow().minusMinutes(10), context.getTenantId());
+
+        final QualpayUndefinedTransactionsReconciler reconciler = newReconciler(10);
+        reconciler.start();
+        reconciler.close();
+        // The scheduled runs are cancelled, manual runs don't depend on the executor
+        assertEquals(reconciler.reconcile(), 0);
+    }
+
+    @Test(groups = "slow")
+    public void testGetPaymentInfoRefresh() throws Exception {
+        final String pgId = purchase();
+        final UUID kbPaymentId = addUndefinedResponse(pgId, clock.getUTCNow(), context.getTenantId());
+
+        final Properties properties = buildProperties();
+        properties.setProperty("org.killbill.billing.plugin.qualpay.paymentInfoRefresh.timeoutMillis", "200");
+        qualpayConfigPropertiesConfigurationHandler.setDefaultConfigurable(new QualpayConfigProperties(properties, ""));
+
+        // Qualpay slower than the refresh timeout, or failing: the stored state is returned
+        qualpayStubServer.setLatency(2000, 0);
+        assertEquals(getPaymentInfoStatus(kbPaymentId), PaymentPluginStatus.UNDEFINED);
+        qualpayStubServer.setLatency(0, 0);
+        qualpayStubServer.setErrorRate(1);
+        assertEquals(getPaymentInfoStatus(kbPaymentId), PaymentPluginStatus.UNDEFINED);
+        assertEquals(getPluginStatus(kbPaymentId), PaymentPluginStatus.UNDEFINED.toString());
+
+        // Refreshed and persisted
+        qualpayStubServer.setErrorRate(0);
+        assertEquals(getPaymentInfoStatus(kbPaymentId), PaymentPluginStatus.PROCESSED);
+        assertEquals(getPluginStatus(kbPaymentId), PaymentPluginStatus.PROCESSED.toString());
+        assertEquals(qualpayPaymentPluginApi.getInFlightStateRefreshes(), 0);
+
+        // Resolved: no more lookups
+        final long nbRequests = qualpayStubServer.getRequestCount();
+        assertEquals(getPaymentInfoStatus(kbPaymentId), PaymentPluginStatus.PROCESSED);
+        assertEquals(qualpayStubServer.getRequestCount(), nbRequests);
+    }
+
+    @Test(groups = "slow")
+    public void testGetPaymentInfoRefreshDisabled() throws Exception {
+        final String pgId = purchase();
+        final UUID kbPaymentId = addUndefinedResponse(pgId, clock.getUTCNow(), context.getTenantId());
+
+        final Properties properties = buildProperties();
+        properties.setProperty("org.killbill.billing.plugin.qualpay.paymentInfoRefresh.timeoutMillis", "0");
+        qualpayConfigPropertiesConfigurationHandler.setDefaultConfigurable(new QualpayConfigProperties(properties, ""));
+
+        final long nbRequests = qualpayStubServer.getRequestCount();
+        assertEquals(getPaymentInfoStatus(kbPaymentId), PaymentPluginStatus.UNDEFINED);
+        assertEquals(qualpayStubServer.getRequestCount(), nbRequests);
+    }
+
+    private QualpayUndefinedTransactionsReconciler newReconciler(final int batchSize) {
+        return new QualpayUndefinedTransactionsReconciler(qualpayPaymentPluginApi, dao, clock, 60, MIN_AGE_MINUTES, MAX_AGE_HOURS, batchSize);
+    }
+
+    // Approved transaction known to the gateway
+    private String purchase() throws Exception {
+        if (qualpayStubServer == null) {
+            throw new SkipException("Requires the Qualpay stub");
+        }
+
+        createQualpayCustomerWithCreditCard();
+        final List<PaymentMethodInfoPlugin> paymentMethods = qualpayPaymentPluginApi.getPaymentMethods(account.getId(), false, ImmutableList.<PluginProperty>of(), context);
+        final UUID kbPaymentId = UUID.randomUUID();
+        qualpayPaymentPluginApi.purchasePayment(account.getId(),
+                                                kbPaymentId,
+                                                UUID.randomUUID(),
+                                                paymentMethods.get(0).getPaymentMethodId(),
+                                                BigDecimal.TEN,
+                                                DEFAULT_CURRENCY,
+                                                ImmutableList.<PluginProperty>of(),
+                                                context);
+        return dao.getResponses(kbPaymentId, context.getTenantId()).get(0).getQualpayId();
+    }
+
+    private UUID addUndefinedResponse(final String pgId, final DateTime createdDate, final UUID kbTenantId) throws SQLException {
+        final GatewayResponse gatewayResponse = new GatewayResponse();
+        gatewayResponse.setPgId(pgId);
+        gatewayResponse.setRcode("998");
+        final UUID kbPaymentId = UUID.randomUUID();
+        dao.addResponse(account.getId(),
+                        kbPaymentId,
+                        UUID.randomUUID(),
+                        TransactionType.PURCHASE,
+                        BigDecimal.TEN,
+                        DEFAULT_CURRENCY,
+                        gatewayResponse,
+                        createdDate,
+                        kbTenantId);
+        return kbPaymentId;
+    }
+
+    private PaymentPluginStatus getPaymentInfoStatus(final UUID kbPaymentId) throws PaymentPluginApiException {
+        final List<PaymentTransactionInfoPlugin> transactions = qualpayPaymentPluginApi.getPaymentInfo(account.getId(), kbPaymentId, ImmutableList.<PluginProperty>of(), context);
+        assertEquals(transactions.size(), 1);
+        return transactions.get(0).getStatus();
+    }
+
+    private String getPluginStatus(final UUID kbPaymentId) throws SQLException {
+        final List<QualpayResponsesRecord> responses = dao.getResponses(kbPaymentId, context.getTenantId());
+        return responses.get(0).getPluginStatus();
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2014-2019 Groupon, Inc
+ * Copyright 2014-2019 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.plugin.qualpay.client;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+
+public class TestQualpayGatewayCaptures {
+
+    @Test(groups = "slow")
+    public void testCaptureReasons() {
+        final QualpayGatewayCaptures captures = new QualpayGatewayCaptures(16, 0, 1000);
+        assertEquals(captures.shouldCapture(TimeUnit.MILLISECONDS.toNanos(10), true), QualpayGatewayCaptures.REASON_FAILED);
+        assertEquals(captures.shouldCapture(TimeUnit.MILLISECONDS.toNanos(1500), false), QualpayGatewayCaptures.REASON_SLOW);
+        assertNull(captures.shouldCapture(TimeUnit.MILLISECONDS.toNanos(10), false));
+
+        assertEquals(new QualpayGatewayCaptures(16, 1, 0).shouldCapture(TimeUnit.HOURS.toNanos(1), false), QualpayGatewayCaptures.REASON_SAMPLED);
+        assertNull(new QualpayGatewayCaptures(0, 1, 0).shouldCapture(0, true));
+    }
+
+    @Test(groups = "slow")
+    public void testRingBuffer() {
+        final UUID kbTenantId = UUID.randomUUID();
+        final UUID otherKbTenantId = UUID.randomUUID();
+        // Rounded up to 4
+        final QualpayGatewayCaptures captures = new QualpayGatewayCaptures(3, 0, 0);
+        for (int i = 0; i < 6; i++) {
+            captures.capture(QualpayGatewayCaptures.REASON_FAILED, "pg_sale", i == 5 ? otherKbTenantId : kbTenantId, "10" + i, 0, null, null);
+        }
+
+        // Oldest ones overwritten, most recent first
+        final List<Map<String, Object>> tenantCaptures = captures.getCaptures(kbTenantId, 10);
+        assertEquals(tenantCaptures.size(), 3);
+        assertEquals(tenantCaptures.get(0).get("code"), "104");
+        assertEquals(tenantCaptures.get(2).get("code"), "102");
+
+        assertEquals(captures.getCaptures(kbTenantId, 1).size(), 1);
+        assertEquals(captures.getCaptures(otherKbTenantId, 10).get(0).get("code"), "105");
+    }
+
+    @Test(groups = "slow")
+    public void testRedaction() {
+        assertEquals(QualpayGatewayCaptures.redact("{\"card_number\":\"4111111111111111\",\"exp_date\":\"0420\",\"cvv2\" : \"152\",\"billing_zip\":\"94402\"}"),
+                     "{\"card_number\":\"xxxx1111\",\"exp_date\":\"xxxx\",\"cvv2\" : \"xxxx\",\"billing_zip\":\"94402\"}");
+        assertNull(QualpayGatewayCaptures.redact(null));
+    }
+}
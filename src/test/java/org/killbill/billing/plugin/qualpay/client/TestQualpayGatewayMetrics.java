@@ -0,0 +1,80 @@
+/*
+ * Copyright 2014-2019 Groupon, Inc
+ * Copyright 2014-2019 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.plugin.qualpay.client;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableSet;
+import qpPlatform.ApiException;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+public class TestQualpayGatewayMetrics {
+
+    @Test(groups = "slow")
+    public void testPrometheusExposition() throws IOException {
+        final UUID kbTenantId = UUID.randomUUID();
+        final QualpayGatewayMetrics metrics = new QualpayGatewayMetrics();
+        metrics.recordCall("pg_sale", kbTenantId, TimeUnit.MILLISECONDS.toNanos(40), "000");
+        metrics.recordCall("pg_sale", kbTenantId, TimeUnit.MILLISECONDS.toNanos(120), "000");
+        metrics.recordCall("pg_sale", kbTenantId, TimeUnit.SECONDS.toNanos(90), "401");
+        metrics.recordTransaction("PURCHASE", "PROCESSED");
+
+        try {
+            metrics.record("vault_get_billing_cards", kbTenantId, new QualpayGatewayMetrics.GatewayCall<Object>() {
+                @Override
+                public Object call() throws ApiException {
+                    throw new ApiException(404, "Not found");
+                }
+            });
+            fail();
+        } catch (final ApiException e) {
+            // Expected
+        }
+
+        final StringWriter writer = new StringWriter();
+        metrics.writePrometheus(writer);
+        final String exposition = writer.toString();
+
+        final String labels = "endpoint=\"pg_sale\"";
+        // Cumulative buckets
+        assertTrue(exposition.contains("qualpay_gateway_request_duration_seconds_bucket{" + labels + ",le=\"0.001\"} 0\n"));
+        assertTrue(exposition.contains("qualpay_gateway_request_duration_seconds_bucket{" + labels + ",le=\"0.025\"} 0\n"));
+        assertTrue(exposition.contains("qualpay_gateway_request_duration_seconds_bucket{" + labels + ",le=\"0.05\"} 1\n"));
+        assertTrue(exposition.contains("qualpay_gateway_request_duration_seconds_bucket{" + labels + ",le=\"0.15\"} 2\n"));
+        assertTrue(exposition.contains("qualpay_gateway_request_duration_seconds_bucket{" + labels + ",le=\"60.0\"} 2\n"));
+        assertTrue(exposition.contains("qualpay_gateway_request_duration_seconds_bucket{" + labels + ",le=\"+Inf\"} 3\n"));
+        assertTrue(exposition.contains("qualpay_gateway_request_duration_seconds_count{" + labels + "} 3\n"));
+        assertTrue(exposition.contains("qualpay_gateway_responses_total{" + labels + ",code=\"000\"} 2\n"));
+        assertTrue(exposition.contains("qualpay_gateway_responses_total{" + labels + ",code=\"401\"} 1\n"));
+        assertTrue(exposition.contains("qualpay_gateway_responses_total{endpoint=\"vault_get_billing_cards\",code=\"http_404\"} 1\n"));
+        assertTrue(exposition.contains("qualpay_transactions_total{transaction_type=\"PURCHASE\",status=\"PROCESSED\"} 1\n"));
+
+        // Scraped without credentials: tenants are only known internally, for the health checks
+        assertFalse(exposition.contains(kbTenantId.toString()));
+        assertEquals(metrics.getTenants(), ImmutableSet.<UUID>of(kbTenantId));
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright 2014-2019 Groupon, Inc
+ * Copyright 2014-2019 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.plugin.qualpay.jfr;
+
+import java.util.UUID;
+
+import org.killbill.billing.plugin.qualpay.dao.gen.tables.records.QualpayResponsesRecord;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableList;
+
+import static org.testng.Assert.assertEquals;
+
+public class TestQualpayEvents {
+
+    @Test(groups = "slow")
+    public void testRows() {
+        assertEquals(QualpayEvents.toRows(null), 0);
+        assertEquals(QualpayEvents.toRows(ImmutableList.<String>of("a", "b")), 2);
+        assertEquals(QualpayEvents.toRows(new QualpayResponsesRecord()), 1);
+        assertEquals(QualpayEvents.toRows(3), 3);
+        assertEquals(QualpayEvents.toRows(Boolean.TRUE), -1);
+    }
+
+    @Test(groups = "slow")
+    public void testCallerMethod() {
+        final StackTraceElement[] stackTrace = new StackTraceElement[]{
+                new StackTraceElement("org.killbill.billing.plugin.qualpay.jfr.QualpayEvents$Recorder", "commitDaoOperation", null, -1),
+                new StackTraceElement("org.killbill.billing.plugin.qualpay.dao.QualpayDao", "execute", null, -1),
+                new StackTraceElement("org.killbill.billing.plugin.qualpay.dao.QualpayDao", "getResponsesByPluginStatus", null, -1),
+                new StackTraceElement("org.killbill.billing.plugin.qualpay.QualpayUndefinedTransactionsReconciler", "reconcile", null, -1)
+        };
+        assertEquals(QualpayEvents.callerMethod(stackTrace), "QualpayDao.getResponsesByPluginStatus");
+        assertEquals(QualpayEvents.callerMethod(new StackTraceElement[0]), "unknown");
+    }
+
+    @Test(groups = "slow")
+    public void testNoRecording() {
+        // Without a running recording (or without jdk.jfr), nothing is allocated
+        final Object event = QualpayEvents.beginGatewayCall();
+        QualpayEvents.commitGatewayCall(event, "pg_sale", UUID.randomUUID(), "000", 128);
+        QualpayEvents.commitDaoOperation(QualpayEvents.beginDaoOperation(), ImmutableList.<String>of(), false);
+        QualpayEvents.cacheLookup(QualpayEvents.CACHE_RECENT_WRITES, true);
+        assertEquals(event, null);
+    }
+}